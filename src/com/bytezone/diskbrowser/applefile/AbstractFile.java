@@ -33,6 +33,12 @@ public abstract class AbstractFile implements DataSource
     return name;
   }
 
+  // the file's data, for subclasses that only read it from the disk when it's needed
+  public byte[] getBuffer ()
+  {
+    return buffer;
+  }
+
   @Override
   public String getAssembler ()
   {
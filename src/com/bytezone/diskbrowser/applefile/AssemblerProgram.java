@@ -9,7 +9,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.bytezone.diskbrowser.gui.DiskBrowser;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
 public class AssemblerProgram extends AbstractFile
@@ -292,7 +291,7 @@ public class AssemblerProgram extends AbstractFile
   {
     equates = new HashMap<Integer, String> ();
     DataInputStream inputEquates =
-        new DataInputStream (DiskBrowser.class.getClassLoader ()
+        new DataInputStream (AssemblerProgram.class.getClassLoader ()
             .getResourceAsStream ("com/bytezone/diskbrowser/applefile/equates.txt"));
     BufferedReader in = new BufferedReader (new InputStreamReader (inputEquates));
 
@@ -1,7 +1,8 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
@@ -12,13 +13,14 @@ public class DoubleHiResImage extends HiResImage
   private final byte[] auxBuffer;
   private DoubleScrunch doubleScrunch;
   byte[] packedBuffer;
+  private byte[] pixelValues;
 
   public DoubleHiResImage (String name, byte[] buffer, byte[] auxBuffer)
   {
     super (name, buffer);
 
     this.auxBuffer = auxBuffer;
-    createImage ();
+    createImageLater ();
   }
 
   public DoubleHiResImage (String name, byte[] buffer)
@@ -47,7 +49,7 @@ public class DoubleHiResImage extends HiResImage
     //      auxBuffer = null;
     //    }
 
-    createImage ();
+    createImageLater ();
   }
 
   @Override
@@ -55,64 +57,78 @@ public class DoubleHiResImage extends HiResImage
   {
     // image will be doubled vertically
     image = new BufferedImage (560, 192 * 2, BufferedImage.TYPE_BYTE_GRAY);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
-    int ndx = 0;
-
-    for (int i = 0; i < 3; i++)
-      for (int j = 0; j < 8; j++)
-        for (int k = 0; k < 8; k++)
-        {
-          int base = i * 0x28 + j * 0x80 + k * 0x400;
-          int max = Math.min (base + 40, buffer.length);
-          for (int ptr = base; ptr < max; ptr += 2)
-          {
-            int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
-                | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
-            for (int px = 0; px < 28; px++)
-            {
-              int val = (value >> px) & 0x01;
-              int pixel = val == 0 ? 0 : 255;
-              dataBuffer.setElem (ndx, pixel);
-              dataBuffer.setElem (ndx + 560, pixel);  // repeat pixel one line on
-              ++ndx;
-            }
-          }
-          ndx += 560;                                 // skip past repeated line
-        }
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
+
+    for (int row = 0; row < 192; row++)
+    {
+      int base = getLineOffset (row);
+      int max = Math.min (base + 40, buffer.length);
+      int ndx = row * 560 * 2;
+
+      // each pair of bytes is aux, main, aux, main - seven pixels each
+      for (int ptr = base; ptr + 1 < max; ptr += 2, ndx += 28)
+      {
+        System.arraycopy (monochromeTable, (auxBuffer[ptr] & 0x7F) * 7, pixels, ndx, 7);
+        System.arraycopy (monochromeTable, (buffer[ptr] & 0x7F) * 7, pixels, ndx + 7, 7);
+        System.arraycopy (monochromeTable, (auxBuffer[ptr + 1] & 0x7F) * 7, pixels,
+            ndx + 14, 7);
+        System.arraycopy (monochromeTable, (buffer[ptr + 1] & 0x7F) * 7, pixels,
+            ndx + 21, 7);
+      }
+
+      System.arraycopy (pixels, row * 560 * 2, pixels, row * 560 * 2 + 560, 560);
+    }
   }
 
   @Override
   protected void createColourImage ()
   {
-    paletteIndex = paletteFactory.getCurrentPaletteIndex ();
-    Palette palette = paletteFactory.getCurrentPalette ();
-    int[] colours = palette.getColours ();
+    byte[] values = getPixelValues ();
+    int[] colours = paletteFactory.getCurrentPalette ().getColours ();
 
     // image will be doubled horizontally
     image = new BufferedImage (140 * 2, 192, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
-    int ndx = 0;
-
-    for (int i = 0; i < 3; i++)
-      for (int j = 0; j < 8; j++)
-        for (int k = 0; k < 8; k++)
-        {
-          int base = i * 0x28 + j * 0x80 + k * 0x400;
-          int max = Math.min (base + 40, buffer.length);
-
-          for (int ptr = base; ptr < max; ptr += 2)
-          {
-            int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
-                | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
-            for (int px = 0; px < 28; px += 4)
-            {
-              int val = (value >> px) & 0x0F;
-              int val2 = swap[val];
-              dataBuffer.setElem (ndx++, colours[val2]);
-              dataBuffer.setElem (ndx++, colours[val2]);  // repeat pixel
-            }
-          }
-        }
+    int[] pixels = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
+
+    for (int i = 0, ndx = 0; i < values.length; i++)
+    {
+      int colour = colours[values[i]];
+      pixels[ndx++] = colour;
+      pixels[ndx++] = colour;                       // repeat pixel
+    }
+  }
+
+  // decode the screen once into a palette entry for each pixel
+  private byte[] getPixelValues ()
+  {
+    if (pixelValues != null)
+      return pixelValues;
+
+    pixelValues = new byte[140 * 192];
+
+    for (int row = 0; row < 192; row++)
+    {
+      int base = getLineOffset (row);
+      int max = Math.min (base + 40, buffer.length);
+      int ndx = row * 140;
+
+      for (int ptr = base; ptr + 1 < max; ptr += 2)
+      {
+        int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
+            | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
+        for (int px = 0; px < 28; px += 4)
+          pixelValues[ndx++] = (byte) swap[(value >> px) & 0x0F];
+      }
+    }
+
+    return pixelValues;
+  }
+
+  // colour quirks only apply to standard hi-res
+  @Override
+  public char getRenderingType ()
+  {
+    return RENDER_PALETTE;
   }
 
   @Override
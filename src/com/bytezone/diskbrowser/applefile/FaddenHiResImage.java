@@ -44,6 +44,6 @@ public class FaddenHiResImage extends OriginalHiResImage
       while (matchLen-- > 0)
         this.buffer[outPtr++] = this.buffer[offset++];
     }
-    createImage ();
+    createImageLater ();
   }
 }
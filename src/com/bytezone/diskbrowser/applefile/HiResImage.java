@@ -1,9 +1,13 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
 
@@ -52,6 +56,12 @@ public abstract class HiResImage extends AbstractFile
   //   $C2 ANI          Paintworks animation
   //   $C3 PAL          Paintworks palette
 
+  // how an image depends on the rendering options
+  public static final char RENDER_FILE = 'f';         // drawn by ImageIO, never changes
+  public static final char RENDER_COLOUR = 'c';       // the colours come from the file
+  public static final char RENDER_PALETTE = 'p';      // uses the current palette
+  public static final char RENDER_QUIRKS = 'q';       // and the colour quirks
+
   static PaletteFactory paletteFactory = new PaletteFactory ();
 
   static final byte[] pngHeader =
@@ -60,13 +70,20 @@ public abstract class HiResImage extends AbstractFile
   static boolean colourQuirks;
   static boolean monochrome;
 
+  // seven grey pixels for each value of a screen byte, ignoring the colour bit
+  static final byte[] monochromeTable = createMonochromeTable ();
+
   int fileType;
   int auxType;
   int eof;
 
-  int paletteIndex;
   String failureReason = "";
 
+  private final Map<String, SoftReference<BufferedImage>> renderedImages =
+      new HashMap<String, SoftReference<BufferedImage>> ();
+  private String imageKey;
+  private boolean imagePending;
+
   public HiResImage (String name, byte[] buffer)
   {
     super (name, buffer);
@@ -96,24 +113,71 @@ public abstract class HiResImage extends AbstractFile
     this.eof = eof;
   }
 
+  // Each rendering of the image is kept, so that switching back to a palette (or
+  // quirks or monochrome setting) that has already been drawn costs nothing.
   protected void createImage ()
   {
-    if (failureReason.isEmpty ())
+    imagePending = false;
+    if (!failureReason.isEmpty ())
+      return;
+
+    String key = getImageKey ();
+    SoftReference<BufferedImage> reference = renderedImages.get (key);
+    BufferedImage renderedImage = reference == null ? null : reference.get ();
+
+    if (renderedImage != null)
+      image = renderedImage;
+    else
+    {
       if (isGif (buffer) || isPng (buffer) || isBmp (buffer))
         makeImage ();
       else if (monochrome)
         createMonochromeImage ();
       else
         createColourImage ();
+
+      if (image != null)
+        renderedImages.put (key, new SoftReference<BufferedImage> (image));
+    }
+
+    imageKey = key;
+  }
+
+  // The image is drawn the first time it is asked for, so that opening the file (or
+  // finding its thumbnail in a cache) doesn't draw it.
+  protected void createImageLater ()
+  {
+    imagePending = true;
+  }
+
+  @Override
+  public BufferedImage getImage ()
+  {
+    if (imagePending)
+      createImage ();
+    return image;
   }
 
   abstract void createMonochromeImage ();
 
   abstract void createColourImage ();
 
+  // the rendering options that this image depends on
+  public char getRenderingType ()
+  {
+    if (isGif (buffer) || isPng (buffer) || isBmp (buffer))
+      return RENDER_FILE;
+    return RENDER_QUIRKS;
+  }
+
+  String getImageKey ()
+  {
+    return getRenderingKey (getRenderingType ());
+  }
+
   public void checkPalette ()
   {
-    if (!monochrome && paletteIndex != paletteFactory.getCurrentPaletteIndex ())
+    if (!getImageKey ().equals (imageKey))
       createImage ();
   }
 
@@ -153,6 +217,26 @@ public abstract class HiResImage extends AbstractFile
     monochrome = value;
   }
 
+  // identifies the current rendering options, so that cached images can be matched
+  public static String getRenderingKey ()
+  {
+    return getRenderingKey (RENDER_QUIRKS);
+  }
+
+  // only the options that an image of this rendering type depends on
+  public static String getRenderingKey (char renderingType)
+  {
+    if (renderingType == RENDER_FILE)
+      return "file";
+    if (monochrome)
+      return "mono";
+    if (renderingType == RENDER_COLOUR)
+      return "colour";
+    if (renderingType == RENDER_PALETTE)
+      return "" + paletteFactory.getCurrentPaletteIndex ();
+    return paletteFactory.getCurrentPaletteIndex () + (colourQuirks ? "q" : "");
+  }
+
   /*-
    * Files of type $08 and any auxiliary type less than or equal to $3FFF contain a 
    * standard Apple II graphics file in one of several modes. After determining that 
@@ -263,137 +347,49 @@ public abstract class HiResImage extends AbstractFile
   *              (as in 10xxxxxx case)
   */
 
-  // this should call unpackLine()
-  byte[] unpack (byte[] buffer) throws ArrayIndexOutOfBoundsException
+  byte[] unpack (byte[] buffer)
   {
-    // routine found here - http://kpreid.livejournal.com/4319.html
-
-    byte[] newBuf = new byte[calculateBufferSize (buffer)];
-    byte[] fourBuf = new byte[4];
-
-    int ptr = 0, newPtr = 0;
-    while (ptr < buffer.length)
-    {
-      int type = (buffer[ptr] & 0xC0) >> 6;         // 0-3
-      int count = (buffer[ptr++] & 0x3F) + 1;       // 1-64
-
-      switch (type)
-      {
-        case 0:                           // copy next 1-64 bytes as is
-          while (count-- != 0)
-            newBuf[newPtr++] = buffer[ptr++];
-          break;
-
-        case 1:                          // repeat next byte 3/5/6/7 times
-          byte b = buffer[ptr++];
-          while (count-- != 0)
-            newBuf[newPtr++] = b;
-          break;
-
-        case 2:                          // repeat next 4 bytes (count) times
-          for (int i = 0; i < 4; i++)
-            fourBuf[i] = buffer[ptr++];
-          while (count-- != 0)
-            for (int i = 0; i < 4; i++)
-              newBuf[newPtr++] = fourBuf[i];
-          break;
-
-        case 3:                          // repeat next byte (4*count) times
-          b = buffer[ptr++];
-          count *= 4;
-          while (count-- != 0)
-            newBuf[newPtr++] = b;
-          break;
-      }
-    }
+    byte[] newBuf = new byte[PackBytes.getUnpackedLength (buffer, 0, buffer.length)];
+    PackBytes.unpack (buffer, 0, buffer.length, newBuf, 0);
     return newBuf;
   }
 
-  private int calculateBufferSize (byte[] buffer)
-  {
-    int ptr = 0;
-    int size = 0;
-    while (ptr < buffer.length)
-    {
-      int type = (buffer[ptr] & 0xC0) >> 6;         // 0-3
-      int count = (buffer[ptr++] & 0x3F) + 1;       // 1-64
-
-      if (type == 0)
-      {
-        ptr += count;
-        size += count;
-      }
-      else if (type == 1)
-      {
-        ptr++;
-        size += count;
-      }
-      else if (type == 2)
-      {
-        ptr += 4;
-        size += count * 4;
-      }
-      else
-      {
-        ptr++;
-        size += count * 4;
-      }
-    }
-    return size;
-  }
-
   // Super Hi-res IIGS (MAIN in $C0/02)
   int unpackLine (byte[] buffer, byte[] newBuf, int newPtr)
   {
-    byte[] fourBuf = new byte[4];
+    return PackBytes.unpack (buffer, 0, buffer.length, newBuf, newPtr);
+  }
 
-    int oldPtr = newPtr;
-    int ptr = 0;
-    while (ptr < buffer.length)
-    {
-      int type = (buffer[ptr] & 0xC0) >> 6;         // 0-3
-      int count = (buffer[ptr++] & 0x3F) + 1;       // 1-64
+  // Draw one scan line of a super hi-res picture into both of its (doubled) rows.
+  // Each 320 mode pixel is also doubled horizontally.
+  static void drawScanLine (byte[] buffer, int ptr, int[] rgb, boolean mode320,
+      int[] pixels, int element, int width)
+  {
+    int start = element;
 
-      if (ptr >= buffer.length)       // needed for NAGELxx
-        break;
+    if (mode320)
+      for (int col = 0; col < 160; col++)           // two pixels per col
+      {
+        int left = rgb[(buffer[ptr] & 0xF0) >> 4];
+        int right = rgb[buffer[ptr++] & 0x0F];
 
-      switch (type)
+        pixels[element++] = left;
+        pixels[element++] = left;
+        pixels[element++] = right;
+        pixels[element++] = right;
+      }
+    else
+      for (int col = 0, max = width / 4; col < max; col++)   // four pixels per col
       {
-        case 0:
-          while (count-- != 0)
-            if (newPtr < newBuf.length && ptr < buffer.length)
-              newBuf[newPtr++] = buffer[ptr++];
-          break;
-
-        case 1:
-          byte b = buffer[ptr++];
-          while (count-- != 0)
-            if (newPtr < newBuf.length)
-              newBuf[newPtr++] = b;
-          break;
-
-        case 2:
-          for (int i = 0; i < 4; i++)
-            if (ptr < buffer.length)
-              fourBuf[i] = buffer[ptr++];
-          while (count-- != 0)
-            for (int i = 0; i < 4; i++)
-              if (newPtr < newBuf.length)
-                newBuf[newPtr++] = fourBuf[i];
-          break;
-
-        case 3:
-          b = buffer[ptr++];
-          count *= 4;
-          while (count-- != 0)
-            if (newPtr < newBuf.length)
-              newBuf[newPtr++] = b;
-          break;
+        int value = buffer[ptr++] & 0xFF;
+
+        pixels[element++] = rgb[((value & 0xC0) >> 6) + 8];
+        pixels[element++] = rgb[((value & 0x30) >> 4) + 12];
+        pixels[element++] = rgb[(value & 0x0C) >> 2];
+        pixels[element++] = rgb[(value & 0x03) + 4];
       }
-    }
-    //    System.out.println (HexFormatter.format (newBuf, oldPtr, newPtr - oldPtr));
 
-    return newPtr;
+    System.arraycopy (pixels, start, pixels, start + width, width);   // next line
   }
 
   // Beagle Bros routine to expand a hi-res screen
@@ -436,6 +432,21 @@ public abstract class HiResImage extends AbstractFile
     }
   }
 
+  private static byte[] createMonochromeTable ()
+  {
+    byte[] table = new byte[128 * 7];
+    for (int value = 0; value < 128; value++)
+      for (int px = 0; px < 7; px++)
+        table[value * 7 + px] = ((value >> px) & 0x01) == 0 ? 0 : (byte) 255;
+    return table;
+  }
+
+  // offset of the first byte of a screen line in a hi-res page
+  static int getLineOffset (int row)
+  {
+    return (row / 64) * 0x28 + ((row / 8) & 0x07) * 0x80 + (row % 8) * 0x400;
+  }
+
   public static boolean isGif (byte[] buffer)
   {
     if (buffer.length < 6)
@@ -508,6 +519,7 @@ public abstract class HiResImage extends AbstractFile
   {
     int id;
     ColorEntry[] entries = new ColorEntry[16];
+    private int[] rgb;
 
     public ColorTable ()
     {
@@ -539,8 +551,22 @@ public abstract class HiResImage extends AbstractFile
       return text.toString ();
     }
 
+    // the colours as RGB values, ready to write into a raster
+    int[] getRgb ()
+    {
+      if (rgb == null)
+      {
+        int[] values = new int[16];
+        for (int i = 0; i < 16; i++)
+          values[i] = entries[i].color.getRGB ();
+        rgb = values;
+      }
+      return rgb;
+    }
+
     void reverse ()
     {
+      rgb = null;
       for (int i = 0; i < 8; i++)
       {
         ColorEntry temp = entries[i];
@@ -1,7 +1,8 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 
 public class OriginalHiResImage extends HiResImage
 {
@@ -9,16 +10,25 @@ public class OriginalHiResImage extends HiResImage
   private static final int BLACK = 0x000000;
   private static final int[][] paletteTable = { { 9, 6 }, { 12, 3 } };
 
+  // pixel codes in the lookup table - 0-15 are palette entries
+  private static final byte BLACK_CODE = 16;
+  private static final byte WHITE_CODE = 17;
+
   private static boolean matchColourBits = false;
 
-  private final int[] line = new int[280];
+  // Seven pixel codes for every combination of column parity, neighbouring pixels
+  // and screen byte, with the white merging already done.
+  private static final byte[] colourTable = createColourTable ();
+
+  private final byte[] line = new byte[280];
+  private final byte[][] pixelCodes = new byte[2][];     // without and with quirks
   private final int[] colourBits = new int[280];
 
   public OriginalHiResImage (String name, byte[] buffer, int loadAddress)
   {
     super (name, buffer, loadAddress);
 
-    createImage ();
+    createImageLater ();
   }
 
   public OriginalHiResImage (String name, byte[] buffer, int loadAddress,
@@ -26,7 +36,7 @@ public class OriginalHiResImage extends HiResImage
   {
     super (name, buffer, loadAddress, scrunched);
 
-    createImage ();
+    createImageLater ();
   }
 
   public OriginalHiResImage (String name, byte[] buffer, int fileType, int auxType,
@@ -45,92 +55,149 @@ public class OriginalHiResImage extends HiResImage
   {
     int rows = buffer.length <= 8192 ? 192 : 384;
     image = new BufferedImage (280, rows, BufferedImage.TYPE_BYTE_GRAY);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
-    int element = 0;
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
 
-    for (int page = 0; page < rows / 192; page++)
-      for (int i = 0; i < 3; i++)
-        for (int j = 0; j < 8; j++)
-          for (int k = 0; k < 8; k++)
-          {
-            int base = page * 0x2000 + i * 0x28 + j * 0x80 + k * 0x400;
-            int max = Math.min (base + 40, buffer.length);
-            for (int ptr = base; ptr < max; ptr++)
-            {
-              int value = buffer[ptr] & 0x7F;
-              for (int px = 0; px < 7; px++)
-              {
-                int val = (value >> px) & 0x01;
-                dataBuffer.setElem (element++, val == 0 ? 0 : 255);
-              }
-            }
-          }
+    for (int row = 0; row < rows; row++)
+    {
+      int base = (row / 192) * 0x2000 + getLineOffset (row % 192);
+      int max = Math.min (base + 40, buffer.length);
+      int element = row * 280;
+
+      for (int ptr = base; ptr < max; ptr++, element += 7)
+        System.arraycopy (monochromeTable, (buffer[ptr] & 0x7F) * 7, pixels, element, 7);
+    }
   }
 
   @Override
   protected void createColourImage ()
   {
-    paletteIndex = paletteFactory.getCurrentPaletteIndex ();
-    int rows = buffer.length <= 8192 ? 192 : 384;
-    image = new BufferedImage (280, rows, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
-    int element = 0;
-
-    for (int page = 0; page < rows / 192; page++)
-      for (int i = 0; i < 3; i++)
-        for (int j = 0; j < 8; j++)
-          for (int k = 0; k < 8; k++)
-          {
-            fillLine (page * 0x2000 + i * 0x28 + j * 0x80 + k * 0x400);
-            for (int pixel : line)
-              dataBuffer.setElem (element++, pixel);
-          }
+    byte[] codes = getPixelCodes ();
+    int[] codeColours = getCodeColours (paletteFactory.getCurrentPalette ());
+
+    image = new BufferedImage (280, codes.length / 280, BufferedImage.TYPE_INT_RGB);
+    int[] pixels = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
+
+    for (int i = 0; i < codes.length; i++)
+      pixels[i] = codeColours[codes[i]];
   }
 
-  private void fillLine (int base)
+  // The screen is decoded once (for each quirks setting) into a code for each pixel,
+  // so a change of palette only needs to map the codes to new colours.
+  private byte[] getPixelCodes ()
   {
-    Palette palette = paletteFactory.getCurrentPalette ();
-    int[] colours = palette.getColours ();
+    int variant = colourQuirks ? 1 : 0;
+    if (pixelCodes[variant] != null)
+      return pixelCodes[variant];
 
-    int max = Math.min (base + 40, buffer.length);
-    int linePtr = 0;
-    assert colourBits != null;
+    int rows = buffer.length <= 8192 ? 192 : 384;
+    byte[] codes = new byte[280 * rows];
 
-    for (int ptr = base; ptr < max; ptr++)
+    for (int row = 0; row < rows; row++)
     {
-      int colourBit = (buffer[ptr] & 0x80) >> 7;
-      int value = buffer[ptr] & 0x7F;
+      fillLine ((row / 192) * 0x2000 + getLineOffset (row % 192));
+      if (colourQuirks)
+        applyColourQuirks ();
+      System.arraycopy (line, 0, codes, row * 280, 280);
+    }
 
-      for (int px = 0; px < 7; px++)
+    pixelCodes[variant] = codes;
+    return codes;
+  }
+
+  private void fillLine (int base)
+  {
+    for (int col = 0, linePtr = 0; col < 40; col++, linePtr += 7)
+    {
+      System.arraycopy (colourTable, getTableOffset (base, col), line, linePtr, 7);
+
+      if (matchColourBits)
       {
-        colourBits[linePtr] = colourBit;        // store the colour bit
-        int val = (value >> px) & 0x01;         // get the next pixel to draw
-        int column = (ptr + px) % 2;            // is it in an odd or even column?
-        line[linePtr++] = val == 0 ? 0 :        // black pixel
-            colours[paletteTable[colourBit][column]]; // coloured pixel - use lookup table
+        int colourBit = (getByte (base + col) & 0x80) >> 7;
+        for (int px = 0; px < 7; px++)
+          colourBits[linePtr + px] = colourBit;
       }
     }
+  }
+
+  // Find this byte's seven pixels in the table. Only the last pixel of the previous
+  // byte and the first pixel of the next byte can affect them.
+  private int getTableOffset (int base, int col)
+  {
+    int value = getByte (base + col);
+    int neighbours = 0;
 
-    // convert consecutive ON pixels to white
-    for (int x = 1; x < line.length; x++)       // skip first pixel, refer back
+    if (col > 0)
     {
-      if (matchColourBits && colourBits[x - 1] != colourBits[x])
-        continue;                   // only modify values with matching colour bits
+      int previous = getByte (base + col - 1);
+      if ((previous & 0x40) != 0 && canMerge (previous, value))
+        neighbours |= 0x02;
+    }
 
-      int px0 = line[x - 1];
-      int px1 = line[x];
-      if (px0 != BLACK && px1 != BLACK)
-        line[x - 1] = line[x] = WHITE;
+    if (col < 39)
+    {
+      int next = getByte (base + col + 1);
+      if ((next & 0x01) != 0 && canMerge (value, next))
+        neighbours |= 0x01;
     }
 
-    // optionally do physics
-    if (colourQuirks)
-      applyColourQuirks ();
+    // base is always even, so the byte's parity matches its screen column's
+    int parity = (base + col) & 0x01;
+
+    return (((parity << 2) | neighbours) * 256 + value) * 7;
+  }
+
+  private boolean canMerge (int value1, int value2)
+  {
+    return !matchColourBits || ((value1 ^ value2) & 0x80) == 0;
+  }
+
+  private int getByte (int ptr)
+  {
+    return ptr < buffer.length ? buffer[ptr] & 0xFF : 0;
+  }
+
+  private static byte[] createColourTable ()
+  {
+    byte[] table = new byte[2 * 4 * 256 * 7];
+
+    for (int parity = 0; parity < 2; parity++)
+      for (int neighbours = 0; neighbours < 4; neighbours++)
+        for (int value = 0; value < 256; value++)
+        {
+          int colourBit = (value & 0x80) >> 7;
+
+          // pixels -1 and 7 are the neighbouring bytes' pixels
+          int bits = ((value & 0x7F) << 1) | ((neighbours & 0x02) >> 1)
+              | ((neighbours & 0x01) << 8);
+          int ptr = (((parity << 2) | neighbours) * 256 + value) * 7;
+
+          for (int px = 0; px < 7; px++)
+          {
+            int pixel = bits >> px;             // bit 1 is this pixel
+            if ((pixel & 0x02) == 0)
+              table[ptr + px] = BLACK_CODE;
+            else if ((pixel & 0x05) != 0)       // convert consecutive ON pixels to white
+              table[ptr + px] = WHITE_CODE;
+            else
+              table[ptr + px] = (byte) paletteTable[colourBit][(parity + px) % 2];
+          }
+        }
+
+    return table;
+  }
+
+  private static int[] getCodeColours (Palette palette)
+  {
+    int[] codeColours = new int[18];
+    System.arraycopy (palette.getColours (), 0, codeColours, 0, 16);
+    codeColours[BLACK_CODE] = BLACK;
+    codeColours[WHITE_CODE] = WHITE;
+    return codeColours;
   }
 
-  private boolean isColoured (int pixel)
+  private boolean isColoured (byte pixel)
   {
-    return pixel != BLACK && pixel != WHITE;
+    return pixel != BLACK_CODE && pixel != WHITE_CODE;
   }
 
   private void applyColourQuirks ()
@@ -140,24 +207,24 @@ public class OriginalHiResImage extends HiResImage
       if (matchColourBits && colourBits[x - 2] != colourBits[x - 1])
         continue;                   // only modify values with matching colour bits
 
-      int px0 = line[x - 3];
-      int px1 = line[x - 2];
-      int px2 = line[x - 1];
-      int px3 = line[x];
+      byte px0 = line[x - 3];
+      byte px1 = line[x - 2];
+      byte px2 = line[x - 1];
+      byte px3 = line[x];
 
-      if (px1 == BLACK)
+      if (px1 == BLACK_CODE)
       {
-        if (px3 == BLACK && px0 == px2 && isColoured (px0))           //     V-B-V-B
-          line[x - 2] = px0;                                          // --> V-V-V-B
-        else if (px3 == WHITE && px2 == WHITE && isColoured (px0))    //     V-B-W-W
-          line[x - 2] = px0;                                          // --> V-V-W-W
+        if (px3 == BLACK_CODE && px0 == px2 && isColoured (px0))         //     V-B-V-B
+          line[x - 2] = px0;                                            // --> V-V-V-B
+        else if (px3 == WHITE_CODE && px2 == WHITE_CODE && isColoured (px0)) // V-B-W-W
+          line[x - 2] = px0;                                            // --> V-V-W-W
       }
-      else if (px2 == BLACK)
+      else if (px2 == BLACK_CODE)
       {
-        if (px0 == BLACK && px1 == px3 && isColoured (px3))           //     B-G-B-G 
-          line[x - 1] = px3;                                          // --> B-G-G-G
-        else if (px0 == WHITE && px1 == WHITE && isColoured (px3))    //     W-W-B-G
-          line[x - 1] = px3;                                          // --> W-W-G-G
+        if (px0 == BLACK_CODE && px1 == px3 && isColoured (px3))         //     B-G-B-G
+          line[x - 1] = px3;                                            // --> B-G-G-G
+        else if (px0 == WHITE_CODE && px1 == WHITE_CODE && isColoured (px3)) // W-W-B-G
+          line[x - 1] = px3;                                            // --> W-W-G-G
       }
     }
   }
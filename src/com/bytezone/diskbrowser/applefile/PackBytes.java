@@ -0,0 +1,108 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.util.Arrays;
+
+// Apple IIGS PackBytes expansion. Nothing is allocated, so it can be called for
+// every scan line of a picture from several threads at once.
+// routine found here - http://kpreid.livejournal.com/4319.html
+final class PackBytes
+{
+  private PackBytes ()
+  {
+  }
+
+  // Expand src[ptr..max) into dst starting at dstPtr, stopping at the end of dst.
+  // Returns the dst position after the last byte written.
+  static int unpack (byte[] src, int ptr, int max, byte[] dst, int dstPtr)
+  {
+    while (ptr < max)
+    {
+      int type = (src[ptr] & 0xC0) >> 6;            // 0-3
+      int count = (src[ptr++] & 0x3F) + 1;          // 1-64
+
+      if (ptr >= max)                               // needed for NAGELxx
+        break;
+
+      switch (type)
+      {
+        case 0:                           // copy next 1-64 bytes as is
+          int length = Math.min (Math.min (count, max - ptr), dst.length - dstPtr);
+          System.arraycopy (src, ptr, dst, dstPtr, length);
+          dstPtr += length;
+          ptr += Math.min (count, max - ptr);
+          break;
+
+        case 1:                           // repeat next byte 3/5/6/7 times
+          dstPtr = fill (dst, dstPtr, count, src[ptr++]);
+          break;
+
+        case 2:                           // repeat next 4 bytes (count) times
+          if (max - ptr < 4)              // the pattern is cut off, so the line ends
+            return dstPtr;
+          for (int i = 0; i < count && dstPtr < dst.length; i++)
+          {
+            int length4 = Math.min (4, dst.length - dstPtr);
+            System.arraycopy (src, ptr, dst, dstPtr, length4);
+            dstPtr += length4;
+          }
+          ptr += 4;
+          break;
+
+        case 3:                           // repeat next byte (4*count) times
+          dstPtr = fill (dst, dstPtr, count * 4, src[ptr++]);
+          break;
+      }
+    }
+
+    return dstPtr;
+  }
+
+  // number of bytes that unpack() would write given unlimited space
+  static int getUnpackedLength (byte[] src, int ptr, int max)
+  {
+    int size = 0;
+
+    while (ptr < max)
+    {
+      int type = (src[ptr] & 0xC0) >> 6;            // 0-3
+      int count = (src[ptr++] & 0x3F) + 1;          // 1-64
+
+      if (ptr >= max)
+        break;
+
+      switch (type)
+      {
+        case 0:
+          size += Math.min (count, max - ptr);
+          ptr += count;
+          break;
+
+        case 1:
+          size += count;
+          ptr++;
+          break;
+
+        case 2:
+          if (max - ptr < 4)              // as unpack ()
+            return size;
+          size += count * 4;
+          ptr += 4;
+          break;
+
+        case 3:
+          size += count * 4;
+          ptr++;
+          break;
+      }
+    }
+
+    return size;
+  }
+
+  private static int fill (byte[] dst, int dstPtr, int count, byte value)
+  {
+    int end = Math.min (dstPtr + count, dst.length);
+    Arrays.fill (dst, dstPtr, end, value);
+    return end;
+  }
+}
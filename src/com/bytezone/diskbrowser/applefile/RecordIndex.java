@@ -0,0 +1,85 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.util.Arrays;
+
+import com.bytezone.diskbrowser.disk.SectorView;
+
+// The starting offsets of the parts of a text file that contain data. Sectors that
+// aren't on the disk are skipped without being read, so the time taken depends on
+// the amount of data in the file rather than on its length.
+final class RecordIndex
+{
+  private int[] offsets = new int[64];
+  private int size;
+
+  private RecordIndex ()
+  {
+  }
+
+  // every record whose first byte isn't zero
+  static RecordIndex forRecords (SectorView view, int recordLength)
+  {
+    RecordIndex index = new RecordIndex ();
+
+    int ptr = 0;
+    while (ptr < view.length ())
+    {
+      if (view.isSparse (ptr))
+      {
+        // move to the first record that starts after this sector
+        int end = view.getSegmentEnd (ptr);
+        ptr = (end + recordLength - 1) / recordLength * recordLength;
+        continue;
+      }
+
+      if (view.get (ptr) != 0)
+        index.add (ptr);
+      ptr += recordLength;
+    }
+
+    return index;
+  }
+
+  // every chunk that has a byte that isn't zero, so missing sectors aren't read
+  static RecordIndex forChunks (SectorView view, int chunkSize)
+  {
+    RecordIndex index = new RecordIndex ();
+
+    for (int ptr = 0; ptr < view.length (); ptr += chunkSize)
+      if (hasData (view, ptr, Math.min (ptr + chunkSize, view.length ())))
+        index.add (ptr);
+
+    return index;
+  }
+
+  private static boolean hasData (SectorView view, int start, int end)
+  {
+    for (int i = start; i < end; i = view.getSegmentEnd (i))
+    {
+      if (view.isSparse (i))
+        continue;
+
+      for (int j = i, max = view.getSegmentEnd (i); j < max; j++)
+        if (view.get (j) != 0)
+          return true;
+    }
+    return false;
+  }
+
+  private void add (int offset)
+  {
+    if (size == offsets.length)
+      offsets = Arrays.copyOf (offsets, size * 2);
+    offsets[size++] = offset;
+  }
+
+  int size ()
+  {
+    return size;
+  }
+
+  int get (int index)
+  {
+    return offsets[index];
+  }
+}
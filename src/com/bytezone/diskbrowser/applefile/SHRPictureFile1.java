@@ -2,6 +2,7 @@ package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,7 +69,7 @@ public class SHRPictureFile1 extends HiResImage
 
       ptr += len;
     }
-    createImage ();
+    createImageLater ();
   }
 
   @Override
@@ -96,90 +97,47 @@ public class SHRPictureFile1 extends HiResImage
   @Override
   void createColourImage ()
   {
-    int width = mainBlock.pixelsPerScanLine == 320 ? 640 : mainBlock.pixelsPerScanLine;
+    final boolean mode320 = mainBlock.pixelsPerScanLine == 320;
+    final int width = mode320 ? 640 : mainBlock.pixelsPerScanLine;
+    final int bytesPerLine = mode320 ? 160 : mainBlock.pixelsPerScanLine / 4;
+
     image =
         new BufferedImage (width, mainBlock.numScanLines * 2, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
-
-    int element1 = 0;         // first line
-    int element2 = width;     // second line
-    int ptr = 0;              // index into buffer
+    final int[] pixels = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
 
-    for (int line = 0; line < mainBlock.numScanLines; line++)
+    ScanLines.decode (new ScanLines.Decoder ()
     {
-      DirEntry dirEntry = mainBlock.scanLineDirectory[line];
-      int hi = dirEntry.mode & 0xFF00;      // always 0
-      int lo = dirEntry.mode & 0x00FF;      // mode bit if hi == 0
+      @Override
+      public void decode (int first, int last)
+      {
+        for (int line = first; line < last; line++)
+        {
+          DirEntry dirEntry = mainBlock.scanLineDirectory[line];
+          int hi = dirEntry.mode & 0xFF00;      // always 0
+          int lo = dirEntry.mode & 0x00FF;      // mode bit if hi == 0
 
-      if (hi != 0)
-        System.out.println ("hi not zero");
+          if (hi != 0)
+            System.out.println ("hi not zero");
 
-      ColorTable colorTable = multipalBlock != null ? multipalBlock.colorTables[line]
-          : mainBlock.colorTables[lo & 0x0F];
+          ColorTable colorTable = multipalBlock != null
+              ? multipalBlock.colorTables[line] : mainBlock.colorTables[lo & 0x0F];
 
-      //      boolean fillMode = (lo & 0x20) != 0;
-      //      if (fillMode)
-      //        System.out.println ("fillmode " + fillMode);
+          //      boolean fillMode = (lo & 0x20) != 0;
+          //      if (fillMode)
+          //        System.out.println ("fillmode " + fillMode);
 
-      // 320 mode
-      if (mainBlock.pixelsPerScanLine == 320)
-      {
-        for (int i = 0; i < 160; i++)       // two pixels per col
-        {
-          int left = (buffer[ptr] & 0xF0) >> 4;
-          int right = buffer[ptr++] & 0x0F;
-
-          // get left/right colors
-          int rgbLeft = colorTable.entries[left].color.getRGB ();
-          int rgbRight = colorTable.entries[right].color.getRGB ();
-
-          // draw left/right pixels on current line
-          dataBuffer.setElem (element1++, rgbLeft);
-          dataBuffer.setElem (element1++, rgbLeft);
-          dataBuffer.setElem (element1++, rgbRight);
-          dataBuffer.setElem (element1++, rgbRight);
-
-          // draw same left/right pixels on next line
-          dataBuffer.setElem (element2++, rgbLeft);
-          dataBuffer.setElem (element2++, rgbLeft);
-          dataBuffer.setElem (element2++, rgbRight);
-          dataBuffer.setElem (element2++, rgbRight);
+          drawScanLine (buffer, line * bytesPerLine, colorTable.getRgb (), mode320,
+              pixels, line * width * 2, width);
         }
-        element1 += width;        // skip line already drawn
-        element2 += width;        // one line ahead
       }
-      else
-      {
-        int max = mainBlock.pixelsPerScanLine / 4;
-        for (int col = 0; col < max; col++)       // four pixels per col
-        {
-          int p1 = (buffer[ptr] & 0xC0) >> 6;
-          int p2 = (buffer[ptr] & 0x30) >> 4;
-          int p3 = (buffer[ptr] & 0x0C) >> 2;
-          int p4 = (buffer[ptr++] & 0x03);
-
-          // get pixel colors
-          int rgb1 = colorTable.entries[p1 + 8].color.getRGB ();
-          int rgb2 = colorTable.entries[p2 + 12].color.getRGB ();
-          int rgb3 = colorTable.entries[p3].color.getRGB ();
-          int rgb4 = colorTable.entries[p4 + 4].color.getRGB ();
-
-          // draw pixels on current line
-          dataBuffer.setElem (element1++, rgb1);
-          dataBuffer.setElem (element1++, rgb2);
-          dataBuffer.setElem (element1++, rgb3);
-          dataBuffer.setElem (element1++, rgb4);
-
-          // draw same pixels on next line
-          dataBuffer.setElem (element2++, rgb1);
-          dataBuffer.setElem (element2++, rgb2);
-          dataBuffer.setElem (element2++, rgb3);
-          dataBuffer.setElem (element2++, rgb4);
-        }
-        element1 += width;        // skip line already drawn
-        element2 += width;        // one line ahead
-      }
-    }
+    }, mainBlock.numScanLines);
+  }
+
+  // the colours come from the file, so the current palette doesn't matter
+  @Override
+  public char getRenderingType ()
+  {
+    return RENDER_COLOUR;
   }
 
   @Override
@@ -306,7 +264,12 @@ public class SHRPictureFile1 extends HiResImage
       }
 
       int width = pixelsPerScanLine == 320 ? 160 : pixelsPerScanLine / 4;
-      byte[] unpackedBuffer = new byte[numScanLines * width];
+      final byte[] unpackedBuffer = new byte[numScanLines * width];
+
+      // find where each line will be unpacked to, so that the lines are independent
+      final int[] offsets = new int[numScanLines];
+      int totalLines = 0;
+      boolean overlapping = false;
       ptr = 0;
       for (int line = 0; line < numScanLines; line++)
       {
@@ -318,13 +281,40 @@ public class SHRPictureFile1 extends HiResImage
         }
         //        System.out.printf ("Line: %3d%n", line);
         //        System.out.println (scanLineDirectory[line]);
-        ptr = unpackLine (packedScanLines[line], unpackedBuffer, ptr);
+        offsets[line] = ptr;
+        byte[] packedScanLine = packedScanLines[line];
+        ptr = Math.min (
+            ptr + PackBytes.getUnpackedLength (packedScanLine, 0, packedScanLine.length),
+            unpackedBuffer.length);
+        ++totalLines;
 
         // something strange happening here
         if (line == 102 && name.equals ("DRAGON.SHR"))
+        {
           ptr -= 132;
+          overlapping = true;
+        }
       }
 
+      ScanLines.Decoder decoder = new ScanLines.Decoder ()
+      {
+        @Override
+        public void decode (int first, int last)
+        {
+          for (int line = first; line < last; line++)
+          {
+            byte[] packedScanLine = packedScanLines[line];
+            PackBytes.unpack (packedScanLine, 0, packedScanLine.length, unpackedBuffer,
+                offsets[line]);
+          }
+        }
+      };
+
+      if (overlapping)                // later lines must overwrite earlier ones
+        decoder.decode (0, totalLines);
+      else
+        ScanLines.decode (decoder, totalLines);
+
       SHRPictureFile1.this.buffer = unpackedBuffer;
     }
 
@@ -1,7 +1,7 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 
 import com.bytezone.diskbrowser.prodos.ProdosConstants;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -32,7 +32,7 @@ public class SHRPictureFile2 extends HiResImage
     }
 
     if (colorTables != null)
-      createImage ();
+      createImageLater ();
   }
 
   private void doPnt (byte[] buffer)
@@ -171,86 +171,42 @@ public class SHRPictureFile2 extends HiResImage
   void createColourImage ()
   {
     image = new BufferedImage (640, 400, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
+    final int[] pixels = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
 
-    int element1 = 0;         // first line
-    int element2 = 640;       // second line
-    int ptr = 0;
-
-    boolean mode320 = true;
-    boolean fillMode = false;
-    ColorTable colorTable = null;
-
-    for (int line = 0; line < 200; line++)
+    ScanLines.decode (new ScanLines.Decoder ()
     {
-      if (controlBytes != null)
+      @Override
+      public void decode (int first, int last)
       {
-        int controlByte = controlBytes[line] & 0xFF;
-        colorTable = colorTables[controlByte & 0x0F];
-
-        mode320 = (controlByte & 0x80) == 0;
-        fillMode = (controlByte & 0x20) != 0;
-      }
-      else
-        colorTable = colorTables[line];
+        boolean mode320 = true;
+        boolean fillMode = false;
+        ColorTable colorTable = null;
 
-      if (mode320)       // mode320
-      {
-        for (int col = 0; col < 160; col++)       // two pixels per col
-        {
-          int left = (buffer[ptr] & 0xF0) >> 4;
-          int right = buffer[ptr++] & 0x0F;
-
-          // get left/right colors
-          int rgbLeft = colorTable.entries[left].color.getRGB ();
-          int rgbRight = colorTable.entries[right].color.getRGB ();
-
-          // draw left/right pixels on current line
-          dataBuffer.setElem (element1++, rgbLeft);
-          dataBuffer.setElem (element1++, rgbLeft);
-          dataBuffer.setElem (element1++, rgbRight);
-          dataBuffer.setElem (element1++, rgbRight);
-
-          // draw same left/right pixels on next line
-          dataBuffer.setElem (element2++, rgbLeft);
-          dataBuffer.setElem (element2++, rgbLeft);
-          dataBuffer.setElem (element2++, rgbRight);
-          dataBuffer.setElem (element2++, rgbRight);
-        }
-        element1 += 640;        // skip line already drawn
-        element2 += 640;        // one line ahead
-      }
-      else          // mode640
-      {
-        for (int col = 0; col < 160; col++)       // four pixels per col
+        for (int line = first; line < last; line++)
         {
-          int p1 = (buffer[ptr] & 0xC0) >> 6;
-          int p2 = (buffer[ptr] & 0x30) >> 4;
-          int p3 = (buffer[ptr] & 0x0C) >> 2;
-          int p4 = (buffer[ptr++] & 0x03);
-
-          // get pixel colors
-          int rgb1 = colorTable.entries[p1 + 8].color.getRGB ();
-          int rgb2 = colorTable.entries[p2 + 12].color.getRGB ();
-          int rgb3 = colorTable.entries[p3].color.getRGB ();
-          int rgb4 = colorTable.entries[p4 + 4].color.getRGB ();
-
-          // draw pixels on current line
-          dataBuffer.setElem (element1++, rgb1);
-          dataBuffer.setElem (element1++, rgb2);
-          dataBuffer.setElem (element1++, rgb3);
-          dataBuffer.setElem (element1++, rgb4);
-
-          // draw same pixels on next line
-          dataBuffer.setElem (element2++, rgb1);
-          dataBuffer.setElem (element2++, rgb2);
-          dataBuffer.setElem (element2++, rgb3);
-          dataBuffer.setElem (element2++, rgb4);
+          if (controlBytes != null)
+          {
+            int controlByte = controlBytes[line] & 0xFF;
+            colorTable = colorTables[controlByte & 0x0F];
+
+            mode320 = (controlByte & 0x80) == 0;
+            fillMode = (controlByte & 0x20) != 0;
+          }
+          else
+            colorTable = colorTables[line];
+
+          drawScanLine (buffer, line * 160, colorTable.getRgb (), mode320, pixels,
+              line * 640 * 2, 640);
         }
-        element1 += 640;        // skip line already drawn
-        element2 += 640;        // one line ahead
       }
-    }
+    }, 200);
+  }
+
+  // the colours come from the file, so the current palette doesn't matter
+  @Override
+  public char getRenderingType ()
+  {
+    return RENDER_COLOUR;
   }
 
   @Override
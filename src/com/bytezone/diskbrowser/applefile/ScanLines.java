@@ -0,0 +1,49 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Splits the scan lines of a picture into bands and decodes the bands on the
+// common fork-join pool. Each band must only write to its own lines.
+final class ScanLines extends RecursiveAction
+{
+  private static final int BAND_SIZE = 25;
+
+  private final Decoder decoder;
+  private final int first;
+  private final int last;               // exclusive
+
+  private ScanLines (Decoder decoder, int first, int last)
+  {
+    this.decoder = decoder;
+    this.first = first;
+    this.last = last;
+  }
+
+  static void decode (Decoder decoder, int totalLines)
+  {
+    if (totalLines <= BAND_SIZE)
+      decoder.decode (0, totalLines);
+    else
+      ForkJoinPool.commonPool ().invoke (new ScanLines (decoder, 0, totalLines));
+  }
+
+  @Override
+  protected void compute ()
+  {
+    if (last - first <= BAND_SIZE)
+      decoder.decode (first, last);
+    else
+    {
+      int middle = (first + last) >>> 1;
+      invokeAll (new ScanLines (decoder, first, middle),
+          new ScanLines (decoder, middle, last));
+    }
+  }
+
+  interface Decoder
+  {
+    // decode lines first to last - 1
+    void decode (int first, int last);
+  }
+}
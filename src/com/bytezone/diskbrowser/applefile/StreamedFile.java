@@ -0,0 +1,166 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import com.bytezone.diskbrowser.gui.DataSource;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// A file that is too large to read into memory. It is read from the channel a chunk
+// at a time whenever it is displayed, and only the chunk is kept in memory.
+public class StreamedFile implements DataSource
+{
+  private static final int CHUNK_SIZE = 0x1000;       // a multiple of 0x200
+  private static final int MAX_BYTES = 999999;        // as in AbstractFile
+
+  private final String name;
+  private final SeekableByteChannel channel;
+  private final boolean textFile;
+
+  public StreamedFile (String name, SeekableByteChannel channel, boolean textFile)
+  {
+    this.name = name;
+    this.channel = channel;
+    this.textFile = textFile;
+  }
+
+  @Override
+  public String getText ()
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append ("Name          : " + name + "\n");
+    text.append (String.format ("End of file   : %,8d%n", size ()));
+    if (!textFile)
+      return text.toString ();
+
+    text.append ("\n");
+    text.append ("  Offset    Text values\n");
+    text.append ("----------  -------------------------------------------------------"
+        + "-------------------\n");
+
+    // the same layout as TextFile with an unknown record length
+    int nulls = 0;
+    int lastVal = 0;
+    int ptr = 0;
+
+    byte[] chunk = new byte[CHUNK_SIZE];
+    int max = (int) Math.min (size (), MAX_BYTES);
+    while (ptr < max)
+    {
+      int length = read (ptr, chunk, Math.min (CHUNK_SIZE, max - ptr));
+      if (length <= 0)
+        break;
+
+      for (int i = 0; i < length; i++)
+      {
+        int val = chunk[i] & 0x7F;                    // strip hi-order bit
+        if (val == 0)
+          ++nulls;
+        else if (val == 0x0D)                         // carriage return
+          text.append ("\n");
+        else
+        {
+          if (nulls > 0 || lastVal == 0x0D || ptr + i == 0)
+            text.append (String.format ("%,10d  ", ptr + i));
+          nulls = 0;
+          text.append ((char) val);
+        }
+        lastVal = val;
+      }
+      ptr += length;
+    }
+
+    if (max < size ())
+      text.append (String.format ("%n%n... truncated at %,d bytes", max));
+
+    return text.toString ();
+  }
+
+  @Override
+  public String getAssembler ()
+  {
+    return "File is too large to disassemble";
+  }
+
+  @Override
+  public String getHexDump ()
+  {
+    int max = (int) Math.min (size (), MAX_BYTES);
+    if (max == 0)
+      return "No buffer";
+
+    StringBuilder text = new StringBuilder ();
+    byte[] chunk = new byte[CHUNK_SIZE];
+
+    // formatted a chunk at a time, but identical to formatting the whole buffer
+    for (int ptr = 0; ptr < max; ptr += CHUNK_SIZE)
+    {
+      int length = read (ptr, chunk, Math.min (CHUNK_SIZE, max - ptr));
+      if (length <= 0)
+        break;
+
+      if (ptr == 0)
+        text.append (HexFormatter.format (chunk, 0, length));
+      else
+      {
+        text.append ("\n\n");
+        text.append (HexFormatter.formatNoHeader (chunk, 0, length, ptr));
+      }
+    }
+
+    if (max < size ())
+      System.out.println ("**** truncating hex dump");
+
+    return text.toString ();
+  }
+
+  @Override
+  public BufferedImage getImage ()
+  {
+    return null;
+  }
+
+  @Override
+  public JComponent getComponent ()
+  {
+    return new JPanel ();
+  }
+
+  public long size ()
+  {
+    try
+    {
+      return channel.size ();
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      return 0;
+    }
+  }
+
+  // read length bytes from position, returns the number of bytes read
+  public int read (long position, byte[] chunk, int length)
+  {
+    try
+    {
+      channel.position (position);
+      ByteBuffer buffer = ByteBuffer.wrap (chunk, 0, length);
+      while (buffer.hasRemaining ())
+        if (channel.read (buffer) < 0)
+          break;
+      return buffer.position ();
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      return -1;
+    }
+  }
+}
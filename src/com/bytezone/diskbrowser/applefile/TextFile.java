@@ -1,13 +1,20 @@
 package com.bytezone.diskbrowser.applefile;
 
-import java.util.List;
+import java.util.Arrays;
 
+import com.bytezone.diskbrowser.disk.SectorView;
+import com.bytezone.diskbrowser.gui.PagedDataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
-public class TextFile extends AbstractFile
+public class TextFile extends AbstractFile implements PagedDataSource
 {
+  private static final int PAGE_RECORDS = 500;
+  private static final int PAGE_SIZE = 0x1000;          // unknown record length
+  private static final int MAX_HEX_BYTES = 999999;      // as in AbstractFile
+
   private int recordLength;               // prodos aux
-  private List<TextBuffer> buffers;       // only used if it is a Prodos text file
+  private SectorView view;                // a sparse file that is read as needed
+  private RecordIndex index;              // the non-empty records or pages of view
   private int eof;
   private boolean prodosFile;
 
@@ -24,30 +31,88 @@ public class TextFile extends AbstractFile
     prodosFile = true;
   }
 
-  public TextFile (String name, List<TextBuffer> buffers, int auxType, int eof)
+  // DOS text file, which may have missing sectors
+  public TextFile (String name, SectorView view)
   {
     super (name, null);
-    this.buffers = buffers;
+    this.view = view;
+  }
+
+  // Prodos random access file, which may have missing blocks
+  public TextFile (String name, SectorView view, int auxType, int eof)
+  {
+    this (name, view);
     this.eof = eof;
     recordLength = auxType;
     prodosFile = true;
   }
 
+  // the whole file, which is only copied from the view when it is first needed
+  @Override
+  public byte[] getBuffer ()
+  {
+    if (buffer == null && view != null)
+      buffer = view.toByteArray ();
+    return buffer;
+  }
+
+  @Override
+  public String getAssembler ()
+  {
+    getBuffer ();
+    return super.getAssembler ();
+  }
+
   @Override
   public String getHexDump ()
   {
-    if (buffers == null)
+    if (recordLength == 0 || view == null)
+    {
+      getBuffer ();
       return (super.getHexDump ());
+    }
 
+    // every record that starts in a block on the disk, empty or not
     StringBuilder text = new StringBuilder ();
-    for (TextBuffer tb : buffers)
+    byte[] record = new byte[recordLength + 0x200];
+    int ptr = 0;
+    int runStart = -1;                          // the first record in this run of blocks
+    int total = 0;
+
+    while (ptr < view.length () && total < MAX_HEX_BYTES)
     {
-      for (int i = 0, rec = 0; i < tb.buffer.length; i += tb.reclen, rec++)
+      if (view.isSparse (ptr))
       {
-        text.append ("\nRecord #" + (tb.firstRecNo + rec) + "\n");
-        text.append (HexFormatter.format (tb.buffer, i, tb.reclen) + "\n");
+        // move to the first record that starts after this sector
+        int end = view.getSegmentEnd (ptr);
+        ptr = (end + recordLength - 1) / recordLength * recordLength;
+        runStart = -1;
+        continue;
       }
+
+      if (runStart < 0)
+        runStart = ptr;
+
+      // the record stops at the end of the run, and the rest of it is zeroes
+      int end = ptr;
+      while (end < ptr + recordLength && end < view.length () && !view.isSparse (end))
+        end = view.getSegmentEnd (end);
+
+      // the formatter adds a blank line at each 0x200 boundary from its run
+      int offset = (ptr - runStart) % 0x200;
+      int length = Math.min (recordLength, end - ptr);
+      Arrays.fill (record, offset + length, offset + recordLength, (byte) 0);
+      view.get (ptr, record, offset, length);
+
+      text.append ("\nRecord #" + ptr / recordLength + "\n");
+      text.append (HexFormatter.format (record, offset, recordLength) + "\n");
+
+      if (end < ptr + recordLength)
+        runStart = -1;
+      ptr += recordLength;
+      total += recordLength;
     }
+
     return text.toString ();
   }
 
@@ -63,12 +128,13 @@ public class TextFile extends AbstractFile
       text.append (String.format ("End of file   : %,8d%n", eof));
     }
     else
-      text.append (String.format ("End of file   : %,8d%n", buffer.length));
+      text.append (String.format ("End of file   : %,8d%n",
+          view == null ? buffer.length : view.length ()));
     text.append ("\n");
 
-    // check whether file is spread over multiple buffers
-    if (buffers != null)
-      return treeFileText (text);       // calls knownLength()
+    // check whether the file is read from the disk a page at a time
+    if (view != null)
+      return pagedText (text);
 
     // check whether the record length is known
     if (recordLength == 0)
@@ -80,19 +146,148 @@ public class TextFile extends AbstractFile
     return knownLength (text, 0).toString ();
   }
 
-  private String treeFileText (StringBuilder text)
+  private String pagedText (StringBuilder text)
   {
-    text.append ("  Offset    Record#  Text values\n");
-    text.append (
-        "----------  -------  -------------------------------------------------------\n");
-    for (TextBuffer tb : buffers)
+    if (recordLength > 0)
+    {
+      text.append ("  Offset    Record#  Text values\n");
+      text.append ("----------  -------  "
+          + "-------------------------------------------------------\n");
+    }
+    else
+    {
+      text.append ("  Offset    Text values\n");
+      text.append ("----------  -------------------------------------------------------"
+          + "-------------------\n");
+    }
+
+    String page = getPage (0);
+    if (page != null)
+      text.append (page);
+    else if (recordLength == 0)
+      appendEnding (text);
+
+    return text.toString ();
+  }
+
+  // Only the records (or pages of an unknown record length) that contain data are
+  // in the index, so empty records and missing blocks are never rendered.
+  @Override
+  public String getPage (int page)
+  {
+    if (view == null)
+      return null;
+
+    RecordIndex index = getIndex ();
+    int first = page * (recordLength > 0 ? PAGE_RECORDS : 1);
+    if (first >= index.size ())
+      return null;
+
+    if (recordLength == 0)
+    {
+      String lines = unknownLengthPage (index.get (first));
+      if (first < index.size () - 1)
+        return lines;
+
+      StringBuilder text = new StringBuilder (lines);
+      appendEnding (text);
+      return text.toString ();
+    }
+
+    StringBuilder text = new StringBuilder ();
+    byte[] record = new byte[recordLength];
+    int last = Math.min (first + PAGE_RECORDS, index.size ());
+
+    for (int i = first; i < last; i++)
     {
-      buffer = tb.buffer;
-      text = knownLength (text, tb.firstRecNo);
+      int ptr = index.get (i);
+      int bytes = Math.min (recordLength, view.length () - ptr);
+      view.get (ptr, record, 0, bytes);
+
+      while (record[bytes - 1] == 0)
+        bytes--;
+
+      if ((record[bytes - 1] & 0x7F) == 0x0D)     // ignore CR
+        bytes--;
+
+      String line = HexFormatter.getString (record, 0, bytes);
+      line = line.replaceAll ("\\n", "\n                     ");
+      text.append (String.format ("%,10d %,8d  %s%n", ptr, ptr / recordLength, line));
     }
+
     return text.toString ();
   }
 
+  // the same layout as unknownLength(), but only for this page
+  private String unknownLengthPage (int start)
+  {
+    StringBuilder text = new StringBuilder ();
+    int max = Math.min (start + PAGE_SIZE, view.length ());
+
+    // a new line starts after a carriage return or a run of nulls
+    int lastVal = start == 0 ? -1 : view.get (start - 1) & 0x7F;
+    if (start == 0 && view.get (0) != 0)
+      text.append (String.format ("%,10d  ", 0));
+
+    for (int ptr = start; ptr < max; ptr++)
+    {
+      int val = view.get (ptr) & 0x7F;                  // strip hi-order bit
+      if (val == 0x0D)                                  // carriage return
+        text.append ("\n");
+      else if (val != 0)
+      {
+        if (lastVal == 0 || lastVal == 0x0D)
+          text.append (String.format ("%,10d  ", ptr));
+        text.append ((char) val);
+      }
+      lastVal = val;
+    }
+
+    return text.toString ();
+  }
+
+  // the end of the text from unknownLength(), which needs the whole file
+  private void appendEnding (StringBuilder text)
+  {
+    RecordIndex index = getIndex ();
+    int gcd = 0;
+    boolean nulls = false;
+    int next = 0;                                       // the end of the last page
+
+    for (int i = 0; i < index.size (); i++)
+    {
+      int start = index.get (i);
+      if (start > next)                                 // missing sectors are nulls
+        nulls = true;
+
+      next = Math.min (start + PAGE_SIZE, view.length ());
+      for (int ptr = start; ptr < next; ptr++)
+      {
+        int val = view.get (ptr) & 0x7F;
+        if (val == 0)
+          nulls = true;
+        else if (val != 0x0D && nulls)
+        {
+          nulls = false;
+          gcd = gcd == 0 ? ptr : gcd (gcd, ptr);
+        }
+      }
+    }
+
+    if (gcd > 0)
+      text.append (String.format ("%nGCD: %,d", gcd));
+    else if (text.length () > 0 && text.charAt (text.length () - 1) == '\n')
+      text.deleteCharAt (text.length () - 1);
+  }
+
+  private RecordIndex getIndex ()
+  {
+    if (index == null)
+      index = recordLength > 0 ? RecordIndex.forRecords (view, recordLength)
+          : RecordIndex.forChunks (view, PAGE_SIZE);
+    return index;
+  }
+
   private StringBuilder knownLength (StringBuilder text, int recNo)
   {
     for (int ptr = 0; ptr < buffer.length; ptr += recordLength)
@@ -1,7 +1,9 @@
 package com.bytezone.diskbrowser.cpm;
 
 import java.awt.Color;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 
@@ -55,6 +57,7 @@ public class CPMDisk extends AbstractFormattedDisk
     }
 
     DefaultMutableTreeNode root = getCatalogTreeRoot ();
+    Map<String, DirectoryEntry> parents = new HashMap<String, DirectoryEntry> ();
 
     for (int sector = 0; sector < 8; sector++)
     {
@@ -86,9 +89,10 @@ public class CPMDisk extends AbstractFormattedDisk
           if (!disk.isSectorEmpty (block))
             sectorTypes[block.getBlock ()] = sectorType;
 
-        DirectoryEntry parent = findParent (entry);
+        DirectoryEntry parent = parents.get (entry.getKey ());
         if (parent == null)
         {
+          parents.put (entry.getKey (), entry);
           fileEntries.add (entry);
           DefaultMutableTreeNode node = new DefaultMutableTreeNode (entry);
           root.add (node);
@@ -131,15 +135,6 @@ public class CPMDisk extends AbstractFormattedDisk
     return null;
   }
 
-  private DirectoryEntry findParent (DirectoryEntry child)
-  {
-    for (AppleFileSource entry : fileEntries)
-      if (((DirectoryEntry) entry).matches (child))
-        return (DirectoryEntry) entry;
-
-    return null;
-  }
-
   @Override
   public DataSource getFormattedSector (DiskAddress da)
   {
@@ -80,6 +80,12 @@ public class DirectoryEntry implements AppleFileSource
     return type;
   }
 
+  // the same for every extent of a file, so that matching entries share a key
+  String getKey ()
+  {
+    return userNumber + ":" + name + "." + type;
+  }
+
   public boolean matches (DirectoryEntry directoryEntry)
   {
     return userNumber == directoryEntry.userNumber && name.equals (directoryEntry.name)
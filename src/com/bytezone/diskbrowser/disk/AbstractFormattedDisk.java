@@ -8,13 +8,13 @@ import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JTree;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
-import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
@@ -28,11 +28,17 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   protected FormattedDisk parent;                 // used by Dual-dos disks
 
   protected ActionListener actionListenerList;
-  protected JTree catalogTree;
+  protected final DefaultTreeModel catalogTreeModel;
+  private JTree catalogTree;                      // only created when displayed
+  private final List<DefaultMutableTreeNode> visibleNodes =
+      new ArrayList<DefaultMutableTreeNode> ();
   protected Path originalPath;
 
   protected List<SectorType> sectorTypesList = new ArrayList<SectorType> ();
   protected List<AppleFileSource> fileEntries = new ArrayList<AppleFileSource> ();
+  private final Map<String, AppleFileSource> fileIndex =
+      new HashMap<String, AppleFileSource> ();
+  private int filesIndexed;                       // fileEntries already in fileIndex
 
   public SectorType[] sectorTypes;
 
@@ -50,6 +56,12 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   protected BitSet usedBlocks; // still to be populated - currently using stillAvailable ()
 
   public AbstractFormattedDisk (Disk disk)
+  {
+    this (disk, true);
+  }
+
+  // a subclass that restores its sector types from a cache doesn't need them set here
+  protected AbstractFormattedDisk (Disk disk, boolean setSectorTypes)
   {
     this.disk = disk;
     freeBlocks = new BitSet (disk.getTotalBlocks ());
@@ -68,7 +80,10 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
      * sensible, but deleted files will always leave the sector as used/unknown
      * as it contains data.
      */
-    setSectorTypes ();
+    if (setSectorTypes)
+      setSectorTypes ();
+    else
+      sectorTypes = new SectorType[disk.getTotalBlocks ()];
     setGridLayout ();
     /*
      * Create the disk name as the root for the catalog tree. Subclasses will
@@ -77,9 +92,9 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
     DefaultAppleFileSource afs =
         new DefaultAppleFileSource (getName (), disk.toString (), this);
     DefaultMutableTreeNode root = new DefaultMutableTreeNode (afs);
-    DefaultTreeModel treeModel = new DefaultTreeModel (root);
-    catalogTree = new JTree (treeModel);
-    treeModel.setAsksAllowsChildren (true); // allows empty nodes to appear as folders
+    catalogTreeModel = new DefaultTreeModel (root);
+    // allows empty nodes to appear as folders
+    catalogTreeModel.setAsksAllowsChildren (true);
     /*
      * Add an ActionListener to the disk in case the interleave or blocksize
      * changes
@@ -100,7 +115,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
     setSectorTypes ();
   }
 
-  private void setSectorTypes ()
+  protected void setSectorTypes ()
   {
     sectorTypes = new SectorType[disk.getTotalBlocks ()];
 
@@ -177,8 +192,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   {
     this.originalPath = path;
 
-    DefaultMutableTreeNode root =
-        (DefaultMutableTreeNode) catalogTree.getModel ().getRoot ();
+    DefaultMutableTreeNode root = getCatalogTreeRoot ();
     DefaultAppleFileSource afs =
         new DefaultAppleFileSource (getName (), disk.toString (), this);
     if (root.getUserObject () == null)
@@ -217,48 +231,134 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
     return fileEntries;
   }
 
+  // Accepts either a unique name, or a path that starts with the volume name such
+  // as /VOLUME/SUBDIR/FILE (whether or not the disk's unique names include it).
   @Override
   public AppleFileSource getFile (String uniqueName)
   {
-    for (AppleFileSource afs : fileEntries)
-      if (afs.getUniqueName ().equals (uniqueName))
-        return afs;
-    return null;
+    indexFiles ();
+
+    AppleFileSource afs = fileIndex.get (uniqueName);
+    if (afs == null && uniqueName.startsWith ("/"))
+    {
+      afs = fileIndex.get (uniqueName.substring (1));   // names include the volume
+      int pos = uniqueName.indexOf ('/', 1);
+      if (afs == null && pos > 0)                       // names without the volume
+        afs = fileIndex.get (uniqueName.substring (pos + 1));
+    }
+    return afs;
+  }
+
+  // Catalog entries are only ever appended, so any added since the last call are
+  // indexed here. The first of any duplicate names is the one that is found.
+  private void indexFiles ()
+  {
+    while (filesIndexed < fileEntries.size ())
+    {
+      AppleFileSource afs = fileEntries.get (filesIndexed++);
+      String name = afs.getUniqueName ();
+      if (!fileIndex.containsKey (name))
+        fileIndex.put (name, afs);
+    }
   }
 
   /*
    * Catalog Tree routines
    */
+  // The JTree isn't created until the disk is displayed, so that opening a disk
+  // for any other reason doesn't need Swing to be initialised.
   @Override
   public JTree getCatalogTree ()
   {
+    if (catalogTree == null)
+    {
+      catalogTree = new JTree (catalogTreeModel);
+      for (DefaultMutableTreeNode node : visibleNodes)
+        catalogTree.makeVisible (new TreePath (catalogTreeModel.getPathToRoot (node)));
+      visibleNodes.clear ();
+    }
     return catalogTree;
   }
 
+  @Override
+  public DefaultTreeModel getCatalogTreeModel ()
+  {
+    return catalogTreeModel;
+  }
+
+  // For disks without a catalog - lists the files that FileCarver can find, replacing
+  // any that were found before the interleave or block size changed.
+  protected void addCarvedFiles (SectorType carvedSector)
+  {
+    DefaultMutableTreeNode root = getCatalogTreeRoot ();
+    root.removeAllChildren ();
+    fileEntries.clear ();
+    fileIndex.clear ();
+    filesIndexed = 0;
+
+    List<CarvedFile> carvedFiles;
+    try
+    {
+      carvedFiles = new FileCarver (this).carve ();
+    }
+    catch (Exception e)           // carving must never stop the disk from opening
+    {
+      e.printStackTrace ();
+      carvedFiles = new ArrayList<CarvedFile> ();
+    }
+
+    for (CarvedFile carvedFile : carvedFiles)
+    {
+      fileEntries.add (carvedFile);
+      root.add (new DefaultMutableTreeNode (carvedFile, false));
+      for (DiskAddress da : carvedFile.getSectors ())
+        sectorTypes[da.getBlock ()] = carvedSector;
+    }
+
+    if (!fileEntries.isEmpty () && !sectorTypesList.contains (carvedSector))
+      sectorTypesList.add (carvedSector);
+    catalogTreeModel.nodeStructureChanged (root);
+  }
+
   public DefaultMutableTreeNode getCatalogTreeRoot ()
   {
-    return (DefaultMutableTreeNode) catalogTree.getModel ().getRoot ();
+    return (DefaultMutableTreeNode) catalogTreeModel.getRoot ();
   }
 
   public void makeNodeVisible (DefaultMutableTreeNode node)
   {
-    catalogTree.makeVisible (
-        new TreePath (((DefaultTreeModel) catalogTree.getModel ()).getPathToRoot (node)));
+    if (catalogTree == null)
+      visibleNodes.add (node);
+    else
+      catalogTree.makeVisible (new TreePath (catalogTreeModel.getPathToRoot (node)));
   }
 
+  // Searches a level at a time, in the same order as a breadth-first enumeration, but
+  // a node is only asked for its children when none of the nodes before them match.
+  // This leaves the lazy nodes below the one that is found alone.
   protected DefaultMutableTreeNode findNode (DefaultMutableTreeNode node, String name)
   {
-    Enumeration<TreeNode> children = node.breadthFirstEnumeration ();
-    if (children != null)
+    if (node.getUserObject ().toString ().indexOf (name) > 0)
+      return node;
+
+    List<DefaultMutableTreeNode> parents = new ArrayList<DefaultMutableTreeNode> ();
+    parents.add (node);
+
+    while (!parents.isEmpty ())
     {
-      while (children.hasMoreElements ())
-      {
-        DefaultMutableTreeNode childNode =
-            (DefaultMutableTreeNode) children.nextElement ();
-        if (childNode.getUserObject ().toString ().indexOf (name) > 0)
-          return childNode;
-      }
+      List<DefaultMutableTreeNode> children = new ArrayList<DefaultMutableTreeNode> ();
+      for (DefaultMutableTreeNode parent : parents)
+        for (int i = 0; i < parent.getChildCount (); i++)
+        {
+          DefaultMutableTreeNode childNode =
+              (DefaultMutableTreeNode) parent.getChildAt (i);
+          if (childNode.getUserObject ().toString ().indexOf (name) > 0)
+            return childNode;
+          children.add (childNode);
+        }
+      parents = children;
     }
+
     return null;
   }
 
@@ -406,6 +506,25 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
     }
   }
 
+  // formats that know what their deleted files look like override this
+  @Override
+  public List<RecoverableFile> findRecoverableFiles ()
+  {
+    return new ArrayList<RecoverableFile> ();
+  }
+
+  // Blocks that contain data but don't belong to anything in the catalog, whether or
+  // not the free sector map says they are free. Anything that is still recoverable
+  // from a deleted file will be in one of these.
+  protected BitSet getUnclaimedBlocks ()
+  {
+    BitSet unclaimed = new BitSet (sectorTypes.length);
+    for (int i = 0; i < sectorTypes.length; i++)
+      if (sectorTypes[i] == usedSector)
+        unclaimed.set (i);
+    return unclaimed;
+  }
+
   // VTOC flags sector as free, but it is in use by a file
   @Override
   public int falsePositiveBlocks ()
@@ -7,6 +7,9 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -26,9 +29,11 @@ public class AppleDisk implements Disk
   private static final int MAX_INTERLEAVE = 3;
   private static final int SECTOR_SIZE = 256;
   private static final int BLOCK_SIZE = 512;
+  private static final int CHUNK_SIZE = 0x10000;
 
   public final File file;
   private final byte[] diskBuffer;        // contains the disk contents in memory
+  private String contentHash;             // identifies the contents for CatalogCache
 
   private final int tracks;               // usually 35 for floppy disks
   private int sectors;                    // 8 or 16
@@ -75,7 +80,7 @@ public class AppleDisk implements Disk
   //         DFB     12,10,08        ;09->12,10->10,11->08
   //         DFB     06,04,02,15     ;12->06,13->04,14->02,15->15
 
-  private boolean[] hasData;
+  private SectorClassifier classifier;        // also decides which sectors are empty
   private byte emptyByte = 0;
 
   private ActionListener actionListenerList;
@@ -181,7 +186,6 @@ public class AppleDisk implements Disk
     this.sectors = sectors;
 
     diskBuffer = new byte[tracks * sectors * sectorSize];
-    hasData = new boolean[blocks];
 
     if (debug)
     {
@@ -194,7 +198,7 @@ public class AppleDisk implements Disk
       BufferedInputStream in = new BufferedInputStream (new FileInputStream (file));
       if (skip > 0)
         in.skip (skip);
-      in.read (diskBuffer);
+      read (in);
       in.close ();
     }
     catch (IOException e)
@@ -216,7 +220,6 @@ public class AppleDisk implements Disk
     trackSize = 4096;
     sectorSize = trackSize / sectors;
     blocks = tracks * sectors;
-    hasData = new boolean[blocks];
 
     checkSectorsForData ();
   }
@@ -248,11 +251,39 @@ public class AppleDisk implements Disk
     }
 
     blocks = tracks * sectors;
-    hasData = new boolean[blocks];
 
     checkSectorsForData ();
   }
 
+  // the contents are hashed a chunk at a time, while each chunk is still in the cache
+  private void read (InputStream in) throws IOException
+  {
+    MessageDigest digest = null;
+    try
+    {
+      digest = MessageDigest.getInstance ("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+    }
+
+    int offset = 0;
+    while (offset < diskBuffer.length)
+    {
+      int bytesRead =
+          in.read (diskBuffer, offset, Math.min (CHUNK_SIZE, diskBuffer.length - offset));
+      if (bytesRead < 0)
+        break;
+      if (digest != null)
+        digest.update (diskBuffer, offset, bytesRead);
+      offset += bytesRead;
+    }
+
+    if (digest != null)
+      contentHash = HexFormatter.getHexString (digest.digest (), 0,
+          digest.getDigestLength (), false);
+  }
+
   private byte[] getPrefix (File path)
   {
     byte[] buffer = new byte[64];
@@ -271,56 +302,24 @@ public class AppleDisk implements Disk
     return buffer;
   }
 
+  // Sectors are classified the first time they are asked about, so this only has to
+  // start again when the empty byte changes.
   private void checkSectorsForData ()
   {
-    if (true)
-    {
-      checkSectorsFaster ();
-      return;
-    }
     // force blockList to be rebuilt with the correct number/size of blocks
     blockList = null;
 
-    for (DiskAddress da : this)         // uses blockList.iterator
-    {
-      byte[] buffer = readSector (da);
-      hasData[da.getBlock ()] = false;
-      for (int i = 0; i < sectorSize; i++)
-        if (buffer[i] != emptyByte)
-        {
-          hasData[da.getBlock ()] = true;
-          break;
-        }
-    }
+    if (classifier == null || classifier.getEmptyByte () != emptyByte)
+      classifier = new SectorClassifier (diskBuffer, emptyByte);
   }
 
-  private void checkSectorsFaster ()
+  public byte getSectorClass (DiskAddress da)
   {
-    // force blockList to be rebuilt with the correct number/size of blocks
-    blockList = null;
-
-    for (DiskAddress da : this)         // uses blockList.iterator
-    {
-      if (sectorSize == SECTOR_SIZE)
-      {
-        int diskOffset = getBufferOffset (da);
-        hasData[da.getBlock ()] = check (diskOffset);
-      }
-      else
-      {
-        int diskOffset1 = getBufferOffset (da, 0);
-        int diskOffset2 = getBufferOffset (da, 1);
-        hasData[da.getBlock ()] = check (diskOffset1) || check (diskOffset2);
-      }
-    }
-  }
+    if (sectorSize == SECTOR_SIZE)
+      return classifier.getClass (getBufferOffset (da));
 
-  private boolean check (int diskOffset)
-  {
-    for (int i = diskOffset, max = diskOffset + SECTOR_SIZE; i < max; i++)
-      if (diskBuffer[i] != emptyByte)
-        return true;
-    return false;
+    return SectorClassifier.combine (classifier.getClass (getBufferOffset (da, 0)),
+        classifier.getClass (getBufferOffset (da, 1)));
   }
 
   /*
@@ -360,19 +359,19 @@ public class AppleDisk implements Disk
   @Override
   public boolean isSectorEmpty (DiskAddress da)
   {
-    return !hasData[da.getBlock ()];
+    return getSectorClass (da) == SectorClassifier.EMPTY;
   }
 
   @Override
   public boolean isSectorEmpty (int block)
   {
-    return !hasData[block];
+    return isSectorEmpty (getDiskAddress (block));
   }
 
   @Override
   public boolean isSectorEmpty (int track, int sector)
   {
-    return !hasData[getDiskAddress (track, sector).getBlock ()];
+    return isSectorEmpty (getDiskAddress (track, sector));
   }
 
   @Override
@@ -403,6 +402,34 @@ public class AppleDisk implements Disk
     return buffer;
   }
 
+  // same layout as readSectors(), but nothing is copied
+  @Override
+  public SectorView getSectorView (List<DiskAddress> daList)
+  {
+    int segmentsPerSector = sectorSize / SECTOR_SIZE;
+    int[] segments = new int[daList.size () * segmentsPerSector];
+    int ptr = 0;
+
+    for (DiskAddress da : daList)
+    {
+      if (da != null && da.getBlock () > 0)    // sparse text/PNT/PIC files may have gaps
+      {
+        if (sectorSize == SECTOR_SIZE)
+          segments[ptr++] = getBufferOffset (da);
+        else
+        {
+          segments[ptr++] = getBufferOffset (da, 0);
+          segments[ptr++] = getBufferOffset (da, 1);
+        }
+      }
+      else
+        for (int i = 0; i < segmentsPerSector; i++)
+          segments[ptr++] = -1;
+    }
+
+    return new SectorView (diskBuffer, segments);
+  }
+
   @Override
   public byte[] readSector (int track, int sector)
   {
@@ -419,6 +446,7 @@ public class AppleDisk implements Disk
   public void writeSector (DiskAddress da, byte[] buffer)
   {
     writeBuffer (da, buffer);
+    contentHash = null;                   // the cached catalog no longer matches
   }
 
   @Override
@@ -437,6 +465,12 @@ public class AppleDisk implements Disk
     return interleave;
   }
 
+  // where the given sector of each track is stored in a buffer with this interleave
+  public static int getInterleavedSector (int interleave, int sector)
+  {
+    return interleaveSector[interleave][sector];
+  }
+
   @Override
   public void setBlockSize (int size)
   {
@@ -448,7 +482,6 @@ public class AppleDisk implements Disk
     sectors = trackSize / sectorSize;
     blocks = tracks * sectors;
 
-    hasData = new boolean[blocks];
     checkSectorsForData ();
 
     if (actionListenerList != null)
@@ -555,14 +588,17 @@ public class AppleDisk implements Disk
     {
       int diskOffset = getBufferOffset (da);
       System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
+      classifier.reset (diskOffset);
     }
     else
     {
       int diskOffset = getBufferOffset (da, 0);
       System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
+      classifier.reset (diskOffset);
 
       diskOffset = getBufferOffset (da, 1);
       System.arraycopy (buffer, SECTOR_SIZE, diskBuffer, diskOffset, SECTOR_SIZE);
+      classifier.reset (diskOffset);
     }
   }
 
@@ -637,6 +673,12 @@ public class AppleDisk implements Disk
     return blockList.iterator ();
   }
 
+  @Override
+  public String getContentHash ()
+  {
+    return contentHash;
+  }
+
   @Override
   public long getBootChecksum ()
   {
@@ -0,0 +1,101 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.util.List;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.applefile.BasicProgram;
+import com.bytezone.diskbrowser.applefile.FontFile;
+import com.bytezone.diskbrowser.applefile.OriginalHiResImage;
+import com.bytezone.diskbrowser.applefile.ShapeTable;
+import com.bytezone.diskbrowser.applefile.TextFile;
+import com.bytezone.diskbrowser.gui.DataSource;
+
+// A file that FileCarver found by its contents. Nothing is copied or parsed until the
+// file is displayed.
+class CarvedFile implements AppleFileSource
+{
+  enum Kind
+  {
+    BASIC, PICTURE, SHAPES, FONT, PNG, GIF, BMP, TEXT
+  }
+
+  final Kind kind;
+  private final String name;
+  private final FormattedDisk owner;
+  private final SectorView data;
+  private final int loadAddress;
+  private final List<DiskAddress> blocks;
+  private DataSource dataSource;
+
+  CarvedFile (Kind kind, FormattedDisk owner, SectorView data, int loadAddress,
+      List<DiskAddress> blocks)
+  {
+    this.kind = kind;
+    this.owner = owner;
+    this.data = data;
+    this.loadAddress = loadAddress;
+    this.blocks = blocks;
+    this.name = String.format ("%s.%04X", kind, blocks.get (0).getBlock ());
+  }
+
+  @Override
+  public DataSource getDataSource ()
+  {
+    if (dataSource == null)
+      switch (kind)
+      {
+        case BASIC:
+          dataSource = new BasicProgram (name, data.toByteArray ());
+          break;
+
+        case SHAPES:
+          dataSource = new ShapeTable (name, data.toByteArray ());
+          break;
+
+        case FONT:
+          dataSource = new FontFile (name, data.toByteArray ());
+          break;
+
+        case TEXT:
+          dataSource = new TextFile (name, data);
+          break;
+
+        default:                              // PICTURE, PNG, GIF and BMP
+          dataSource = new OriginalHiResImage (name, data.toByteArray (), loadAddress);
+      }
+    return dataSource;
+  }
+
+  @Override
+  public String getUniqueName ()
+  {
+    return name;
+  }
+
+  @Override
+  public List<DiskAddress> getSectors ()
+  {
+    return blocks;
+  }
+
+  @Override
+  public FormattedDisk getFormattedDisk ()
+  {
+    return owner;
+  }
+
+  @Override
+  public boolean contains (DiskAddress diskAddress)
+  {
+    for (DiskAddress da : blocks)
+      if (da.matches (diskAddress))
+        return true;
+    return false;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return name;
+  }
+}
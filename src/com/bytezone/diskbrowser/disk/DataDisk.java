@@ -1,5 +1,8 @@
 package com.bytezone.diskbrowser.disk;
 
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -7,6 +10,8 @@ import com.bytezone.diskbrowser.gui.DataSource;
 
 public class DataDisk extends AbstractFormattedDisk
 {
+  private final SectorType carvedSector = new SectorType ("Carved file", Color.green);
+
   //  static final byte[] dos = { 0x01, (byte) 0xA5, 0x27, (byte) 0xC9, 0x09 };
 
   // this should somehow tie in with the checksum from DiskFactory to determine
@@ -30,19 +35,34 @@ public class DataDisk extends AbstractFormattedDisk
     //      sectorTypesList.add (dosSector);
     //      sectorTypes[0] = dosSector;
     //    }
+
+    addCarvedFiles (carvedSector);
+
+    // the files move when the interleave or block size changes
+    disk.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        addCarvedFiles (carvedSector);
+      }
+    });
   }
 
-  // no files on data disks
+  // the only files on data disks are the ones that were carved
   @Override
   public List<DiskAddress> getFileSectors (int fileNo)
   {
-    return new ArrayList<> ();
+    if (fileNo < 0 || fileNo >= fileEntries.size ())
+      return new ArrayList<> ();
+    return fileEntries.get (fileNo).getSectors ();
   }
 
-  // no files on data disks
   public DataSource getFile (int fileNo)
   {
-    return null;
+    if (fileNo < 0 || fileNo >= fileEntries.size ())
+      return null;
+    return fileEntries.get (fileNo).getDataSource ();
   }
 
   @Override
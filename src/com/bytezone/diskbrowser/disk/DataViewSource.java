@@ -0,0 +1,9 @@
+package com.bytezone.diskbrowser.disk;
+
+// A catalog entry that can return its file's data straight from the disk buffer. The
+// view leaves out the catalog sector, T/S lists and index blocks, and stops at the
+// file's length, so nothing has to be built to compare or checksum the file.
+public interface DataViewSource
+{
+  public SectorView getDataView ();
+}
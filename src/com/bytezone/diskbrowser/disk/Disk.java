@@ -40,6 +40,8 @@ public interface Disk extends Iterable<DiskAddress>
 
   public byte[] readSectors (List<DiskAddress> daList);
 
+  public SectorView getSectorView (List<DiskAddress> daList);
+
   public void writeSector (DiskAddress da, byte[] buffer);
 
   public boolean isSectorEmpty (int block);
@@ -48,6 +50,8 @@ public interface Disk extends Iterable<DiskAddress>
 
   public boolean isSectorEmpty (DiskAddress da);
 
+  public byte getSectorClass (DiskAddress da);  // one of the SectorClassifier classes
+
   public boolean isValidAddress (int block);
 
   public boolean isValidAddress (int track, int sector);
@@ -56,6 +60,8 @@ public interface Disk extends Iterable<DiskAddress>
 
   public File getFile ();
 
+  public String getContentHash ();              // null if not read from a file
+
   public void addActionListener (ActionListener listener);
 
   public void removeActionListener (ActionListener listener);
@@ -0,0 +1,239 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+
+// Compares two disks block by block, and file by file. A track at a time is compared
+// in place in the two disk buffers, and only a track that differs is looked at block
+// by block. Files are matched by name, then a file that is only on one of the disks
+// is matched by checksum to one on the other, so that a renamed file is reported as
+// such rather than as one file removed and another added. Only the file's own data
+// is compared, so a file that has just moved is not reported. Both disks must use
+// the same block size.
+public class DiskCompare
+{
+  private final FormattedDisk formattedDisk1;
+  private final FormattedDisk formattedDisk2;
+  private final Disk disk1;
+  private final Disk disk2;
+
+  private final List<DiskAddress> blocks = new ArrayList<DiskAddress> ();
+  private final List<FileDifference> files = new ArrayList<FileDifference> ();
+
+  public DiskCompare (FormattedDisk formattedDisk1, FormattedDisk formattedDisk2)
+  {
+    this.formattedDisk1 = formattedDisk1;
+    this.formattedDisk2 = formattedDisk2;
+    this.disk1 = formattedDisk1.getDisk ();
+    this.disk2 = formattedDisk2.getDisk ();
+
+    if (disk1.getBlockSize () != disk2.getBlockSize ())
+      throw new IllegalArgumentException ("The disks have different block sizes");
+
+    compareBlocks ();
+    compareFiles ();
+  }
+
+  // blocks of the first disk that differ, including any that the second disk lacks
+  public List<DiskAddress> getDifferentBlocks ()
+  {
+    return blocks;
+  }
+
+  public List<FileDifference> getFileDifferences ()
+  {
+    return files;
+  }
+
+  private void compareBlocks ()
+  {
+    int blockSize = disk1.getBlockSize ();
+    int totalBlocks = Math.min (disk1.getTotalBlocks (), disk2.getTotalBlocks ());
+    int blocksPerTrack = Math.max (1, disk1.getTrackSize () / blockSize);
+
+    // sector views leave out block 0, so the boot block is always read
+    if (!Arrays.equals (disk1.readSector (0), disk2.readSector (0)))
+      blocks.add (disk1.getDiskAddress (0));
+
+    for (int first = 1; first < totalBlocks; first += blocksPerTrack)
+    {
+      int last = Math.min (first + blocksPerTrack, totalBlocks);
+      SectorView view1 = getView (disk1, first, last);
+      SectorView view2 = getView (disk2, first, last);
+
+      int offset = 0;
+      while (offset < view1.length ())
+      {
+        int count = view1.length () - offset;
+        int mismatch = view1.slice (offset, count).mismatch (view2.slice (offset, count));
+        if (mismatch < 0)
+          break;
+
+        int block = (offset + mismatch) / blockSize;
+        blocks.add (disk1.getDiskAddress (first + block));
+        offset = (block + 1) * blockSize;         // carry on from the next block
+      }
+    }
+
+    for (int block = totalBlocks; block < disk1.getTotalBlocks (); block++)
+      blocks.add (disk1.getDiskAddress (block));
+  }
+
+  private SectorView getView (Disk disk, int first, int last)
+  {
+    List<DiskAddress> addresses = new ArrayList<DiskAddress> (last - first);
+    for (int block = first; block < last; block++)
+      addresses.add (disk.getDiskAddress (block));
+    return disk.getSectorView (addresses);
+  }
+
+  private void compareFiles ()
+  {
+    Map<String, AppleFileSource> files2 = new LinkedHashMap<String, AppleFileSource> ();
+    for (AppleFileSource file : formattedDisk2.getCatalogList ())
+      files2.put (file.getUniqueName (), file);
+
+    List<AppleFileSource> removed = new ArrayList<AppleFileSource> ();
+    for (AppleFileSource file : formattedDisk1.getCatalogList ())
+    {
+      AppleFileSource other = files2.remove (file.getUniqueName ());
+      if (other == null)
+        removed.add (file);
+      else if (getData (disk1, file).mismatch (getData (disk2, other)) >= 0)
+        files.add (new FileDifference (Change.CHANGED, file.getUniqueName (),
+            other.getUniqueName ()));
+    }
+
+    // only the files that have no match by name need a checksum
+    Map<Long, AppleFileSource> checksums = new LinkedHashMap<Long, AppleFileSource> ();
+    for (AppleFileSource file : removed)
+    {
+      long checksum = getChecksum (disk1, file);
+      if (!checksums.containsKey (checksum))
+        checksums.put (checksum, file);
+    }
+
+    for (AppleFileSource file : files2.values ())
+    {
+      AppleFileSource old = checksums.remove (getChecksum (disk2, file));
+      if (old == null)
+        files.add (new FileDifference (Change.ADDED, "", file.getUniqueName ()));
+      else
+      {
+        files.add (new FileDifference (Change.RENAMED, old.getUniqueName (),
+            file.getUniqueName ()));
+        removed.remove (old);
+      }
+    }
+
+    for (AppleFileSource file : removed)
+      files.add (new FileDifference (Change.REMOVED, file.getUniqueName (), ""));
+  }
+
+  // The file's data from the disk buffer, without building its DataSource. Other
+  // file systems give their sectors less the catalog sector that is listed first.
+  private SectorView getData (Disk disk, AppleFileSource file)
+  {
+    if (file instanceof DataViewSource)
+      return ((DataViewSource) file).getDataView ();
+
+    List<DiskAddress> sectors = file.getSectors ();
+    if (sectors == null)
+      sectors = new ArrayList<DiskAddress> ();
+    if (!sectors.isEmpty () && !file.contains (sectors.get (0)))
+      sectors = sectors.subList (1, sectors.size ());
+    return disk.getSectorView (sectors);
+  }
+
+  private long getChecksum (Disk disk, AppleFileSource file)
+  {
+    CRC32 checksum = new CRC32 ();
+    for (ByteBuffer buffer : getData (disk, file).getByteBuffers ())
+      checksum.update (buffer);
+    return checksum.getValue ();
+  }
+
+  // The rows of a block that differ, with the first disk on the left and only the
+  // bytes that are different shown on the right.
+  public String getHexDump (DiskAddress da)
+  {
+    int block = da.getBlock ();
+    byte[] buffer1 = disk1.readSector (block);
+    byte[] buffer2 = block < disk2.getTotalBlocks () ? disk2.readSector (block)
+        : new byte[buffer1.length];
+
+    StringBuilder text = new StringBuilder ();
+    text.append (String.format ("Block %04X  T/S %02X/%02X  %s%n", block, da.getTrack (),
+        da.getSector (), formattedDisk1.getSectorFilename (da)));
+
+    for (int row = 0; row < buffer1.length; row += 8)
+    {
+      if (Arrays.equals (buffer1, row, row + 8, buffer2, row, row + 8))
+        continue;
+
+      StringBuilder left = new StringBuilder ();
+      StringBuilder right = new StringBuilder ();
+      for (int i = row; i < row + 8; i++)
+      {
+        left.append (String.format ("%02X ", buffer1[i]));
+        right.append (buffer1[i] == buffer2[i] ? "-- "
+            : String.format ("%02X ", buffer2[i]));
+      }
+      text.append (String.format ("  %03X: %s  %s  %s %s%n", row, left,
+          getText (buffer1, row), right, getText (buffer2, row)));
+    }
+
+    return text.toString ();
+  }
+
+  private String getText (byte[] buffer, int offset)
+  {
+    StringBuilder text = new StringBuilder ();
+    for (int i = offset; i < offset + 8; i++)
+    {
+      int c = buffer[i] & 0x7F;
+      text.append (c < 0x20 || c == 0x7F ? '.' : (char) c);
+    }
+    return text.toString ();
+  }
+
+  public enum Change
+  {
+    ADDED, REMOVED, CHANGED, RENAMED
+  }
+
+  public static class FileDifference
+  {
+    public final Change change;
+    public final String name1;              // empty if the file was added
+    public final String name2;              // empty if the file was removed
+
+    FileDifference (Change change, String name1, String name2)
+    {
+      this.change = change;
+      this.name1 = name1;
+      this.name2 = name2;
+    }
+
+    @Override
+    public String toString ()
+    {
+      switch (change)
+      {
+        case ADDED:
+          return String.format ("%-8s %s", change, name2);
+        case RENAMED:
+          return String.format ("%-8s %s -> %s", change, name1, name2);
+        default:
+          return String.format ("%-8s %s", change, name1);
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.bytezone.diskbrowser.utilities.ByteSearch;
+import com.bytezone.diskbrowser.utilities.ByteSearch.HitListener;
+
+// Searches every block of a disk for a set of patterns in a single pass, and reports
+// each match with its block and the file that owns it. Blocks are scanned in place in
+// the disk buffer wherever possible. A match can't cross from one block to the next.
+public class DiskSearch
+{
+  private final FormattedDisk formattedDisk;
+  private final Disk disk;
+  private String[] owners;                  // block -> unique name, or "" if none
+
+  public DiskSearch (FormattedDisk formattedDisk)
+  {
+    this.formattedDisk = formattedDisk;
+    this.disk = formattedDisk.getDisk ();
+  }
+
+  public static List<Hit> search (FormattedDisk formattedDisk, ByteSearch byteSearch)
+  {
+    return new DiskSearch (formattedDisk).search (byteSearch);
+  }
+
+  public List<Hit> search (final ByteSearch byteSearch)
+  {
+    final List<Hit> hits = new ArrayList<Hit> ();
+
+    for (int block = 0, max = disk.getTotalBlocks (); block < max; block++)
+    {
+      final DiskAddress da = disk.getDiskAddress (block);
+      if (!disk.isSectorEmpty (da))
+      {
+        byteSearch.scan (getBuffer (da), 0, new HitListener ()
+        {
+          @Override
+          public void hit (int pattern, long start)
+          {
+            hits.add (new Hit (da, (int) start, byteSearch.getPattern (pattern),
+                getOwner (da)));
+          }
+        });
+      }
+    }
+
+    return hits;
+  }
+
+  // A block is scanned in place unless its two halves are apart in the disk buffer.
+  // Sector views treat block 0 as a gap, so the boot block is always read.
+  private ByteBuffer getBuffer (DiskAddress da)
+  {
+    if (da.getBlock () == 0)
+      return ByteBuffer.wrap (disk.readSector (da));
+
+    SectorView view = disk.getSectorView (Collections.singletonList (da));
+    List<ByteBuffer> buffers = view.getByteBuffers ();
+    return buffers.size () == 1 ? buffers.get (0) : ByteBuffer.wrap (view.toByteArray ());
+  }
+
+  // the same name that the sector's formatted view shows, worked out once per block
+  private String getOwner (DiskAddress da)
+  {
+    if (owners == null)
+      owners = new String[disk.getTotalBlocks ()];
+    if (owners[da.getBlock ()] == null)
+      owners[da.getBlock ()] = formattedDisk.getSectorFilename (da);
+    return owners[da.getBlock ()];
+  }
+
+  public static class Hit
+  {
+    public final DiskAddress diskAddress;
+    public final int offset;                // offset within the block
+    public final String pattern;
+    public final String fileName;           // empty if no file uses the block
+
+    Hit (DiskAddress diskAddress, int offset, String pattern, String fileName)
+    {
+      this.diskAddress = diskAddress;
+      this.offset = offset;
+      this.pattern = pattern;
+      this.fileName = fileName;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return String.format ("block %04X  T/S %02X/%02X  offset %03X  %-20s  %s",
+          diskAddress.getBlock (), diskAddress.getTrack (), diskAddress.getSector (),
+          offset, pattern, fileName);
+    }
+  }
+}
@@ -18,7 +18,8 @@ public class DualDosDisk implements FormattedDisk
 {
   private final FormattedDisk[] disks = new FormattedDisk[2];
   private int currentDisk;
-  private final JTree tree;
+  private final DefaultTreeModel treeModel;
+  private JTree tree;
 
   public DualDosDisk (FormattedDisk disk0, FormattedDisk disk1)
   {
@@ -29,8 +30,7 @@ public class DualDosDisk implements FormattedDisk
     DefaultAppleFileSource dafs = new DefaultAppleFileSource (diskName, text, this);
     DefaultMutableTreeNode root = new DefaultMutableTreeNode (dafs);
 
-    DefaultTreeModel treeModel = new DefaultTreeModel (root);
-    tree = new JTree (treeModel);
+    treeModel = new DefaultTreeModel (root);
 
     // allow empty nodes to appear as folders
     treeModel.setAsksAllowsChildren (true);
@@ -42,9 +42,9 @@ public class DualDosDisk implements FormattedDisk
     disk1.setParent (this);
 
     DefaultMutableTreeNode root0 =
-        (DefaultMutableTreeNode) disk0.getCatalogTree ().getModel ().getRoot ();
+        (DefaultMutableTreeNode) disk0.getCatalogTreeModel ().getRoot ();
     DefaultMutableTreeNode root1 =
-        (DefaultMutableTreeNode) disk1.getCatalogTree ().getModel ().getRoot ();
+        (DefaultMutableTreeNode) disk1.getCatalogTreeModel ().getRoot ();
     root.add ((DefaultMutableTreeNode) root0.getChildAt (0));
     root.add ((DefaultMutableTreeNode) root1.getChildAt (0));
 
@@ -55,9 +55,17 @@ public class DualDosDisk implements FormattedDisk
   @Override
   public JTree getCatalogTree ()
   {
+    if (tree == null)
+      tree = new JTree (treeModel);
     return tree;
   }
 
+  @Override
+  public DefaultTreeModel getCatalogTreeModel ()
+  {
+    return treeModel;
+  }
+
   @Override
   public List<DiskAddress> getFileSectors (int fileNo)
   {
@@ -169,6 +177,12 @@ public class DualDosDisk implements FormattedDisk
     disks[currentDisk].verify ();
   }
 
+  @Override
+  public List<RecoverableFile> findRecoverableFiles ()
+  {
+    return disks[currentDisk].findRecoverableFiles ();
+  }
+
   @Override
   public boolean stillAvailable (DiskAddress da)
   {
@@ -0,0 +1,381 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bytezone.diskbrowser.applefile.FontFile;
+import com.bytezone.diskbrowser.applefile.HiResImage;
+import com.bytezone.diskbrowser.applefile.ShapeTable;
+import com.bytezone.diskbrowser.disk.CarvedFile.Kind;
+import com.bytezone.diskbrowser.utilities.ByteSearch;
+import com.bytezone.diskbrowser.utilities.ByteSearch.HitListener;
+
+// Finds files on a disk without a catalog by looking at what each block holds. Every
+// block is visited once, in order. Its first bytes go through a single automaton that
+// knows every fixed signature (PNG, GIF and BMP), and the tests that the file types
+// already use decide what was found. A file is assumed to fill consecutive blocks from
+// where it starts, which is how loaders and unknown operating systems usually store
+// them. The disk buffer is read in place, and only the candidates that need it are
+// copied. No scan goes further than the largest file of its kind, and a run of text
+// that was rejected isn't scanned again from a later block, so the whole carve takes
+// time in proportion to the size of the disk.
+class FileCarver
+{
+  // every pattern is in hex so that it matches exactly
+  private static final ByteSearch signatures = ByteSearch.compile (
+      "89 50 4E 47 0D 0A 1A 0A, 47 49 46 38 37 61, 47 49 46 38 39 61, 42 4D");
+  private static final Kind[] signatureKinds = { Kind.PNG, Kind.GIF, Kind.GIF, Kind.BMP };
+  private static final int HEADER_SIZE = 16;
+  private static final int HGR_SIZE = 0x2000;
+  private static final int MAX_SMALL_FILE = 0x2000;     // fonts and shape tables
+  private static final int MIN_BASIC_LINES = 3;
+  private static final int MAX_BASIC_ADDRESS = 0xC000;  // the I/O space follows
+  private static final int MIN_TEXT = 128;
+  private static final int MIN_BMP = 26;                // the headers
+
+  private final FormattedDisk formattedDisk;
+  private final Disk disk;
+  private final SectorView view;
+  private final int blockSize;
+  private final int totalBlocks;
+  private final int length;
+  private int rejectedText;           // the end of the last run of text that was rejected
+
+  FileCarver (FormattedDisk formattedDisk)
+  {
+    this.formattedDisk = formattedDisk;
+    this.disk = formattedDisk.getDisk ();
+
+    blockSize = disk.getBlockSize ();
+    totalBlocks = disk.getTotalBlocks ();
+
+    List<DiskAddress> blocks = new ArrayList<DiskAddress> (totalBlocks);
+    for (int block = 0; block < totalBlocks; block++)
+      blocks.add (disk.getDiskAddress (block));
+    view = disk.getSectorView (blocks);
+    length = view.length ();
+  }
+
+  List<CarvedFile> carve ()
+  {
+    List<CarvedFile> files = new ArrayList<CarvedFile> ();
+    byte[] header = new byte[HEADER_SIZE];
+
+    int block = 1;                          // block 0 is the boot block
+    while (block < totalBlocks)
+    {
+      CarvedFile file = null;
+      if (!disk.isSectorEmpty (block))
+      {
+        view.get (block * blockSize, header, 0, HEADER_SIZE);
+        file = carve (block * blockSize, header);
+      }
+
+      if (file == null)
+        ++block;
+      else
+      {
+        files.add (file);
+        block += file.getSectors ().size ();
+      }
+    }
+
+    return files;
+  }
+
+  private CarvedFile carve (int start, byte[] header)
+  {
+    // a DOS binary file starts with its load address and length
+    int loadAddress = (header[0] & 0xFF) | ((header[1] & 0xFF) << 8);
+    int binaryLength = (header[2] & 0xFF) | ((header[3] & 0xFF) << 8);
+    boolean binary = loadAddress > 0 && binaryLength > 0
+        && loadAddress + binaryLength <= 0x10000 && start + 4 + binaryLength <= length;
+
+    int signature = findSignature (header);
+    if (signature >= 0)
+    {
+      int offset = signature >> 8;
+      Kind kind = signatureKinds[signature & 0xFF];
+      if (offset == 0)
+      {
+        int imageLength = getImageLength (kind, start);
+        if (imageLength > 0)
+          return create (kind, start, 0, imageLength, 0);
+      }
+      else if (binary && (kind != Kind.BMP || getBmpLength (start + 4) > 0))
+        return create (kind, start, 4, binaryLength, loadAddress);
+    }
+
+    if (binary)
+    {
+      CarvedFile file = carveBinary (start, loadAddress, binaryLength);
+      if (file != null)
+        return file;
+    }
+
+    // ProDOS stores an Applesoft program as it is, DOS adds its length first
+    int basicLength = getBasicLength (start);
+    if (basicLength > 0)
+      return create (Kind.BASIC, start, 0, basicLength, 0x801);
+    basicLength = getBasicLength (start + 2);
+    int reportedLength = view.unsignedShort (start);
+    if (basicLength > 0 && reportedLength >= basicLength
+        && reportedLength - basicLength < blockSize)
+      return create (Kind.BASIC, start, 2, basicLength, 0x801);
+
+    if (isHiResPage (start))
+      return create (Kind.PICTURE, start, 0, HGR_SIZE, 0x2000);
+
+    int textLength = getTextLength (start);
+    if (textLength > 0)
+      return create (Kind.TEXT, start, 0, textLength, 0);
+
+    return null;
+  }
+
+  private CarvedFile carveBinary (int start, int loadAddress, int binaryLength)
+  {
+    if ((loadAddress == 0x2000 || loadAddress == 0x4000) && binaryLength >= 0x1FF8
+        && binaryLength <= HGR_SIZE)
+      return create (Kind.PICTURE, start, 4, binaryLength, loadAddress);
+
+    if (binaryLength > MAX_SMALL_FILE)
+      return null;
+
+    // the byte after a shape table's shape count is unused
+    boolean font = binaryLength == 768 || binaryLength == 1024;
+    boolean shapes = binaryLength > 1 && view.get (start + 5) == 0;
+    if (!font && !shapes)
+      return null;
+
+    byte[] buffer = view.slice (start + 4, binaryLength).toByteArray ();
+    if (font && FontFile.isFont (buffer))
+      return create (Kind.FONT, start, 4, binaryLength, loadAddress);
+
+    if (shapes && ShapeTable.isShapeTable (buffer))
+      return create (Kind.SHAPES, start, 4, binaryLength, loadAddress);
+
+    return null;
+  }
+
+  private CarvedFile create (Kind kind, int start, int offset, int dataLength,
+      int loadAddress)
+  {
+    int firstBlock = start / blockSize;
+    int lastBlock = (start + offset + dataLength - 1) / blockSize;
+
+    List<DiskAddress> blocks = new ArrayList<DiskAddress> ();
+    for (int block = firstBlock; block <= lastBlock; block++)
+      blocks.add (disk.getDiskAddress (block));
+
+    return new CarvedFile (kind, formattedDisk,
+        view.slice (start + offset, dataLength), loadAddress, blocks);
+  }
+
+  // returns the offset * 256 + the pattern, or -1
+  private int findSignature (byte[] header)
+  {
+    final int[] found = { -1 };
+    signatures.scan (ByteBuffer.wrap (header), 0, new HitListener ()
+    {
+      @Override
+      public void hit (int pattern, long start)
+      {
+        if (found[0] < 0 && (start == 0 || start == 4))
+          found[0] = (int) start << 8 | pattern;
+      }
+    });
+
+    return found[0];
+  }
+
+  private int getImageLength (Kind kind, int start)
+  {
+    switch (kind)
+    {
+      case PNG:
+        return getPngLength (start);
+      case GIF:
+        return getGifLength (start);
+      default:
+        return getBmpLength (start);
+    }
+  }
+
+  // the chunks run until IEND, each with its length, type, data and crc
+  private int getPngLength (int start)
+  {
+    int ptr = start + 8;
+    while (ptr + 12 <= length)
+    {
+      int chunkLength = ((view.get (ptr) & 0xFF) << 24)
+          | ((view.get (ptr + 1) & 0xFF) << 16) | ((view.get (ptr + 2) & 0xFF) << 8)
+          | (view.get (ptr + 3) & 0xFF);
+      if (chunkLength < 0 || chunkLength > length)
+        return 0;
+
+      boolean end = view.get (ptr + 4) == 'I' && view.get (ptr + 5) == 'E'
+          && view.get (ptr + 6) == 'N' && view.get (ptr + 7) == 'D';
+      ptr += chunkLength + 12;
+      if (end)
+        return ptr <= length ? ptr - start : 0;
+    }
+    return 0;
+  }
+
+  // the blocks after the colour table run until the trailer
+  private int getGifLength (int start)
+  {
+    int ptr = start + 13;
+    int flags = view.get (start + 10) & 0xFF;
+    if ((flags & 0x80) != 0)
+      ptr += 3 << ((flags & 0x07) + 1);
+
+    while (ptr < length)
+    {
+      int type = view.get (ptr) & 0xFF;
+      if (type == 0x3B)
+        return ptr + 1 - start;
+
+      if (type == 0x21)                     // extension
+        ptr = skipSubBlocks (ptr + 2);
+      else if (type == 0x2C)                // image
+      {
+        if (ptr + 10 > length)
+          return 0;
+        flags = view.get (ptr + 9) & 0xFF;
+        ptr += 10;
+        if ((flags & 0x80) != 0)
+          ptr += 3 << ((flags & 0x07) + 1);
+        ptr = skipSubBlocks (ptr + 1);      // after the LZW code size
+      }
+      else
+        return 0;
+    }
+    return 0;
+  }
+
+  // the file header holds the length, and the bitmap header follows it
+  private int getBmpLength (int start)
+  {
+    if (start + MIN_BMP > length)
+      return 0;
+
+    int size = (int) unsignedLong (start + 2);
+    int dataOffset = (int) unsignedLong (start + 10);
+    int headerSize = (int) unsignedLong (start + 14);
+    if (size < MIN_BMP || size > length - start || unsignedLong (start + 6) != 0
+        || dataOffset < 14 + headerSize || dataOffset > size
+        || (headerSize != 12 && headerSize != 40 && headerSize != 56
+            && headerSize != 108 && headerSize != 124))
+      return 0;
+
+    return HiResImage.isBmp (view.slice (start, size).toByteArray ()) ? size : 0;
+  }
+
+  private long unsignedLong (int ptr)
+  {
+    return (view.unsignedShort (ptr) | ((long) view.unsignedShort (ptr + 2) << 16));
+  }
+
+  private int skipSubBlocks (int ptr)
+  {
+    while (ptr < length)
+    {
+      int size = view.get (ptr) & 0xFF;
+      ptr += size + 1;
+      if (size == 0)
+        return ptr;
+    }
+    return length;
+  }
+
+  // Applesoft programs load at $801, and each line starts with the address of the
+  // next one. Returns the length up to and including the final zero link, or 0.
+  private int getBasicLength (int start)
+  {
+    int address = 0x801;
+    int ptr = start;
+    int lines = 0;
+    int lastLine = -1;
+
+    while (ptr + 4 <= length)
+    {
+      int link = view.unsignedShort (ptr);
+      if (link == 0)
+        return lines >= MIN_BASIC_LINES ? ptr + 2 - start : 0;
+
+      int lineLength = link - address;
+      int lineNumber = view.unsignedShort (ptr + 2);
+      if (lineLength < 6 || lineLength > 256 || link > MAX_BASIC_ADDRESS
+          || lineNumber <= lastLine
+          || lineNumber > 63999 || ptr + lineLength > length
+          || view.get (ptr + lineLength - 1) != 0)
+        return 0;
+
+      lastLine = lineNumber;
+      address = link;
+      ptr += lineLength;
+      ++lines;
+    }
+
+    return 0;
+  }
+
+  // The display skips the last 8 bytes of every 128, so a saved screen has the same
+  // value in each of them - usually zero. Code and text almost never do.
+  private boolean isHiResPage (int start)
+  {
+    if (start + HGR_SIZE > length)
+      return false;
+    for (int block = start / blockSize, max = block + HGR_SIZE / blockSize; block < max;
+        block++)
+      if (disk.isSectorEmpty (block))
+        return false;
+
+    int holes = 0;
+    int busy = 0;
+    for (int group = 0; group < HGR_SIZE; group += 128)
+    {
+      byte hole = view.get (start + group + 120);
+      boolean same = true;
+      for (int i = 121; i < 128 && same; i++)
+        same = view.get (start + group + i) == hole;
+      if (same)
+        ++holes;
+      if (view.get (start + group) != 0 || view.get (start + group + 60) != 0)
+        ++busy;
+    }
+
+    return holes >= 56 && busy >= 16;
+  }
+
+  // DOS text has the high bit set, and ends with a zero. A run that is rejected would
+  // be rejected from any later start too, so it isn't scanned again.
+  private int getTextLength (int start)
+  {
+    if (start < rejectedText)
+      return 0;
+
+    int ptr = start;
+    boolean hasReturn = false;
+
+    while (ptr < length)
+    {
+      int value = view.get (ptr) & 0xFF;
+      if (value == 0x8D)
+        hasReturn = true;
+      else if (value < 0xA0 || value == 0xFF)
+        break;
+      ++ptr;
+    }
+
+    int textLength = ptr - start;
+    if (textLength >= MIN_TEXT && hasReturn && (ptr == length || view.get (ptr) == 0))
+      return textLength;
+
+    rejectedText = ptr;
+    return 0;
+  }
+}
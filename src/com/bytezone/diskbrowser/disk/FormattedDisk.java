@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import java.util.List;
 
 import javax.swing.JTree;
+import javax.swing.tree.DefaultTreeModel;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
@@ -20,6 +21,8 @@ public interface FormattedDisk
   // Methods implemented by AbstractFormattedDisk
   public JTree getCatalogTree ();           // each node is an AppleFileSource
 
+  public DefaultTreeModel getCatalogTreeModel ();     // the same, without a JTree
+
   public List<AppleFileSource> getCatalogList ();
 
   public void writeFile (AbstractFile file);
@@ -56,6 +59,9 @@ public interface FormattedDisk
 
   public void verify ();
 
+  // deleted or orphaned files that can still be found in the unused sectors
+  public List<RecoverableFile> findRecoverableFiles ();
+
   public boolean stillAvailable (DiskAddress da);
 
   public boolean stillAvailable (int block);
@@ -0,0 +1,118 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+// A catalog tree node whose children aren't created until something asks for them,
+// which is usually when the node is expanded. Until then it only holds the user
+// objects of its leaves (and any lazy child nodes), and/or a loader that will add
+// its children.
+public class LazyTreeNode extends DefaultMutableTreeNode
+{
+  private ChildLoader loader;
+  private List<Object> pending = new ArrayList<Object> ();  // null once loaded
+
+  public LazyTreeNode (Object userObject)
+  {
+    this (userObject, null);
+  }
+
+  public LazyTreeNode (Object userObject, ChildLoader loader)
+  {
+    super (userObject, true);
+    this.loader = loader;
+  }
+
+  // add a leaf to the parent - immediately, unless the parent is lazy
+  public static void addLeaf (DefaultMutableTreeNode parent, Object userObject)
+  {
+    if (isLazy (parent))
+      ((LazyTreeNode) parent).pending.add (userObject);
+    else
+    {
+      DefaultMutableTreeNode node = new DefaultMutableTreeNode (userObject);
+      node.setAllowsChildren (false);
+      parent.add (node);
+    }
+  }
+
+  // add a node to the parent without making a lazy parent create its children
+  public static void addNode (DefaultMutableTreeNode parent, MutableTreeNode node)
+  {
+    if (isLazy (parent))
+      ((LazyTreeNode) parent).pending.add (node);
+    else
+      parent.add (node);
+  }
+
+  // the leaves' user objects and child nodes still to be added, null once loaded
+  public List<Object> getPending ()
+  {
+    return pending == null ? null : Collections.unmodifiableList (pending);
+  }
+
+  private static boolean isLazy (DefaultMutableTreeNode node)
+  {
+    return node instanceof LazyTreeNode && ((LazyTreeNode) node).pending != null;
+  }
+
+  private void load ()
+  {
+    if (pending == null)
+      return;
+
+    List<Object> waiting = pending;
+    pending = null;                     // the node is no longer lazy
+
+    if (loader != null)
+    {
+      loader.addChildren (this);
+      loader = null;
+    }
+
+    for (Object child : waiting)
+      if (child instanceof MutableTreeNode)
+        add ((MutableTreeNode) child);
+      else
+        addLeaf (this, child);
+  }
+
+  @Override
+  public int getChildCount ()
+  {
+    load ();
+    return super.getChildCount ();
+  }
+
+  @Override
+  public TreeNode getChildAt (int index)
+  {
+    load ();
+    return super.getChildAt (index);
+  }
+
+  @Override
+  public int getIndex (TreeNode node)
+  {
+    load ();
+    return super.getIndex (node);
+  }
+
+  @Override
+  public Enumeration<TreeNode> children ()
+  {
+    load ();
+    return super.children ();
+  }
+
+  public interface ChildLoader
+  {
+    void addChildren (DefaultMutableTreeNode node);
+  }
+}
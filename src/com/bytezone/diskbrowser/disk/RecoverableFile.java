@@ -0,0 +1,36 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.util.List;
+
+// A deleted or orphaned file found by a disk's recovery scan. The confidence is a
+// percentage - how likely it is that the sectors still hold the file's data.
+public class RecoverableFile implements Comparable<RecoverableFile>
+{
+  public final String name;
+  public final String source;               // the structure that was found
+  public final List<DiskAddress> sectors;   // index and data sectors
+  public final int confidence;
+
+  public RecoverableFile (String name, String source, List<DiskAddress> sectors,
+      int confidence)
+  {
+    this.name = name;
+    this.source = source;
+    this.sectors = sectors;
+    this.confidence = Math.max (0, Math.min (100, confidence));
+  }
+
+  // most likely first
+  @Override
+  public int compareTo (RecoverableFile other)
+  {
+    return other.confidence - confidence;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return String.format ("%3d%%  %-20s  %4d sectors  %s", confidence, name,
+        sectors.size (), source);
+  }
+}
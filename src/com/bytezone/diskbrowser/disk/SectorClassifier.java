@@ -0,0 +1,160 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+
+// Labels each 256 byte sector of a disk buffer by what it seems to hold. A sector is
+// only classified the first time it is asked about, and the class is kept in a single
+// byte. Classes belong to the sectors in the buffer rather than to blocks, so they are
+// still correct after the interleave or block size changes.
+public class SectorClassifier
+{
+  public static final byte UNKNOWN = 0;     // not classified yet
+  public static final byte EMPTY = 1;       // every byte is the empty byte
+  public static final byte UNIFORM = 2;     // every byte is the same
+  public static final byte TEXT = 3;
+  public static final byte CODE = 4;        // looks like 6502 machine code
+  public static final byte DATA = 5;
+  public static final byte NIBBLE = 6;      // only valid disk bytes, as on a .nib
+  public static final byte RANDOM = 7;      // compressed or encrypted
+
+  public static final String[] names = { "Unknown", "Empty", "Uniform fill", "Text",
+                                         "6502 code", "Binary data", "Nibbles",
+                                         "High entropy" };
+  public static final Color[] colours =
+      { Color.WHITE, Color.WHITE, new Color (0xDDDDDD), new Color (0x4CAF50),
+        new Color (0x2196F3), new Color (0xFFC107), new Color (0x9C27B0),
+        new Color (0xF44336) };
+
+  private static final int SECTOR_SIZE = 256;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private static final long[] nibbles = new long[4];      // valid 6 and 2 disk bytes
+  private static final boolean[] opcodes = new boolean[256];  // the most common ones
+
+  static
+  {
+    int[] diskBytes = { 0x96, 0x97, 0x9A, 0x9B, 0x9D, 0x9E, 0x9F, 0xA6, 0xA7, 0xAA, 0xAB,
+                        0xAC, 0xAD, 0xAE, 0xAF, 0xB2, 0xB3, 0xB4, 0xB5, 0xB6, 0xB7, 0xB9,
+                        0xBA, 0xBB, 0xBC, 0xBD, 0xBE, 0xBF, 0xCB, 0xCD, 0xCE, 0xCF, 0xD3,
+                        0xD5, 0xD6, 0xD7, 0xD9, 0xDA, 0xDB, 0xDC, 0xDD, 0xDE, 0xDF, 0xE5,
+                        0xE6, 0xE7, 0xE9, 0xEA, 0xEB, 0xEC, 0xED, 0xEE, 0xEF, 0xF2, 0xF3,
+                        0xF4, 0xF5, 0xF6, 0xF7, 0xF9, 0xFA, 0xFB, 0xFC, 0xFD, 0xFE, 0xFF };
+    for (int value : diskBytes)
+      nibbles[value >>> 6] |= 1L << value;
+
+    int[] common = { 0x20, 0x4C, 0x60, 0xA9, 0xA5, 0xAD, 0xBD, 0xB9, 0xB1, 0x85, 0x8D,
+                     0x9D, 0x99, 0x91, 0xA2, 0xA0, 0xA6, 0xA4, 0x86, 0x84, 0xC9, 0xE0,
+                     0xC0, 0xD0, 0xF0, 0x90, 0xB0, 0x10, 0x30, 0xE8, 0xC8, 0xCA, 0x88,
+                     0x18, 0x38, 0x69, 0xE9, 0x29, 0x09, 0x0A, 0x4A, 0xE6, 0xC6, 0xEE };
+    for (int value : common)
+      opcodes[value] = true;
+  }
+
+  private final byte[] buffer;
+  private final ByteBuffer words;
+  private final byte emptyByte;
+  private final long emptyWord;
+  private final byte[] classes;
+
+  public SectorClassifier (byte[] buffer, byte emptyByte)
+  {
+    this.buffer = buffer;
+    this.words = ByteBuffer.wrap (buffer);
+    this.emptyByte = emptyByte;
+    this.emptyWord = (emptyByte & 0xFFL) * 0x0101010101010101L;
+    this.classes = new byte[buffer.length / SECTOR_SIZE];
+  }
+
+  public byte getEmptyByte ()
+  {
+    return emptyByte;
+  }
+
+  // offset is the start of the sector in the buffer
+  public byte getClass (int offset)
+  {
+    int sector = offset / SECTOR_SIZE;
+    if (classes[sector] == UNKNOWN)
+      classes[sector] = classify (offset);
+    return classes[sector];
+  }
+
+  // the sector at offset has been written to
+  public void reset (int offset)
+  {
+    classes[offset / SECTOR_SIZE] = UNKNOWN;
+  }
+
+  private byte classify (int offset)
+  {
+    int max = offset + SECTOR_SIZE;
+
+    // a long at a time for the commonest case
+    long first = words.getLong (offset);
+    int ptr = offset;
+    while (ptr < max && words.getLong (ptr) == first)
+      ptr += 8;
+    if (ptr == max && isUniform (first))
+      return first == emptyWord ? EMPTY : UNIFORM;
+
+    // which byte values are used, and how many have the high bit set
+    long[] seen = new long[4];
+    int highBits = 0;
+    for (ptr = offset; ptr < max; ptr += 8)
+      highBits += Long.bitCount (words.getLong (ptr) & HIGH_BITS);
+
+    int text = 0;
+    int code = 0;
+    for (ptr = offset; ptr < max; ptr++)
+    {
+      int value = buffer[ptr] & 0xFF;
+      seen[value >>> 6] |= 1L << value;
+
+      int c = value & 0x7F;
+      if ((c >= 0x20 && c < 0x7F) || c == 0x0D)
+        ++text;
+      if (opcodes[value])
+        ++code;
+    }
+
+    int distinct = 0;
+    boolean diskBytes = true;
+    for (int i = 0; i < 4; i++)
+    {
+      distinct += Long.bitCount (seen[i]);
+      if ((seen[i] & ~nibbles[i]) != 0)
+        diskBytes = false;
+    }
+
+    if (diskBytes && highBits == SECTOR_SIZE && distinct >= 16)
+      return NIBBLE;
+    if (distinct >= 140)
+      return RANDOM;
+    if (text >= SECTOR_SIZE * 9 / 10 && distinct <= 80
+        && (highBits == 0 || highBits >= SECTOR_SIZE * 9 / 10))
+      return TEXT;
+    if (code >= SECTOR_SIZE / 4 && distinct >= 40)
+      return CODE;
+    return DATA;
+  }
+
+  private boolean isUniform (long word)
+  {
+    return word == (word & 0xFF) * 0x0101010101010101L;
+  }
+
+  // the class of a 512 byte block made of two sectors
+  public static byte combine (byte class1, byte class2)
+  {
+    if (class1 == class2 || class2 == EMPTY)
+      return class1;
+    if (class1 == EMPTY)
+      return class2;
+    if (class1 == UNIFORM)
+      return class2;
+    if (class2 == UNIFORM)
+      return class1;
+    return DATA;
+  }
+}
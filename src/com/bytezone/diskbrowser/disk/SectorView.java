@@ -0,0 +1,284 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A read-only view of a file's data, stitched together from sectors in the disk
+// buffer. Nothing is copied until the caller asks for it, and sparse sectors (those
+// without a disk address) read as zeroes without being stored anywhere.
+public final class SectorView
+{
+  private static final int SEGMENT_SIZE = 256;
+  private static final byte[] EMPTY_BYTES = new byte[SEGMENT_SIZE];
+  private static final ByteBuffer EMPTY_SEGMENT =
+      ByteBuffer.wrap (EMPTY_BYTES).asReadOnlyBuffer ();
+
+  private final byte[] diskBuffer;
+  private final int[] segments;       // offset of each 256 byte segment, -1 if sparse
+  private final int start;            // offset of this view in the first segment
+  private final int length;
+
+  SectorView (byte[] diskBuffer, int[] segments)
+  {
+    this (diskBuffer, segments, 0, segments.length * SEGMENT_SIZE);
+  }
+
+  private SectorView (byte[] diskBuffer, int[] segments, int start, int length)
+  {
+    this.diskBuffer = diskBuffer;
+    this.segments = segments;
+    this.start = start;
+    this.length = length;
+  }
+
+  // a view of a buffer that has already been read
+  public static SectorView wrap (byte[] buffer)
+  {
+    int[] segments = new int[(buffer.length + SEGMENT_SIZE - 1) / SEGMENT_SIZE];
+    for (int i = 0; i < segments.length; i++)
+      segments[i] = i * SEGMENT_SIZE;
+    return new SectorView (buffer, segments, 0, buffer.length);
+  }
+
+  public int length ()
+  {
+    return length;
+  }
+
+  public byte get (int index)
+  {
+    if (index < 0 || index >= length)
+      throw new IndexOutOfBoundsException ("Index: " + index + ", length: " + length);
+
+    index += start;
+    int offset = segments[index / SEGMENT_SIZE];
+    return offset < 0 ? 0 : diskBuffer[offset + index % SEGMENT_SIZE];
+  }
+
+  // true if this byte is in a sector that isn't on the disk, and so reads as zero
+  public boolean isSparse (int index)
+  {
+    return segments[(index + start) / SEGMENT_SIZE] < 0;
+  }
+
+  // the index just past the end of the sector containing this byte
+  public int getSegmentEnd (int index)
+  {
+    int end = ((index + start) / SEGMENT_SIZE + 1) * SEGMENT_SIZE - start;
+    return Math.min (end, length);
+  }
+
+  public int unsignedShort (int index)
+  {
+    return (get (index) & 0xFF) | ((get (index + 1) & 0xFF) << 8);
+  }
+
+  // copy count bytes starting at index into dst
+  public void get (int index, byte[] dst, int dstOffset, int count)
+  {
+    if (index < 0 || count < 0 || index + count > length)
+      throw new IndexOutOfBoundsException (
+          "Index: " + index + ", count: " + count + ", length: " + length);
+
+    index += start;
+    while (count > 0)
+    {
+      int segment = index / SEGMENT_SIZE;
+      int segmentOffset = index % SEGMENT_SIZE;
+      int size = Math.min (count, SEGMENT_SIZE - segmentOffset);
+
+      int offset = segments[segment];
+      if (offset < 0)
+        for (int i = 0; i < size; i++)
+          dst[dstOffset + i] = 0;
+      else
+        System.arraycopy (diskBuffer, offset + segmentOffset, dst, dstOffset, size);
+
+      index += size;
+      dstOffset += size;
+      count -= size;
+    }
+  }
+
+  // a view of part of this view - nothing is copied
+  public SectorView slice (int offset, int count)
+  {
+    if (offset < 0 || count < 0 || offset + count > length)
+      throw new IndexOutOfBoundsException (
+          "Offset: " + offset + ", count: " + count + ", length: " + length);
+
+    return new SectorView (diskBuffer, segments, start + offset, count);
+  }
+
+  // The index of the first byte that differs from the other view, or -1 if they are
+  // the same length and hold the same bytes. Sectors that follow on in both disk
+  // buffers are compared together, so a whole track is usually a single comparison.
+  public int mismatch (SectorView other)
+  {
+    int count = Math.min (length, other.length);
+    int index = 0;
+
+    while (index < count)
+    {
+      int size = Math.min (getRun (index), other.getRun (index));
+      size = Math.min (size, count - index);
+      int offset = getOffset (index);
+      int otherOffset = other.getOffset (index);
+
+      byte[] buffer = offset < 0 ? EMPTY_BYTES : diskBuffer;
+      byte[] otherBuffer = otherOffset < 0 ? EMPTY_BYTES : other.diskBuffer;
+      if (offset < 0)
+        offset = (index + start) % SEGMENT_SIZE;
+      if (otherOffset < 0)
+        otherOffset = (index + other.start) % SEGMENT_SIZE;
+
+      int result = Arrays.mismatch (buffer, offset, offset + size, otherBuffer,
+          otherOffset, otherOffset + size);
+      if (result >= 0)
+        return index + result;
+
+      index += size;
+    }
+
+    return length == other.length ? -1 : count;
+  }
+
+  // offset of this byte in the disk buffer, or -1 if it is sparse
+  private int getOffset (int index)
+  {
+    index += start;
+    int offset = segments[index / SEGMENT_SIZE];
+    return offset < 0 ? -1 : offset + index % SEGMENT_SIZE;
+  }
+
+  // the number of bytes from index that are stored one after another
+  private int getRun (int index)
+  {
+    index += start;
+    int segment = index / SEGMENT_SIZE;
+    int run = SEGMENT_SIZE - index % SEGMENT_SIZE;
+    if (segments[segment] >= 0)
+      while (segment + 1 < segments.length
+          && segments[segment + 1] == segments[segment] + SEGMENT_SIZE)
+      {
+        ++segment;
+        run += SEGMENT_SIZE;
+      }
+    return run;
+  }
+
+  // the only method that allocates a buffer for the whole view
+  public byte[] toByteArray ()
+  {
+    byte[] buffer = new byte[length];
+    get (0, buffer, 0, length);
+    return buffer;
+  }
+
+  // Read-only buffers over the disk buffer, one for each run of consecutive segments.
+  // Sparse segments all share a single empty buffer.
+  public List<ByteBuffer> getByteBuffers ()
+  {
+    List<ByteBuffer> buffers = new ArrayList<ByteBuffer> ();
+
+    int index = start;
+    int remaining = length;
+    while (remaining > 0)
+    {
+      int segment = index / SEGMENT_SIZE;
+      int segmentOffset = index % SEGMENT_SIZE;
+      int size = Math.min (remaining, SEGMENT_SIZE - segmentOffset);
+      int offset = segments[segment];
+
+      if (offset < 0)
+      {
+        ByteBuffer empty = EMPTY_SEGMENT.duplicate ();
+        empty.limit (size);
+        buffers.add (empty);
+      }
+      else
+      {
+        // extend the run while the next segment follows on in the disk buffer
+        while (size < remaining && segment + 1 < segments.length
+            && segments[segment + 1] == segments[segment] + SEGMENT_SIZE)
+        {
+          ++segment;
+          size = Math.min (remaining, size + SEGMENT_SIZE);
+        }
+        buffers.add (ByteBuffer.wrap (diskBuffer, offset + segmentOffset, size)
+            .slice ().asReadOnlyBuffer ());
+      }
+
+      index += size;
+      remaining -= size;
+    }
+
+    return buffers;
+  }
+
+  public InputStream getInputStream ()
+  {
+    return new ViewInputStream ();
+  }
+
+  class ViewInputStream extends InputStream
+  {
+    private int position;
+    private int mark;
+
+    @Override
+    public int read ()
+    {
+      return position < length ? get (position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read (byte[] buffer, int offset, int count)
+    {
+      if (count == 0)
+        return 0;
+      if (position >= length)
+        return -1;
+
+      count = Math.min (count, length - position);
+      get (position, buffer, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public long skip (long count)
+    {
+      int skipped = (int) Math.max (0, Math.min (count, length - position));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available ()
+    {
+      return length - position;
+    }
+
+    @Override
+    public boolean markSupported ()
+    {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark (int readLimit)
+    {
+      mark = position;
+    }
+
+    @Override
+    public synchronized void reset ()
+    {
+      position = mark;
+    }
+  }
+}
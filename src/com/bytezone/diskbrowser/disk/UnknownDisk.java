@@ -1,5 +1,6 @@
 package com.bytezone.diskbrowser.disk;
 
+import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -7,14 +8,20 @@ public class UnknownDisk extends AbstractFormattedDisk
 {
   // could arrange for the blocks to appear as a question mark
 
+  private final SectorType carvedSector = new SectorType ("Carved file", Color.green);
+
   public UnknownDisk (AppleDisk disk)
   {
     super (disk);
+
+    addCarvedFiles (carvedSector);
   }
 
   @Override
   public List<DiskAddress> getFileSectors (int fileNo)
   {
-    return new ArrayList<> ();
+    if (fileNo < 0 || fileNo >= fileEntries.size ())
+      return new ArrayList<> ();
+    return fileEntries.get (fileNo).getSectors ();
   }
 }
@@ -4,14 +4,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.*;
+import com.bytezone.diskbrowser.disk.DataViewSource;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorView;
 import com.bytezone.diskbrowser.dos.DosDisk.FileType;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
-abstract class AbstractCatalogEntry implements AppleFileSource
+abstract class AbstractCatalogEntry implements AppleFileSource, DataViewSource
 {
   protected Disk disk;
   protected DosDisk dosDisk;
@@ -133,11 +135,13 @@ abstract class AbstractCatalogEntry implements AppleFileSource
     if (appleFile != null)
       return appleFile;
 
-    byte[] buffer = disk.readSectors (dataSectors);
+    // the file's sectors are only copied out of the disk buffer where they are needed
+    SectorView view = disk.getSectorView (dataSectors);
+    byte[] buffer = null;
     int reportedLength;
-    if (buffer.length == 0)
+    if (view.length () == 0)
     {
-      appleFile = new DefaultAppleFile (name, buffer);
+      appleFile = new DefaultAppleFile (name, new byte[0]);
       return appleFile;
     }
 
@@ -148,45 +152,50 @@ abstract class AbstractCatalogEntry implements AppleFileSource
       switch (this.fileType)
       {
         case Text:
-          if (VisicalcFile.isVisicalcFile (buffer))
+          int firstByte = view.get (0) & 0xFF;
+          if (firstByte == 0xBE || firstByte == 0xAF)     // possibly Visicalc
+            buffer = view.toByteArray ();
+          if (buffer != null && VisicalcFile.isVisicalcFile (buffer))
             appleFile = new VisicalcFile (name, buffer);
           else
-            appleFile = new TextFile (name, buffer);
+            appleFile = new TextFile (name, view);      // read a page at a time
           break;
 
         case IntegerBasic:
-          reportedLength = HexFormatter.unsignedShort (buffer, 0);
+          reportedLength = view.unsignedShort (0);
           exactBuffer = new byte[reportedLength];
-          System.arraycopy (buffer, 2, exactBuffer, 0, reportedLength);
+          view.get (2, exactBuffer, 0, reportedLength);
           appleFile = new IntegerBasicProgram (name, exactBuffer);
           break;
 
         case ApplesoftBasic:
-          reportedLength = HexFormatter.unsignedShort (buffer, 0);
+          reportedLength = view.unsignedShort (0);
           exactBuffer = new byte[reportedLength];
-          if (reportedLength > buffer.length)
-            reportedLength = buffer.length - 2;
-          System.arraycopy (buffer, 2, exactBuffer, 0, reportedLength);
+          if (reportedLength > view.length ())
+            reportedLength = view.length () - 2;
+          view.get (2, exactBuffer, 0, reportedLength);
           appleFile = new BasicProgram (name, exactBuffer);
           break;
 
         case Binary:                        // binary file
         case Relocatable:                   // relocatable binary file
-          int loadAddress = HexFormatter.unsignedShort (buffer, 0);
-          reportedLength = HexFormatter.unsignedShort (buffer, 2);
+          int loadAddress = view.unsignedShort (0);
+          reportedLength = view.unsignedShort (2);
           if (reportedLength == 0)
           {
             System.out.println (name.trim () + " reported length : 0 - reverting to "
-                + (buffer.length - 4));
-            reportedLength = buffer.length - 4;
+                + (view.length () - 4));
+            reportedLength = view.length () - 4;
           }
 
           // buffer is a multiple of the block size, so it usually needs to be reduced
-          if ((reportedLength + 4) <= buffer.length)
-            exactBuffer = new byte[reportedLength];
-          else
-            exactBuffer = new byte[buffer.length - 4];  // reported length is too long
-          System.arraycopy (buffer, 4, exactBuffer, 0, exactBuffer.length);
+          if ((reportedLength + 4) <= view.length ())
+            exactBuffer = view.slice (4, reportedLength).toByteArray ();
+          else                                          // reported length is too long
+            exactBuffer = view.slice (4, view.length () - 4).toByteArray ();
+
+          if (name.endsWith (".BMP"))
+            buffer = view.toByteArray ();
 
           if ((name.endsWith (".FONT") || name.endsWith (" FONT")
               || name.endsWith (".SET") || name.startsWith ("ASCII."))
@@ -206,8 +215,8 @@ abstract class AbstractCatalogEntry implements AppleFileSource
             appleFile = new DoubleHiResImage (name, exactBuffer);
           else if (link != null)
           {
-            byte[] auxBuffer = link.disk.readSectors (link.dataSectors);
-            byte[] exactAuxBuffer = getExactBuffer (auxBuffer);
+            byte[] exactAuxBuffer =
+                getExactBuffer (link.disk.getSectorView (link.dataSectors));
             if (name.endsWith (".AUX"))
               appleFile = new DoubleHiResImage (name, exactAuxBuffer, exactBuffer);
             else
@@ -236,64 +245,94 @@ abstract class AbstractCatalogEntry implements AppleFileSource
           else
           {
             appleFile = new AssemblerProgram (name, exactBuffer, loadAddress);
-            if ((exactBuffer.length + 4) < buffer.length)
-              ((AssemblerProgram) appleFile).setExtraBuffer (buffer,
-                  exactBuffer.length + 4, buffer.length - (exactBuffer.length + 4));
+            int extra = exactBuffer.length + 4;
+            if (extra < view.length ())
+            {
+              byte[] extraBuffer =
+                  view.slice (extra, view.length () - extra).toByteArray ();
+              ((AssemblerProgram) appleFile).setExtraBuffer (extraBuffer, 0,
+                  extraBuffer.length);
+            }
           }
           break;
 
         case SS:                                          // what is this?
           System.out.println ("SS file");
-          appleFile = new DefaultAppleFile (name, buffer);
+          appleFile = new DefaultAppleFile (name, view.toByteArray ());
           break;
 
         case AA:                                          // what is this?
           System.out.println ("AA file");
-          appleFile = new DefaultAppleFile (name, buffer);
+          appleFile = new DefaultAppleFile (name, view.toByteArray ());
           break;
 
         case BB:                                          // what is this?
-          loadAddress = HexFormatter.intValue (buffer[0], buffer[1]);
-          reportedLength = HexFormatter.intValue (buffer[2], buffer[3]);
+          loadAddress = view.unsignedShort (0);
+          reportedLength = view.unsignedShort (2);
           exactBuffer = new byte[reportedLength];
-          System.arraycopy (buffer, 4, exactBuffer, 0, reportedLength);
+          view.get (4, exactBuffer, 0, reportedLength);
           appleFile = new SimpleText2 (name, exactBuffer, loadAddress);
           break;
 
         default:
           System.out.println ("Unknown file type : " + fileType);
-          appleFile = new DefaultAppleFile (name, buffer);
+          appleFile = new DefaultAppleFile (name, view.toByteArray ());
           break;
       }
     }
     catch (Exception e)
     {
-      appleFile = new ErrorMessageFile (name, buffer, e);
+      appleFile = new ErrorMessageFile (name, view.toByteArray (), e);
       e.printStackTrace ();
     }
     return appleFile;
   }
 
-  private byte[] getExactBuffer (byte[] buffer)
+  // the length in the file's header is trusted as far as the sectors go
+  @Override
+  public SectorView getDataView ()
   {
-    byte[] exactBuffer;
+    SectorView view = disk.getSectorView (dataSectors);
+    int length = view.length ();
 
-    int reportedLength = HexFormatter.unsignedShort (buffer, 2);
+    switch (fileType)
+    {
+      case IntegerBasic:
+      case ApplesoftBasic:
+        if (length >= 2)
+          length = view.unsignedShort (0) + 2;
+        break;
+
+      case Binary:
+      case Relocatable:
+      case BB:
+        if (length >= 4 && view.unsignedShort (2) > 0)
+          length = view.unsignedShort (2) + 4;
+        break;
+
+      default:
+        break;
+    }
+
+    return length < view.length () ? view.slice (0, length) : view;
+  }
+
+  private byte[] getExactBuffer (SectorView view)
+  {
+    int reportedLength = view.unsignedShort (2);
     if (reportedLength == 0)
     {
       System.out.println (
-          name.trim () + " reported length : 0 - reverting to " + (buffer.length - 4));
-      reportedLength = buffer.length - 4;
+          name.trim () + " reported length : 0 - reverting to " + (view.length () - 4));
+      reportedLength = view.length () - 4;
     }
 
     // buffer is a multiple of the block size, so it usually needs to be reduced
-    if ((reportedLength + 4) <= buffer.length)
-      exactBuffer = new byte[reportedLength];
-    else
-      exactBuffer = new byte[buffer.length - 4];  // reported length is too long
-    System.arraycopy (buffer, 4, exactBuffer, 0, exactBuffer.length);
+    if ((reportedLength + 4) <= view.length ())
+      return view.slice (4, reportedLength).toByteArray ();
 
-    return exactBuffer;
+    // reported length is too long
+    return view.slice (4, view.length () - 4).toByteArray ();
   }
 
   private boolean isRunCommand (byte[] buffer)
@@ -8,6 +8,7 @@ class DeletedCatalogEntry extends AbstractCatalogEntry
 {
   boolean allSectorsAvailable = true;
   boolean debug = false;
+  DiskAddress firstTsList;                  // null if the entry doesn't have one
 
   public DeletedCatalogEntry (DosDisk dosDisk, DiskAddress catalogSector, byte[] entryBuffer)
   {
@@ -19,6 +20,10 @@ class DeletedCatalogEntry extends AbstractCatalogEntry
       System.out.printf ("Reported size : %d%n", reportedSize);
     }
 
+    // the first track was moved to the end of the name when the file was deleted
+    if (disk.isValidAddress (entryBuffer[32], entryBuffer[1]))
+      firstTsList = disk.getDiskAddress (entryBuffer[32], entryBuffer[1]);
+
     if (reportedSize <= 1 || !disk.isValidAddress (entryBuffer[32], entryBuffer[1]))
     {
       if (debug)
@@ -166,14 +166,15 @@ public class DosDisk extends AbstractFormattedDisk
       {
         String partner1 = name.substring (0, name.length () - 4);
         String partner2 = partner1 + ".BIN";
-        for (AppleFileSource fe2 : fileEntries)
-          if (fe2.getUniqueName ().equals (partner1)
-              || fe2.getUniqueName ().equals (partner2))
+        for (String partnerName : new String[] { partner1, partner2 })
+        {
+          AppleFileSource partner = getFile (partnerName);
+          if (partner != null)
           {
-            //            System.out.printf ("%s   %s%n", name, partner1);
-            ((CatalogEntry) fe2).link ((CatalogEntry) fe);
-            ((CatalogEntry) fe).link ((CatalogEntry) fe2);
+            ((CatalogEntry) partner).link ((CatalogEntry) fe);
+            ((CatalogEntry) fe).link ((CatalogEntry) partner);
           }
+        }
       }
     }
 
@@ -356,6 +357,12 @@ public class DosDisk extends AbstractFormattedDisk
     return super.getFormattedSector (da);
   }
 
+  @Override
+  public List<RecoverableFile> findRecoverableFiles ()
+  {
+    return new DosRecoveryScanner (this, getUnclaimedBlocks (), freeBlocks).scan ();
+  }
+
   @Override
   public List<DiskAddress> getFileSectors (int fileNo)
   {
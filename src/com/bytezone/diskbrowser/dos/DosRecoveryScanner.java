@@ -0,0 +1,198 @@
+package com.bytezone.diskbrowser.dos;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.RecoverableFile;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// Looks for the T/S lists of deleted files in the sectors that nothing in the catalog
+// uses. Only those sectors are read, and a T/S list is recognised by its layout, so
+// orphaned files are found whether or not their catalog entries still exist.
+class DosRecoveryScanner
+{
+  private static final int PAIRS_PER_LIST = 122;
+
+  private final DosDisk dosDisk;
+  private final Disk disk;
+  private final BitSet unclaimed;
+  private final BitSet free;
+
+  DosRecoveryScanner (DosDisk dosDisk, BitSet unclaimed, BitSet free)
+  {
+    this.dosDisk = dosDisk;
+    this.disk = dosDisk.getDisk ();
+    this.unclaimed = unclaimed;
+    this.free = free;
+  }
+
+  List<RecoverableFile> scan ()
+  {
+    Map<Integer, byte[]> tsLists = new HashMap<Integer, byte[]> ();
+    for (int block = unclaimed.nextSetBit (0); block >= 0;
+        block = unclaimed.nextSetBit (block + 1))
+    {
+      byte[] buffer = disk.readSector (block);
+      if (isTsList (buffer))
+        tsLists.put (block, buffer);
+    }
+
+    // lists that follow another list aren't the start of a file
+    BitSet continuations = new BitSet ();
+    for (byte[] buffer : tsLists.values ())
+    {
+      DiskAddress next = getAddress (buffer, 1);
+      if (next != null && tsLists.containsKey (next.getBlock ()))
+        continuations.set (next.getBlock ());
+    }
+
+    // deleted catalog entries still point to their first list
+    Map<Integer, String> names = new HashMap<Integer, String> ();
+    for (AppleFileSource afs : dosDisk.deletedFileEntries)
+    {
+      DeletedCatalogEntry entry = (DeletedCatalogEntry) afs;
+      if (entry.firstTsList != null)
+        names.put (entry.firstTsList.getBlock (), entry.name.trim ());
+    }
+
+    List<RecoverableFile> files = new ArrayList<RecoverableFile> ();
+    for (int block : tsLists.keySet ())
+      if (!continuations.get (block))
+      {
+        RecoverableFile file = recover (block, tsLists, names.get (block));
+        if (file != null)
+          files.add (file);
+      }
+
+    Collections.sort (files);
+    return files;
+  }
+
+  private RecoverableFile recover (int firstBlock, Map<Integer, byte[]> tsLists,
+      String name)
+  {
+    List<DiskAddress> sectors = new ArrayList<DiskAddress> ();
+    BitSet visited = new BitSet ();
+    boolean broken = false;
+    double available = 0;
+    int dataSectors = 0;
+    int expectedOffset = 0;
+
+    int block = firstBlock;
+    while (true)
+    {
+      byte[] buffer = tsLists.get (block);
+      if (buffer == null)                   // the next list has been overwritten
+      {
+        broken = true;
+        break;
+      }
+      if (visited.get (block))
+        break;
+      visited.set (block);
+      sectors.add (disk.getDiskAddress (block));
+
+      if (HexFormatter.unsignedShort (buffer, 5) != expectedOffset)
+        broken = true;
+      expectedOffset += PAIRS_PER_LIST;
+
+      for (int i = 12; i < buffer.length; i += 2)
+      {
+        DiskAddress da = getAddress (buffer, i);
+        if (da == null)
+          continue;
+
+        sectors.add (da);
+        ++dataSectors;
+        available += getAvailability (da.getBlock ());
+      }
+
+      DiskAddress next = getAddress (buffer, 1);
+      if (next == null)
+        break;
+      block = next.getBlock ();
+    }
+
+    if (dataSectors == 0)
+      return null;
+
+    int confidence = (int) (available * 100 / dataSectors);
+    if (broken)
+      confidence = confidence * 2 / 3;
+    if (name == null)                       // nothing else says it was a file
+    {
+      confidence -= 10;
+      name = "T/S list " + getTrackSector (firstBlock);
+    }
+
+    String source = String.format ("T/S list at %s%s", getTrackSector (firstBlock),
+        broken ? ", incomplete" : "");
+    return new RecoverableFile (name, source, sectors, confidence);
+  }
+
+  private String getTrackSector (int block)
+  {
+    DiskAddress da = disk.getDiskAddress (block);
+    return String.format ("%02X/%02X", da.getTrack (), da.getSector ());
+  }
+
+  // sectors of a deleted file should be free as well as unclaimed
+  private double getAvailability (int block)
+  {
+    if (!unclaimed.get (block))
+      return 0;
+    return free.get (block) ? 1 : 0.5;
+  }
+
+  // byte 0 and bytes 7-11 are unused, bytes 5-6 are the sector offset of the first
+  // pair, and every pair is either 00/00 or a valid track/sector
+  private boolean isTsList (byte[] buffer)
+  {
+    if (buffer.length != 256 || buffer[0] != 0)
+      return false;
+
+    for (int i = 7; i < 12; i++)
+      if (buffer[i] != 0)
+        return false;
+
+    if ((HexFormatter.unsignedShort (buffer, 5) % PAIRS_PER_LIST) != 0)
+      return false;
+
+    if (!isValidPair (buffer, 1))
+      return false;
+
+    boolean hasData = false;
+    for (int i = 12; i < buffer.length; i += 2)
+    {
+      if (!isValidPair (buffer, i))
+        return false;
+      if (buffer[i] != 0 || buffer[i + 1] != 0)
+        hasData = true;
+    }
+
+    return hasData;
+  }
+
+  private boolean isValidPair (byte[] buffer, int offset)
+  {
+    return (buffer[offset] == 0 && buffer[offset + 1] == 0)
+        || disk.isValidAddress (buffer[offset], buffer[offset + 1]);
+  }
+
+  // null for 00/00
+  private DiskAddress getAddress (byte[] buffer, int offset)
+  {
+    if (buffer[offset] == 0 && buffer[offset + 1] == 0)
+      return null;
+    if (!disk.isValidAddress (buffer[offset], buffer[offset + 1]))
+      return null;
+    return disk.getDiskAddress (buffer[offset], buffer[offset + 1]);
+  }
+}
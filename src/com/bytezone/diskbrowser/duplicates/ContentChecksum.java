@@ -0,0 +1,184 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+import com.bytezone.diskbrowser.disk.AppleDisk;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Checksums the sectors of a disk image rather than the file that holds them, so the
+// same disk matches whether or not it is compressed or has a .2mg header, and whether
+// it was saved in DOS or ProDOS order. Compressed files are decompressed as they are
+// read, and only a 140K floppy image is ever held in memory - it is put into DOS
+// order first. Larger images are always stored in block order, so they are
+// checksummed as they are read.
+class ContentChecksum
+{
+  private static final int FLOPPY_SIZE = 143360;
+  private static final int TRACK_SIZE = 4096;
+  private static final int SECTOR_SIZE = 256;
+  private static final int PRODOS_INTERLEAVE = 1;     // AppleDisk's interleave number
+  private static final int HEADER_2MG = 64;
+
+  private ContentChecksum ()
+  {
+  }
+
+  // returns 0 if the file can't be read
+  static long getChecksum (File file)
+  {
+    String name = file.getName ().toLowerCase ();
+    String suffix = Utility.getSuffix (name);
+
+    try
+    {
+      switch (suffix)
+      {
+        case "dsk":
+        case "do":
+        case "po":
+        case "hdv":
+        case "2mg":
+          return getStreamChecksum (file, suffix);
+
+        default:                        // nibble and archive files are decoded first
+          byte[] buffer = DiskImageReader.getDiskBuffer (file);
+          return buffer == null ? 0 : getChecksum (buffer, buffer.length, suffix);
+      }
+    }
+    catch (IOException e)
+    {
+      return 0;
+    }
+  }
+
+  private static long getStreamChecksum (File file, String suffix) throws IOException
+  {
+    InputStream in = DiskImageReader.getInputStream (file);
+    if (in == null)
+      return 0;
+
+    try
+    {
+      // enough to tell whether the whole image is a floppy disk
+      byte[] buffer = new byte[FLOPPY_SIZE + HEADER_2MG + 1];
+      int length = read (in, buffer, 0, buffer.length);
+
+      int start = 0;
+      long dataSize = Long.MAX_VALUE;
+      if (length > HEADER_2MG && buffer[0] == '2' && buffer[1] == 'I' && buffer[2] == 'M'
+          && buffer[3] == 'G')
+      {
+        start = HexFormatter.unsignedShort (buffer, 8);
+        int size = HexFormatter.unsignedLong (buffer, 28);
+        if (size > 0)
+          dataSize = size;
+        if (start > length)
+          return 0;
+      }
+
+      if (length < buffer.length && Math.min (length - start, dataSize) == FLOPPY_SIZE)
+      {
+        System.arraycopy (buffer, start, buffer, 0, FLOPPY_SIZE);
+        return getChecksum (buffer, FLOPPY_SIZE, suffix);
+      }
+
+      // a hard disk image, or anything else that is stored as it is
+      MessageDigest digest = FileDigest.create ();
+      long remaining = dataSize;
+      int count = (int) Math.min (length - start, remaining);
+      while (count > 0)
+      {
+        digest.update (buffer, start, count);
+        remaining -= count;
+        start = 0;
+        count = (int) Math.min (read (in, buffer, 0, buffer.length), remaining);
+      }
+      return FileDigest.getValue (digest);
+    }
+    finally
+    {
+      in.close ();
+    }
+  }
+
+  private static long getChecksum (byte[] buffer, int length, String suffix)
+  {
+    if (length == FLOPPY_SIZE && isProdosOrder (buffer, suffix))
+      buffer = getDosOrder (buffer);
+
+    MessageDigest digest = FileDigest.create ();
+    digest.update (buffer, 0, length);
+    return FileDigest.getValue (digest);
+  }
+
+  // Sectors 0 and 15 of each track are in the same place in either order, but the
+  // rest are reversed. A ProDOS volume directory in block 2 or a DOS catalog on
+  // track 17 shows which order the image is in, otherwise the suffix decides.
+  private static boolean isProdosOrder (byte[] buffer, String suffix)
+  {
+    // block 2 is in the fifth and sixth sectors of a ProDOS order track, and the
+    // mapping works the same way in both directions
+    if (isVolumeDirectory (buffer, 4 * SECTOR_SIZE))
+      return true;
+    if (isVolumeDirectory (buffer, getPosition (4, true) * SECTOR_SIZE))
+      return false;
+
+    int catalog = 17 * TRACK_SIZE;
+    if (isCatalogSector (buffer, catalog + getPosition (14, false) * SECTOR_SIZE))
+      return false;
+    if (isCatalogSector (buffer, catalog + getPosition (14, true) * SECTOR_SIZE))
+      return true;
+
+    return suffix.equals ("po");
+  }
+
+  // where a DOS sector is stored in a track
+  private static int getPosition (int sector, boolean prodosOrder)
+  {
+    return prodosOrder ? AppleDisk.getInterleavedSector (PRODOS_INTERLEAVE, sector)
+        : sector;
+  }
+
+  // no previous block, then block 3, then a volume header with a name
+  private static boolean isVolumeDirectory (byte[] buffer, int offset)
+  {
+    return buffer[offset] == 0 && buffer[offset + 1] == 0 && buffer[offset + 2] == 3
+        && buffer[offset + 3] == 0 && (buffer[offset + 4] & 0xF0) == 0xF0
+        && (buffer[offset + 4] & 0x0F) > 0;
+  }
+
+  // the second catalog sector links to the third one
+  private static boolean isCatalogSector (byte[] buffer, int offset)
+  {
+    return buffer[offset + 1] == 17 && buffer[offset + 2] == 13;
+  }
+
+  private static byte[] getDosOrder (byte[] buffer)
+  {
+    byte[] dosBuffer = new byte[FLOPPY_SIZE];
+    for (int track = 0; track < FLOPPY_SIZE; track += TRACK_SIZE)
+      for (int sector = 0; sector < 16; sector++)
+        System.arraycopy (buffer, track + getPosition (sector, true) * SECTOR_SIZE,
+            dosBuffer, track + sector * SECTOR_SIZE, SECTOR_SIZE);
+    return dosBuffer;
+  }
+
+  // reads until the buffer is full or the stream ends
+  private static int read (InputStream in, byte[] buffer, int offset, int count)
+      throws IOException
+  {
+    int total = 0;
+    while (total < count)
+    {
+      int bytesRead = in.read (buffer, offset + total, count - total);
+      if (bytesRead < 0)
+        break;
+      total += bytesRead;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,287 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.RecoverableFile;
+import com.bytezone.diskbrowser.disk.SectorType;
+
+// Checks every disk under a folder for blocks that the free sector map and the catalog
+// disagree about, and for blocks that belong to more than one file. Disks are checked
+// on a pool of worker threads, and each damaged disk is reported as soon as it has
+// been checked, so only a few disks are ever held in memory. With -recover it also
+// lists the deleted files that each disk's recovery scan finds.
+//
+// usage: DiskAuditor [-recover] folder [report file]
+public class DiskAuditor
+{
+  private static final int MAX_BLOCKS_LISTED = 16;
+
+  private final PrintWriter report;
+  private final boolean recover;
+  private int totalDisks;
+  private int damagedDisks;
+  private int unreadableDisks;
+  private int recoverableFiles;
+
+  public DiskAuditor (PrintWriter report, boolean recover)
+  {
+    this.report = report;
+    this.recover = recover;
+  }
+
+  public static void main (String[] args) throws FileNotFoundException
+  {
+    boolean recover = args.length > 0 && args[0].equals ("-recover");
+    int first = recover ? 1 : 0;
+
+    if (args.length <= first || !new File (args[first]).isDirectory ())
+    {
+      System.out.println ("usage: DiskAuditor [-recover] folder [report file]");
+      return;
+    }
+
+    PrintWriter report = args.length > first + 1 ? new PrintWriter (args[first + 1])
+        : new PrintWriter (System.out);
+    try
+    {
+      new DiskAuditor (report, recover).audit (new File (args[first]));
+    }
+    finally
+    {
+      report.close ();
+    }
+  }
+
+  // returns the number of damaged or unreadable disks
+  public int audit (File rootFolder)
+  {
+    boolean completed = new FolderScan<DiskAudit> ()
+    {
+      @Override
+      protected DiskAudit scan (File file)
+      {
+        return auditDisk (file, recover);
+      }
+
+      @Override
+      protected void report (DiskAudit diskAudit)
+      {
+        DiskAuditor.this.report (diskAudit);
+      }
+    }.run (rootFolder);
+
+    if (!completed)
+      report.println ("Audit interrupted");
+
+    report.printf ("%nDisks checked: %,d   damaged: %,d   unreadable: %,d%n", totalDisks,
+        damagedDisks, unreadableDisks);
+    if (recover)
+      report.printf ("Recoverable files: %,d%n", recoverableFiles);
+    report.flush ();
+
+    return damagedDisks + unreadableDisks;
+  }
+
+  private void report (DiskAudit diskAudit)
+  {
+    ++totalDisks;
+    if (diskAudit.unreadable)
+      ++unreadableDisks;
+    else if (!diskAudit.problems.isEmpty ())
+      ++damagedDisks;
+    else if (diskAudit.recoverable.isEmpty ())
+      return;
+
+    report.println (diskAudit.file.getAbsolutePath ());
+    for (String problem : diskAudit.problems)
+      report.println ("  " + problem);
+    for (String file : diskAudit.recoverable)
+      report.println ("  recoverable: " + file);
+    recoverableFiles += diskAudit.recoverable.size ();
+    report.flush ();
+  }
+
+  static DiskAudit auditDisk (File file, boolean recover)
+  {
+    DiskAudit diskAudit = new DiskAudit (file);
+
+    try
+    {
+      FormattedDisk formattedDisk = DiskFactory.createDisk (file);
+      if (formattedDisk == null)
+      {
+        diskAudit.unreadable ("not a recognised disk image");
+        return diskAudit;
+      }
+
+      if (formattedDisk instanceof DualDosDisk)
+      {
+        DualDosDisk dualDosDisk = (DualDosDisk) formattedDisk;
+        for (int i = 0; i < 2; i++)
+        {
+          dualDosDisk.setCurrentDiskNo (i);
+          String prefix = "Disk " + (i + 1) + " : ";
+          auditDisk (dualDosDisk.getCurrentDisk (), prefix, diskAudit);
+          if (recover)
+            findRecoverableFiles (dualDosDisk.getCurrentDisk (), prefix, diskAudit);
+        }
+      }
+      else
+      {
+        auditDisk (formattedDisk, "", diskAudit);
+        if (recover)
+          findRecoverableFiles (formattedDisk, "", diskAudit);
+      }
+    }
+    catch (Exception e)
+    {
+      diskAudit.unreadable ("error reading disk: " + e);
+    }
+
+    return diskAudit;
+  }
+
+  private static void auditDisk (FormattedDisk formattedDisk, String prefix,
+      DiskAudit diskAudit)
+  {
+    int totalBlocks = formattedDisk.getDisk ().getTotalBlocks ();
+
+    // the same tests as the disks use for falsePositiveBlocks () etc
+    BitSet free = new BitSet (totalBlocks);
+    BitSet inUse = new BitSet (totalBlocks);      // labelled by the catalog
+    for (int block = 0; block < totalBlocks; block++)
+    {
+      if (formattedDisk.isSectorFree (block))
+        free.set (block);
+      if (!formattedDisk.stillAvailable (block))
+        inUse.set (block);
+    }
+
+    // only disks that count these have a free sector map to compare
+    if (formattedDisk.falsePositiveBlocks () > 0)
+    {
+      BitSet freeButUsed = (BitSet) free.clone ();
+      freeButUsed.and (inUse);
+      diskAudit.add (prefix + "marked free but in use", freeButUsed);
+    }
+
+    if (formattedDisk.falseNegativeBlocks () > 0)
+    {
+      BitSet usedButFree = (BitSet) inUse.clone ();
+      usedButFree.flip (0, totalBlocks);
+      usedButFree.andNot (free);
+      diskAudit.add (prefix + "marked in use but not used", usedButFree);
+    }
+
+    findCrossLinks (formattedDisk, prefix, diskAudit);
+  }
+
+  private static void findRecoverableFiles (FormattedDisk formattedDisk, String prefix,
+      DiskAudit diskAudit)
+  {
+    for (RecoverableFile file : formattedDisk.findRecoverableFiles ())
+      if (file.confidence > 0)
+        diskAudit.recoverable.add (prefix + file);
+  }
+
+  // a block that isn't a catalog block should belong to no more than one file
+  private static void findCrossLinks (FormattedDisk formattedDisk, String prefix,
+      DiskAudit diskAudit)
+  {
+    int totalBlocks = formattedDisk.getDisk ().getTotalBlocks ();
+
+    List<AppleFileSource> files = formattedDisk.getCatalogList ();
+    List<BitSet> fileBlocks = new ArrayList<BitSet> (files.size ());
+    BitSet claimed = new BitSet (totalBlocks);
+    BitSet crossLinked = new BitSet (totalBlocks);
+
+    for (AppleFileSource afs : files)
+    {
+      BitSet blocks = new BitSet (totalBlocks);
+      List<DiskAddress> sectors = afs.getSectors ();
+      if (sectors != null)
+        for (DiskAddress da : sectors)
+          if (da != null && da.getBlock () > 0 && da.getBlock () < totalBlocks
+              && !isCatalogBlock (formattedDisk, da.getBlock ()))
+            blocks.set (da.getBlock ());
+      fileBlocks.add (blocks);
+
+      BitSet shared = (BitSet) blocks.clone ();
+      shared.and (claimed);
+      crossLinked.or (shared);
+      claimed.or (blocks);
+    }
+
+    if (crossLinked.isEmpty ())
+      return;
+
+    StringBuilder names = new StringBuilder ();
+    for (int i = 0; i < files.size (); i++)
+      if (fileBlocks.get (i).intersects (crossLinked))
+        names.append (names.length () == 0 ? "" : ", ")
+            .append (files.get (i).getUniqueName ());
+
+    diskAudit.add (prefix + "cross-linked", crossLinked);
+    diskAudit.problems.add ("  shared by " + names);
+  }
+
+  // catalog blocks are listed by every file with an entry in them
+  private static boolean isCatalogBlock (FormattedDisk formattedDisk, int block)
+  {
+    SectorType sectorType = formattedDisk.getSectorType (block);
+    return sectorType != null
+        && (sectorType.name.equals ("Catalog") || sectorType.name.equals ("Subcatalog"));
+  }
+
+  static class DiskAudit
+  {
+    final File file;
+    final List<String> problems = new ArrayList<String> ();
+    final List<String> recoverable = new ArrayList<String> ();
+    boolean unreadable;
+
+    DiskAudit (File file)
+    {
+      this.file = file;
+    }
+
+    void unreadable (String reason)
+    {
+      unreadable = true;
+      problems.add (reason);
+    }
+
+    void add (String problem, BitSet blocks)
+    {
+      if (blocks.isEmpty ())
+        return;
+
+      StringBuilder text = new StringBuilder ();
+      text.append (String.format ("%-28s: %,5d  ", problem, blocks.cardinality ()));
+
+      int count = 0;
+      for (int block = blocks.nextSetBit (0); block >= 0;
+          block = blocks.nextSetBit (block + 1))
+      {
+        if (++count > MAX_BLOCKS_LISTED)
+        {
+          text.append (" ...");
+          break;
+        }
+        text.append (String.format (" %04X", block));
+      }
+
+      problems.add (text.toString ());
+    }
+  }
+}
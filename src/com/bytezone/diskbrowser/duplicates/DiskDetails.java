@@ -4,7 +4,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.bytezone.common.ComputeCRC32;
 import com.bytezone.diskbrowser.utilities.Utility;
 
 public class DiskDetails
@@ -15,6 +14,8 @@ public class DiskDetails
   private final String shortName;           // file name in lower case
   private final String type;
   private final long size;
+  private int[] signature;                  // MinHash of the sector contents
+  private final boolean contentChecksum;    // checksum the sectors, not the file
 
   private final List<DiskDetails> duplicateChecksums = new ArrayList<DiskDetails> ();
   private final List<DiskDetails> duplicateNames = new ArrayList<DiskDetails> ();
@@ -22,16 +23,18 @@ public class DiskDetails
   private boolean isDuplicateName;
   private boolean isDuplicateChecksum;
 
-  public DiskDetails (File file, String rootName, String shortName, boolean doChecksum)
+  public DiskDetails (File file, String rootName, String shortName, boolean doChecksum,
+      boolean contentChecksum)
   {
     this.file = file;
     this.rootName = rootName;
     this.shortName = shortName;
     this.type = Utility.getSuffix (shortName);
     this.size = file.length ();
+    this.contentChecksum = contentChecksum;
 
     if (doChecksum)
-      checksum = ComputeCRC32.getChecksumValue (file);
+      calculateChecksum ();
     else
       checksum = 0;
   }
@@ -104,17 +107,42 @@ public class DiskDetails
     return file.getName ();
   }
 
+  // a disk that can't be read falls back to the digest of the file
   public long calculateChecksum ()
   {
-    checksum = ComputeCRC32.getChecksumValue (file);
+    checksum = contentChecksum ? ContentChecksum.getChecksum (file) : 0;
+    if (checksum == 0)
+      checksum = FileDigest.getDigest (file);
     return checksum;
   }
 
+  // only used to find the files that need a full checksum
+  long getPartialChecksum ()
+  {
+    return FileDigest.getPartialDigest (file);
+  }
+
+  // a partial checksum of a small file is the whole checksum
+  void setChecksum (long checksum)
+  {
+    this.checksum = checksum;
+  }
+
   public long getChecksum ()
   {
     return checksum;
   }
 
+  public int[] getSignature ()
+  {
+    return signature;
+  }
+
+  void setSignature (int[] signature)
+  {
+    this.signature = signature;
+  }
+
   @Override
   public String toString ()
   {
@@ -0,0 +1,146 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.nib.DiskNibbleException;
+import com.bytezone.diskbrowser.nib.V2dFile;
+import com.bytezone.diskbrowser.nib.WozFile;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+import com.bytezone.diskbrowser.utilities.NuFX;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Returns the sector data of a disk image without creating a FormattedDisk.
+// Compressed files are decompressed in memory rather than via temporary files.
+class DiskImageReader
+{
+  private DiskImageReader ()
+  {
+  }
+
+  static byte[] getDiskBuffer (File file) throws IOException
+  {
+    String name = file.getName ().toLowerCase ();
+    String suffix = Utility.getSuffix (name);
+    boolean compressed = name.endsWith (".gz") || name.endsWith (".zip");
+
+    try
+    {
+      if (!compressed)
+        switch (suffix)
+        {
+          case "woz":
+            return new WozFile (file).getDiskBuffer ();
+          case "v2d":
+            return new V2dFile (file).getDiskBuffer ();
+          case "sdk":
+            return new NuFX (file).getBuffer ();
+        }
+
+      if (suffix.equals ("woz") || suffix.equals ("v2d") || suffix.equals ("sdk"))
+        return readSectors (file);            // compressed nibble files are rare
+    }
+    catch (DiskNibbleException e)
+    {
+      return null;
+    }
+
+    if (suffix.equals ("nib"))                // not implemented yet
+      return null;
+
+    byte[] buffer = readFully (file);
+    if (buffer == null)
+      return null;
+
+    if (suffix.equals ("2mg") || (buffer.length > 64 && buffer[0] == '2'
+        && buffer[1] == 'I' && buffer[2] == 'M' && buffer[3] == 'G'))
+      buffer = strip2mgHeader (buffer);
+
+    return buffer;
+  }
+
+  // decompresses .gz and .zip files as they are read
+  static InputStream getInputStream (File file) throws IOException
+  {
+    String name = file.getName ().toLowerCase ();
+
+    if (name.endsWith (".gz"))
+      return new GZIPInputStream (new FileInputStream (file));
+
+    if (name.endsWith (".zip"))
+    {
+      ZipInputStream zipInputStream = new ZipInputStream (new FileInputStream (file));
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry ()) != null)   // first valid name
+        if (Utility.validFileType (entry.getName ()))
+          return zipInputStream;
+      zipInputStream.close ();
+      return null;
+    }
+
+    return new FileInputStream (file);
+  }
+
+  private static byte[] readFully (File file) throws IOException
+  {
+    InputStream in = getInputStream (file);
+    if (in == null)
+      return null;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream ((int) file.length ());
+    byte[] buffer = new byte[8192];
+    int bytesRead;
+    try
+    {
+      while ((bytesRead = in.read (buffer)) > 0)
+        out.write (buffer, 0, bytesRead);
+    }
+    finally
+    {
+      in.close ();
+    }
+
+    return out.toByteArray ();
+  }
+
+  // http://apple2.org.za/gswv/a2zine/Docs/DiskImage_2MG_Info.txt
+  private static byte[] strip2mgHeader (byte[] buffer)
+  {
+    int headerSize = HexFormatter.unsignedShort (buffer, 8);
+    int dataSize = HexFormatter.unsignedLong (buffer, 28);
+    if (dataSize <= 0 || headerSize + dataSize > buffer.length)
+      dataSize = buffer.length - headerSize;
+
+    byte[] data = new byte[dataSize];
+    System.arraycopy (buffer, headerSize, data, 0, dataSize);
+    return data;
+  }
+
+  private static byte[] readSectors (File file)
+  {
+    FormattedDisk formattedDisk = DiskFactory.createDisk (file);
+    if (formattedDisk == null)
+      return null;
+
+    Disk disk = formattedDisk.getDisk ();
+    byte[] buffer = new byte[disk.getTotalBlocks () * disk.getBlockSize ()];
+    int ptr = 0;
+    for (DiskAddress da : disk)
+    {
+      byte[] sector = disk.readSector (da);
+      System.arraycopy (sector, 0, buffer, ptr, sector.length);
+      ptr += sector.length;
+    }
+    return buffer;
+  }
+}
@@ -0,0 +1,200 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DiskSearch;
+import com.bytezone.diskbrowser.disk.DiskSearch.Hit;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.ByteSearch;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Searches every disk under a folder for a list of patterns, such as
+//   "COPYRIGHT", A9 00 8D 00 C0, "BRUN"
+// Hex bytes must match exactly, and quoted text matches with or without the high bit.
+// Block-ordered images are memory-mapped and scanned whole first, so disks that can't
+// contain a match are never parsed.
+//
+// usage: DiskSearcher folder pattern-list [report file]
+public class DiskSearcher
+{
+  private final ByteSearch byteSearch;
+  private final PrintWriter report;
+  private int totalDisks;
+  private int matchingDisks;
+  private int totalHits;
+
+  public DiskSearcher (ByteSearch byteSearch, PrintWriter report)
+  {
+    this.byteSearch = byteSearch;
+    this.report = report;
+  }
+
+  public static void main (String[] args) throws FileNotFoundException
+  {
+    if (args.length < 2 || !new File (args[0]).isDirectory ())
+    {
+      System.out.println ("usage: DiskSearcher folder pattern-list [report file]");
+      return;
+    }
+
+    ByteSearch byteSearch;
+    try
+    {
+      byteSearch = ByteSearch.compile (args[1]);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println (e.getMessage ());
+      return;
+    }
+
+    PrintWriter report =
+        args.length > 2 ? new PrintWriter (args[2]) : new PrintWriter (System.out);
+    try
+    {
+      new DiskSearcher (byteSearch, report).search (new File (args[0]));
+    }
+    finally
+    {
+      report.close ();
+    }
+  }
+
+  // returns the number of disks with at least one match
+  public int search (File rootFolder)
+  {
+    boolean completed = new FolderScan<DiskHits> ()
+    {
+      @Override
+      protected DiskHits scan (File file)
+      {
+        return searchDisk (file);
+      }
+
+      @Override
+      protected void report (DiskHits diskHits)
+      {
+        DiskSearcher.this.report (diskHits);
+      }
+    }.run (rootFolder);
+
+    if (!completed)
+      report.println ("Search interrupted");
+
+    report.printf ("%nDisks searched: %,d   with matches: %,d   matches: %,d%n",
+        totalDisks, matchingDisks, totalHits);
+    report.flush ();
+
+    return matchingDisks;
+  }
+
+  private void report (DiskHits diskHits)
+  {
+    ++totalDisks;
+    if (diskHits.hits.isEmpty () && diskHits.error == null)
+      return;
+
+    report.println (diskHits.file.getAbsolutePath ());
+    if (diskHits.error != null)
+      report.println ("  " + diskHits.error);
+    else
+    {
+      ++matchingDisks;
+      totalHits += diskHits.hits.size ();
+    }
+    for (String hit : diskHits.hits)
+      report.println ("  " + hit);
+    report.flush ();
+  }
+
+  private DiskHits searchDisk (File file)
+  {
+    DiskHits diskHits = new DiskHits (file);
+
+    try
+    {
+      if (isBlockOrdered (file) && !mightMatch (file))
+        return diskHits;
+
+      FormattedDisk formattedDisk = DiskFactory.createDisk (file);
+      if (formattedDisk == null)
+        return diskHits;
+
+      if (formattedDisk instanceof DualDosDisk)
+      {
+        DualDosDisk dualDosDisk = (DualDosDisk) formattedDisk;
+        for (int i = 0; i < 2; i++)
+        {
+          dualDosDisk.setCurrentDiskNo (i);
+          diskHits.add ("Disk " + (i + 1) + " : ",
+              DiskSearch.search (dualDosDisk.getCurrentDisk (), byteSearch));
+        }
+      }
+      else
+        diskHits.add ("", DiskSearch.search (formattedDisk, byteSearch));
+    }
+    catch (Exception e)
+    {
+      diskHits.error = "error reading disk: " + e;
+    }
+
+    return diskHits;
+  }
+
+  // Every block of these images is stored in one piece in the file, so a match
+  // inside a block is also a match somewhere in the file. Compressed images and
+  // images in DOS order (where a ProDOS block is two sectors apart) can't be checked.
+  private boolean isBlockOrdered (File file)
+  {
+    String name = file.getName ().toLowerCase ();
+    if (name.endsWith (".gz") || name.endsWith (".zip"))
+      return false;
+
+    String suffix = Utility.getSuffix (name);
+    return suffix.equals ("po") || suffix.equals ("hdv") || suffix.equals ("2mg");
+  }
+
+  private boolean mightMatch (File file) throws IOException
+  {
+    RandomAccessFile randomAccessFile = new RandomAccessFile (file, "r");
+    try
+    {
+      FileChannel channel = randomAccessFile.getChannel ();
+      MappedByteBuffer buffer = channel.map (FileChannel.MapMode.READ_ONLY, 0,
+          channel.size ());
+      return byteSearch.matches (buffer);
+    }
+    finally
+    {
+      randomAccessFile.close ();
+    }
+  }
+
+  private static class DiskHits
+  {
+    final File file;
+    final List<String> hits = new ArrayList<String> ();
+    String error;
+
+    DiskHits (File file)
+    {
+      this.file = file;
+    }
+
+    void add (String prefix, List<Hit> diskHits)
+    {
+      for (Hit hit : diskHits)
+        hits.add (prefix + hit);
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// A RowSorter for the disks table that never sorts or filters the whole table again.
+// The rows of each type and the rows with duplicates are kept in bit sets, and each
+// column is sorted once, the first time it is asked for. Changing the filter or the
+// sort order just walks the sorted rows and keeps those in the filter. The suffix
+// filter matches the types as the regex filter it replaced did, so selecting no
+// suffixes shows every disk.
+class DiskTableSorter extends RowSorter<DiskTableModel>
+{
+  private static final int TYPE_COLUMN = 2;
+  private static final int CHECKSUM_COLUMN = 5;
+
+  private final DiskTableModel model;
+  private final Map<String, BitSet> typeRows = new LinkedHashMap<String, BitSet> ();
+  private final BitSet duplicateRows = new BitSet ();
+  private final int[][] sortedRows;             // model rows in order of each column
+
+  private final BitSet filter = new BitSet ();
+  private boolean duplicatesOnly;
+  private List<SortKey> sortKeys = Collections.emptyList ();
+
+  private int[] viewToModel;
+  private int[] modelToView;
+
+  DiskTableSorter (DiskTableModel model)
+  {
+    this.model = model;
+
+    int rows = model.getRowCount ();
+    for (int row = 0; row < rows; row++)
+    {
+      String type = model.getValueAt (row, TYPE_COLUMN).toString ();
+      BitSet bits = typeRows.get (type);
+      if (bits == null)
+      {
+        bits = new BitSet (rows);
+        typeRows.put (type, bits);
+      }
+      bits.set (row);
+    }
+    setDuplicateRows ();
+
+    sortedRows = new int[model.getColumnCount ()][];
+    filter.set (0, rows);
+    build ();
+  }
+
+  // returns true if any row has changed
+  private boolean setDuplicateRows ()
+  {
+    BitSet lastDuplicateRows = (BitSet) duplicateRows.clone ();
+    duplicateRows.clear ();
+
+    for (int row = 0; row < model.getRowCount (); row++)
+    {
+      DiskDetails diskDetails = model.getDiskDetails (row);
+      if (diskDetails.isDuplicateChecksum ()
+          || diskDetails.getDuplicateChecksums ().size () > 0)
+        duplicateRows.set (row);
+    }
+
+    return !duplicateRows.equals (lastDuplicateRows);
+  }
+
+  // The rows whose type contains any of the selected suffixes, as the regex filter
+  // found them. Each type is only matched once, however many rows it has.
+  void setSuffixes (boolean[] selected)
+  {
+    StringBuilder regex = new StringBuilder ();
+    for (int i = 0; i < selected.length; i++)
+      if (selected[i])
+        regex.append ((regex.length () > 0 ? "|" : "") + Utility.suffixes.get (i));
+
+    Pattern pattern = Pattern.compile (regex.toString ());
+    filter.clear ();
+    for (Map.Entry<String, BitSet> entry : typeRows.entrySet ())
+      if (pattern.matcher (entry.getKey ()).find ())
+        filter.or (entry.getValue ());
+    update ();
+  }
+
+  // disks that have at least one copy with the same checksum
+  void setDuplicatesOnly (boolean duplicatesOnly)
+  {
+    this.duplicatesOnly = duplicatesOnly;
+    update ();
+  }
+
+  private void update ()
+  {
+    int[] lastViewToModel = viewToModel;
+    build ();
+    fireRowSorterChanged (lastViewToModel);
+  }
+
+  private void build ()
+  {
+    BitSet visible = (BitSet) filter.clone ();
+    if (duplicatesOnly)
+      visible.and (duplicateRows);
+
+    int rows = model.getRowCount ();
+    viewToModel = new int[visible.cardinality ()];
+    modelToView = new int[rows];
+    Arrays.fill (modelToView, -1);
+
+    int[] order = null;
+    boolean descending = false;
+    if (!sortKeys.isEmpty () && sortKeys.get (0).getSortOrder () != SortOrder.UNSORTED)
+    {
+      order = getSortedRows (sortKeys.get (0).getColumn ());
+      descending = sortKeys.get (0).getSortOrder () == SortOrder.DESCENDING;
+    }
+
+    int view = 0;
+    for (int i = 0; i < rows; i++)
+    {
+      int row = order == null ? i : order[descending ? rows - 1 - i : i];
+      if (visible.get (row))
+      {
+        modelToView[row] = view;
+        viewToModel[view++] = row;
+      }
+    }
+  }
+
+  private int[] getSortedRows (final int column)
+  {
+    if (sortedRows[column] == null)
+    {
+      int rows = model.getRowCount ();
+      List<Integer> order = new ArrayList<Integer> (rows);
+      for (int row = 0; row < rows; row++)
+        order.add (row);
+
+      final Collator collator = Collator.getInstance ();
+      Collections.sort (order, new Comparator<Integer> ()
+      {
+        @Override
+        @SuppressWarnings ("unchecked")
+        public int compare (Integer row1, Integer row2)
+        {
+          Object value1 = model.getValueAt (row1, column);
+          Object value2 = model.getValueAt (row2, column);
+          if (value1 instanceof String)
+            return collator.compare (value1, value2);
+          return ((Comparable<Object>) value1).compareTo (value2);
+        }
+      });
+
+      int[] sorted = new int[rows];
+      for (int i = 0; i < rows; i++)
+        sorted[i] = order.get (i);
+      sortedRows[column] = sorted;
+    }
+    return sortedRows[column];
+  }
+
+  @Override
+  public DiskTableModel getModel ()
+  {
+    return model;
+  }
+
+  // ascending, descending, then ascending again - as TableRowSorter does
+  @Override
+  public void toggleSortOrder (int column)
+  {
+    SortOrder sortOrder = SortOrder.ASCENDING;
+    if (!sortKeys.isEmpty () && sortKeys.get (0).getColumn () == column
+        && sortKeys.get (0).getSortOrder () == SortOrder.ASCENDING)
+      sortOrder = SortOrder.DESCENDING;
+    setSortKeys (Collections.singletonList (new SortKey (column, sortOrder)));
+  }
+
+  @Override
+  public int convertRowIndexToModel (int index)
+  {
+    return viewToModel[index];
+  }
+
+  @Override
+  public int convertRowIndexToView (int index)
+  {
+    return index < 0 || index >= modelToView.length ? -1 : modelToView[index];
+  }
+
+  @Override
+  public void setSortKeys (List<? extends SortKey> keys)
+  {
+    List<SortKey> newKeys = keys == null || keys.isEmpty ()
+        ? Collections.<SortKey> emptyList ()
+        : Collections.<SortKey> singletonList (keys.get (0));   // one column at a time
+    if (newKeys.equals (sortKeys))
+      return;
+
+    sortKeys = newKeys;
+    fireSortOrderChanged ();
+    update ();
+  }
+
+  @Override
+  public List<? extends SortKey> getSortKeys ()
+  {
+    return sortKeys;
+  }
+
+  @Override
+  public int getViewRowCount ()
+  {
+    return viewToModel.length;
+  }
+
+  @Override
+  public int getModelRowCount ()
+  {
+    return model.getRowCount ();
+  }
+
+  // the rows never change, only the checksums of disks as they are selected
+  @Override
+  public void modelStructureChanged ()
+  {
+  }
+
+  @Override
+  public void allRowsChanged ()
+  {
+  }
+
+  @Override
+  public void rowsInserted (int firstRow, int endRow)
+  {
+  }
+
+  @Override
+  public void rowsDeleted (int firstRow, int endRow)
+  {
+  }
+
+  @Override
+  public void rowsUpdated (int firstRow, int endRow)
+  {
+    checksumsUpdated ();
+  }
+
+  @Override
+  public void rowsUpdated (int firstRow, int endRow, int column)
+  {
+    if (column == CHECKSUM_COLUMN)
+      checksumsUpdated ();
+  }
+
+  // The rows stay where they are until the table is sorted again, but a disk that
+  // now has a duplicate (or no longer has one) is shown or hidden straight away.
+  private void checksumsUpdated ()
+  {
+    sortedRows[CHECKSUM_COLUMN] = null;
+    if (setDuplicateRows () && duplicatesOnly)
+      update ();
+  }
+}
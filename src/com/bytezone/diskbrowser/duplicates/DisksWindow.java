@@ -17,7 +17,6 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumnModel;
-import javax.swing.table.TableRowSorter;
 
 import com.bytezone.diskbrowser.gui.DuplicateAction.DiskTableSelectionListener;
 import com.bytezone.diskbrowser.utilities.NumberRenderer;
@@ -31,10 +30,13 @@ public class DisksWindow extends JFrame
   private final JButton btnDelete = new JButton ("Duplicates");
   private final JButton btnHide = new JButton ("Close");
   private final JButton btnTotals = new JButton ("Totals");
+  private final JButton btnFiles = new JButton ("Files");
+  private final JButton btnSimilar = new JButton ("Similar");
   private final JPanel topPanel = new JPanel ();
 
   private final List<JCheckBox> boxes = new ArrayList<JCheckBox> ();
-  private TableRowSorter<DiskTableModel> sorter;
+  private final JCheckBox duplicatesBox = new JCheckBox ("Duplicates only");
+  private DiskTableSorter sorter;
   private final CheckBoxActionListener checkBoxActionListener =
       new CheckBoxActionListener ();
 
@@ -64,6 +66,8 @@ public class DisksWindow extends JFrame
     panel.add (btnHide);
     panel.add (btnExport);
     panel.add (btnDelete);
+    panel.add (btnFiles);
+    panel.add (btnSimilar);
     add (panel, BorderLayout.SOUTH);
 
     topPanel.setLayout (new FlowLayout (FlowLayout.LEFT, 10, 5));
@@ -71,6 +75,8 @@ public class DisksWindow extends JFrame
 
     btnHide.setEnabled (true);
     btnExport.setEnabled (false);
+    btnFiles.setEnabled (false);
+    btnSimilar.setEnabled (false);
 
     btnTotals.addActionListener (new ActionListener ()
     {
@@ -99,6 +105,24 @@ public class DisksWindow extends JFrame
       }
     });
 
+    btnFiles.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        DisksWindow.this.rootFolderData.hashFiles ();
+      }
+    });
+
+    btnSimilar.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        DisksWindow.this.rootFolderData.findSimilarDisks ();
+      }
+    });
+
     btnExport.addActionListener (new ActionListener ()
     {
       @Override
@@ -131,7 +155,7 @@ public class DisksWindow extends JFrame
 
     tcm.getColumn (3).setCellRenderer (NumberRenderer.getIntegerRenderer ());
 
-    sorter = new TableRowSorter<DiskTableModel> ((DiskTableModel) table.getModel ());
+    sorter = new DiskTableSorter (diskTableModel);
     table.setRowSorter (sorter);
 
     ListSelectionModel listSelectionModel = table.getSelectionModel ();
@@ -191,49 +215,40 @@ public class DisksWindow extends JFrame
         btn.setEnabled (false);
     }
 
+    if (rootFolderData.doChecksums)
+    {
+      topPanel.add (duplicatesBox);
+      duplicatesBox.addActionListener (new ActionListener ()
+      {
+        @Override
+        public void actionPerformed (ActionEvent e)
+        {
+          sorter.setDuplicatesOnly (duplicatesBox.isSelected ());
+        }
+      });
+    }
+
     JTableHeader header = table.getTableHeader ();
     header.setFont (header.getFont ().deriveFont ((float) 13.0));
 
     pack ();
     setLocationRelativeTo (null);
     btnExport.setEnabled (true);
+    btnFiles.setEnabled (true);
+    btnSimilar.setEnabled (true);
 
     setVisible (true);
   }
 
-  private String getFilterText ()
-  {
-    StringBuilder filterText = new StringBuilder ();
-
-    for (JCheckBox box : boxes)
-      if (box.isSelected ())
-      {
-        String text = box.getText ();
-        int pos = text.indexOf (' ');
-        filterText.append (text.substring (0, pos) + "|");
-      }
-
-    if (filterText.length () > 0)
-      filterText.deleteCharAt (filterText.length () - 1);
-
-    return filterText.toString ();
-  }
-
   class CheckBoxActionListener implements ActionListener
   {
     @Override
     public void actionPerformed (ActionEvent e)
     {
-      RowFilter<DiskTableModel, Object> rf = null;
-      try
-      {
-        rf = RowFilter.regexFilter (getFilterText (), 2);
-      }
-      catch (java.util.regex.PatternSyntaxException exception)
-      {
-        return;
-      }
-      sorter.setRowFilter (rf);
+      boolean[] selected = new boolean[boxes.size ()];
+      for (int i = 0; i < selected.length; i++)
+        selected[i] = boxes.get (i).isSelected ();
+      sorter.setSuffixes (selected);
     }
   }
 }
\ No newline at end of file
@@ -20,6 +20,11 @@ public class DuplicateSwingWorker extends SwingWorker<Void, RootFolderData>
   protected Void doInBackground () throws Exception
   {
     traverse (rootFolderData.getRootFolder ());
+    if (rootFolderData.doChecksums && !rootFolderData.contentChecksums)
+    {
+      rootFolderData.checksumDisks ();
+      publish (rootFolderData);
+    }
     return null;
   }
 
@@ -0,0 +1,44 @@
+package com.bytezone.diskbrowser.duplicates;
+
+// A single file found inside a disk image, identified by a hash of its exact data
+public class FileDetails
+{
+  private final DiskDetails diskDetails;      // the disk image that contains the file
+  private final String fileName;              // unique name within the disk
+  private final int size;
+  private final String hash;
+
+  public FileDetails (DiskDetails diskDetails, String fileName, int size, String hash)
+  {
+    this.diskDetails = diskDetails;
+    this.fileName = fileName;
+    this.size = size;
+    this.hash = hash;
+  }
+
+  public DiskDetails getDiskDetails ()
+  {
+    return diskDetails;
+  }
+
+  public String getFileName ()
+  {
+    return fileName;
+  }
+
+  public int getSize ()
+  {
+    return size;
+  }
+
+  public String getHash ()
+  {
+    return hash;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return String.format ("%-30s %,8d  %s", fileName, size, diskDetails.getRootName ());
+  }
+}
@@ -0,0 +1,102 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// A 64 bit digest of a file, taken from the start of its SHA-256. CRC32 gives false
+// duplicates in an archive of this size. Files that can't be read give 0, which is
+// also what DiskDetails uses for a checksum that hasn't been calculated.
+class FileDigest
+{
+  static final int EDGE_SIZE = 4096;        // bytes from each end for a partial digest
+  private static final int BUFFER_SIZE = 65536;
+
+  private FileDigest ()
+  {
+  }
+
+  static MessageDigest create ()
+  {
+    try
+    {
+      return MessageDigest.getInstance ("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException (e);      // every JVM must provide SHA-256
+    }
+  }
+
+  static long getValue (MessageDigest digest)
+  {
+    return ByteBuffer.wrap (digest.digest ()).getLong ();
+  }
+
+  static long getDigest (File file)
+  {
+    MessageDigest digest = create ();
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    try
+    {
+      InputStream in = new FileInputStream (file);
+      try
+      {
+        int bytesRead;
+        while ((bytesRead = in.read (buffer)) > 0)
+          digest.update (buffer, 0, bytesRead);
+      }
+      finally
+      {
+        in.close ();
+      }
+    }
+    catch (IOException e)
+    {
+      return 0;
+    }
+
+    return getValue (digest);
+  }
+
+  // The first and last 4K of a file, which tells most files of the same size apart.
+  // Smaller files are read whole, so for them this is also the full digest.
+  static long getPartialDigest (File file)
+  {
+    long length = file.length ();
+    if (length <= EDGE_SIZE * 2)
+      return getDigest (file);
+
+    MessageDigest digest = create ();
+    byte[] buffer = new byte[EDGE_SIZE];
+
+    try
+    {
+      RandomAccessFile randomAccessFile = new RandomAccessFile (file, "r");
+      try
+      {
+        randomAccessFile.readFully (buffer);
+        digest.update (buffer);
+        randomAccessFile.seek (length - EDGE_SIZE);
+        randomAccessFile.readFully (buffer);
+        digest.update (buffer);
+      }
+      finally
+      {
+        randomAccessFile.close ();
+      }
+    }
+    catch (IOException e)
+    {
+      return 0;
+    }
+
+    return getValue (digest);
+  }
+}
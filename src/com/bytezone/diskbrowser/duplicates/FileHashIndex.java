@@ -0,0 +1,161 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Maps the hash of every file's data to each place that file was found. Only
+// updated from a single thread - the worker threads just return their results.
+public class FileHashIndex
+{
+  private final Map<String, List<FileDetails>> hashMap =
+      new HashMap<String, List<FileDetails>> ();
+  private final Map<DiskDetails, Set<String>> diskHashes =
+      new LinkedHashMap<DiskDetails, Set<String>> ();
+
+  private int totalFiles;
+
+  void add (DiskDetails diskDetails, List<FileDetails> files)
+  {
+    Set<String> hashes = new HashSet<String> ();
+    diskHashes.put (diskDetails, hashes);
+
+    for (FileDetails fileDetails : files)
+    {
+      String hash = fileDetails.getHash ();
+      List<FileDetails> locations = hashMap.get (hash);
+      if (locations == null)
+      {
+        locations = new ArrayList<FileDetails> ();
+        hashMap.put (hash, locations);
+      }
+      locations.add (fileDetails);
+      hashes.add (hash);
+      ++totalFiles;
+    }
+  }
+
+  void clear ()
+  {
+    hashMap.clear ();
+    diskHashes.clear ();
+    totalFiles = 0;
+  }
+
+  public int getTotalFiles ()
+  {
+    return totalFiles;
+  }
+
+  public int getTotalDisks ()
+  {
+    return diskHashes.size ();
+  }
+
+  public int getUniqueFiles ()
+  {
+    return hashMap.size ();
+  }
+
+  public List<FileDetails> getLocations (String hash)
+  {
+    List<FileDetails> locations = hashMap.get (hash);
+    return locations == null ? new ArrayList<FileDetails> () : locations;
+  }
+
+  // every file that was found on more than one disk, on the most disks first
+  public List<List<FileDetails>> getMostDuplicated ()
+  {
+    final Map<List<FileDetails>, Integer> diskCounts =
+        new IdentityHashMap<List<FileDetails>, Integer> ();
+    List<List<FileDetails>> duplicates = new ArrayList<List<FileDetails>> ();
+    for (List<FileDetails> locations : hashMap.values ())
+    {
+      int disks = countDisks (locations);
+      if (disks > 1)
+      {
+        duplicates.add (locations);
+        diskCounts.put (locations, disks);
+      }
+    }
+
+    Collections.sort (duplicates, new Comparator<List<FileDetails>> ()
+    {
+      @Override
+      public int compare (List<FileDetails> list1, List<FileDetails> list2)
+      {
+        int disks1 = diskCounts.get (list1);
+        int disks2 = diskCounts.get (list2);
+        if (disks1 != disks2)
+          return disks2 - disks1;
+        if (list1.size () != list2.size ())
+          return list2.size () - list1.size ();
+        return list2.get (0).getSize () - list1.get (0).getSize ();
+      }
+    });
+
+    return duplicates;
+  }
+
+  int countDisks (List<FileDetails> locations)
+  {
+    Set<DiskDetails> disks = new HashSet<DiskDetails> ();
+    for (FileDetails fileDetails : locations)
+      disks.add (fileDetails.getDiskDetails ());
+    return disks.size ();
+  }
+
+  // Disks whose files all appear on another disk that has more files. Each
+  // disk is only compared with the disks that share its rarest file, so the
+  // cost stays close to linear in the number of disks.
+  public Map<DiskDetails, DiskDetails> getSubsetDisks ()
+  {
+    Map<DiskDetails, DiskDetails> subsets = new LinkedHashMap<DiskDetails, DiskDetails> ();
+
+    for (Map.Entry<DiskDetails, Set<String>> entry : diskHashes.entrySet ())
+    {
+      DiskDetails disk = entry.getKey ();
+      Set<String> hashes = entry.getValue ();
+      if (hashes.isEmpty ())
+        continue;
+
+      String rarest = null;
+      int rarestSize = Integer.MAX_VALUE;
+      for (String hash : hashes)
+      {
+        int size = hashMap.get (hash).size ();
+        if (size < rarestSize)
+        {
+          rarest = hash;
+          rarestSize = size;
+        }
+      }
+
+      if (rarestSize == 1)                      // at least one file is unique
+        continue;
+
+      for (FileDetails candidate : hashMap.get (rarest))
+      {
+        DiskDetails other = candidate.getDiskDetails ();
+        if (other == disk)
+          continue;
+
+        Set<String> otherHashes = diskHashes.get (other);
+        if (otherHashes.size () > hashes.size () && otherHashes.containsAll (hashes))
+        {
+          subsets.put (disk, other);
+          break;
+        }
+      }
+    }
+
+    return subsets;
+  }
+}
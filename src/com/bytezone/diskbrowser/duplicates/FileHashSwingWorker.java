@@ -0,0 +1,229 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.applefile.AbstractFile;
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.applefile.StreamedFile;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.gui.DataSource;
+import com.bytezone.diskbrowser.prodos.ProdosDirectory;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// Opens every disk in the root folder on a pool of worker threads, and hashes
+// the exact data of each file in the disk's catalog. FolderScan keeps only a few
+// disks queued at a time.
+public class FileHashSwingWorker extends SwingWorker<Void, Integer>
+{
+  private static final String DIGEST = "SHA-256";
+  private static final int CHUNK_SIZE = 0x1000;
+
+  private final RootFolderData rootFolderData;
+  private final List<DiskDetails> disks;
+  private final ProgressMonitor progressMonitor;
+
+  public FileHashSwingWorker (RootFolderData rootFolderData)
+  {
+    this.rootFolderData = rootFolderData;
+    disks = rootFolderData.getDiskList ();
+    progressMonitor = new ProgressMonitor (rootFolderData.disksWindow,
+        "Hashing the files on each disk", "", 0, disks.size ());
+  }
+
+  @Override
+  protected Void doInBackground () throws Exception
+  {
+    final FileHashIndex fileHashIndex = rootFolderData.fileHashIndex;
+    fileHashIndex.clear ();
+
+    // the map is only read once the scan has started
+    final Map<File, DiskDetails> diskFiles = new HashMap<File, DiskDetails> ();
+    List<File> files = new ArrayList<File> (disks.size ());
+    for (DiskDetails diskDetails : disks)
+    {
+      diskFiles.put (diskDetails.getFile (), diskDetails);
+      files.add (diskDetails.getFile ());
+    }
+
+    new FolderScan<DiskFiles> ()
+    {
+      private int completed;
+
+      @Override
+      protected DiskFiles scan (File file)
+      {
+        return hashDisk (diskFiles.get (file));
+      }
+
+      // results are merged on this thread only, so the index needs no locking
+      @Override
+      protected void report (DiskFiles result)
+      {
+        if (result.files != null)
+          fileHashIndex.add (result.diskDetails, result.files);
+
+        if ((completed++ % 20) == 0)
+          publish (completed);
+      }
+
+      @Override
+      protected boolean isCancelled ()
+      {
+        return progressMonitor.isCanceled ();
+      }
+    }.run (files);
+
+    return null;
+  }
+
+  @Override
+  protected void process (List<Integer> chunks)
+  {
+    int completed = chunks.get (chunks.size () - 1);
+    progressMonitor.setProgress (completed);
+    progressMonitor.setNote (String.format ("%,d of %,d disks", completed, disks.size ()));
+  }
+
+  @Override
+  protected void done ()
+  {
+    progressMonitor.close ();
+    rootFolderData.filesHashed (!progressMonitor.isCanceled ());
+  }
+
+  static List<FileDetails> hashFiles (DiskDetails diskDetails)
+  {
+    FormattedDisk formattedDisk = DiskFactory.createDisk (diskDetails.getFile ());
+    if (formattedDisk == null)
+      return null;
+
+    MessageDigest digest;
+    try
+    {
+      digest = MessageDigest.getInstance (DIGEST);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      e.printStackTrace ();
+      return null;
+    }
+
+    List<FileDetails> files = new ArrayList<FileDetails> ();
+
+    if (formattedDisk instanceof DualDosDisk)
+    {
+      DualDosDisk dualDosDisk = (DualDosDisk) formattedDisk;
+      for (int i = 0; i < 2; i++)
+      {
+        dualDosDisk.setCurrentDiskNo (i);
+        hashFiles (diskDetails, dualDosDisk.getCurrentDisk (), digest, files);
+      }
+    }
+    else
+      hashFiles (diskDetails, formattedDisk, digest, files);
+
+    return files;
+  }
+
+  private static void hashFiles (DiskDetails diskDetails, FormattedDisk formattedDisk,
+      MessageDigest digest, List<FileDetails> files)
+  {
+    for (AppleFileSource afs : formattedDisk.getCatalogList ())
+    {
+      try
+      {
+        DataSource dataSource = afs.getDataSource ();
+        if (dataSource instanceof StreamedFile)
+        {
+          hashStream (diskDetails, afs, (StreamedFile) dataSource, digest, files);
+          continue;
+        }
+        if (!(dataSource instanceof AbstractFile) || dataSource instanceof ProdosDirectory)
+          continue;
+
+        byte[] buffer = ((AbstractFile) dataSource).getBuffer ();
+        if (buffer == null || buffer.length == 0)
+          continue;
+
+        String hash = HexFormatter.getHexString (digest.digest (buffer), 0,
+            digest.getDigestLength (), false);
+        files.add (new FileDetails (diskDetails, afs.getUniqueName (), buffer.length,
+            hash));
+      }
+      catch (Exception e)       // a damaged file should not stop the rest of the disk
+      {
+        System.out.printf ("Error hashing %s in %s%n", afs.getUniqueName (),
+            diskDetails.getRootName ());
+      }
+    }
+  }
+
+  // Files too large to be read into memory are hashed a chunk at a time. The digest
+  // is shared with the rest of the disk, so it is always left ready for the next file.
+  private static void hashStream (DiskDetails diskDetails, AppleFileSource afs,
+      StreamedFile streamedFile, MessageDigest digest, List<FileDetails> files)
+  {
+    long size = streamedFile.size ();
+    if (size == 0)
+      return;
+
+    byte[] chunk = new byte[CHUNK_SIZE];
+    digest.reset ();
+    try
+    {
+      for (long ptr = 0; ptr < size; ptr += CHUNK_SIZE)
+      {
+        int length =
+            streamedFile.read (ptr, chunk, (int) Math.min (CHUNK_SIZE, size - ptr));
+        if (length <= 0)
+          return;
+        digest.update (chunk, 0, length);
+      }
+
+      String hash = HexFormatter.getHexString (digest.digest (), 0,
+          digest.getDigestLength (), false);
+      files.add (new FileDetails (diskDetails, afs.getUniqueName (), (int) size, hash));
+    }
+    finally
+    {
+      digest.reset ();
+    }
+  }
+
+  private static DiskFiles hashDisk (DiskDetails diskDetails)
+  {
+    List<FileDetails> files = null;
+    try
+    {
+      files = hashFiles (diskDetails);
+    }
+    catch (Exception e)
+    {
+      System.out.println ("Error reading " + diskDetails.getRootName ());
+    }
+    return new DiskFiles (diskDetails, files);
+  }
+
+  static class DiskFiles
+  {
+    final DiskDetails diskDetails;
+    final List<FileDetails> files;
+
+    public DiskFiles (DiskDetails diskDetails, List<FileDetails> files)
+    {
+      this.diskDetails = diskDetails;
+      this.files = files;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumnModel;
+
+import com.bytezone.diskbrowser.utilities.NumberRenderer;
+
+// Displays the results of the FileHashSwingWorker
+public class FilesWindow extends JFrame
+{
+  private static final Font font = new Font ("Monospaced", Font.PLAIN, 12);
+
+  private final JButton btnHide = new JButton ("Close");
+  private final JTable table;
+  private final JTextArea locationsText = new JTextArea ();
+  private final JTextArea subsetsText = new JTextArea ();
+
+  private final FileTableModel fileTableModel = new FileTableModel ();
+  private final FileHashIndex fileHashIndex;
+
+  public FilesWindow (RootFolderData rootFolderData)
+  {
+    super ("Files - " + rootFolderData.getRootFolderPathText ());
+    this.fileHashIndex = rootFolderData.fileHashIndex;
+
+    table = new JTable (fileTableModel);
+    table.setFillsViewportHeight (true);
+    table.setShowGrid (true);
+    table.setGridColor (Color.LIGHT_GRAY);
+    table.setAutoCreateRowSorter (true);
+    table.setSelectionMode (ListSelectionModel.SINGLE_SELECTION);
+
+    locationsText.setEditable (false);
+    locationsText.setFont (font);
+    subsetsText.setEditable (false);
+    subsetsText.setFont (font);
+
+    JSplitPane splitPane = new JSplitPane (JSplitPane.VERTICAL_SPLIT,
+        new JScrollPane (table), new JScrollPane (locationsText));
+    splitPane.setResizeWeight (0.7);
+
+    JTabbedPane tabbedPane = new JTabbedPane ();
+    tabbedPane.addTab ("Duplicated files", splitPane);
+    tabbedPane.addTab ("Subset disks", new JScrollPane (subsetsText));
+    tabbedPane.setPreferredSize (new Dimension (1000, 700));
+    add (tabbedPane, BorderLayout.CENTER);
+
+    JPanel panel = new JPanel ();
+    panel.add (btnHide);
+    add (panel, BorderLayout.SOUTH);
+
+    btnHide.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        setVisible (false);
+      }
+    });
+
+    table.getSelectionModel ().addListSelectionListener (new ListSelectionListener ()
+    {
+      @Override
+      public void valueChanged (ListSelectionEvent e)
+      {
+        if (e.getValueIsAdjusting ())
+          return;
+
+        int selectedRow = table.getSelectedRow ();
+        if (selectedRow < 0)
+          return;
+
+        int actualRow = table.convertRowIndexToModel (selectedRow);
+        showLocations (fileTableModel.lines.get (actualRow));
+      }
+    });
+
+    setDefaultCloseOperation (HIDE_ON_CLOSE);
+  }
+
+  // called from RootFolderData when the FileHashSwingWorker has completed
+  public void setTableData ()
+  {
+    fileTableModel.setLines (fileHashIndex.getMostDuplicated ());
+
+    int[] columnWidths = { 300, 60, 60, 60, 500 };
+    TableColumnModel tcm = table.getColumnModel ();
+    for (int i = 0; i < columnWidths.length; i++)
+      tcm.getColumn (i).setPreferredWidth (columnWidths[i]);
+    tcm.getColumn (1).setCellRenderer (NumberRenderer.getIntegerRenderer ());
+
+    locationsText.setText (String.format ("Disks ......... %,9d%nFiles ......... %,9d%n"
+        + "Unique files .. %,9d%n", fileHashIndex.getTotalDisks (),
+        fileHashIndex.getTotalFiles (), fileHashIndex.getUniqueFiles ()));
+
+    StringBuilder text = new StringBuilder ();
+    Map<DiskDetails, DiskDetails> subsets = fileHashIndex.getSubsetDisks ();
+    text.append (String.format ("%,d disks contain only files found on a larger disk%n%n",
+        subsets.size ()));
+    for (Map.Entry<DiskDetails, DiskDetails> entry : subsets.entrySet ())
+      text.append (String.format ("%s%n  -> %s%n", entry.getKey ().getRootName (),
+          entry.getValue ().getRootName ()));
+    subsetsText.setText (text.toString ());
+    subsetsText.setCaretPosition (0);
+
+    pack ();
+    setLocationRelativeTo (null);
+    setVisible (true);
+  }
+
+  private void showLocations (List<FileDetails> locations)
+  {
+    StringBuilder text = new StringBuilder ();
+    text.append (String.format ("%s%n%n", locations.get (0).getHash ()));
+    for (FileDetails fileDetails : locations)
+      text.append (String.format ("%s%n", fileDetails));
+    locationsText.setText (text.toString ());
+    locationsText.setCaretPosition (0);
+  }
+
+  class FileTableModel extends AbstractTableModel
+  {
+    final String[] headers = { "Name", "Size", "# copies", "# disks", "First disk" };
+    private List<List<FileDetails>> lines = new ArrayList<List<FileDetails>> ();
+    private final List<Integer> diskCounts = new ArrayList<Integer> ();
+
+    void setLines (List<List<FileDetails>> lines)
+    {
+      this.lines = lines;
+      diskCounts.clear ();
+      for (List<FileDetails> locations : lines)
+        diskCounts.add (fileHashIndex.countDisks (locations));
+      fireTableStructureChanged ();
+    }
+
+    @Override
+    public int getRowCount ()
+    {
+      return lines.size ();
+    }
+
+    @Override
+    public int getColumnCount ()
+    {
+      return headers.length;
+    }
+
+    @Override
+    public String getColumnName (int column)
+    {
+      return headers[column];
+    }
+
+    @Override
+    public Object getValueAt (int rowIndex, int columnIndex)
+    {
+      List<FileDetails> locations = lines.get (rowIndex);
+      FileDetails first = locations.get (0);
+      switch (columnIndex)
+      {
+        case 0:
+          return first.getFileName ();
+        case 1:
+          return first.getSize ();
+        case 2:
+          return locations.size ();
+        case 3:
+          return diskCounts.get (rowIndex);
+        case 4:
+          return first.getDiskDetails ().getRootName ();
+        default:
+          return "?";
+      }
+    }
+
+    @Override
+    public Class<?> getColumnClass (int columnIndex)
+    {
+      return lines.isEmpty () ? Object.class : getValueAt (0, columnIndex).getClass ();
+    }
+  }
+}
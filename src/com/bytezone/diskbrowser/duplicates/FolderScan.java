@@ -0,0 +1,128 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Calls scan () for every disk image under a folder on a pool of worker threads, and
+// hands each result to report () on the calling thread as soon as it is ready. Only a
+// few disks are queued at a time, so a folder of any size can be scanned. A list of
+// disks that has already been found can be scanned in the same way.
+abstract class FolderScan<T>
+{
+  private final int threads = Runtime.getRuntime ().availableProcessors ();
+  private CompletionService<T> completionService;
+  private int inProgress;
+
+  // runs on a worker thread, and should catch its own exceptions
+  protected abstract T scan (File file);
+
+  // runs on the thread that called run ()
+  protected abstract void report (T result);
+
+  // checked before each disk is queued and after each result is reported
+  protected boolean isCancelled ()
+  {
+    return false;
+  }
+
+  // returns false if the scan was interrupted or cancelled
+  public boolean run (File rootFolder)
+  {
+    return run (rootFolder, null);
+  }
+
+  public boolean run (List<File> files)
+  {
+    return run (null, files);
+  }
+
+  private boolean run (File rootFolder, List<File> files)
+  {
+    ExecutorService executor = Executors.newFixedThreadPool (threads);
+    completionService = new ExecutorCompletionService<T> (executor);
+
+    try
+    {
+      if (files == null)
+        traverse (rootFolder);
+      else
+        for (File file : files)
+          submit (file);
+      while (inProgress > 0)
+        reportNext ();
+      return true;
+    }
+    catch (InterruptedException e)
+    {
+      return false;
+    }
+    finally
+    {
+      executor.shutdownNow ();
+    }
+  }
+
+  private void traverse (File directory) throws InterruptedException
+  {
+    File[] files = directory.listFiles ();
+    if (files == null)
+      return;
+
+    for (File file : files)
+    {
+      if (file.isHidden ())
+        continue;
+
+      if (file.isDirectory ())
+        traverse (file);
+      else if (Utility.validFileType (file.getName ().toLowerCase ())
+          && file.length () > 0)
+        submit (file);
+    }
+  }
+
+  private void submit (final File file) throws InterruptedException
+  {
+    if (isCancelled ())
+      throw new InterruptedException ();
+    if (inProgress >= threads * 4)
+      reportNext ();
+
+    completionService.submit (new Callable<T> ()
+    {
+      @Override
+      public T call ()
+      {
+        return scan (file);
+      }
+    });
+    ++inProgress;
+  }
+
+  private void reportNext () throws InterruptedException
+  {
+    try
+    {
+      report (completionService.take ().get ());
+    }
+    catch (ExecutionException e)
+    {
+      e.printStackTrace ();
+    }
+    finally
+    {
+      --inProgress;
+    }
+
+    if (isCancelled ())
+      throw new InterruptedException ();
+  }
+}
@@ -0,0 +1,118 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.util.Arrays;
+
+// MinHash signatures over the set of sector hashes of a disk image. Two disks
+// that share most of their sectors (e.g. a crack and its original) will have
+// signatures that agree in roughly the same proportion.
+// see https://en.wikipedia.org/wiki/MinHash
+public class MinHash
+{
+  static final int SECTOR_SIZE = 256;
+  static final int TOTAL_HASHES = 128;
+  static final int BANDS = 32;                              // used by SimilarityIndex
+  static final int ROWS = TOTAL_HASHES / BANDS;
+
+  // each hash function is (a * x + b) with a random odd multiplier
+  private static final long[] multipliers = new long[TOTAL_HASHES];
+  private static final long[] increments = new long[TOTAL_HASHES];
+
+  static
+  {
+    long seed = 0x2545F4914F6CDD1DL;
+    for (int i = 0; i < TOTAL_HASHES; i++)
+    {
+      seed = mix (seed + 0x9E3779B97F4A7C15L);
+      multipliers[i] = seed | 1;
+      seed = mix (seed + 0x9E3779B97F4A7C15L);
+      increments[i] = seed;
+    }
+  }
+
+  private MinHash ()
+  {
+  }
+
+  // Sectors filled with a single value (usually zero) are ignored, otherwise
+  // every blank disk would look similar to every other one.
+  static long[] getSectorHashes (byte[] buffer)
+  {
+    int totalSectors = buffer.length / SECTOR_SIZE;
+    long[] hashes = new long[totalSectors];
+    int count = 0;
+
+    for (int ptr = 0, max = totalSectors * SECTOR_SIZE; ptr < max; ptr += SECTOR_SIZE)
+    {
+      if (isUniform (buffer, ptr))
+        continue;
+
+      long hash = 0xCBF29CE484222325L;                      // FNV-1a
+      for (int i = ptr, end = ptr + SECTOR_SIZE; i < end; i++)
+      {
+        hash ^= buffer[i] & 0xFF;
+        hash *= 0x100000001B3L;
+      }
+      hashes[count++] = hash;
+    }
+
+    return Arrays.copyOf (hashes, count);
+  }
+
+  private static boolean isUniform (byte[] buffer, int ptr)
+  {
+    byte first = buffer[ptr];
+    for (int i = ptr + 1, max = ptr + SECTOR_SIZE; i < max; i++)
+      if (buffer[i] != first)
+        return false;
+    return true;
+  }
+
+  static int[] getSignature (long[] sectorHashes)
+  {
+    if (sectorHashes.length == 0)
+      return null;
+
+    int[] signature = new int[TOTAL_HASHES];
+    Arrays.fill (signature, Integer.MAX_VALUE);
+
+    for (long sectorHash : sectorHashes)
+      for (int i = 0; i < TOTAL_HASHES; i++)
+      {
+        int value = (int) ((sectorHash * multipliers[i] + increments[i]) >>> 33);
+        if (value < signature[i])
+          signature[i] = value;
+      }
+
+    return signature;
+  }
+
+  // estimated Jaccard similarity of the two sector sets
+  static double getSimilarity (int[] signature1, int[] signature2)
+  {
+    int matches = 0;
+    for (int i = 0; i < TOTAL_HASHES; i++)
+      if (signature1[i] == signature2[i])
+        ++matches;
+    return (double) matches / TOTAL_HASHES;
+  }
+
+  // hash of one band of the signature, used as an LSH bucket key
+  static long getBandKey (int[] signature, int band)
+  {
+    long key = band;
+    for (int i = band * ROWS, max = i + ROWS; i < max; i++)
+      key = mix (key * 31 + signature[i]);
+    return key;
+  }
+
+  // finaliser from MurmurHash3
+  private static long mix (long value)
+  {
+    value ^= value >>> 33;
+    value *= 0xFF51AFD7ED558CCDL;
+    value ^= value >>> 33;
+    value *= 0xC4CEB93FE1A85EC5L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
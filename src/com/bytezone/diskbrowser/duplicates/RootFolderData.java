@@ -28,17 +28,26 @@ public class RootFolderData
   private int rootFolderNameLength;
 
   final Map<Long, DiskDetails> checksumMap = new HashMap<Long, DiskDetails> ();
+  final Map<Long, List<DiskDetails>> sizeMap = new HashMap<Long, List<DiskDetails>> ();
   final Map<String, DiskDetails> fileNameMap = new TreeMap<String, DiskDetails> ();
+  final FileHashIndex fileHashIndex = new FileHashIndex ();
+  final SimilarityIndex similarityIndex = new SimilarityIndex ();
 
   public DisksWindow disksWindow;
+  FilesWindow filesWindow;
+  private boolean hashingFiles;
+  SimilarDisksWindow similarDisksWindow;
 
   public final List<DiskTableSelectionListener> listeners =
       new ArrayList<DiskTableSelectionListener> ();
 
   public boolean doChecksums;
+  public boolean contentChecksums;          // see ContentChecksum
 
   int totalDisks;
   int totalFolders;
+  int duplicateDisks;
+  int disksHashed;                          // those that needed a full checksum
 
   // total files for each suffix (uncompressed, .gz, .zip, total)
   int[][] typeTotals;
@@ -87,7 +96,7 @@ public class RootFolderData
     });
   }
 
-  public void count (boolean doChecksums)
+  public void count (boolean doChecksums, boolean contentChecksums)
   {
     if (dialogTotals == null)
       createWindows ();
@@ -96,6 +105,7 @@ public class RootFolderData
     setButton (btnCancel);
 
     this.doChecksums = doChecksums;
+    this.contentChecksums = contentChecksums;
     progressPanel.cancelled = false;
     disksWindow = new DisksWindow (this);
     dialogTotals.setVisible (true);
@@ -117,6 +127,49 @@ public class RootFolderData
     }
   }
 
+  // called from DisksWindow, the files are only hashed once at a time
+  void hashFiles ()
+  {
+    if (filesWindow != null)
+      filesWindow.setVisible (true);
+    else if (!hashingFiles)
+    {
+      hashingFiles = true;
+      new FileHashSwingWorker (this).execute ();
+    }
+  }
+
+  public void filesHashed (boolean completed)             // SwingWorker has completed
+  {
+    hashingFiles = false;
+    if (!completed)
+      return;
+
+    System.out.printf ("%nFiles hashed : %,7d%n", fileHashIndex.getTotalFiles ());
+    System.out.printf ("Unique files : %,7d%n", fileHashIndex.getUniqueFiles ());
+
+    filesWindow = new FilesWindow (this);
+    filesWindow.setTableData ();
+  }
+
+  // called from DisksWindow
+  void findSimilarDisks ()
+  {
+    if (similarDisksWindow == null)
+      new SimilarDisksSwingWorker (this).execute ();
+    else
+      similarDisksWindow.setVisible (true);
+  }
+
+  public void disksFingerprinted ()                       // SwingWorker has completed
+  {
+    System.out.printf ("%nDisks fingerprinted : %,7d%n",
+        similarityIndex.getTotalDisks ());
+
+    similarDisksWindow = new SimilarDisksWindow (this);
+    similarDisksWindow.setTableData ();
+  }
+
   private void setButton (JButton button)
   {
     southPanel.removeAll ();
@@ -130,6 +183,8 @@ public class RootFolderData
     this.rootFolder = rootFolder;
     rootFolderNameLength = rootFolder.getAbsolutePath ().length ();
     disksWindow = null;           // force a recount
+    filesWindow = null;
+    similarDisksWindow = null;
   }
 
   String getRootFolderPathText ()
@@ -146,9 +201,16 @@ public class RootFolderData
     typeTotals = new int[4][Utility.suffixes.size ()];
     totalDisks = 0;
     totalFolders = 0;
+    duplicateDisks = 0;
+    disksHashed = 0;
 
     checksumMap.clear ();
+    sizeMap.clear ();
     fileNameMap.clear ();
+    fileHashIndex.clear ();
+    similarityIndex.clear ();
+    filesWindow = null;
+    similarDisksWindow = null;
   }
 
   public File getRootFolder ()
@@ -184,23 +246,103 @@ public class RootFolderData
   private void checkDuplicates (File file, String filename)
   {
     String rootName = file.getAbsolutePath ().substring (rootFolderNameLength);
-    DiskDetails diskDetails = new DiskDetails (file, rootName, filename, doChecksums);
+    boolean checksumNow = doChecksums && contentChecksums;
+    DiskDetails diskDetails =
+        new DiskDetails (file, rootName, filename, checksumNow, contentChecksums);
 
     if (fileNameMap.containsKey (filename))
       fileNameMap.get (filename).addDuplicateName (diskDetails);
     else
       fileNameMap.put (filename, diskDetails);
 
-    if (doChecksums)
+    if (checksumNow)
+    {
+      ++disksHashed;
+      addChecksum (diskDetails);
+    }
+    else if (doChecksums)
     {
-      long checksum = diskDetails.getChecksum ();
-      if (checksumMap.containsKey (checksum))
-        checksumMap.get (checksum).addDuplicateChecksum (diskDetails);
-      else
-        checksumMap.put (checksum, diskDetails);
+      List<DiskDetails> sameSize = sizeMap.get (diskDetails.getSize ());
+      if (sameSize == null)
+      {
+        sameSize = new ArrayList<DiskDetails> (1);
+        sizeMap.put (diskDetails.getSize (), sameSize);
+      }
+      sameSize.add (diskDetails);
     }
   }
 
+  // Called from DuplicateSwingWorker once every disk has been found. A file can only
+  // have an identical copy of the same size, and two files that differ at either end
+  // can't be copies, so only the files that are still alike after both tests are
+  // read in full. The others keep a checksum of 0 until they are selected.
+  void checksumDisks ()
+  {
+    for (List<DiskDetails> sameSize : sizeMap.values ())
+    {
+      if (sameSize.size () < 2)
+        continue;
+
+      Map<Long, List<DiskDetails>> partials = new HashMap<Long, List<DiskDetails>> ();
+      for (DiskDetails diskDetails : sameSize)
+      {
+        if (progressPanel.cancelled)
+          return;
+
+        long partial = diskDetails.getPartialChecksum ();
+        List<DiskDetails> alike = partials.get (partial);
+        if (alike == null)
+        {
+          alike = new ArrayList<DiskDetails> (1);
+          partials.put (partial, alike);
+        }
+        alike.add (diskDetails);
+      }
+
+      boolean small = sameSize.get (0).getSize () <= FileDigest.EDGE_SIZE * 2;
+      for (Map.Entry<Long, List<DiskDetails>> entry : partials.entrySet ())
+        if (entry.getValue ().size () > 1)
+          for (DiskDetails diskDetails : entry.getValue ())
+          {
+            if (progressPanel.cancelled)
+              return;
+
+            if (small)
+              diskDetails.setChecksum (entry.getKey ());
+            else
+            {
+              diskDetails.calculateChecksum ();
+              ++disksHashed;
+            }
+            addChecksum (diskDetails);
+          }
+    }
+  }
+
+  private void addChecksum (DiskDetails diskDetails)
+  {
+    long checksum = diskDetails.getChecksum ();
+    if (checksumMap.containsKey (checksum))
+    {
+      checksumMap.get (checksum).addDuplicateChecksum (diskDetails);
+      ++duplicateDisks;
+    }
+    else
+      checksumMap.put (checksum, diskDetails);
+  }
+
+  // every disk found, including those with duplicate names
+  List<DiskDetails> getDiskList ()
+  {
+    List<DiskDetails> list = new ArrayList<DiskDetails> (totalDisks);
+    for (DiskDetails original : fileNameMap.values ())
+    {
+      list.add (original);
+      list.addAll (original.getDuplicateNames ());
+    }
+    return list;
+  }
+
   public List<DiskDetails> listDuplicates (long checksum)
   {
     List<DiskDetails> list = new ArrayList<DiskDetails> ();
@@ -246,8 +388,8 @@ public class RootFolderData
 
     if (doChecksums)
     {
-      System.out.printf ("Unique checksums: %,7d%n", checksumMap.size ());
-      System.out.printf ("Duplicate disks : %,7d%n", totalDisks - checksumMap.size ());
+      System.out.printf ("Disks hashed    : %,7d%n", disksHashed);
+      System.out.printf ("Duplicate disks : %,7d%n", duplicateDisks);
     }
   }
 
@@ -298,7 +440,7 @@ public class RootFolderData
         //        y += lineHeight;
         //        g.drawString (line, x, y);
         line = String.format ("duplicates ...                             %,7d%n",
-            totalDisks - checksumMap.size ());
+            duplicateDisks);
         y += lineHeight + 10;
         g.drawString (line, x, y);
       }
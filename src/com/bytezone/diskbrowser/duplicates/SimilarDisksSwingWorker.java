@@ -0,0 +1,111 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+
+// Calculates a MinHash signature for every disk on a pool of worker threads. The
+// signature is kept in the DiskDetails so each image is only ever read once.
+public class SimilarDisksSwingWorker extends SwingWorker<Void, Integer>
+{
+  private final RootFolderData rootFolderData;
+  private final List<DiskDetails> disks;
+  private final ProgressMonitor progressMonitor;
+
+  public SimilarDisksSwingWorker (RootFolderData rootFolderData)
+  {
+    this.rootFolderData = rootFolderData;
+    disks = rootFolderData.getDiskList ();
+    progressMonitor = new ProgressMonitor (rootFolderData.disksWindow,
+        "Fingerprinting the sectors on each disk", "", 0, disks.size ());
+  }
+
+  @Override
+  protected Void doInBackground () throws Exception
+  {
+    SimilarityIndex similarityIndex = rootFolderData.similarityIndex;
+    similarityIndex.clear ();
+
+    int threads = Runtime.getRuntime ().availableProcessors ();
+    ExecutorService executor = Executors.newFixedThreadPool (threads);
+    CompletionService<DiskDetails> completionService =
+        new ExecutorCompletionService<DiskDetails> (executor);
+
+    try
+    {
+      for (DiskDetails diskDetails : disks)
+        completionService.submit (new DiskFingerprinter (diskDetails));
+
+      for (int i = 0; i < disks.size (); i++)
+      {
+        if (progressMonitor.isCanceled ())
+          break;
+
+        DiskDetails diskDetails = completionService.take ().get ();
+        if (diskDetails.getSignature () != null)
+          similarityIndex.add (diskDetails, diskDetails.getSignature ());
+
+        if ((i % 50) == 0)
+          publish (i);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow ();
+    }
+
+    return null;
+  }
+
+  @Override
+  protected void process (List<Integer> chunks)
+  {
+    int completed = chunks.get (chunks.size () - 1);
+    progressMonitor.setProgress (completed);
+    progressMonitor.setNote (String.format ("%,d of %,d disks", completed, disks.size ()));
+  }
+
+  @Override
+  protected void done ()
+  {
+    progressMonitor.close ();
+    if (!progressMonitor.isCanceled ())
+      rootFolderData.disksFingerprinted ();
+  }
+
+  class DiskFingerprinter implements Callable<DiskDetails>
+  {
+    private final DiskDetails diskDetails;
+
+    public DiskFingerprinter (DiskDetails diskDetails)
+    {
+      this.diskDetails = diskDetails;
+    }
+
+    @Override
+    public DiskDetails call () throws Exception
+    {
+      if (diskDetails.getSignature () != null)      // already calculated
+        return diskDetails;
+
+      try
+      {
+        byte[] buffer = DiskImageReader.getDiskBuffer (diskDetails.getFile ());
+        if (buffer != null)
+          diskDetails.setSignature (
+              MinHash.getSignature (MinHash.getSectorHashes (buffer)));
+      }
+      catch (Exception e)
+      {
+        System.out.println ("Error reading " + diskDetails.getRootName ());
+      }
+      return diskDetails;
+    }
+  }
+}
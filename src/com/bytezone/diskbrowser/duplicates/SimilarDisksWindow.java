@@ -0,0 +1,172 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumnModel;
+
+import com.bytezone.diskbrowser.duplicates.SimilarityIndex.Cluster;
+import com.bytezone.diskbrowser.utilities.NumberRenderer;
+
+// Displays the clusters of similar disks found by the SimilarityIndex
+public class SimilarDisksWindow extends JFrame
+{
+  private final JButton btnHide = new JButton ("Close");
+  private final JComboBox<String> thresholdList =
+      new JComboBox<String> (new String[] { "50%", "60%", "70%", "80%", "90%" });
+  private final JLabel totalsLabel = new JLabel ();
+
+  private final SimilarTableModel similarTableModel = new SimilarTableModel ();
+  private final JTable table = new JTable (similarTableModel);
+  private final SimilarityIndex similarityIndex;
+
+  public SimilarDisksWindow (RootFolderData rootFolderData)
+  {
+    super ("Similar disks - " + rootFolderData.getRootFolderPathText ());
+    this.similarityIndex = rootFolderData.similarityIndex;
+
+    table.setFillsViewportHeight (true);
+    table.setShowGrid (true);
+    table.setGridColor (Color.LIGHT_GRAY);
+
+    JScrollPane scrollPane =
+        new JScrollPane (table, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
+            ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    scrollPane.setPreferredSize (new Dimension (900, 600));
+    add (scrollPane, BorderLayout.CENTER);
+
+    JPanel topPanel = new JPanel ();
+    topPanel.add (new JLabel ("Minimum similarity"));
+    topPanel.add (thresholdList);
+    topPanel.add (totalsLabel);
+    add (topPanel, BorderLayout.NORTH);
+
+    JPanel panel = new JPanel ();
+    panel.add (btnHide);
+    add (panel, BorderLayout.SOUTH);
+
+    btnHide.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        setVisible (false);
+      }
+    });
+
+    thresholdList.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        setThreshold ();
+      }
+    });
+
+    int[] columnWidths = { 60, 700, 100 };
+    TableColumnModel tcm = table.getColumnModel ();
+    for (int i = 0; i < columnWidths.length; i++)
+      tcm.getColumn (i).setPreferredWidth (columnWidths[i]);
+    tcm.getColumn (2).setCellRenderer (NumberRenderer.getPercentRenderer ());
+
+    setDefaultCloseOperation (HIDE_ON_CLOSE);
+    pack ();
+    setLocationRelativeTo (null);
+  }
+
+  // called from RootFolderData when the SimilarDisksSwingWorker has completed
+  public void setTableData ()
+  {
+    setThreshold ();
+    setVisible (true);
+  }
+
+  private void setThreshold ()
+  {
+    double threshold = SimilarityIndex.DEFAULT_THRESHOLD
+        + thresholdList.getSelectedIndex () / 10.0;
+    List<Cluster> clusters = similarityIndex.getClusters (threshold);
+    similarTableModel.setClusters (clusters);
+    totalsLabel.setText (String.format ("    %,d clusters from %,d disks",
+        clusters.size (), similarityIndex.getTotalDisks ()));
+  }
+
+  class SimilarTableModel extends AbstractTableModel
+  {
+    final String[] headers = { "Cluster", "Disk", "Similarity" };
+    private final List<Cluster> lineClusters = new ArrayList<Cluster> ();
+    private final List<Integer> lineClusterNo = new ArrayList<Integer> ();
+    private final List<Integer> lineMember = new ArrayList<Integer> ();
+
+    void setClusters (List<Cluster> clusters)
+    {
+      lineClusters.clear ();
+      lineClusterNo.clear ();
+      lineMember.clear ();
+
+      int clusterNo = 0;
+      for (Cluster cluster : clusters)
+      {
+        ++clusterNo;
+        for (int i = 0; i < cluster.size (); i++)
+        {
+          lineClusters.add (cluster);
+          lineClusterNo.add (clusterNo);
+          lineMember.add (i);
+        }
+      }
+
+      fireTableDataChanged ();
+    }
+
+    @Override
+    public int getRowCount ()
+    {
+      return lineClusters.size ();
+    }
+
+    @Override
+    public int getColumnCount ()
+    {
+      return headers.length;
+    }
+
+    @Override
+    public String getColumnName (int column)
+    {
+      return headers[column];
+    }
+
+    @Override
+    public Object getValueAt (int rowIndex, int columnIndex)
+    {
+      Cluster cluster = lineClusters.get (rowIndex);
+      int member = lineMember.get (rowIndex);
+      switch (columnIndex)
+      {
+        case 0:
+          return lineClusterNo.get (rowIndex);
+        case 1:
+          return cluster.getDisk (member).getRootName ();
+        case 2:
+          return cluster.getSimilarity (member);
+        default:
+          return "?";
+      }
+    }
+
+    @Override
+    public Class<?> getColumnClass (int columnIndex)
+    {
+      return columnIndex == 1 ? String.class
+          : columnIndex == 0 ? Integer.class : Double.class;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package com.bytezone.diskbrowser.duplicates;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Groups disks with similar MinHash signatures. Signatures are split into bands,
+// and only disks that fall into the same bucket for at least one band are ever
+// compared, so there is no need to compare every pair of disks. Each cluster has a
+// representative, its first disk, and every other disk in it meets the threshold
+// against the representative - similarity is never carried from one disk to the next.
+// Only representatives are kept in the buckets, so a bucket of near-identical disks
+// costs one comparison per disk.
+public class SimilarityIndex
+{
+  static final double DEFAULT_THRESHOLD = 0.5;
+  private static final int MAX_CANDIDATES = 64;       // representatives tried per bucket
+
+  private final List<DiskDetails> disks = new ArrayList<DiskDetails> ();
+  private final List<int[]> signatures = new ArrayList<int[]> ();
+
+  void add (DiskDetails diskDetails, int[] signature)
+  {
+    disks.add (diskDetails);
+    signatures.add (signature);
+  }
+
+  void clear ()
+  {
+    disks.clear ();
+    signatures.clear ();
+  }
+
+  public int getTotalDisks ()
+  {
+    return disks.size ();
+  }
+
+  // Each cluster is sorted by similarity to its representative, and the clusters
+  // are sorted largest first.
+  public List<Cluster> getClusters (double threshold)
+  {
+    int totalDisks = disks.size ();
+    List<Map<Long, List<Integer>>> buckets = new ArrayList<Map<Long, List<Integer>>> ();
+    for (int band = 0; band < MinHash.BANDS; band++)
+      buckets.add (new HashMap<Long, List<Integer>> ());
+
+    int[] representative = new int[totalDisks];
+    List<Integer> representatives = new ArrayList<Integer> ();
+
+    for (int i = 0; i < totalDisks; i++)
+    {
+      int[] signature = signatures.get (i);
+      long[] keys = new long[MinHash.BANDS];
+
+      // join the most similar representative that shares a bucket with this disk
+      Set<Integer> tried = new HashSet<Integer> ();
+      int best = -1;
+      double bestSimilarity = threshold;
+      for (int band = 0; band < MinHash.BANDS; band++)
+      {
+        keys[band] = MinHash.getBandKey (signature, band);
+        List<Integer> bucket = buckets.get (band).get (keys[band]);
+        if (bucket == null)
+          continue;
+
+        for (int candidate : bucket)
+          if (tried.add (candidate))
+          {
+            double similarity =
+                MinHash.getSimilarity (signature, signatures.get (candidate));
+            if (similarity >= bestSimilarity)
+            {
+              best = candidate;
+              bestSimilarity = similarity;
+            }
+          }
+      }
+
+      if (best >= 0)
+      {
+        representative[i] = best;
+        continue;
+      }
+
+      // a new representative
+      representative[i] = i;
+      representatives.add (i);
+      for (int band = 0; band < MinHash.BANDS; band++)
+      {
+        List<Integer> bucket = buckets.get (band).get (keys[band]);
+        if (bucket == null)
+        {
+          bucket = new ArrayList<Integer> (2);
+          buckets.get (band).put (keys[band], bucket);
+        }
+        if (bucket.size () < MAX_CANDIDATES)
+          bucket.add (i);
+      }
+    }
+
+    // the representative is always the first disk in its cluster
+    Map<Integer, Cluster> clusterMap = new HashMap<Integer, Cluster> ();
+    for (int i : representatives)
+      clusterMap.put (i, new Cluster ());
+    for (int i = 0; i < totalDisks; i++)
+      clusterMap.get (representative[i]).add (disks.get (i), signatures.get (i));
+
+    List<Cluster> clusters = new ArrayList<Cluster> ();
+    for (Cluster cluster : clusterMap.values ())
+      if (cluster.size () > 1)
+      {
+        cluster.sort ();
+        clusters.add (cluster);
+      }
+
+    Collections.sort (clusters, new Comparator<Cluster> ()
+    {
+      @Override
+      public int compare (Cluster cluster1, Cluster cluster2)
+      {
+        return cluster2.size () - cluster1.size ();
+      }
+    });
+
+    return clusters;
+  }
+
+  public class Cluster
+  {
+    private final List<DiskDetails> members = new ArrayList<DiskDetails> ();
+    private final List<int[]> memberSignatures = new ArrayList<int[]> ();
+    private final List<Double> similarities = new ArrayList<Double> ();
+
+    void add (DiskDetails diskDetails, int[] signature)
+    {
+      members.add (diskDetails);
+      memberSignatures.add (signature);
+    }
+
+    // order by similarity to the representative, which stays first
+    void sort ()
+    {
+      final int[] reference = memberSignatures.get (0);
+      List<Integer> order = new ArrayList<Integer> ();
+      final double[] values = new double[members.size ()];
+      for (int i = 0; i < members.size (); i++)
+      {
+        order.add (i);
+        values[i] = MinHash.getSimilarity (reference, memberSignatures.get (i));
+      }
+
+      Collections.sort (order, new Comparator<Integer> ()
+      {
+        @Override
+        public int compare (Integer i1, Integer i2)
+        {
+          return Double.compare (values[i2], values[i1]);
+        }
+      });
+
+      List<DiskDetails> sortedMembers = new ArrayList<DiskDetails> ();
+      for (int i : order)
+      {
+        sortedMembers.add (members.get (i));
+        similarities.add (values[i]);
+      }
+      members.clear ();
+      members.addAll (sortedMembers);
+      memberSignatures.clear ();
+    }
+
+    public int size ()
+    {
+      return members.size ();
+    }
+
+    public DiskDetails getDisk (int index)
+    {
+      return members.get (index);
+    }
+
+    public double getSimilarity (int index)
+    {
+      return similarities.get (index);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.bytezone.diskbrowser.gallery;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.*;
+
+// Displays a thumbnail of every picture file found on the selected disks. The list
+// only asks for the cells that are visible, and any thumbnail whose image has been
+// discarded is reloaded from the cache on a background thread.
+public class GalleryWindow extends JFrame
+{
+  private static final int CELL_WIDTH = ThumbnailCache.THUMBNAIL_WIDTH + 16;
+  private static final int CELL_HEIGHT = ThumbnailCache.THUMBNAIL_HEIGHT + 24;
+
+  private final DefaultListModel<Thumbnail> listModel = new DefaultListModel<Thumbnail> ();
+  private final JList<Thumbnail> list = new JList<Thumbnail> (listModel);
+  private final JLabel statusLabel = new JLabel ();
+  private final JButton btnHide = new JButton ("Close");
+
+  private final ThumbnailCache thumbnailCache = new ThumbnailCache ();
+  private final ExecutorService loader = Executors.newSingleThreadExecutor ();
+  private final ThumbnailSwingWorker worker;
+
+  public GalleryWindow (String title, List<File> disks)
+  {
+    super ("Image gallery - " + title);
+
+    list.setLayoutOrientation (JList.HORIZONTAL_WRAP);
+    list.setVisibleRowCount (-1);
+    list.setFixedCellWidth (CELL_WIDTH);
+    list.setFixedCellHeight (CELL_HEIGHT);
+    list.setCellRenderer (new ThumbnailRenderer ());
+    list.setBackground (Color.DARK_GRAY);
+
+    JScrollPane scrollPane =
+        new JScrollPane (list, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
+            ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    scrollPane.getVerticalScrollBar ().setUnitIncrement (CELL_HEIGHT / 4);
+    scrollPane.setPreferredSize (new Dimension (CELL_WIDTH * 6 + 20, CELL_HEIGHT * 4));
+    add (scrollPane, BorderLayout.CENTER);
+
+    JPanel panel = new JPanel (new BorderLayout ());
+    panel.add (statusLabel, BorderLayout.CENTER);
+    panel.add (btnHide, BorderLayout.EAST);
+    add (panel, BorderLayout.SOUTH);
+
+    btnHide.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        dispose ();
+      }
+    });
+
+    addWindowListener (new WindowAdapter ()
+    {
+      @Override
+      public void windowClosed (WindowEvent e)
+      {
+        worker.cancel (true);
+        loader.shutdownNow ();
+      }
+    });
+
+    setDefaultCloseOperation (DISPOSE_ON_CLOSE);
+    pack ();
+    setLocationRelativeTo (null);
+
+    statusLabel.setText (String.format ("Reading %,d disks", disks.size ()));
+    worker = new ThumbnailSwingWorker (this, disks, thumbnailCache);
+    worker.execute ();
+  }
+
+  void addThumbnails (List<Thumbnail> thumbnails, int disksCompleted, int totalDisks)
+  {
+    for (Thumbnail thumbnail : thumbnails)
+      listModel.addElement (thumbnail);
+    statusLabel.setText (String.format ("%,d images from %,d of %,d disks",
+        listModel.size (), disksCompleted, totalDisks));
+  }
+
+  void finished ()
+  {
+    statusLabel.setText (String.format ("%,d images", listModel.size ()));
+  }
+
+  // called by the renderer, so only ever for visible cells
+  private void reload (final Thumbnail thumbnail, final int index)
+  {
+    thumbnail.loading = true;
+    loader.submit (new Runnable ()
+    {
+      @Override
+      public void run ()
+      {
+        thumbnail.setImage (thumbnailCache.read (thumbnail.getCacheFile ()));
+        SwingUtilities.invokeLater (new Runnable ()
+        {
+          @Override
+          public void run ()
+          {
+            thumbnail.loading = false;
+            Rectangle bounds = list.getCellBounds (index, index);
+            if (bounds != null)
+              list.repaint (bounds);
+          }
+        });
+      }
+    });
+  }
+
+  class ThumbnailRenderer extends JLabel implements ListCellRenderer<Thumbnail>
+  {
+    public ThumbnailRenderer ()
+    {
+      setOpaque (true);
+      setHorizontalAlignment (CENTER);
+      setHorizontalTextPosition (CENTER);
+      setVerticalTextPosition (BOTTOM);
+    }
+
+    @Override
+    public Component getListCellRendererComponent (JList<? extends Thumbnail> list,
+        Thumbnail thumbnail, int index, boolean isSelected, boolean cellHasFocus)
+    {
+      BufferedImage image = thumbnail.getImage ();
+      if (image == null && !thumbnail.loading)
+        reload (thumbnail, index);
+
+      setIcon (image == null ? null : new ImageIcon (image));
+      setText (thumbnail.getFileName ());
+      setToolTipText (thumbnail.toString ());
+      setBackground (isSelected ? list.getSelectionBackground () : Color.DARK_GRAY);
+      setForeground (isSelected ? list.getSelectionForeground () : Color.WHITE);
+
+      return this;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.bytezone.diskbrowser.gallery;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.ref.SoftReference;
+
+// A scaled image of one picture file. The image itself is only softly held, as it
+// can always be reloaded from the thumbnail cache.
+public class Thumbnail
+{
+  private final String diskName;
+  private final String fileName;
+  private final String hash;
+  private final char renderingType;             // see HiResImage
+  private final File cacheFile;
+
+  private SoftReference<BufferedImage> imageReference;
+  boolean loading;
+
+  public Thumbnail (String diskName, String fileName, String hash, char renderingType,
+      File cacheFile, BufferedImage image)
+  {
+    this.diskName = diskName;
+    this.fileName = fileName;
+    this.hash = hash;
+    this.renderingType = renderingType;
+    this.cacheFile = cacheFile;
+    setImage (image);
+  }
+
+  public String getDiskName ()
+  {
+    return diskName;
+  }
+
+  public String getFileName ()
+  {
+    return fileName;
+  }
+
+  public String getHash ()
+  {
+    return hash;
+  }
+
+  public char getRenderingType ()
+  {
+    return renderingType;
+  }
+
+  public File getCacheFile ()
+  {
+    return cacheFile;
+  }
+
+  public synchronized BufferedImage getImage ()
+  {
+    return imageReference == null ? null : imageReference.get ();
+  }
+
+  synchronized void setImage (BufferedImage image)
+  {
+    imageReference = image == null ? null : new SoftReference<BufferedImage> (image);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return String.format ("%s : %s", diskName, fileName);
+  }
+}
@@ -0,0 +1,178 @@
+package com.bytezone.diskbrowser.gallery;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// Thumbnails are stored as PNG files named by the hash of the picture file's data
+// and the rendering key (palette, quirks, monochrome) they were drawn with. The key
+// only includes the options the picture's format uses, so a picture that brings its
+// own colours is drawn once rather than once per palette. Each disk also gets a small
+// manifest listing the hashes of its pictures, so that a disk which has not changed
+// never needs to be opened again.
+public class ThumbnailCache
+{
+  static final int THUMBNAIL_WIDTH = 160;
+  static final int THUMBNAIL_HEIGHT = 120;
+  private static final String DIGEST = "SHA-256";
+
+  private final File cacheFolder;
+  private final File manifestFolder;
+
+  public ThumbnailCache ()
+  {
+    this (new File (System.getProperty ("user.home"),
+        ".diskbrowser" + File.separator + "thumbnails"));
+  }
+
+  public ThumbnailCache (File cacheFolder)
+  {
+    this.cacheFolder = cacheFolder;
+    manifestFolder = new File (cacheFolder, "disks");
+    manifestFolder.mkdirs ();
+  }
+
+  File getThumbnailFile (String hash, String renderingKey)
+  {
+    return new File (cacheFolder, hash + "-" + renderingKey + ".png");
+  }
+
+  BufferedImage read (File thumbnailFile)
+  {
+    try
+    {
+      return ImageIO.read (thumbnailFile);
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+  }
+
+  // write to a temporary file first, as several workers may produce the same picture
+  void write (BufferedImage image, File thumbnailFile)
+  {
+    File tmp = null;
+    try
+    {
+      tmp = File.createTempFile ("thumb", ".png", cacheFolder);
+      ImageIO.write (image, "png", tmp);
+      Files.move (tmp.toPath (), thumbnailFile.toPath (),
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Unable to write " + thumbnailFile);
+    }
+    finally
+    {
+      if (tmp != null)
+        tmp.delete ();                    // already gone if it was moved
+    }
+  }
+
+  // Returns each picture on the disk as {hash, rendering type, file name}, or null if
+  // the disk has not been seen before or has been modified since.
+  List<String[]> getManifest (File disk)
+  {
+    File manifest = getManifestFile (disk);
+    if (!manifest.exists ())
+      return null;
+
+    try
+    {
+      List<String> lines = Files.readAllLines (manifest.toPath (), StandardCharsets.UTF_8);
+      if (lines.isEmpty () || !lines.get (0).equals (getDiskStamp (disk)))
+        return null;
+
+      List<String[]> pictures = new ArrayList<String[]> ();
+      for (int i = 1; i < lines.size (); i++)
+      {
+        String[] chunks = lines.get (i).split ("\t", 3);
+        if (chunks.length != 3 || chunks[1].length () != 1)
+          return null;                        // written by an older version
+        pictures.add (chunks);
+      }
+      return pictures;
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+  }
+
+  void putManifest (File disk, List<Thumbnail> thumbnails)
+  {
+    List<String> lines = new ArrayList<String> ();
+    lines.add (getDiskStamp (disk));
+    for (Thumbnail thumbnail : thumbnails)
+      lines.add (thumbnail.getHash () + "\t" + thumbnail.getRenderingType () + "\t"
+          + thumbnail.getFileName ());
+
+    try
+    {
+      Files.write (getManifestFile (disk).toPath (), lines, StandardCharsets.UTF_8);
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Unable to write manifest for " + disk);
+    }
+  }
+
+  private File getManifestFile (File disk)
+  {
+    byte[] path = disk.getAbsolutePath ().getBytes (StandardCharsets.UTF_8);
+    return new File (manifestFolder, hash (path) + ".txt");
+  }
+
+  private String getDiskStamp (File disk)
+  {
+    return disk.length () + " " + disk.lastModified ();
+  }
+
+  static String hash (byte[] buffer)
+  {
+    try
+    {
+      MessageDigest digest = MessageDigest.getInstance (DIGEST);
+      return HexFormatter.getHexString (digest.digest (buffer), 0,
+          digest.getDigestLength (), false);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException (e);
+    }
+  }
+
+  // scale to fit inside the thumbnail size while keeping the aspect ratio
+  static BufferedImage scale (BufferedImage image)
+  {
+    double ratio = Math.min ((double) THUMBNAIL_WIDTH / image.getWidth (),
+        (double) THUMBNAIL_HEIGHT / image.getHeight ());
+    ratio = Math.min (ratio, 1.0);
+    int width = Math.max (1, (int) (image.getWidth () * ratio));
+    int height = Math.max (1, (int) (image.getHeight () * ratio));
+
+    BufferedImage thumbnail = new BufferedImage (width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = thumbnail.createGraphics ();
+    g.setRenderingHint (RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage (image, 0, 0, width, height, null);
+    g.dispose ();
+
+    return thumbnail;
+  }
+}
@@ -0,0 +1,209 @@
+package com.bytezone.diskbrowser.gallery;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.applefile.HiResImage;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.gui.DataSource;
+
+// Opens each disk on a pool of worker threads and renders a thumbnail of every
+// picture file it contains. Thumbnails are passed to the window as each disk
+// completes. The rendering options can change while the gallery is open, so each
+// picture's key is taken when it is drawn, and a thumbnail is only cached if the
+// options were the same once it had been drawn.
+public class ThumbnailSwingWorker extends SwingWorker<Void, Thumbnail>
+{
+  private final GalleryWindow galleryWindow;
+  private final List<File> disks;
+  private final ThumbnailCache thumbnailCache;
+  private int disksCompleted;
+
+  public ThumbnailSwingWorker (GalleryWindow galleryWindow, List<File> disks,
+      ThumbnailCache thumbnailCache)
+  {
+    this.galleryWindow = galleryWindow;
+    this.disks = disks;
+    this.thumbnailCache = thumbnailCache;
+  }
+
+  @Override
+  protected Void doInBackground () throws Exception
+  {
+    int threads = Runtime.getRuntime ().availableProcessors ();
+    ExecutorService executor = Executors.newFixedThreadPool (threads);
+    CompletionService<List<Thumbnail>> completionService =
+        new ExecutorCompletionService<List<Thumbnail>> (executor);
+
+    try
+    {
+      for (File disk : disks)
+        completionService.submit (new DiskRenderer (disk));
+
+      for (int i = 0; i < disks.size () && !isCancelled (); i++)
+      {
+        List<Thumbnail> thumbnails = completionService.take ().get ();
+        disksCompleted = i + 1;
+        publish (thumbnails.toArray (new Thumbnail[thumbnails.size ()]));
+      }
+    }
+    finally
+    {
+      executor.shutdownNow ();
+    }
+
+    return null;
+  }
+
+  @Override
+  protected void process (List<Thumbnail> chunks)
+  {
+    galleryWindow.addThumbnails (chunks, disksCompleted, disks.size ());
+  }
+
+  @Override
+  protected void done ()
+  {
+    if (!isCancelled ())
+      galleryWindow.finished ();
+  }
+
+  private List<Thumbnail> getThumbnails (File disk)
+  {
+    List<Thumbnail> thumbnails = fromManifest (disk);
+    if (thumbnails != null)
+      return thumbnails;
+
+    thumbnails = new ArrayList<Thumbnail> ();
+
+    FormattedDisk formattedDisk = DiskFactory.createDisk (disk);
+    if (formattedDisk == null)
+      return thumbnails;
+
+    if (formattedDisk instanceof DualDosDisk)
+    {
+      DualDosDisk dualDosDisk = (DualDosDisk) formattedDisk;
+      for (int i = 0; i < 2; i++)
+      {
+        dualDosDisk.setCurrentDiskNo (i);
+        render (disk, dualDosDisk.getCurrentDisk (), thumbnails);
+      }
+    }
+    else
+      render (disk, formattedDisk, thumbnails);
+
+    thumbnailCache.putManifest (disk, thumbnails);
+
+    return thumbnails;
+  }
+
+  // an unchanged disk can be displayed without being opened, but only if every
+  // one of its pictures has already been drawn with the current options
+  private List<Thumbnail> fromManifest (File disk)
+  {
+    List<String[]> pictures = thumbnailCache.getManifest (disk);
+    if (pictures == null)
+      return null;
+
+    List<Thumbnail> thumbnails = new ArrayList<Thumbnail> (pictures.size ());
+    for (String[] picture : pictures)
+    {
+      char renderingType = picture[1].charAt (0);
+      if (!isRenderingType (renderingType))
+        return null;
+
+      String renderingKey = HiResImage.getRenderingKey (renderingType);
+      File thumbnailFile = thumbnailCache.getThumbnailFile (picture[0], renderingKey);
+      if (!thumbnailFile.exists ())
+        return null;
+      thumbnails.add (new Thumbnail (disk.getName (), picture[2], picture[0],
+          renderingType, thumbnailFile, null));
+    }
+
+    return thumbnails;
+  }
+
+  private boolean isRenderingType (char renderingType)
+  {
+    return renderingType == HiResImage.RENDER_FILE
+        || renderingType == HiResImage.RENDER_COLOUR
+        || renderingType == HiResImage.RENDER_PALETTE
+        || renderingType == HiResImage.RENDER_QUIRKS;
+  }
+
+  private void render (File disk, FormattedDisk formattedDisk, List<Thumbnail> thumbnails)
+  {
+    for (AppleFileSource afs : formattedDisk.getCatalogList ())
+    {
+      try
+      {
+        DataSource dataSource = afs.getDataSource ();
+        if (!(dataSource instanceof HiResImage))
+          continue;
+
+        // the picture is only drawn if its thumbnail isn't in the cache
+        HiResImage hiResImage = (HiResImage) dataSource;
+        char renderingType = hiResImage.getRenderingType ();
+        String hash = ThumbnailCache.hash (hiResImage.buffer);
+        String renderingKey = HiResImage.getRenderingKey (renderingType);
+        File thumbnailFile = thumbnailCache.getThumbnailFile (hash, renderingKey);
+
+        BufferedImage thumbnail = thumbnailFile.exists ()
+            ? thumbnailCache.read (thumbnailFile) : null;
+        if (thumbnail == null)
+        {
+          BufferedImage image = hiResImage.getImage ();
+          if (image == null)
+            continue;
+          thumbnail = ThumbnailCache.scale (image);
+          if (renderingKey.equals (HiResImage.getRenderingKey (renderingType)))
+            thumbnailCache.write (thumbnail, thumbnailFile);
+        }
+
+        thumbnails.add (new Thumbnail (disk.getName (), afs.getUniqueName (), hash,
+            renderingType, thumbnailFile, thumbnail));
+      }
+      catch (Exception e)       // a damaged file should not stop the rest of the disk
+      {
+        System.out.printf ("Error drawing %s in %s%n", afs.getUniqueName (),
+            disk.getName ());
+      }
+    }
+  }
+
+  class DiskRenderer implements Callable<List<Thumbnail>>
+  {
+    private final File disk;
+
+    public DiskRenderer (File disk)
+    {
+      this.disk = disk;
+    }
+
+    @Override
+    public List<Thumbnail> call () throws Exception
+    {
+      try
+      {
+        return getThumbnails (disk);
+      }
+      catch (Exception e)
+      {
+        System.out.println ("Error reading " + disk.getName ());
+        return new ArrayList<Thumbnail> ();
+      }
+    }
+  }
+}
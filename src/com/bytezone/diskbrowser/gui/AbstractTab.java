@@ -101,14 +101,33 @@ abstract class AbstractTab extends JPanel implements Tab
     return (DefaultMutableTreeNode) tree.getModel ().getRoot ();
   }
 
+  // The nodeNo'th node in breadth-first order, or the last node if there are fewer.
+  // Only the parents of the nodes that come before it are asked for their children,
+  // so lazy nodes further down the tree are left alone.
   protected DefaultMutableTreeNode findNode (int nodeNo)
   {
-    DefaultMutableTreeNode rootNode = getRootNode ();
-    Enumeration<TreeNode> children = rootNode.breadthFirstEnumeration ();
-    int count = 0;
-    DefaultMutableTreeNode selectNode = null;
-    while (children.hasMoreElements () && ++count <= nodeNo)
-      selectNode = (DefaultMutableTreeNode) children.nextElement ();
+    if (nodeNo < 1)
+      return null;
+
+    DefaultMutableTreeNode selectNode = getRootNode ();
+    List<DefaultMutableTreeNode> parents = new ArrayList<DefaultMutableTreeNode> ();
+    parents.add (selectNode);
+    int count = 1;
+
+    while (count < nodeNo && !parents.isEmpty ())
+    {
+      List<DefaultMutableTreeNode> children = new ArrayList<DefaultMutableTreeNode> ();
+      for (DefaultMutableTreeNode parent : parents)
+        for (int i = 0; i < parent.getChildCount (); i++)
+        {
+          selectNode = (DefaultMutableTreeNode) parent.getChildAt (i);
+          if (++count == nodeNo)
+            return selectNode;
+          children.add (selectNode);
+        }
+      parents = children;
+    }
+
     return selectNode;
   }
 
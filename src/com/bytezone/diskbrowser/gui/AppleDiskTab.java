@@ -7,13 +7,11 @@ package com.bytezone.diskbrowser.gui;
  ****************************************************************************************/
 
 import java.awt.Font;
-import java.util.Enumeration;
 
 import javax.swing.JTree;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.TreeNode;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.disk.DiskFactory;
@@ -23,6 +21,7 @@ import com.bytezone.diskbrowser.gui.RedoHandler.RedoEvent;
 class AppleDiskTab extends AbstractTab
 {
   FormattedDisk disk;
+  private CatalogNodeIndex nodeIndex;             // the node of each file in the tree
 
   public AppleDiskTab (FormattedDisk disk, DiskAndFileSelector selector,
       RedoHandler redoHandler, Font font, FileSelectedEvent event)
@@ -75,6 +74,7 @@ class AppleDiskTab extends AbstractTab
   {
     this.disk = disk;
     setTree (disk.getCatalogTree ());
+    nodeIndex = new CatalogNodeIndex (getRootNode ());
     setSelectionListener (tree);
   }
 
@@ -96,6 +96,7 @@ class AppleDiskTab extends AbstractTab
     String currentFile = (o == null) ? null : ((AppleFileSource) o).getUniqueName ();
     disk = DiskFactory.createDisk (disk.getAbsolutePath ());
     setTree (disk.getCatalogTree ());
+    nodeIndex = new CatalogNodeIndex (getRootNode ());
     setSelectionListener (tree);
     selectNode (currentFile);
   }
@@ -120,20 +121,9 @@ class AppleDiskTab extends AbstractTab
 
   private DefaultMutableTreeNode findNode (String nodeName)
   {
-    DefaultMutableTreeNode rootNode = getRootNode ();
-    Enumeration<TreeNode> children = rootNode.breadthFirstEnumeration ();
-    while (children.hasMoreElements ())
-    {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) children.nextElement ();
-      Object o = node.getUserObject ();
-      if (o instanceof AppleFileSource)
-      {
-        AppleFileSource afs = (AppleFileSource) node.getUserObject ();
-        if (nodeName.equals (afs.getUniqueName ()))
-          return node;
-      }
-    }
-    return null;
+    // when the disk knows the file, look for its node rather than comparing names
+    AppleFileSource file = disk.getFile (nodeName);
+    return file != null ? nodeIndex.getNode (file) : nodeIndex.getNode (nodeName);
   }
 
   public boolean contains (FormattedDisk disk)
@@ -0,0 +1,145 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.LazyTreeNode;
+
+// Maps each AppleFileSource in a catalog tree to the node that holds it. The nodes
+// that already exist are indexed, along with the files that lazy nodes are still
+// holding, so only the lazy node that holds the file being looked for is asked to
+// create its children. The tree is indexed again whenever a file isn't found, in
+// case it has changed.
+class CatalogNodeIndex
+{
+  private final DefaultMutableTreeNode rootNode;
+  private final Map<Object, DefaultMutableTreeNode> nodes =
+      new HashMap<Object, DefaultMutableTreeNode> ();
+  private final Map<Object, LazyTreeNode> lazyParents =
+      new HashMap<Object, LazyTreeNode> ();
+  private final Map<String, AppleFileSource> names =
+      new HashMap<String, AppleFileSource> ();
+
+  CatalogNodeIndex (DefaultMutableTreeNode rootNode)
+  {
+    this.rootNode = rootNode;
+  }
+
+  DefaultMutableTreeNode getNode (AppleFileSource file)
+  {
+    DefaultMutableTreeNode node = find (file);
+    if (node == null)
+    {
+      index ();
+      node = find (file);
+    }
+    return node;
+  }
+
+  // for files that the disk doesn't know by name (Wizardry, Infocom etc)
+  DefaultMutableTreeNode getNode (String uniqueName)
+  {
+    AppleFileSource file = names.get (uniqueName);
+    if (file == null)
+    {
+      index ();
+      file = names.get (uniqueName);
+    }
+    return file == null ? null : getNode (file);
+  }
+
+  private DefaultMutableTreeNode find (Object userObject)
+  {
+    DefaultMutableTreeNode node = nodes.get (userObject);
+    if (node == null)                             // a leaf that a lazy node is holding
+    {
+      LazyTreeNode parent = lazyParents.remove (userObject);
+      if (parent == null)
+        return null;
+      load (parent);
+      node = nodes.get (userObject);
+    }
+    else
+      attach (node);
+
+    return node != null && node.getRoot () == rootNode ? node : null;
+  }
+
+  // create the node's children, and those of any lazy nodes that are holding it
+  private void load (LazyTreeNode node)
+  {
+    attach (node);
+    node.getChildCount ();
+    add (node);
+  }
+
+  // a node that a lazy node is holding isn't in the tree until that node is loaded
+  private void attach (DefaultMutableTreeNode node)
+  {
+    LazyTreeNode parent = lazyParents.remove (node);
+    if (parent != null)
+      load (parent);
+  }
+
+  private void index ()
+  {
+    nodes.clear ();
+    lazyParents.clear ();
+    names.clear ();
+    add (rootNode);
+  }
+
+  // index this node and the nodes below it, in breadth-first order so that the
+  // first node to hold a file is the one that is found
+  private void add (DefaultMutableTreeNode top)
+  {
+    List<DefaultMutableTreeNode> queue = new ArrayList<DefaultMutableTreeNode> ();
+    queue.add (top);
+
+    for (int i = 0; i < queue.size (); i++)
+    {
+      DefaultMutableTreeNode node = queue.get (i);
+      Object userObject = node.getUserObject ();
+      if (userObject != null && !nodes.containsKey (userObject))
+      {
+        nodes.put (userObject, node);
+        addName (userObject);
+      }
+
+      List<Object> pending =
+          node instanceof LazyTreeNode ? ((LazyTreeNode) node).getPending () : null;
+      if (pending == null)
+      {
+        for (int j = 0; j < node.getChildCount (); j++)
+          queue.add ((DefaultMutableTreeNode) node.getChildAt (j));
+        continue;
+      }
+
+      for (Object child : pending)
+      {
+        if (!lazyParents.containsKey (child))
+          lazyParents.put (child, (LazyTreeNode) node);
+        if (child instanceof DefaultMutableTreeNode)
+          queue.add ((DefaultMutableTreeNode) child);
+        else
+          addName (child);
+      }
+    }
+  }
+
+  private void addName (Object userObject)
+  {
+    if (userObject instanceof AppleFileSource)
+    {
+      AppleFileSource file = (AppleFileSource) userObject;
+      String name = file.getUniqueName ();
+      if (!names.containsKey (name))
+        names.put (name, file);
+    }
+  }
+}
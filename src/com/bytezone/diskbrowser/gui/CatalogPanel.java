@@ -19,6 +19,7 @@ import java.util.prefs.Preferences;
 import javax.swing.JTabbedPane;
 import javax.swing.JTree;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker.StateValue;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -55,6 +56,7 @@ class CatalogPanel extends JTabbedPane
   private final RedoHandler redoHandler;
   private CloseTabAction closeTabAction;
   private final RootFolderData rootFolderData = new RootFolderData ();
+  private SessionSwingWorker sessionWorker;
 
   public CatalogPanel (MenuHandler mh, RedoHandler redoHandler, Preferences prefs)
   {
@@ -98,55 +100,48 @@ class CatalogPanel extends JTabbedPane
       System.out.println ("Last sectors : " + lastSectorsUsed);
     }
 
-    DiskSelectedEvent diskEvent = null;
-    if (!lastDiskUsed.isEmpty ())
-    {
-      diskEvent = DiskSelectedEvent.create (this, lastDiskUsed);
-      if (diskEvent != null)
-      {
-        FormattedDisk fd = diskEvent.getFormattedDisk ();
-        if (lastDosUsed >= 0 && fd instanceof DualDosDisk)
-          ((DualDosDisk) fd).setCurrentDiskNo (lastDosUsed);
-      }
-    }
-    else
-      System.out.println ("no disk selected");
+    // show an empty tree until the folder has been listed and the disk opened
+    TreeBuilder treeBuilder = new TreeBuilder (rootDirectoryFile, false);
+    insertFileSystemTab (new FileSystemTab (rootDirectoryFile, selector, redoHandler,
+        font, treeBuilder));
+
+    sessionWorker = new SessionSwingWorker (this, fileTab, treeBuilder, lastDiskUsed,
+        lastDosUsed, lastFileUsed, lastSectorsUsed);
+  }
+
+  // called on the EDT when the SessionSwingWorker has finished
+  void restoreSession (SessionSwingWorker worker)
+  {
+    if (worker.fileTab != fileTab)         // the root folder has since been replaced
+      return;
 
-    insertFileSystemTab (diskEvent);
+    // the user may have opened a disk from the duplicates table in the meantime
+    boolean restoreDisk = diskTabs.isEmpty ();
+    fileTab.restore (worker.fileNodes, restoreDisk ? worker.diskEvent : null);
 
-    if (diskEvent != null)
+    if (restoreDisk && worker.lastDiskRestored)
     {
       AppleDiskTab tab = null;
-      FormattedDisk fd = diskEvent.getFormattedDisk ();
+      FormattedDisk fd = worker.diskEvent.getFormattedDisk ();
 
-      if (!lastFileUsed.isEmpty ())
+      if (!worker.lastFileUsed.isEmpty ())
       {
-        AppleFileSource afs = fd.getFile (lastFileUsed);
-        if (afs != null)
-        {
-          FileSelectedEvent fileEvent = FileSelectedEvent.create (this, afs);
-          tab = new AppleDiskTab (fd, selector, redoHandler, font, fileEvent);
-        }
+        if (worker.fileEvent != null)
+          tab = new AppleDiskTab (fd, selector, redoHandler, font, worker.fileEvent);
         else
-          tab = new AppleDiskTab (fd, selector, redoHandler, font, lastFileUsed);
-      }
-      else if (!lastSectorsUsed.isEmpty ())
-      {
-        SectorSelectedEvent sectorEvent =
-            SectorSelectedEvent.create (this, fd, lastSectorsUsed);
-        tab = new AppleDiskTab (fd, selector, redoHandler, font, sectorEvent);
+          tab = new AppleDiskTab (fd, selector, redoHandler, font, worker.lastFileUsed);
       }
+      else if (worker.sectorEvent != null)
+        tab = new AppleDiskTab (fd, selector, redoHandler, font, worker.sectorEvent);
       else
         tab = new AppleDiskTab (fd, selector, redoHandler, font);
 
-      if (tab != null)
-      {
-        diskTabs.add (tab);
-        add (tab, "D" + diskTabs.size ());
-      }
-      else
-        System.out.println ("No disk tab created");
+      diskTabs.add (tab);
+      add (tab, "D" + diskTabs.size ());
+      activate ();
     }
+    else if (getSelectedIndex () == 0)
+      fileTab.activate ();
   }
 
   @Override
@@ -156,16 +151,20 @@ class CatalogPanel extends JTabbedPane
 
     // is the user replacing an existing root folder?
     if (fileTab != null)
+    {
+      fileTab.close ();
       removeTabAt (0);
+    }
+    sessionWorker = null;
 
-    insertFileSystemTab (null);
+    insertFileSystemTab (new FileSystemTab (rootFolderData.getRootFolder (), selector,
+        redoHandler, font));
     setSelectedIndex (0);
   }
 
-  private void insertFileSystemTab (DiskSelectedEvent diskEvent)
+  private void insertFileSystemTab (FileSystemTab fileSystemTab)
   {
-    fileTab = new FileSystemTab (rootFolderData.getRootFolder (), selector, redoHandler,
-        font, diskEvent);
+    fileTab = fileSystemTab;
     fileTab.addTreeMouseListener (new MouseListener ());    // listen for disk selection
     insertTab ("Disk Tree", null, fileTab, "Display Apple disks", 0);
   }
@@ -182,6 +181,10 @@ class CatalogPanel extends JTabbedPane
       setSelectedIndex (1);
     else if (fileTab != null)
       setSelectedIndex (0);
+
+    // the listeners are ready for the disk that the worker opens
+    if (sessionWorker != null && sessionWorker.getState () == StateValue.PENDING)
+      sessionWorker.execute ();
   }
 
   void setCloseTabAction (CloseTabAction action)
@@ -262,6 +265,10 @@ class CatalogPanel extends JTabbedPane
     {
       prefs.put (prefsRootDirectory, fileTab.rootFolder.getAbsolutePath ());
 
+      // nothing has been selected yet, so keep the last session
+      if (sessionWorker != null && !sessionWorker.isDone ())
+        return;
+
       if (diskTabs.size () == 0)
       {
         RedoEvent redoEvent = fileTab.redoData.getCurrentEvent ();
@@ -422,7 +429,7 @@ class CatalogPanel extends JTabbedPane
       DefaultMutableTreeNode selectedNode =
           (DefaultMutableTreeNode) tp.getLastPathComponent ();
       FileNode node = (FileNode) selectedNode.getUserObject ();
-      if (node.file.isDirectory ())
+      if (node.isDirectory ())
       {
         //        lister.catalogLister.setNode (selectedNode);
       }
@@ -0,0 +1,137 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.util.List;
+
+import javax.swing.Action;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.KeyStroke;
+
+import com.bytezone.common.DefaultAction;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.DiskCompare;
+import com.bytezone.diskbrowser.disk.DiskCompare.FileDifference;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+
+// Compares the current disk with another one, lists the files that differ and marks
+// the blocks that differ in the disk layout, then shows those blocks side by side.
+// The other disk is opened and compared by a CompareSwingWorker.
+class CompareAction extends DefaultAction implements DiskSelectionListener
+{
+  private static final int MAX_BLOCKS = 100;      // blocks to show in hex
+
+  private final DiskLayoutPanel diskLayoutPanel;
+  private FormattedDisk currentDisk;
+  private boolean comparing;
+
+  public CompareAction (DiskLayoutPanel diskLayoutPanel)
+  {
+    super ("Compare with disk...",
+        "Show the blocks and files that differ on another disk");
+
+    this.diskLayoutPanel = diskLayoutPanel;
+
+    int mask = Toolkit.getDefaultToolkit ().getMenuShortcutKeyMask ();
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke (KeyEvent.VK_K, mask));
+    setEnabled (false);
+  }
+
+  @Override
+  public void diskSelected (DiskSelectedEvent event)
+  {
+    currentDisk = event.getFormattedDisk ();
+    setEnabled (currentDisk != null && !comparing);
+  }
+
+  @Override
+  public void actionPerformed (ActionEvent e)
+  {
+    FormattedDisk disk1 = getDisk (currentDisk);
+    File file1 = disk1.getDisk ().getFile ();
+
+    JFileChooser chooser = new JFileChooser (file1.getParentFile ());
+    chooser.setDialogTitle ("Compare " + file1.getName () + " with");
+    if (chooser.showOpenDialog (null) != JFileChooser.APPROVE_OPTION)
+      return;
+
+    comparing = true;
+    setEnabled (false);
+    new CompareSwingWorker (this, disk1, chooser.getSelectedFile ()).execute ();
+  }
+
+  // called on the EDT by the CompareSwingWorker, diskCompare is null if it failed
+  void compareFinished (FormattedDisk disk1, File file2, DiskCompare diskCompare,
+      String error, long elapsed)
+  {
+    comparing = false;
+    setEnabled (currentDisk != null);
+
+    if (diskCompare == null)
+    {
+      showError (error);
+      return;
+    }
+
+    if (getDisk (currentDisk) != disk1)        // another disk has been selected
+      return;
+
+    List<DiskAddress> blocks = diskCompare.getDifferentBlocks ();
+    List<FileDifference> files = diskCompare.getFileDifferences ();
+    diskLayoutPanel.setHighlights (blocks);
+
+    if (blocks.isEmpty () && files.isEmpty ())
+    {
+      JOptionPane.showMessageDialog (null, "The disks are the same", "Compare Disks",
+          JOptionPane.INFORMATION_MESSAGE);
+      return;
+    }
+
+    StringBuilder text = new StringBuilder ();
+    text.append (String.format ("%s%n%s%n%n", disk1.getDisk ().getFile (), file2));
+    text.append (String.format ("Blocks that differ : %,d of %,d   (%,d ms)%n%n",
+        blocks.size (), disk1.getDisk ().getTotalBlocks (), elapsed));
+
+    for (FileDifference difference : files)
+      text.append (difference + "\n");
+    if (!files.isEmpty ())
+      text.append ("\n");
+
+    for (int i = 0; i < blocks.size () && i < MAX_BLOCKS; i++)
+      text.append (diskCompare.getHexDump (blocks.get (i)) + "\n");
+    if (blocks.size () > MAX_BLOCKS)
+      text.append (
+          String.format ("... and %,d more blocks%n", blocks.size () - MAX_BLOCKS));
+
+    JTextArea textArea = new JTextArea (text.toString ());
+    textArea.setEditable (false);
+    textArea.setFont (new Font ("Monospaced", Font.PLAIN, 12));
+    textArea.setCaretPosition (0);
+    JScrollPane scrollPane = new JScrollPane (textArea);
+    scrollPane.setPreferredSize (new Dimension (800, 500));
+    JOptionPane.showMessageDialog (null, scrollPane, "Compare Disks",
+        JOptionPane.PLAIN_MESSAGE);
+  }
+
+  // the layout only ever shows one half of a dual-dos disk
+  private FormattedDisk getDisk (FormattedDisk disk)
+  {
+    if (disk instanceof DualDosDisk)
+      return ((DualDosDisk) disk).getCurrentDisk ();
+    return disk;
+  }
+
+  private void showError (String message)
+  {
+    JOptionPane.showMessageDialog (null, message, "Compare Disks",
+        JOptionPane.ERROR_MESSAGE);
+  }
+}
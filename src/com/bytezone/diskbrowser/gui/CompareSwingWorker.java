@@ -0,0 +1,78 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.disk.DiskCompare;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+
+// Opens the other disk and compares it with the current one in the background, and
+// passes the result back to the CompareAction on the EDT.
+class CompareSwingWorker extends SwingWorker<DiskCompare, Void>
+{
+  private final CompareAction compareAction;
+  private final FormattedDisk disk1;
+  private final File file2;
+  private String error;
+  private long elapsed;
+
+  CompareSwingWorker (CompareAction compareAction, FormattedDisk disk1, File file2)
+  {
+    this.compareAction = compareAction;
+    this.disk1 = disk1;
+    this.file2 = file2;
+  }
+
+  @Override
+  protected DiskCompare doInBackground () throws Exception
+  {
+    FormattedDisk disk2 = DiskFactory.createDisk (file2);
+    if (disk2 instanceof DualDosDisk)       // as the current disk is shown
+      disk2 = ((DualDosDisk) disk2).getCurrentDisk ();
+    if (disk2 == null)
+    {
+      error = "Not a disk that can be read";
+      return null;
+    }
+
+    // the other disk is only used here, so it can be changed to match
+    int blockSize = disk1.getDisk ().getBlockSize ();
+    if (disk2.getDisk ().getBlockSize () != blockSize)
+      disk2.getDisk ().setBlockSize (blockSize);
+
+    long start = System.nanoTime ();
+    try
+    {
+      return new DiskCompare (disk1, disk2);
+    }
+    catch (IllegalArgumentException e)
+    {
+      error = e.getMessage ();
+      return null;
+    }
+    finally
+    {
+      elapsed = (System.nanoTime () - start) / 1000000;
+    }
+  }
+
+  @Override
+  protected void done ()
+  {
+    DiskCompare diskCompare = null;
+    try
+    {
+      diskCompare = get ();
+    }
+    catch (InterruptedException | ExecutionException e)
+    {
+      e.printStackTrace ();
+      error = "Unable to compare the disks";
+    }
+    compareAction.compareFinished (disk1, file2, diskCompare, error, elapsed);
+  }
+}
@@ -1,6 +1,8 @@
 package com.bytezone.diskbrowser.gui;
 
 import java.awt.*;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.Enumeration;
@@ -45,6 +47,7 @@ class DataPanel extends JTabbedPane
   boolean hexTextValid;
   boolean assemblerTextValid;
   DataSource currentDataSource;
+  int nextPage;                                 // of a PagedDataSource, -1 if none
 
   final MenuHandler menuHandler;
 
@@ -68,6 +71,26 @@ class DataPanel extends JTabbedPane
     disassemblyText = new JTextArea (10, TEXT_WIDTH);
     setPanel (disassemblyText, "Disassembly");
 
+    // add the next page of a long file when the end of the text comes into view
+    formattedPane.getVerticalScrollBar ().addAdjustmentListener (new AdjustmentListener ()
+    {
+      @Override
+      public void adjustmentValueChanged (AdjustmentEvent e)
+      {
+        JScrollBar scrollBar = (JScrollBar) e.getAdjustable ();
+        int extent = scrollBar.getVisibleAmount ();
+        if (nextPage > 0 && scrollBar.getValue () + 2 * extent >= scrollBar.getMaximum ())
+          SwingUtilities.invokeLater (new Runnable ()
+          {
+            @Override
+            public void run ()
+            {
+              appendPage ();
+            }
+          });
+      }
+    });
+
     imagePanel = new ImagePanel ();
     imagePane =
         new JScrollPane (imagePanel, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
@@ -206,11 +229,26 @@ class DataPanel extends JTabbedPane
     imagePane.getVerticalScrollBar ().setUnitIncrement (font.getSize ());
   }
 
+  // the whole text, including any pages that haven't been scrolled into view yet
   public String getCurrentText ()
   {
     int index = getSelectedIndex ();
-    return index == 0 ? formattedText.getText ()
-        : index == 1 ? hexText.getText () : disassemblyText.getText ();
+    if (index != 0)
+      return index == 1 ? hexText.getText () : disassemblyText.getText ();
+
+    if (nextPage < 0 || !(currentDataSource instanceof PagedDataSource))
+      return formattedText.getText ();
+
+    PagedDataSource dataSource = (PagedDataSource) currentDataSource;
+    StringBuilder text = new StringBuilder (formattedText.getText ());
+    for (int page = nextPage;; page++)
+    {
+      String pageText = dataSource.getPage (page);
+      if (pageText == null)
+        break;
+      text.append (pageText);
+    }
+    return text.toString ();
   }
 
   private JScrollPane setPanel (JTextArea outputPanel, String tabName)
@@ -310,6 +348,28 @@ class DataPanel extends JTabbedPane
   {
     textArea.setText (text);
     textArea.setCaretPosition (0);
+
+    if (textArea == formattedText)
+      nextPage = currentDataSource instanceof PagedDataSource ? 1 : -1;
+  }
+
+  private void appendPage ()
+  {
+    if (nextPage < 0 || !(currentDataSource instanceof PagedDataSource))
+      return;
+
+    PagedDataSource dataSource = (PagedDataSource) currentDataSource;
+    String page = dataSource.getPage (nextPage);
+    while (page != null && page.isEmpty ())          // nothing to show on this page
+      page = dataSource.getPage (++nextPage);
+
+    if (page == null)
+      nextPage = -1;
+    else
+    {
+      ++nextPage;
+      formattedText.append (page);
+    }
   }
 
   private class ImagePanel extends JPanel
@@ -61,7 +61,7 @@ class DiskAndFileSelector
 
   void fireDiskSelectionEvent (FileNode node)
   {
-    if (node.file.isDirectory ())
+    if (node.isDirectory ())
     {
       fireFileNodeSelectionEvent (node);
       currentDisk = null;
@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Desktop;
 import java.awt.EventQueue;
+import java.awt.Graphics;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
@@ -19,6 +20,9 @@ import com.bytezone.diskbrowser.duplicates.RootFolderData;
 public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitListener
 {
   private static final String windowTitle = "Apple ][ Disk Browser";
+  private static final boolean debug = false;
+  private static final long startTime = System.nanoTime ();
+  private boolean painted;
   private final Preferences prefs = Preferences.userNodeForPackage (this.getClass ());
   private WindowSaver windowSaver;
 
@@ -62,6 +66,10 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     RootDirectoryAction rootDirectoryAction = new RootDirectoryAction (rootFolderData);
     rootDirectoryAction.addListener (catalogPanel);
     rootDirectoryAction.addListener (duplicateAction);
+    GalleryAction galleryAction = new GalleryAction (rootFolderData);
+    rootDirectoryAction.addListener (galleryAction);
+    SearchAction searchAction = new SearchAction (diskLayoutPanel);
+    CompareAction compareAction = new CompareAction (diskLayoutPanel);
 
     RefreshTreeAction refreshTreeAction = new RefreshTreeAction (catalogPanel);
     //    PreferencesAction preferencesAction = new PreferencesAction (this, prefs);
@@ -72,6 +80,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     HideLayoutAction hideLayoutAction = new HideLayoutAction (this, layoutBorderPanel);
     ShowFreeSectorsAction showFreeAction =
         new ShowFreeSectorsAction (menuHandler, diskLayoutPanel);
+    ShowContentsAction showContentsAction =
+        new ShowContentsAction (menuHandler, diskLayoutPanel);
     CloseTabAction closeTabAction = new CloseTabAction (catalogPanel);
 
     // add action buttons to toolbar
@@ -88,6 +98,9 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     catalogPanel.addDiskSelectionListener (diskLayoutPanel);
     catalogPanel.addDiskSelectionListener (redoHandler);
     catalogPanel.addDiskSelectionListener (menuHandler);
+    catalogPanel.addDiskSelectionListener (galleryAction);
+    catalogPanel.addDiskSelectionListener (searchAction);
+    catalogPanel.addDiskSelectionListener (compareAction);
 
     catalogPanel.addFileSelectionListener (dataPanel);
     catalogPanel.addFileSelectionListener (diskLayoutPanel);
@@ -119,7 +132,13 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     menuHandler.showCatalogItem.setAction (hideCatalogAction);
     menuHandler.showLayoutItem.setAction (hideLayoutAction);
     menuHandler.showFreeSectorsItem.setAction (showFreeAction);
+    menuHandler.showContentsItem.setAction (showContentsAction);
+    menuHandler.zoomInItem.setAction (new ZoomAction (diskLayoutPanel, -1));
+    menuHandler.zoomOutItem.setAction (new ZoomAction (diskLayoutPanel, 1));
     menuHandler.duplicateItem.setAction (duplicateAction);
+    menuHandler.galleryItem.setAction (galleryAction);
+    menuHandler.searchItem.setAction (searchAction);
+    menuHandler.compareItem.setAction (compareAction);
     menuHandler.closeTabItem.setAction (closeTabAction);
 
     addQuitListener (menuHandler);
@@ -159,6 +178,7 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     // restore the menuHandler items before they are referenced
     fireRestoreEvent ();
     diskLayoutPanel.setFree (menuHandler.showFreeSectorsItem.isSelected ());
+    diskLayoutPanel.setContents (menuHandler.showContentsItem.isSelected ());
 
     // Remove the two optional panels if they were previously hidden
     if (!menuHandler.showLayoutItem.isSelected ())
@@ -170,6 +190,19 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     catalogPanel.activate ();
   }
 
+  // the session is restored in the background, so this is before any disk is read
+  @Override
+  public void paint (Graphics g)
+  {
+    super.paint (g);
+    if (debug && !painted)
+    {
+      painted = true;
+      System.out.printf ("First paint after %,d ms%n",
+          (System.nanoTime () - startTime) / 1000000);
+    }
+  }
+
   private JPanel addPanel (JComponent pane, String title, String location)
   {
     JPanel panel = new JPanel (new BorderLayout ());
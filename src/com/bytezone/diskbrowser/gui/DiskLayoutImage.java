@@ -1,11 +1,15 @@
 package com.bytezone.diskbrowser.gui;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import javax.swing.Scrollable;
@@ -14,6 +18,7 @@ import javax.swing.SwingConstants;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorClassifier;
 import com.bytezone.diskbrowser.disk.SectorType;
 import com.bytezone.diskbrowser.gui.DiskLayoutPanel.LayoutDetails;
 import com.bytezone.diskbrowser.gui.RedoHandler.RedoEvent;
@@ -26,9 +31,16 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
       { Color.WHITE, Color.YELLOW, Color.PINK, Color.CYAN, Color.ORANGE, Color.GREEN };
 
   private boolean showFreeSectors;
+  private boolean showContents;             // colour by SectorClassifier class
   private final DiskLayoutSelection selectionHandler = new DiskLayoutSelection ();
+  private final BitSet highlights = new BitSet ();        // blocks with search hits
   private boolean redo;
 
+  // The overview is drawn from a cached image with one pixel per block, and a series
+  // of smaller ones that each merge pairs of rows from the one before. They are only
+  // built when needed, and only rebuilt when the disk or its sector types change.
+  private final List<BufferedImage> overview = new ArrayList<BufferedImage> ();
+
   // set defaults (used until a real disk is set)
   private int gridWidth = 8;
   private int gridHeight = 35;
@@ -54,9 +66,22 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     gridHeight = layoutDetails.grid.height;         // height in blocks
 
     setPreferredSize (
-        new Dimension (gridWidth * blockWidth + 1, gridHeight * blockHeight + 1));
+        new Dimension (layoutDetails.getWidth () + 1, layoutDetails.getHeight () + 1));
     selectionHandler.setSelection (null);
+    highlights.clear ();
+    overview.clear ();
+
+    repaint ();
+  }
 
+  // same disk, different zoom - the selection and the cached overview are kept
+  void setZoom (LayoutDetails details)
+  {
+    super.setDisk (formattedDisk, details);
+
+    setPreferredSize (
+        new Dimension (layoutDetails.getWidth () + 1, layoutDetails.getHeight () + 1));
+    revalidate ();
     repaint ();
   }
 
@@ -74,6 +99,16 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     }
   }
 
+  public void setShowContents (boolean contents)
+  {
+    if (contents != showContents)
+    {
+      showContents = contents;
+      overview.clear ();
+      repaint ();
+    }
+  }
+
   void setSelection (List<DiskAddress> sectors)
   {
     selectionHandler.setSelection (sectors);
@@ -86,6 +121,17 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     repaint ();
   }
 
+  void setHighlights (List<DiskAddress> sectors)
+  {
+    highlights.clear ();
+    for (DiskAddress da : sectors)
+      highlights.set (da.getBlock ());
+
+    if (!sectors.isEmpty ())
+      scrollRectToVisible (layoutDetails.getLocation (sectors.get (0)));
+    repaint ();
+  }
+
   @Override
   protected void paintComponent (Graphics g)
   {
@@ -96,6 +142,12 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
 
     Rectangle clipRect = g.getClipBounds ();
 
+    if (layoutDetails.isOverview ())
+    {
+      paintOverview ((Graphics2D) g, clipRect);
+      return;
+    }
+
     Point topLeft = new Point (clipRect.x / blockWidth * blockWidth,
         clipRect.y / blockHeight * blockHeight);
     Point bottomRight =
@@ -116,29 +168,124 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
         int blockNo = y / blockHeight * gridWidth + x / blockWidth;
         if (blockNo < maxBlock)
         {
-          SectorType type = formattedDisk.getSectorType (blockNo);
-          if (type == null)
+          Color colour = getColour (d, blockNo);
+          if (colour == null)
             System.out.println ("Sector type is null " + blockNo);
           else
           {
             DiskAddress da = d.getDiskAddress (blockNo);
             boolean free = showFreeSectors && formattedDisk.isSectorFree (da);
             boolean selected = selectionHandler.isSelected (da);
-            drawBlock ((Graphics2D) g, type, x, y, free, selected);
+            drawBlock ((Graphics2D) g, colour, x, y, free, selected,
+                highlights.get (blockNo));
           }
         }
       }
   }
 
-  private void drawBlock (Graphics2D g, SectorType type, int x, int y, boolean flagFree,
-      boolean selected)
+  private Color getColour (Disk d, int blockNo)
+  {
+    if (showContents)
+      return SectorClassifier.colours[d.getSectorClass (d.getDiskAddress (blockNo))];
+    SectorType type = formattedDisk.getSectorType (blockNo);
+    return type == null ? null : type.colour;
+  }
+
+  // Only the part of the cached image that is showing is scaled up, so the time
+  // taken depends on the size of the window rather than the size of the disk.
+  private void paintOverview (Graphics2D g, Rectangle clipRect)
+  {
+    BufferedImage image = getOverview (layoutDetails.rowsPerPixel);
+
+    int x1 = clipRect.x / blockWidth;
+    int y1 = clipRect.y / blockHeight;
+    int x2 = Math.min ((clipRect.x + clipRect.width - 1) / blockWidth + 1,
+        image.getWidth ());
+    int y2 = Math.min ((clipRect.y + clipRect.height - 1) / blockHeight + 1,
+        image.getHeight ());
+
+    if (x1 < x2 && y1 < y2)
+      g.drawImage (image, x1 * blockWidth, y1 * blockHeight, x2 * blockWidth,
+          y2 * blockHeight, x1, y1, x2, y2, null);
+
+    g.setColor (Color.BLACK);
+    for (DiskAddress da : selectionHandler)
+      markBlock (g, da.getBlock (), true);
+    for (int blockNo = highlights.nextSetBit (0); blockNo >= 0;
+        blockNo = highlights.nextSetBit (blockNo + 1))
+      markBlock (g, blockNo, false);
+  }
+
+  private void markBlock (Graphics2D g, int blockNo, boolean selected)
+  {
+    Rectangle r = layoutDetails.getLocation (blockNo);
+    if (selected || blockHeight < 4)
+      g.fillRect (r.x, r.y, r.width, r.height);
+    else
+      g.drawRect (r.x, r.y, r.width - 1, r.height - 1);
+  }
+
+  private BufferedImage getOverview (int rowsPerPixel)
+  {
+    Disk d = formattedDisk.getDisk ();
+
+    if (overview.isEmpty ())
+    {
+      BufferedImage image =
+          new BufferedImage (gridWidth, gridHeight, BufferedImage.TYPE_INT_RGB);
+      int[] pixels = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
+      for (int blockNo = 0; blockNo < pixels.length; blockNo++)
+      {
+        Color colour = getColour (d, blockNo);
+        pixels[blockNo] = (colour == null ? backgroundColor : colour).getRGB ();
+      }
+      overview.add (image);
+    }
+
+    int level = Integer.numberOfTrailingZeros (rowsPerPixel);
+    while (overview.size () <= level)
+      overview.add (mergeRows (overview.get (overview.size () - 1)));
+
+    return overview.get (level);
+  }
+
+  // each pixel is the average colour of the two pixels above each other in source
+  private BufferedImage mergeRows (BufferedImage source)
   {
-    g.setColor (type.colour);
+    int width = source.getWidth ();
+    int height = source.getHeight ();
+    int[] in = ((DataBufferInt) source.getRaster ().getDataBuffer ()).getData ();
+
+    BufferedImage image =
+        new BufferedImage (width, (height + 1) / 2, BufferedImage.TYPE_INT_RGB);
+    int[] out = ((DataBufferInt) image.getRaster ().getDataBuffer ()).getData ();
+
+    for (int ptr = 0; ptr < out.length; ptr++)
+    {
+      int top = (ptr / width) * 2 * width + ptr % width;
+      int rgb1 = in[top];
+      int rgb2 = top + width < in.length ? in[top + width] : rgb1;
+
+      // add each pair of channels without letting them carry into the next
+      out[ptr] = ((rgb1 & 0xFEFEFE) >>> 1) + ((rgb2 & 0xFEFEFE) >>> 1)
+          + (rgb1 & rgb2 & 0x010101);
+    }
+
+    return image;
+  }
+
+  private void drawBlock (Graphics2D g, Color colour, int x, int y, boolean flagFree,
+      boolean selected, boolean highlighted)
+  {
+    g.setColor (colour);
     g.fillRect (x + 1, y + 1, blockWidth - 1, blockHeight - 1);
 
-    if (flagFree || selected)
+    if (flagFree || selected || highlighted)
     {
-      g.setColor (getContrastColor (type));
+      g.setColor (getContrastColor (colour));
+
+      if (highlighted)
+        g.drawRect (x + 2, y + 2, blockWidth - 4, blockHeight - 4);
 
       if (flagFree)
         g.drawOval (x + centerOffset - 2, y + 4, 7, 7);
@@ -148,10 +295,10 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     }
   }
 
-  private Color getContrastColor (SectorType type)
+  private Color getContrastColor (Color colour)
   {
     for (Color color : lightColors)
-      if (type.colour == color)
+      if (colour == color)
         return Color.BLACK;
     return Color.WHITE;
   }
@@ -166,14 +313,17 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
   public int getScrollableUnitIncrement (Rectangle visibleRect, int orientation,
       int direction)
   {
-    return orientation == SwingConstants.HORIZONTAL ? blockWidth : blockHeight;
+    // tiny overview blocks would make the scroll bars crawl
+    return orientation == SwingConstants.HORIZONTAL ? Math.max (blockWidth, 15)
+        : Math.max (blockHeight, 15);
   }
 
   @Override
   public int getScrollableBlockIncrement (Rectangle visibleRect, int orientation,
       int direction)
   {
-    return orientation == SwingConstants.HORIZONTAL ? blockWidth * 4 : blockHeight * 10;
+    return orientation == SwingConstants.HORIZONTAL ? Math.max (blockWidth, 15) * 4
+        : Math.max (blockHeight, 15) * 10;
   }
 
   @Override
@@ -251,9 +401,7 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     @Override
     public void mouseClicked (MouseEvent e)
     {
-      int x = e.getX () / blockWidth;
-      int y = e.getY () / blockHeight;
-      int blockNo = y * gridWidth + x;
+      int blockNo = layoutDetails.getBlock (e.getX (), e.getY ());
       DiskAddress da = formattedDisk.getDisk ().getDiskAddress (blockNo);
 
       boolean extend = ((e.getModifiersEx () & InputEvent.SHIFT_DOWN_MASK) > 0);
@@ -7,11 +7,13 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.List;
 import java.util.prefs.Preferences;
 
 import javax.swing.JComponent;
@@ -29,6 +31,7 @@ class DiskLayoutPanel extends JPanel
     implements DiskSelectionListener, FileSelectionListener, RedoListener
 {
   private static final int SIZE = 15;             // basic unit of a display block
+  private static final int MAX_HEIGHT = 520;      // zoom out until the disk fits
 
   private final DiskLayoutImage diskLayoutImage;
   private final ScrollRuler verticalRuler;
@@ -36,6 +39,8 @@ class DiskLayoutPanel extends JPanel
   private final DiskLegendPanel legendPanel;
   private final JScrollPane sp;
   private LayoutDetails layout;
+  private FormattedDisk currentDisk;
+  private int zoom;                               // 0 shows every block in full
 
   public DiskLayoutPanel (MenuHandler mh, Preferences prefs)
   {
@@ -66,11 +71,9 @@ class DiskLayoutPanel extends JPanel
 
   public void setDisk (final FormattedDisk disk)
   {
-    layout = new LayoutDetails (disk);
-    diskLayoutImage.setDisk (disk, layout);
-    verticalRuler.setLayout (layout);
-    horizontalRuler.setLayout (layout);
-    legendPanel.setDisk (disk, layout);
+    currentDisk = disk;
+    zoom = Math.min (zoom, getMaxZoom (disk));
+    setLayoutDetails (disk);
 
     // this is the only way I know of to force a refresh
     sp.setViewportView (diskLayoutImage);
@@ -93,19 +96,62 @@ class DiskLayoutPanel extends JPanel
       @Override
       public void actionPerformed (ActionEvent e)
       {
-        LayoutDetails layout = new LayoutDetails (disk);
-
-        diskLayoutImage.setDisk (disk, layout);
-        legendPanel.setDisk (disk, layout);
-
-        verticalRuler.setLayout (layout);
-        horizontalRuler.setLayout (layout);
+        zoom = Math.min (zoom, getMaxZoom (disk));
+        setLayoutDetails (disk);
       }
     });
 
     repaint ();
   }
 
+  // the legend always shows full size blocks
+  private void setLayoutDetails (FormattedDisk disk)
+  {
+    layout = new LayoutDetails (disk, zoom);
+
+    diskLayoutImage.setDisk (disk, layout);
+    legendPanel.setDisk (disk, new LayoutDetails (disk));
+
+    verticalRuler.setLayout (layout);
+    horizontalRuler.setLayout (layout);
+  }
+
+  // Each step halves the size of a block until it is a single pixel, after that
+  // each step halves the number of rows. The overview stops once the disk fits.
+  public void zoom (int direction)
+  {
+    if (currentDisk == null)
+      return;
+
+    int newZoom = Math.max (0, Math.min (zoom + direction, getMaxZoom (currentDisk)));
+    if (newZoom == zoom)
+      return;
+
+    // keep the block at the top of the view in the same place
+    Rectangle visible = sp.getViewport ().getViewRect ();
+    int firstBlock = layout.getBlock (visible.x, visible.y);
+
+    zoom = newZoom;
+    layout = new LayoutDetails (currentDisk, zoom);
+    diskLayoutImage.setZoom (layout);
+    verticalRuler.setLayout (layout);
+    horizontalRuler.setLayout (layout);
+    sp.validate ();
+
+    Point position = layout.getLocation (firstBlock).getLocation ();
+    sp.getViewport ().setViewPosition (position);
+    repaint ();
+  }
+
+  private int getMaxZoom (FormattedDisk disk)
+  {
+    int maxZoom = 0;
+    LayoutDetails details = new LayoutDetails (disk, maxZoom);
+    while (details.getHeight () > MAX_HEIGHT && details.rowsPerPixel < details.grid.height)
+      details = new LayoutDetails (disk, ++maxZoom);
+    return maxZoom;
+  }
+
   public void setHex (boolean hex)
   {
     verticalRuler.setHex (hex);
@@ -123,6 +169,18 @@ class DiskLayoutPanel extends JPanel
     diskLayoutImage.setShowFreeSectors (free);
   }
 
+  public void setContents (boolean contents)
+  {
+    diskLayoutImage.setShowContents (contents);
+    legendPanel.setShowContents (contents);
+  }
+
+  // marks the blocks that a search found, until another disk is shown
+  public void setHighlights (List<DiskAddress> sectors)
+  {
+    diskLayoutImage.setHighlights (sectors);
+  }
+
   public void addSectorSelectionListener (SectorSelectionListener listener)
   {
     diskLayoutImage.addSectorSelectionListener (listener);
@@ -148,25 +206,72 @@ class DiskLayoutPanel extends JPanel
     diskLayoutImage.setSelection (event.file.getSectors ());
   }
 
+  // Zoom 0 draws each block in full. Zooms 1 to 4 shrink the blocks to 8, 4, 2 and
+  // 1 pixel high, and beyond that every pixel covers more rows of the grid.
   class LayoutDetails
   {
-    Dimension block;
+    Dimension block;              // size of a block on screen
     Dimension grid;
+    int zoom;
+    int rowsPerPixel = 1;         // grid rows covered by a single row of pixels
 
     public LayoutDetails (FormattedDisk formattedDisk)
+    {
+      this (formattedDisk, 0);
+    }
+
+    public LayoutDetails (FormattedDisk formattedDisk, int zoom)
     {
       Disk disk = formattedDisk.getDisk ();
-      block = new Dimension (disk.getBlockSize () == 256 ? SIZE : SIZE * 2, SIZE);
+      int ratio = disk.getBlockSize () == 256 ? 1 : 2;
+      this.zoom = zoom;
       grid = formattedDisk.getGridLayout ();
+
+      if (zoom == 0)
+        block = new Dimension (SIZE * ratio, SIZE);
+      else
+      {
+        int height = zoom < 4 ? 16 >> zoom : 1;
+        block = new Dimension (Math.max (height, 4) * ratio, height);
+        if (zoom > 4)
+          rowsPerPixel = 1 << (zoom - 4);
+      }
+    }
+
+    boolean isOverview ()
+    {
+      return zoom > 0;
+    }
+
+    int getWidth ()
+    {
+      return grid.width * block.width;
+    }
+
+    int getHeight ()
+    {
+      return (grid.height + rowsPerPixel - 1) / rowsPerPixel * block.height;
     }
 
     public Rectangle getLocation (DiskAddress da)
     {
-      int y = da.getBlock () / grid.width;
-      int x = da.getBlock () % grid.width;
-      Rectangle r =
-          new Rectangle (x * block.width, y * block.height, block.width, block.height);
-      return r;
+      return getLocation (da.getBlock ());
+    }
+
+    public Rectangle getLocation (int blockNo)
+    {
+      int y = blockNo / grid.width / rowsPerPixel;
+      int x = blockNo % grid.width;
+      return new Rectangle (x * block.width, y * block.height, block.width,
+          block.height);
+    }
+
+    // the first block under the given point of the image
+    int getBlock (int x, int y)
+    {
+      int column = Math.min (x / block.width, grid.width - 1);
+      int row = Math.min (y / block.height * rowsPerPixel, grid.height - 1);
+      return row * grid.width + column;
     }
 
     @Override
@@ -174,7 +279,8 @@ class DiskLayoutPanel extends JPanel
     {
       StringBuilder text = new StringBuilder ();
       text.append ("Block " + block + "\n");
-      text.append ("Grid  " + grid);
+      text.append ("Grid  " + grid + "\n");
+      text.append ("Zoom  " + zoom);
       return text.toString ();
     }
   }
@@ -225,9 +331,9 @@ class DiskLayoutPanel extends JPanel
       newDisk = ((DualDosDisk) newDisk).getCurrentDisk (); // never set to a Dual-dos disk
     if (newDisk != diskLayoutImage.getDisk ())
     {
-      LayoutDetails layout = new LayoutDetails (newDisk);
+      LayoutDetails layout = new LayoutDetails (newDisk, zoom);
       diskLayoutImage.setDisk (newDisk, layout);
-      legendPanel.setDisk (newDisk, layout);
+      legendPanel.setDisk (newDisk, new LayoutDetails (newDisk));
     }
   }
 }
\ No newline at end of file
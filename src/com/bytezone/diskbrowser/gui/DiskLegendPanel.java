@@ -9,6 +9,7 @@ import com.bytezone.common.Platform;
 import com.bytezone.common.Platform.FontSize;
 import com.bytezone.common.Platform.FontType;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorClassifier;
 import com.bytezone.diskbrowser.disk.SectorType;
 import com.bytezone.diskbrowser.gui.DiskLayoutPanel.LayoutDetails;
 
@@ -18,6 +19,7 @@ class DiskLegendPanel extends DiskPanel
   private static final int TOP = 10;
 
   private final Font font;
+  private boolean showContents;
 
   public DiskLegendPanel ()
   {
@@ -33,6 +35,12 @@ class DiskLegendPanel extends DiskPanel
     repaint ();
   }
 
+  public void setShowContents (boolean contents)
+  {
+    showContents = contents;
+    repaint ();
+  }
+
   @Override
   public Dimension getPreferredSize ()
   {
@@ -52,24 +60,12 @@ class DiskLegendPanel extends DiskPanel
     int count = 0;
     int lineHeight = 20;
 
-    for (SectorType type : formattedDisk.getSectorTypeList ())
-    {
-      int x = LEFT + (count % 2 == 0 ? 0 : 155);
-      int y = TOP + count / 2 * lineHeight;
-      ++count;
-
-      // draw border
-      g.setColor (backgroundColor);
-      g.drawRect (x + 1, y + 1, blockWidth - 1, blockHeight - 1);
-
-      // draw block
-      g.setColor (type.colour);
-      g.fillRect (x + 1, y + 1, blockWidth - 1, blockHeight - 1);
-
-      // draw text
-      g.setColor (Color.BLACK);
-      g.drawString (type.name, x + blockWidth + 4, y + 12);
-    }
+    if (showContents)
+      for (int i = SectorClassifier.EMPTY; i < SectorClassifier.names.length; i++)
+        drawKey (g, count++, SectorClassifier.colours[i], SectorClassifier.names[i]);
+    else
+      for (SectorType type : formattedDisk.getSectorTypeList ())
+        drawKey (g, count++, type.colour, type.name);
 
     int y = ++count / 2 * lineHeight + TOP * 2 + 5;
     int val = formattedDisk.falseNegativeBlocks ();
@@ -85,4 +81,22 @@ class DiskLegendPanel extends DiskPanel
       g.drawString (val + " used sector" + (val == 1 ? "" : "s") + " marked as available",
           10, y);
   }
+
+  private void drawKey (Graphics g, int count, Color colour, String name)
+  {
+    int x = LEFT + (count % 2 == 0 ? 0 : 155);
+    int y = TOP + count / 2 * 20;
+
+    // draw border
+    g.setColor (backgroundColor);
+    g.drawRect (x + 1, y + 1, blockWidth - 1, blockHeight - 1);
+
+    // draw block
+    g.setColor (colour);
+    g.fillRect (x + 1, y + 1, blockWidth - 1, blockHeight - 1);
+
+    // draw text
+    g.setColor (Color.BLACK);
+    g.drawString (name, x + blockWidth + 4, y + 12);
+  }
 }
\ No newline at end of file
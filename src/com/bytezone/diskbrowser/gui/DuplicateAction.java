@@ -43,16 +43,19 @@ public class DuplicateAction extends DefaultAction implements RootDirectoryChang
   {
     if (rootFolderData.disksWindow == null)
     {
-      Object[] options = { "Generate checksums", "Disk names only", "Cancel" };
+      Object[] options =
+          { "Generate checksums", "Checksum contents", "Disk names only", "Cancel" };
       int option = JOptionPane.showOptionDialog (null,
           "This command will list all of the disks in the root folder (including\n"
               + "nested folders). If you wish to generate a checksum for each disk, it\n"
               + "may slow the process down considerably.\n\n"
+              + "Checksumming the contents matches the same disk even when it is\n"
+              + "compressed or saved in a different sector order.\n\n"
               + "Do you wish to generate checksums?",
-          "Generate Disk Listing", JOptionPane.YES_NO_CANCEL_OPTION,
-          JOptionPane.QUESTION_MESSAGE, null, options, options[1]);   // just disk names
-      if (option < 2)
-        rootFolderData.count (option == 0);
+          "Generate Disk Listing", JOptionPane.DEFAULT_OPTION,
+          JOptionPane.QUESTION_MESSAGE, null, options, options[2]);   // just disk names
+      if (option >= 0 && option < 3)
+        rootFolderData.count (option < 2, option == 1);
     }
     else
       rootFolderData.disksWindow.setVisible (true);
@@ -1,13 +1,15 @@
 package com.bytezone.diskbrowser.gui;
 
-import java.io.File;
 import java.util.Comparator;
 
-public class FileComparator implements Comparator<File>
+import com.bytezone.diskbrowser.gui.TreeBuilder.FileNode;
+
+// folders after disks, using the attributes read when the folder was listed
+public class FileComparator implements Comparator<FileNode>
 {
 
   @Override
-  public int compare (File thisFile, File thatFile)
+  public int compare (FileNode thisFile, FileNode thatFile)
   {
     boolean thisFileIsDirectory = thisFile.isDirectory ();
     boolean thatFileIsDirectory = thatFile.isDirectory ();
@@ -17,6 +19,6 @@ public class FileComparator implements Comparator<File>
     if (!thisFileIsDirectory && thatFileIsDirectory)
       return -1;
 
-    return thisFile.getName ().compareToIgnoreCase (thatFile.getName ());
+    return thisFile.file.getName ().compareToIgnoreCase (thatFile.file.getName ());
   }
 }
\ No newline at end of file
@@ -9,7 +9,7 @@ package com.bytezone.diskbrowser.gui;
 
 import java.awt.Font;
 import java.io.File;
-import java.util.Enumeration;
+import java.util.List;
 
 import javax.swing.JTree;
 import javax.swing.event.TreeExpansionEvent;
@@ -18,7 +18,6 @@ import javax.swing.event.TreeSelectionListener;
 import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.ExpandVetoException;
-import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
 import com.bytezone.diskbrowser.disk.DiskFactory;
@@ -29,17 +28,12 @@ import com.bytezone.diskbrowser.gui.TreeBuilder.FileNode;
 class FileSystemTab extends AbstractTab
 {
   File rootFolder;
+  private TreeBuilder treeBuilder;
 
   public FileSystemTab (File folder, DiskAndFileSelector selector, RedoHandler navMan,
       Font font, DiskSelectedEvent diskEvent)
   {
-    super (navMan, selector, font);
-    this.rootFolder = folder;
-
-    TreeBuilder tb = new TreeBuilder (folder);
-
-    setTree (tb.getTree ());
-    setSelectionListener (tree);
+    this (folder, selector, navMan, font, new TreeBuilder (folder));
 
     if (diskEvent == null)
     {
@@ -60,7 +54,28 @@ class FileSystemTab extends AbstractTab
   public FileSystemTab (File folder, DiskAndFileSelector selector, RedoHandler navMan,
       Font font)
   {
-    this (folder, selector, navMan, font, null);    // default to first available disk
+    this (folder, selector, navMan, font, (DiskSelectedEvent) null);  // first disk
+  }
+
+  // the tree may still be waiting for its files - see restore ()
+  FileSystemTab (File folder, DiskAndFileSelector selector, RedoHandler navMan,
+      Font font, TreeBuilder treeBuilder)
+  {
+    super (navMan, selector, font);
+    this.rootFolder = folder;
+    this.treeBuilder = treeBuilder;
+
+    setTree (treeBuilder.getTree ());
+    setSelectionListener (tree);
+  }
+
+  // called by CatalogPanel when the SessionSwingWorker has listed the root folder
+  // and opened the disk that was selected last time
+  void restore (List<FileNode> fileNodes, DiskSelectedEvent diskEvent)
+  {
+    treeBuilder.setRootFiles (fileNodes);
+    if (diskEvent != null)
+      redoHandler.diskSelected (diskEvent);
   }
 
   @Override
@@ -70,13 +85,32 @@ class FileSystemTab extends AbstractTab
     redoHandler.setCurrentData (redoData);
   }
 
+  void close ()
+  {
+    treeBuilder.close ();
+  }
+
   // connected to RefreshTreeAction
   @Override
   public void refresh ()
   {
+    // the watcher keeps the tree up to date, so only the selected folder is read again
+    if (treeBuilder.isWatching ())
+    {
+      DefaultMutableTreeNode node =
+          (DefaultMutableTreeNode) tree.getLastSelectedPathComponent ();
+      if (node == null)
+        node = getRootNode ();
+      else if (!node.getAllowsChildren ())
+        node = (DefaultMutableTreeNode) node.getParent ();
+      treeBuilder.refresh ((FileNode) node.getUserObject ());
+      return;
+    }
+
+    treeBuilder.close ();
     String currentDiskName = ((FileNode) getSelectedObject ()).file.getAbsolutePath ();
-    TreeBuilder tb = new TreeBuilder (rootFolder);
-    setTree (tb.getTree ());
+    treeBuilder = new TreeBuilder (rootFolder);
+    setTree (treeBuilder.getTree ());
     if (currentDiskName != null)
       showNode (findNode (currentDiskName));
     setSelectionListener (tree);
@@ -139,7 +173,7 @@ class FileSystemTab extends AbstractTab
       if (absolutePath.equals (path))
         return childNode;
 
-      if (fn2.file.isDirectory () && absolutePath.startsWith (path))
+      if (fn2.isDirectory () && absolutePath.startsWith (path))
       {
         if (absolutePath.charAt (path.length ()) == File.separatorChar)
         {
@@ -160,16 +194,11 @@ class FileSystemTab extends AbstractTab
     if (fn != null && fn.replaceDisk (disk))
       return;
 
-    // find the old disk and replace it
-    DefaultMutableTreeNode rootNode = getRootNode ();
-    Enumeration<TreeNode> children = rootNode.breadthFirstEnumeration ();
-    while (children.hasMoreElements ())
-    {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) children.nextElement ();
-      fn = (FileNode) node.getUserObject ();
-      if (fn.replaceDisk (disk))
-        break;
-    }
+    // find the old disk by following its path down the tree, and replace it
+    DefaultMutableTreeNode node =
+        findNode (disk.getDisk ().getFile ().getAbsolutePath ());
+    if (node != null)
+      ((FileNode) node.getUserObject ()).replaceDisk (disk);
   }
 
   private void setSelectionListener (JTree tree)
@@ -200,7 +229,7 @@ class FileSystemTab extends AbstractTab
             (DefaultMutableTreeNode) path.getLastPathComponent ();
         FileNode fn = (FileNode) node.getUserObject ();
         if (node.getChildCount () == 0)
-          fn.readFiles ();
+          fn.readFilesInBackground ();
       }
     });
   }
@@ -0,0 +1,163 @@
+package com.bytezone.diskbrowser.gui;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.SwingUtilities;
+
+import com.bytezone.diskbrowser.gui.TreeBuilder.FileNode;
+
+// Watches the folders that TreeBuilder has listed, and passes it the entries that
+// have been created, deleted or modified so that the tree can be kept up to date
+// without being built again. The new entries are read on the watcher's thread, and
+// only the changes to the tree are made on the EDT. If the watch service loses track
+// of a folder, the whole folder is listed again.
+class FolderWatcher implements Runnable
+{
+  private final TreeBuilder treeBuilder;
+  private final WatchService watchService;          // null if it isn't available
+  private final Map<WatchKey, FileNode> folders = new ConcurrentHashMap<> ();
+  private Thread thread;
+
+  FolderWatcher (TreeBuilder treeBuilder)
+  {
+    this.treeBuilder = treeBuilder;
+
+    WatchService service = null;
+    try
+    {
+      service = FileSystems.getDefault ().newWatchService ();
+    }
+    catch (IOException | UnsupportedOperationException e)
+    {
+      System.out.println ("Folders will not be watched : " + e.getMessage ());
+    }
+    watchService = service;
+  }
+
+  boolean isWatching ()
+  {
+    return watchService != null;
+  }
+
+  // Called before a folder is listed, so that nothing created in between is missed.
+  // Folders can be listed off the EDT, so this may be called on any thread.
+  synchronized void watch (FileNode folder)
+  {
+    if (watchService == null)
+      return;
+
+    try
+    {
+      WatchKey key = folder.file.toPath ().register (watchService, ENTRY_CREATE,
+          ENTRY_DELETE, ENTRY_MODIFY);
+      folders.put (key, folder);
+    }
+    catch (IOException | ClosedWatchServiceException e)
+    {
+      System.out.println ("Unable to watch : " + folder.file.getAbsolutePath ());
+      return;
+    }
+
+    if (thread == null)
+    {
+      thread = new Thread (this, "FolderWatcher");
+      thread.setDaemon (true);
+      thread.start ();
+    }
+  }
+
+  void close ()
+  {
+    if (watchService == null)
+      return;
+
+    try
+    {
+      watchService.close ();
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+    }
+  }
+
+  @Override
+  public void run ()
+  {
+    while (true)
+    {
+      WatchKey key;
+      try
+      {
+        key = watchService.take ();
+      }
+      catch (InterruptedException | ClosedWatchServiceException e)
+      {
+        return;
+      }
+
+      // the names that changed, in the order they changed
+      boolean overflow = false;
+      List<String> names = new ArrayList<String> ();
+      for (WatchEvent<?> event : key.pollEvents ())
+      {
+        if (event.kind () == OVERFLOW)
+          overflow = true;
+        else
+          names.add (((Path) event.context ()).toString ());
+      }
+
+      final FileNode folder = folders.get (key);
+      if (!key.reset ())                            // the folder has gone
+        folders.remove (key);
+
+      if (folder == null)
+        continue;
+
+      if (overflow)
+      {
+        final List<FileNode> fileNodes = treeBuilder.getFileNodes (folder.file);
+        SwingUtilities.invokeLater (new Runnable ()
+        {
+          @Override
+          public void run ()
+          {
+            treeBuilder.updateFolder (folder, fileNodes);
+          }
+        });
+        continue;
+      }
+
+      // a null node means the entry has gone, or is no longer shown
+      Path path = folder.file.toPath ();
+      final Map<String, FileNode> changes = new LinkedHashMap<String, FileNode> ();
+      for (String name : names)
+        changes.put (name, treeBuilder.getFileNode (path.resolve (name)));
+
+      SwingUtilities.invokeLater (new Runnable ()
+      {
+        @Override
+        public void run ()
+        {
+          treeBuilder.updateEntries (folder, changes);
+        }
+      });
+    }
+  }
+}
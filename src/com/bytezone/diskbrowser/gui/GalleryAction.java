@@ -0,0 +1,96 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.Action;
+import javax.swing.JOptionPane;
+import javax.swing.KeyStroke;
+
+import com.bytezone.common.DefaultAction;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.duplicates.RootFolderData;
+import com.bytezone.diskbrowser.gallery.GalleryWindow;
+import com.bytezone.diskbrowser.gui.RootDirectoryAction.RootDirectoryChangeListener;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+class GalleryAction extends DefaultAction
+    implements DiskSelectionListener, RootDirectoryChangeListener
+{
+  private final RootFolderData rootFolderData;
+  private FormattedDisk currentDisk;
+
+  public GalleryAction (RootFolderData rootFolderData)
+  {
+    super ("Image gallery...", "Display thumbnails of the pictures on the disks");
+
+    this.rootFolderData = rootFolderData;
+
+    int mask = Toolkit.getDefaultToolkit ().getMenuShortcutKeyMask ();
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke (KeyEvent.VK_G, mask));
+    setEnabled (false);
+  }
+
+  @Override
+  public void diskSelected (DiskSelectedEvent event)
+  {
+    currentDisk = event.getFormattedDisk ();
+    setEnabled (currentDisk != null || rootFolderData.getRootFolder () != null);
+  }
+
+  @Override
+  public void rootDirectoryChanged (RootFolderData rootFolderData)
+  {
+    setEnabled (currentDisk != null || rootFolderData.getRootFolder () != null);
+  }
+
+  @Override
+  public void actionPerformed (ActionEvent e)
+  {
+    File rootFolder = rootFolderData.getRootFolder ();
+    boolean useFolder = currentDisk == null;
+
+    if (currentDisk != null && rootFolder != null)
+    {
+      Object[] options = { "Current disk", "Root folder", "Cancel" };
+      int option = JOptionPane.showOptionDialog (null,
+          "Display the pictures on the current disk, or on every disk in the\n"
+              + "root folder (including nested folders)?",
+          "Image Gallery", JOptionPane.YES_NO_CANCEL_OPTION,
+          JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+      if (option < 0 || option == 2)
+        return;
+      useFolder = option == 1;
+    }
+
+    if (useFolder)
+    {
+      List<File> disks = new ArrayList<File> ();
+      addDisks (rootFolder, disks);
+      new GalleryWindow (rootFolder.getName (), disks).setVisible (true);
+    }
+    else
+    {
+      File disk = currentDisk.getDisk ().getFile ();
+      new GalleryWindow (disk.getName (), Arrays.asList (disk)).setVisible (true);
+    }
+  }
+
+  private void addDisks (File folder, List<File> disks)
+  {
+    File[] files = folder.listFiles ();
+    if (files == null)
+      return;
+
+    for (File file : files)
+      if (file.isDirectory ())
+        addDisks (file, disks);
+      else if (Utility.validFileType (file.getName ()))
+        disks.add (file);
+  }
+}
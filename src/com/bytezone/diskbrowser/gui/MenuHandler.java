@@ -25,6 +25,7 @@ public class MenuHandler
   private static final String PREFS_SHOW_CATALOG = "show catalog";
   private static final String PREFS_SHOW_LAYOUT = "show layout";
   private static final String PREFS_SHOW_FREE_SECTORS = "show free sectors";
+  private static final String PREFS_SHOW_CONTENTS = "show sector contents";
   private static final String PREFS_COLOUR_QUIRKS = "colour quirks";
   private static final String PREFS_MONOCHROME = "monochrome";
   //  private static final String PREFS_DEBUGGING = "debugging";
@@ -45,6 +46,9 @@ public class MenuHandler
   final JMenuItem printItem = new JMenuItem ("Print output panel...");
   final JMenuItem closeTabItem = new JMenuItem ();
   final JMenuItem duplicateItem = new JMenuItem ();
+  final JMenuItem galleryItem = new JMenuItem ();
+  final JMenuItem searchItem = new JMenuItem ();
+  final JMenuItem compareItem = new JMenuItem ();
   final FontAction fontAction = new FontAction ();
 
   // Format menu items
@@ -52,6 +56,9 @@ public class MenuHandler
   final JMenuItem showLayoutItem = new JCheckBoxMenuItem ("Show layout panel");
   final JMenuItem showCatalogItem = new JCheckBoxMenuItem ("Show catalog panel");
   final JMenuItem showFreeSectorsItem = new JCheckBoxMenuItem ("Show free sectors");
+  final JMenuItem showContentsItem = new JCheckBoxMenuItem ("Show sector contents");
+  final JMenuItem zoomInItem = new JMenuItem ();
+  final JMenuItem zoomOutItem = new JMenuItem ();
 
   final JMenuItem sector256Item = new JRadioButtonMenuItem ("256 byte sectors");
   final JMenuItem sector512Item = new JRadioButtonMenuItem ("512 byte blocks");
@@ -93,12 +100,18 @@ public class MenuHandler
         + "  PRINT SPC(12):\nNEXT :\nVTAB 5:\nHTAB 24:\nPRINT AB$\n");
 
     fileMenu.add (duplicateItem);
+    fileMenu.add (galleryItem);
+    fileMenu.add (searchItem);
+    fileMenu.add (compareItem);
     fileMenu.add (debuggingItem);
 
     formatMenu.add (lineWrapItem);
     formatMenu.add (showCatalogItem);
     formatMenu.add (showLayoutItem);
     formatMenu.add (showFreeSectorsItem);
+    formatMenu.add (showContentsItem);
+    formatMenu.add (zoomInItem);
+    formatMenu.add (zoomOutItem);
 
     formatMenu.addSeparator ();
 
@@ -178,6 +191,7 @@ public class MenuHandler
     prefs.putBoolean (PREFS_SHOW_LAYOUT, showLayoutItem.isSelected ());
     prefs.putBoolean (PREFS_SHOW_CATALOG, showCatalogItem.isSelected ());
     prefs.putBoolean (PREFS_SHOW_FREE_SECTORS, showFreeSectorsItem.isSelected ());
+    prefs.putBoolean (PREFS_SHOW_CONTENTS, showContentsItem.isSelected ());
     prefs.putBoolean (PREFS_COLOUR_QUIRKS, colourQuirksItem.isSelected ());
     prefs.putBoolean (PREFS_MONOCHROME, monochromeItem.isSelected ());
     //    prefs.putBoolean (PREFS_DEBUGGING, debuggingItem.isSelected ());
@@ -193,6 +207,7 @@ public class MenuHandler
     showLayoutItem.setSelected (prefs.getBoolean (PREFS_SHOW_LAYOUT, true));
     showCatalogItem.setSelected (prefs.getBoolean (PREFS_SHOW_CATALOG, true));
     showFreeSectorsItem.setSelected (prefs.getBoolean (PREFS_SHOW_FREE_SECTORS, false));
+    showContentsItem.setSelected (prefs.getBoolean (PREFS_SHOW_CONTENTS, false));
     colourQuirksItem.setSelected (prefs.getBoolean (PREFS_COLOUR_QUIRKS, false));
     monochromeItem.setSelected (prefs.getBoolean (PREFS_MONOCHROME, false));
     //    debuggingItem.setSelected (prefs.getBoolean (PREFS_DEBUGGING, false));
@@ -0,0 +1,9 @@
+package com.bytezone.diskbrowser.gui;
+
+// A DataSource whose text is too long to build all at once. getText() returns the
+// first page, and the DataPanel asks for each of the others as it scrolls into view.
+public interface PagedDataSource extends DataSource
+{
+  // page 1 is the page after getText(), null when there are no more pages
+  public String getPage (int page);
+}
@@ -47,11 +47,10 @@ class ScrollRuler extends JComponent
 
     // Must match the preferred size of DiskLayoutImage
     if (orientation == HORIZONTAL)
-      setPreferredSize (
-          new Dimension (layout.block.width * layout.grid.width + 1, HEIGHT));
+      setPreferredSize (new Dimension (layout.getWidth () + 1, HEIGHT));
     else
-      setPreferredSize (
-          new Dimension (WIDTH, layout.block.height * layout.grid.height + 1));
+      setPreferredSize (new Dimension (WIDTH, layout.getHeight () + 1));
+    revalidate ();
 
     setTrackMode (layout.grid.width == 16 || layout.grid.width == 13);
   }
@@ -89,14 +88,20 @@ class ScrollRuler extends JComponent
 
   private void drawHorizontal (Graphics g, Rectangle clipRect, int width)
   {
-    int start = (clipRect.x / width);
-    int end = start + clipRect.width / width;
+    int step = getStep (width, layoutDetails.isOverview () ? 16 : 1);
+    int start = (clipRect.x / width) / step * step;
+    int end = start + clipRect.width / width + step;
     end = Math.min (end, image.getWidth () / width - 1);
 
     String format;
     int offset;
 
-    if (layoutDetails.block.width <= 16)
+    if (layoutDetails.isOverview ())
+    {
+      format = isHex ? "%X" : "%d";
+      offset = 1;
+    }
+    else if (layoutDetails.block.width <= 16)
     {
       format = isHex ? "%1X" : "%1d";
       offset = isHex ? 4 : 0;
@@ -107,22 +112,34 @@ class ScrollRuler extends JComponent
       offset = 7;
     }
 
-    for (int i = start; i <= end; i++)
+    for (int i = start; i <= end; i += step)
       g.drawString (String.format (format, i), i * width + offset, 15);
   }
 
+  // each row of the image may cover several rows of the grid when zoomed out
   private void drawVertical (Graphics g, Rectangle clipRect, int height)
   {
-    int start = (clipRect.y / height);
-    int end = start + clipRect.height / height;
+    int step = getStep (height, 15);
+    int start = Math.max (clipRect.y - 13, 0) / height / step * step;
+    int end = (clipRect.y + clipRect.height) / height;
     end = Math.min (end, image.getHeight () / height - 1);
 
     String format = isHex ? "%04X" : "%04d";
 
-    for (int i = start; i <= end; i++)
+    for (int i = start; i <= end; i += step)
     {
-      int value = isTrackMode ? i : i * layoutDetails.grid.width;
+      int row = i * layoutDetails.rowsPerPixel;
+      int value = isTrackMode ? row : row * layoutDetails.grid.width;
       g.drawString (String.format (format, value), 4, i * height + 13);
     }
   }
+
+  // the number of rows or columns between labels, so that they don't overlap
+  private int getStep (int size, int minimum)
+  {
+    int step = 1;
+    while (step * size < minimum)
+      step *= 2;
+    return step;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Action;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.KeyStroke;
+
+import com.bytezone.common.DefaultAction;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.DiskSearch.Hit;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.ByteSearch;
+
+// Searches the current disk in the background for any number of patterns at once,
+// lists the matches and marks their blocks in the disk layout. To search a whole
+// folder use DiskSearcher.
+class SearchAction extends DefaultAction implements DiskSelectionListener
+{
+  private final DiskLayoutPanel diskLayoutPanel;
+  private FormattedDisk currentDisk;
+  private String patterns = "";
+  private boolean searching;
+
+  public SearchAction (DiskLayoutPanel diskLayoutPanel)
+  {
+    super ("Search disk...", "Find text or hex bytes anywhere on the disk");
+
+    this.diskLayoutPanel = diskLayoutPanel;
+
+    int mask = Toolkit.getDefaultToolkit ().getMenuShortcutKeyMask ();
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke (KeyEvent.VK_F, mask));
+    setEnabled (false);
+  }
+
+  @Override
+  public void diskSelected (DiskSelectedEvent event)
+  {
+    currentDisk = event.getFormattedDisk ();
+    setEnabled (currentDisk != null && !searching);
+  }
+
+  @Override
+  public void actionPerformed (ActionEvent e)
+  {
+    String input = (String) JOptionPane.showInputDialog (null,
+        "Patterns separated by commas - quoted text or hex bytes\n"
+            + "e.g.  \"COPYRIGHT\", A9 00 8D",
+        "Search Disk", JOptionPane.QUESTION_MESSAGE, null, null, patterns);
+    if (input == null || input.trim ().isEmpty ())
+      return;
+    patterns = input;
+
+    ByteSearch byteSearch;
+    try
+    {
+      byteSearch = ByteSearch.compile (input);
+    }
+    catch (IllegalArgumentException ex)
+    {
+      JOptionPane.showMessageDialog (null, ex.getMessage (), "Search Disk",
+          JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+
+    searching = true;
+    setEnabled (false);
+    new SearchSwingWorker (this, currentDisk, byteSearch).execute ();
+  }
+
+  // called on the EDT by the SearchSwingWorker, hits is null if the search failed
+  void searchFinished (FormattedDisk disk, List<Hit> hits)
+  {
+    searching = false;
+    setEnabled (currentDisk != null);
+
+    if (hits == null)
+    {
+      JOptionPane.showMessageDialog (null, "Unable to search the disk", "Search Disk",
+          JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+
+    if (disk != currentDisk)                    // another disk was selected meanwhile
+      return;
+
+    List<DiskAddress> blocks = new ArrayList<DiskAddress> ();
+    StringBuilder text = new StringBuilder ();
+    for (Hit hit : hits)
+    {
+      blocks.add (hit.diskAddress);
+      text.append (hit + "\n");
+    }
+    diskLayoutPanel.setHighlights (blocks);
+
+    if (hits.isEmpty ())
+    {
+      JOptionPane.showMessageDialog (null, "No matches found", "Search Disk",
+          JOptionPane.INFORMATION_MESSAGE);
+      return;
+    }
+
+    JTextArea textArea = new JTextArea (text.toString ());
+    textArea.setEditable (false);
+    textArea.setFont (new Font ("Monospaced", Font.PLAIN, 12));
+    JScrollPane scrollPane = new JScrollPane (textArea);
+    scrollPane.setPreferredSize (new Dimension (700, 300));
+    JOptionPane.showMessageDialog (null, scrollPane,
+        String.format ("Search Disk - %,d matches", hits.size ()),
+        JOptionPane.PLAIN_MESSAGE);
+  }
+}
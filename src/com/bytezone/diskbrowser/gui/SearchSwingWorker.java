@@ -0,0 +1,49 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.disk.DiskSearch;
+import com.bytezone.diskbrowser.disk.DiskSearch.Hit;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.ByteSearch;
+
+// Searches a single disk in the background, and passes the matches back to the
+// SearchAction on the EDT.
+class SearchSwingWorker extends SwingWorker<List<Hit>, Void>
+{
+  private final SearchAction searchAction;
+  private final FormattedDisk disk;
+  private final ByteSearch byteSearch;
+
+  SearchSwingWorker (SearchAction searchAction, FormattedDisk disk,
+      ByteSearch byteSearch)
+  {
+    this.searchAction = searchAction;
+    this.disk = disk;
+    this.byteSearch = byteSearch;
+  }
+
+  @Override
+  protected List<Hit> doInBackground () throws Exception
+  {
+    return DiskSearch.search (disk, byteSearch);
+  }
+
+  @Override
+  protected void done ()
+  {
+    List<Hit> hits = null;
+    try
+    {
+      hits = get ();
+    }
+    catch (InterruptedException | ExecutionException e)
+    {
+      e.printStackTrace ();
+    }
+    searchAction.searchFinished (disk, hits);
+  }
+}
@@ -0,0 +1,147 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.gui.TreeBuilder.FileNode;
+
+// Lists the root folder and opens the disk, file and sectors that were selected when
+// the program last quit, so that the window can be shown before any of it is read.
+// CatalogPanel puts the results into the tabs when it has finished.
+class SessionSwingWorker extends SwingWorker<Void, Void>
+{
+  private static final boolean debug = false;
+
+  private final CatalogPanel catalogPanel;
+  final FileSystemTab fileTab;
+  private final TreeBuilder treeBuilder;
+
+  final String lastDiskUsed;
+  private final int lastDosUsed;
+  final String lastFileUsed;
+  private final String lastSectorsUsed;
+
+  List<FileNode> fileNodes = new ArrayList<FileNode> ();
+  DiskSelectedEvent diskEvent;          // the last disk, or else the first one found
+  boolean lastDiskRestored;
+  FileSelectedEvent fileEvent;
+  SectorSelectedEvent sectorEvent;
+
+  SessionSwingWorker (CatalogPanel catalogPanel, FileSystemTab fileTab,
+      TreeBuilder treeBuilder, String lastDiskUsed, int lastDosUsed, String lastFileUsed,
+      String lastSectorsUsed)
+  {
+    this.catalogPanel = catalogPanel;
+    this.fileTab = fileTab;
+    this.treeBuilder = treeBuilder;
+    this.lastDiskUsed = lastDiskUsed;
+    this.lastDosUsed = lastDosUsed;
+    this.lastFileUsed = lastFileUsed;
+    this.lastSectorsUsed = lastSectorsUsed;
+  }
+
+  @Override
+  protected Void doInBackground () throws Exception
+  {
+    long start = System.nanoTime ();
+
+    fileNodes = treeBuilder.getRootFiles ();
+
+    if (!lastDiskUsed.isEmpty ())
+      restoreLastDisk ();
+    else
+      System.out.println ("no disk selected");
+
+    if (diskEvent == null)
+      diskEvent = getFirstDiskEvent ();
+
+    if (debug)
+      System.out.printf ("Session restored in %,d ms%n",
+          (System.nanoTime () - start) / 1000000);
+
+    return null;
+  }
+
+  private void restoreLastDisk ()
+  {
+    try
+    {
+      diskEvent = DiskSelectedEvent.create (catalogPanel, lastDiskUsed);
+    }
+    catch (Exception e)
+    {
+      System.out.println ("Unable to open " + lastDiskUsed);
+      return;
+    }
+
+    if (diskEvent == null)
+      return;
+
+    lastDiskRestored = true;
+    FormattedDisk fd = diskEvent.getFormattedDisk ();
+    if (lastDosUsed >= 0 && fd instanceof DualDosDisk)
+      ((DualDosDisk) fd).setCurrentDiskNo (lastDosUsed);
+
+    if (!lastFileUsed.isEmpty ())
+    {
+      AppleFileSource afs = fd.getFile (lastFileUsed);
+      if (afs != null)
+        fileEvent = FileSelectedEvent.create (catalogPanel, afs);
+    }
+    else if (!lastSectorsUsed.isEmpty ())
+      sectorEvent = SectorSelectedEvent.create (catalogPanel, fd, lastSectorsUsed);
+  }
+
+  // the first disk in the root folder, as FileSystemTab would select
+  private DiskSelectedEvent getFirstDiskEvent ()
+  {
+    for (FileNode fileNode : fileNodes)
+      if (!fileNode.isDirectory ())
+      {
+        FormattedDisk fd = DiskFactory.createDisk (fileNode.file);
+        return fd == null ? null : new DiskSelectedEvent (fileTab, fd);
+      }
+    return null;
+  }
+
+  @Override
+  protected void done ()
+  {
+    try
+    {
+      get ();
+    }
+    catch (InterruptedException | ExecutionException e)
+    {
+      e.printStackTrace ();
+      useDefaults ();
+    }
+    catalogPanel.restoreSession (this);
+  }
+
+  // if anything went wrong, start as if there were no session to restore
+  private void useDefaults ()
+  {
+    diskEvent = null;
+    lastDiskRestored = false;
+    fileEvent = null;
+    sectorEvent = null;
+
+    try
+    {
+      fileNodes = treeBuilder.getRootFiles ();
+    }
+    catch (RuntimeException e)
+    {
+      e.printStackTrace ();
+      fileNodes = new ArrayList<FileNode> ();
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.KeyStroke;
+
+class ShowContentsAction extends AbstractAction
+{
+  DiskLayoutPanel panel;
+  MenuHandler mh;
+
+  public ShowContentsAction (MenuHandler mh, DiskLayoutPanel panel)
+  {
+    super ("Show sector contents");
+    putValue (Action.SHORT_DESCRIPTION,
+        "Colour the disk layout by what each sector seems to hold");
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke ("alt T"));
+    this.panel = panel;
+    this.mh = mh;
+  }
+
+  @Override
+  public void actionPerformed (ActionEvent e)
+  {
+    panel.setContents (mh.showContentsItem.isSelected ());
+  }
+}
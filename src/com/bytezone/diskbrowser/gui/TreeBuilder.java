@@ -2,14 +2,27 @@ package com.bytezone.diskbrowser.gui;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JTree;
+import javax.swing.SwingWorker;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
@@ -22,21 +35,38 @@ import com.bytezone.diskbrowser.utilities.Utility;
 public class TreeBuilder
 {
   private static SimpleDateFormat sdf = new SimpleDateFormat ("dd MMM yyyy");
+  private static final int CHUNK_SIZE = 250;        // nodes added to the tree at a time
 
   private final FileComparator fileComparator = new FileComparator ();
   private final JTree tree;
+  private final DefaultTreeModel treeModel;
+  private final DefaultMutableTreeNode root;
+  private final FolderWatcher folderWatcher = new FolderWatcher (this);
 
   public TreeBuilder (File folder)
+  {
+    this (folder, true);
+  }
+
+  // If listFiles is false the root node is a placeholder until setRootFiles () is
+  // given the files, which can be listed by getFileNodes () on another thread.
+  public TreeBuilder (File folder, boolean listFiles)
   {
     assert (folder.exists ());
     assert (folder.isDirectory ());
 
     FileNode fileNode = new FileNode (folder);
-    DefaultMutableTreeNode root = new DefaultMutableTreeNode (fileNode);
+    root = new DefaultMutableTreeNode (fileNode);
     fileNode.setTreeNode (root);
+    treeModel = new DefaultTreeModel (root);
 
-    addFiles (root, folder);
-    DefaultTreeModel treeModel = new DefaultTreeModel (root);
+    if (listFiles)
+    {
+      folderWatcher.watch (fileNode);
+      addFiles (fileNode, getFileNodes (folder));
+    }
+    else
+      fileNode.loading = true;
     tree = new JTree (treeModel);
 
     treeModel.setAsksAllowsChildren (true);   // allows empty nodes to appear as folders
@@ -48,34 +78,219 @@ public class TreeBuilder
     return tree;
   }
 
-  private void addFiles (DefaultMutableTreeNode parentNode, File directory)
+  // the root folder is watched before it is listed, as every folder is
+  public List<FileNode> getRootFiles ()
+  {
+    FileNode fileNode = (FileNode) root.getUserObject ();
+    folderWatcher.watch (fileNode);
+    return getFileNodes (fileNode.file);
+  }
+
+  public void setRootFiles (List<FileNode> fileNodes)
+  {
+    FileNode fileNode = (FileNode) root.getUserObject ();
+    fileNode.loading = false;
+    addFiles (fileNode, fileNodes);
+    treeModel.nodeStructureChanged (root);
+    tree.expandRow (0);
+  }
+
+  // false if the tree has to be built again to show any changes
+  public boolean isWatching ()
+  {
+    return folderWatcher.isWatching ();
+  }
+
+  // stops watching the folders, the tree is no longer needed
+  public void close ()
+  {
+    folderWatcher.close ();
+  }
+
+  // lists the folder again, in case the watcher has missed anything
+  public void refresh (FileNode folder)
   {
-    File[] files = directory.listFiles ();
-    if (files == null || files.length == 0)
+    folder.text = null;
+    if (folder.listed && !folder.loading)
+      new FolderSwingWorker (folder, true).execute ();
+  }
+
+  private void addFiles (FileNode folder, List<FileNode> fileNodes)
+  {
+    insertNodes (folder, fileNodes);
+    folder.listed = true;
+    updatePendingEntries (folder);
+  }
+
+  // the changes seen while the folder was being listed, which may or may not be in
+  // the listing
+  private void updatePendingEntries (FileNode folder)
+  {
+    Map<String, FileNode> changes = folder.pendingChanges;
+    folder.pendingChanges = null;
+    if (changes != null)
+      updateEntries (folder, changes);
+  }
+
+  private void insertNodes (FileNode folder, List<FileNode> fileNodes)
+  {
+    DefaultMutableTreeNode parentNode = folder.parentNode;
+    int first = parentNode.getChildCount ();
+    int[] indices = new int[fileNodes.size ()];
+
+    for (int i = 0; i < indices.length; i++)
+    {
+      parentNode.add (createNode (fileNodes.get (i)));
+      indices[i] = first + i;
+    }
+    treeModel.nodesWereInserted (parentNode, indices);
+  }
+
+  // The disks and folders to show, in order. This doesn't touch the tree, so it can
+  // be called on any thread. Each entry's attributes are read with a single call.
+  public List<FileNode> getFileNodes (File directory)
+  {
+    List<FileNode> fileNodes = new ArrayList<FileNode> ();
+    try
+    {
+      DirectoryStream<Path> stream = Files.newDirectoryStream (directory.toPath ());
+      try
+      {
+        for (Path path : stream)
+        {
+          FileNode fileNode = getFileNode (path);
+          if (fileNode != null)
+            fileNodes.add (fileNode);
+        }
+      }
+      finally
+      {
+        stream.close ();
+      }
+    }
+    catch (IOException | DirectoryIteratorException e)
     {
+      System.out.println ("Unable to read folder : " + directory.getAbsolutePath ());
+    }
+
+    if (fileNodes.isEmpty ())
       System.out.println ("Empty folder : " + directory.getAbsolutePath ());
+
+    Collections.sort (fileNodes, fileComparator);
+    return fileNodes;
+  }
+
+  // returns null if the entry has gone, or isn't a disk or a folder
+  FileNode getFileNode (Path path)
+  {
+    try
+    {
+      if (Files.isHidden (path))
+        return null;
+
+      BasicFileAttributes attributes =
+          Files.readAttributes (path, BasicFileAttributes.class);
+      if (attributes.isDirectory () || (attributes.size () > 0
+          && Utility.validFileType (path.getFileName ().toString ())))
+        return new FileNode (path.toFile (), attributes);
+    }
+    catch (IOException e)
+    {
+      // it has been deleted since it was listed
+    }
+    return null;
+  }
+
+  // Called on the EDT with the changes to a folder. A null node means the entry has
+  // gone, otherwise it is added or its attributes are updated.
+  void updateEntries (FileNode folder, Map<String, FileNode> changes)
+  {
+    folder.text = null;
+    if (folder.loading)                 // kept until the folder's nodes are in the tree
+    {
+      if (folder.pendingChanges == null)
+        folder.pendingChanges = new LinkedHashMap<String, FileNode> ();
+      folder.pendingChanges.putAll (changes);
       return;
     }
+    if (!folder.listed)                 // the folder will be read when needed
+      return;
+
+    DefaultMutableTreeNode parentNode = folder.parentNode;
+    Map<String, DefaultMutableTreeNode> children =
+        new HashMap<String, DefaultMutableTreeNode> ();
+    for (int i = 0; i < parentNode.getChildCount (); i++)
+    {
+      DefaultMutableTreeNode childNode =
+          (DefaultMutableTreeNode) parentNode.getChildAt (i);
+      children.put (((FileNode) childNode.getUserObject ()).file.getName (), childNode);
+    }
+
+    for (Map.Entry<String, FileNode> entry : changes.entrySet ())
+    {
+      DefaultMutableTreeNode childNode = children.remove (entry.getKey ());
+      FileNode newNode = entry.getValue ();
+
+      if (childNode != null)
+      {
+        FileNode fileNode = (FileNode) childNode.getUserObject ();
+        if (newNode != null && newNode.isDirectory () == fileNode.isDirectory ())
+        {
+          if (fileNode.setAttributes (newNode.attributes))
+            treeModel.nodeChanged (childNode);
+          continue;
+        }
+        treeModel.removeNodeFromParent (childNode);
+      }
+
+      if (newNode != null)
+      {
+        DefaultMutableTreeNode node = createNode (newNode);
+        children.put (entry.getKey (), node);
+        treeModel.insertNodeInto (node, parentNode, getInsertIndex (parentNode, newNode));
+      }
+    }
+  }
 
-    Arrays.sort (files, fileComparator);
+  // called on the EDT with a new listing of the folder
+  void updateFolder (FileNode folder, List<FileNode> fileNodes)
+  {
+    Map<String, FileNode> changes = new LinkedHashMap<String, FileNode> ();
+    for (int i = 0; i < folder.parentNode.getChildCount (); i++)
+    {
+      DefaultMutableTreeNode childNode =
+          (DefaultMutableTreeNode) folder.parentNode.getChildAt (i);
+      changes.put (((FileNode) childNode.getUserObject ()).file.getName (), null);
+    }
+    for (FileNode fileNode : fileNodes)
+      changes.put (fileNode.file.getName (), fileNode);
+
+    updateEntries (folder, changes);
+  }
 
-    for (File file : files)
+  // the children are kept in FileComparator order
+  private int getInsertIndex (DefaultMutableTreeNode parentNode, FileNode fileNode)
+  {
+    int low = 0;
+    int high = parentNode.getChildCount ();
+    while (low < high)
     {
-      if (file.isHidden ())
-        continue;
-      if (file.isDirectory ())
-        parentNode.add (createNode (file, true));
-      else if (Utility.validFileType (file.getName ()) && file.length () > 0)
-        parentNode.add (createNode (file, false));
+      int mid = (low + high) >>> 1;
+      DefaultMutableTreeNode childNode =
+          (DefaultMutableTreeNode) parentNode.getChildAt (mid);
+      if (fileComparator.compare ((FileNode) childNode.getUserObject (), fileNode) < 0)
+        low = mid + 1;
+      else
+        high = mid;
     }
+    return low;
   }
 
-  private DefaultMutableTreeNode createNode (File file, boolean allowsChildren)
+  private DefaultMutableTreeNode createNode (FileNode fileNode)
   {
-    FileNode fileNode = new FileNode (file);
     DefaultMutableTreeNode newNode = new DefaultMutableTreeNode (fileNode);
     fileNode.setTreeNode (newNode);
-    newNode.setAllowsChildren (allowsChildren);
+    newNode.setAllowsChildren (fileNode.isDirectory ());
     return newNode;
   }
 
@@ -95,6 +310,66 @@ public class TreeBuilder
       System.out.println ("Failed to set the disk icon : " + iconName);
   }
 
+  // Lists a folder off the EDT, then adds its nodes to the tree a chunk at a time so
+  // that a folder of thousands of disks doesn't hold up the tree. When refreshing, the
+  // new listing is compared with the nodes that are already there.
+  private class FolderSwingWorker extends SwingWorker<List<FileNode>, FileNode>
+  {
+    private final FileNode folder;
+    private final boolean refresh;
+
+    FolderSwingWorker (FileNode folder, boolean refresh)
+    {
+      this.folder = folder;
+      this.refresh = refresh;
+      folder.loading = !refresh;
+    }
+
+    @Override
+    protected List<FileNode> doInBackground () throws Exception
+    {
+      if (!refresh)
+        folderWatcher.watch (folder);
+      List<FileNode> fileNodes = getFileNodes (folder.file);
+      if (!refresh)
+        for (int i = 0; i < fileNodes.size (); i += CHUNK_SIZE)
+        {
+          List<FileNode> chunk =
+              fileNodes.subList (i, Math.min (i + CHUNK_SIZE, fileNodes.size ()));
+          publish (chunk.toArray (new FileNode[chunk.size ()]));
+        }
+      return fileNodes;
+    }
+
+    @Override
+    protected void process (List<FileNode> chunks)
+    {
+      insertNodes (folder, chunks);
+    }
+
+    @Override
+    protected void done ()
+    {
+      if (refresh)
+      {
+        try
+        {
+          updateFolder (folder, get ());
+        }
+        catch (Exception e)
+        {
+          e.printStackTrace ();
+        }
+        return;
+      }
+
+      folder.loading = false;
+      folder.listed = true;
+      treeModel.nodeChanged (folder.parentNode);
+      updatePendingEntries (folder);
+    }
+  }
+
   /*
    * Class used to control the text displayed by the JTree.
    */
@@ -106,22 +381,62 @@ public class TreeBuilder
     private static final int SUFFIX_LENGTH = 12;
     private static final int PREFIX_LENGTH = MAX_NAME_LENGTH - SUFFIX_LENGTH - 3;
     private FormattedDisk formattedDisk;
+    private BasicFileAttributes attributes;     // null if the file hasn't been listed
+    private String text;                        // the folder's listing until it changes
     int disks;
     boolean showDisks;
+    boolean loading;                    // the folder is being listed in the background
+    boolean listed;                     // the folder's nodes are in the tree
+    Map<String, FileNode> pendingChanges;   // changes seen while it was being listed
 
     public FileNode (File file)
     {
       this.file = file;
     }
 
+    FileNode (File file, BasicFileAttributes attributes)
+    {
+      this.file = file;
+      this.attributes = attributes;
+    }
+
     public void setTreeNode (DefaultMutableTreeNode node)
     {
       this.parentNode = node;
     }
 
+    public boolean isDirectory ()
+    {
+      return attributes == null ? file.isDirectory () : attributes.isDirectory ();
+    }
+
+    // returns true if the file has changed, its disk will be read again when needed
+    boolean setAttributes (BasicFileAttributes newAttributes)
+    {
+      if (attributes != null && newAttributes.size () == attributes.size ()
+          && newAttributes.lastModifiedTime ().equals (attributes.lastModifiedTime ()))
+        return false;
+
+      attributes = newAttributes;
+      formattedDisk = null;
+      return true;
+    }
+
+    // reads the folder synchronously, for searches that need the nodes immediately
     public void readFiles ()
     {
-      addFiles (parentNode, file);
+      if (!loading && !listed)
+      {
+        folderWatcher.watch (this);
+        addFiles (this, getFileNodes (file));
+      }
+    }
+
+    // called when the folder is expanded
+    public void readFilesInBackground ()
+    {
+      if (!loading && !listed)
+        new FolderSwingWorker (this, false).execute ();
     }
 
     public FormattedDisk getFormattedDisk ()
@@ -160,13 +475,29 @@ public class TreeBuilder
             + name.substring (name.length () - SUFFIX_LENGTH);
       if (showDisks && disks > 0)
         return String.format ("%s (%,d)", name, disks);
+      if (loading)
+        return name + " (loading...)";
       return name;
     }
 
+    // The listing is kept until the watcher sees the folder change, so the folder is
+    // watched from the first time it is shown, before it is read.
     @Override
     public String getText ()
+    {
+      if (text == null)
+      {
+        if (isDirectory ())
+          folderWatcher.watch (this);
+        text = createText ();
+      }
+      return text;
+    }
+
+    private String createText ()
     {
       StringBuilder text = new StringBuilder ();
+      Formatter formatter = new Formatter (text);
 
       text.append ("Directory : " + file.getAbsolutePath () + "\n\n");
       text.append ("D         File names                       "
@@ -174,22 +505,45 @@ public class TreeBuilder
       text.append ("-  ----------------------------------------"
           + "  -----------  --------------  ---------\n");
 
-      File[] files = file.listFiles ();
-      if (files != null)
-        for (File f : files)
+      try
+      {
+        DirectoryStream<Path> stream = Files.newDirectoryStream (file.toPath ());
+        try
+        {
+          for (Path path : stream)
+          {
+            String name = path.getFileName ().toString ();
+            if (name.startsWith ("."))
+              continue;
+
+            BasicFileAttributes attributes;
+            try
+            {
+              attributes = Files.readAttributes (path, BasicFileAttributes.class);
+            }
+            catch (IOException e)
+            {
+              continue;                     // it has been deleted since it was listed
+            }
+
+            boolean directory = attributes.isDirectory ();
+            Date d = new Date (attributes.lastModifiedTime ().toMillis ());
+            int pos = name.lastIndexOf ('.');
+            String type = pos > 0 && !directory ? name.substring (pos) : "";
+            String size = directory ? "" : String.format ("%,14d", attributes.size ());
+            formatter.format ("%s  %-40.40s  %s  %-14s  %s%n", directory ? "D" : " ",
+                name, sdf.format (d).replace (".", ""), size, type);
+          }
+        }
+        finally
         {
-          String name = f.getName ();
-          if (name.startsWith ("."))
-            continue;
-
-          Date d = new Date (f.lastModified ());
-          int pos = name.lastIndexOf ('.');
-          String type = pos > 0 && !f.isDirectory () ? name.substring (pos) : "";
-          String size = f.isDirectory () ? "" : String.format ("%,14d", f.length ());
-          text.append (String.format ("%s  %-40.40s  %s  %-14s  %s%n",
-              f.isDirectory () ? "D" : " ", name, sdf.format (d).replace (".", ""), size,
-              type));
+          stream.close ();
         }
+      }
+      catch (IOException | DirectoryIteratorException e)
+      {
+        System.out.println ("Unable to read folder : " + file.getAbsolutePath ());
+      }
 
       if (text.length () > 0)
         text.deleteCharAt (text.length () - 1);
@@ -0,0 +1,36 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+
+import javax.swing.Action;
+import javax.swing.KeyStroke;
+
+import com.bytezone.common.DefaultAction;
+
+class ZoomAction extends DefaultAction
+{
+  private final DiskLayoutPanel panel;
+  private final int direction;
+
+  public ZoomAction (DiskLayoutPanel panel, int direction)
+  {
+    super (direction > 0 ? "Zoom out" : "Zoom in",
+        direction > 0 ? "Show more of the disk layout at once"
+            : "Show the disk layout in more detail");
+
+    int mask = Toolkit.getDefaultToolkit ().getMenuShortcutKeyMask ();
+    int key = direction > 0 ? KeyEvent.VK_MINUS : KeyEvent.VK_EQUALS;
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke (key, mask));
+
+    this.panel = panel;
+    this.direction = direction;
+  }
+
+  @Override
+  public void actionPerformed (ActionEvent e)
+  {
+    panel.zoom (direction);
+  }
+}
@@ -16,7 +16,6 @@ import com.bytezone.diskbrowser.utilities.HexFormatter;
 class CodeManager extends AbstractFile
 {
   private final Header header;
-  private int codeSize;
   private final Map<Integer, Routine> routines = new TreeMap<Integer, Routine> ();
 
   public CodeManager (Header header)
@@ -29,9 +28,6 @@ class CodeManager extends AbstractFile
   {
     root.setAllowsChildren (true);
 
-    // should be set by now - do this better!
-    codeSize = header.stringPointer - header.highMemory;
-
     int count = 0;
     for (Routine routine : routines.values ())
     {
@@ -182,7 +178,8 @@ class CodeManager extends AbstractFile
   @Override
   public String getHexDump ()
   {
-    // this depends on codeSize being set after the strings have been processed
+    // this depends on stringPointer being set after the strings have been processed
+    int codeSize = header.stringPointer - header.highMemory;
     return HexFormatter.format (buffer, header.highMemory, codeSize);
   }
 }
\ No newline at end of file
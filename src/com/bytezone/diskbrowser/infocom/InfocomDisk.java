@@ -12,6 +12,7 @@ import javax.swing.tree.DefaultMutableTreeNode;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.disk.*;
+import com.bytezone.diskbrowser.disk.LazyTreeNode.ChildLoader;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
@@ -69,24 +70,38 @@ public class InfocomDisk extends AbstractFormattedDisk
     abbreviationsNode =
         addToTree (root, "Abbreviations", header.abbreviations, TYPE_LEAF);
 
-    objectNode = addToTree (root, "Objects", header.objectManager, TYPE_NODE);
-    header.objectManager.addNodes (objectNode, this);
+    // a story has hundreds of objects and routines, so their nodes (and the
+    // property and attribute statistics) are only created when they are needed
+    objectNode = addToTree (root, "Objects", header.objectManager, new ChildLoader ()
+    {
+      @Override
+      public void addChildren (DefaultMutableTreeNode node)
+      {
+        header.objectManager.addNodes (node, InfocomDisk.this);
+
+        PropertyManager pm = new PropertyManager ("Properties", data, header);
+        pm.addNodes (addToTree (node, "Properties", pm, TYPE_NODE), InfocomDisk.this);
+
+        AttributeManager am = new AttributeManager ("Attributes", data, header);
+        am.addNodes (addToTree (node, "Attributes", am, TYPE_NODE), InfocomDisk.this);
+      }
+    });
 
     globalsNode = addToTree (root, "Globals", header.globals, TYPE_LEAF);
     grammarNode = addToTree (root, "Grammar", header.grammar, TYPE_LEAF);
     dictionaryNode = addToTree (root, "Dictionary", header.dictionary, TYPE_LEAF);
 
-    codeNode = addToTree (root, "Code", header.codeManager, TYPE_NODE);
-    header.codeManager.addNodes (codeNode, this);
+    codeNode = addToTree (root, "Code", header.codeManager, new ChildLoader ()
+    {
+      @Override
+      public void addChildren (DefaultMutableTreeNode node)
+      {
+        header.codeManager.addNodes (node, InfocomDisk.this);
+      }
+    });
 
     stringsNode = addToTree (root, "Strings", header.stringManager, TYPE_LEAF);
 
-    PropertyManager pm = new PropertyManager ("Properties", data, header);
-    pm.addNodes (addToTree (objectNode, "Properties", pm, TYPE_NODE), this);
-
-    AttributeManager am = new AttributeManager ("Attributes", data, header);
-    am.addNodes (addToTree (objectNode, "Attributes", am, TYPE_NODE), this);
-
     sectorTypes[48] = headerSector;
 
     setSectorTypes (header.abbreviationsTable, header.objectTable, abbreviationsSector,
@@ -184,6 +199,15 @@ public class InfocomDisk extends AbstractFormattedDisk
     return data;
   }
 
+  private DefaultMutableTreeNode addToTree (DefaultMutableTreeNode root, String title,
+      DataSource af, ChildLoader loader)
+  {
+    DefaultAppleFileSource dafs = new DefaultAppleFileSource (title, af, this);
+    DefaultMutableTreeNode node = new LazyTreeNode (dafs, loader);
+    root.add (node);
+    return node;
+  }
+
   private DefaultMutableTreeNode addToTree (DefaultMutableTreeNode root, String title,
       DataSource af, boolean allowsChildren)
   {
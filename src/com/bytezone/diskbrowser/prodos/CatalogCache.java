@@ -0,0 +1,369 @@
+package com.bytezone.diskbrowser.prodos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+
+// Parsed catalogs of ProDOS volumes, stored in files named by the hash of the disk's
+// contents. Reopening a volume that has been seen before restores its entries, the
+// blocks of each file, the sector type of every block and the free block map without
+// reading a single directory or index block. Floppy disks parse too quickly to be
+// worth caching. A file that doesn't make sense is ignored, and only the catalogs
+// that were used most recently are kept.
+class CatalogCache
+{
+  private static final int VERSION = 1;
+  private static final int MIN_BLOCKS = 1600;           // an 800K disk or larger
+  private static final int MAX_CATALOGS = 200;
+  private static final int MAX_FILE_BLOCKS = 0x10000;   // a tree file, sparse or not
+
+  private final File cacheFolder;
+
+  CatalogCache ()
+  {
+    this (new File (System.getProperty ("user.home"),
+        ".diskbrowser" + File.separator + "catalogs"));
+  }
+
+  CatalogCache (File cacheFolder)
+  {
+    this.cacheFolder = cacheFolder;
+  }
+
+  boolean isCacheable (Disk disk)
+  {
+    return disk.getContentHash () != null && disk.getTotalBlocks () >= MIN_BLOCKS;
+  }
+
+  // the interleave the volume was read with, or -1 if it hasn't been cached
+  int getInterleave (Disk disk)
+  {
+    if (!isCacheable (disk))
+      return -1;
+
+    File file = getCatalogFile (disk);
+    if (!file.exists ())
+      return -1;
+
+    try
+    {
+      DataInputStream in = new DataInputStream (new FileInputStream (file));
+      try
+      {
+        if (in.readInt () != VERSION || in.readInt () != disk.getTotalBlocks ())
+          return -1;
+        return in.readInt ();
+      }
+      finally
+      {
+        in.close ();
+      }
+    }
+    catch (IOException e)
+    {
+      return -1;
+    }
+  }
+
+  // returns null if the volume hasn't been cached, or the cache can't be read or
+  // doesn't make sense
+  Catalog read (Disk disk)
+  {
+    if (!isCacheable (disk))
+      return null;
+
+    File file = getCatalogFile (disk);
+    if (!file.exists ())
+      return null;
+
+    try
+    {
+      DataInputStream in =
+          new DataInputStream (new BufferedInputStream (new FileInputStream (file)));
+      try
+      {
+        int totalBlocks = disk.getTotalBlocks ();
+        if (in.readInt () != VERSION || in.readInt () != totalBlocks)
+          return null;
+
+        Catalog catalog = new Catalog (totalBlocks, in.readInt ());
+        catalog.falsePositives = in.readInt ();
+        catalog.falseNegatives = in.readInt ();
+        catalog.freeBlockCount = in.readInt ();
+        catalog.usedBlockCount = in.readInt ();
+        in.readFully (catalog.sectorTypes);
+
+        int totalWords = in.readInt ();
+        if (totalWords < 0 || totalWords > (totalBlocks - 1) / 64 + 1)
+          return null;
+        long[] words = new long[totalWords];
+        for (int i = 0; i < words.length; i++)
+          words[i] = in.readLong ();
+        catalog.freeBlocks = BitSet.valueOf (words);
+
+        // each record takes at least an entry
+        int totalRecords = in.readInt ();
+        long maxRecords = file.length () / ProdosConstants.ENTRY_SIZE;
+        if (totalRecords < 1 || totalRecords > maxRecords)
+          return null;
+
+        for (int i = 0; i < totalRecords; i++)
+        {
+          byte[] entry = new byte[ProdosConstants.ENTRY_SIZE];
+          in.readFully (entry);
+          Record record = new Record (entry, in.readInt (), in.readInt (), in.readInt ());
+          record.dataBlocks = readBlocks (in, totalBlocks);
+          record.indexBlocks = readBlocks (in, totalBlocks);
+          record.masterIndexBlock = in.readInt ();
+          if (record.dataBlocks == null || record.indexBlocks == null
+              || !isValid (record, catalog))
+            return null;
+          catalog.records.add (record);
+        }
+
+        file.setLastModified (System.currentTimeMillis ());     // keep it for longer
+        return catalog;
+      }
+      finally
+      {
+        in.close ();
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      return null;
+    }
+  }
+
+  // Checks that the record can be restored as ProdosDisk would have read it. The
+  // volume header comes first, every entry follows the header of its directory and
+  // each subdirectory header follows the subdirectory's own entry.
+  private boolean isValid (Record record, Catalog catalog)
+  {
+    int index = catalog.records.size ();
+    if (!isBlock (record.block, catalog) || record.masterIndexBlock < -1
+        || record.masterIndexBlock >= catalog.totalBlocks)
+      return false;
+
+    if (record.parent < -1 || record.parent >= index || record.header < -1
+        || record.header >= index)
+      return false;
+
+    if (record.parent >= 0 && getStorageType (
+        catalog.records.get (record.parent)) != ProdosConstants.SUBDIRECTORY)
+      return false;
+
+    if (record.header >= 0)
+    {
+      int storageType = getStorageType (catalog.records.get (record.header));
+      if (storageType != ProdosConstants.VOLUME_HEADER
+          && storageType != ProdosConstants.SUBDIRECTORY_HEADER)
+        return false;
+    }
+
+    switch (getStorageType (record))
+    {
+      case ProdosConstants.VOLUME_HEADER:
+        return index == 0;
+
+      case ProdosConstants.SUBDIRECTORY_HEADER:
+        return record.parent >= 0;
+
+      case ProdosConstants.SUBDIRECTORY:
+      case ProdosConstants.SEEDLING:
+      case ProdosConstants.SAPLING:
+      case ProdosConstants.TREE:
+      case ProdosConstants.PASCAL_ON_PROFILE:
+      case ProdosConstants.GSOS_EXTENDED_FILE:
+        return record.header >= 0;
+
+      default:
+        return false;
+    }
+  }
+
+  private int getStorageType (Record record)
+  {
+    return (record.entry[0] & 0xF0) >> 4;
+  }
+
+  private boolean isBlock (int block, Catalog catalog)
+  {
+    return block >= 0 && block < catalog.totalBlocks;
+  }
+
+  // write to a temporary file first, in case the same disk is open twice
+  void write (Disk disk, Catalog catalog)
+  {
+    File file = getCatalogFile (disk);
+    try
+    {
+      cacheFolder.mkdirs ();
+      File tmp = File.createTempFile ("catalog", ".tmp", cacheFolder);
+      DataOutputStream out =
+          new DataOutputStream (new BufferedOutputStream (new FileOutputStream (tmp)));
+      try
+      {
+        out.writeInt (VERSION);
+        out.writeInt (catalog.totalBlocks);
+        out.writeInt (catalog.interleave);
+        out.writeInt (catalog.falsePositives);
+        out.writeInt (catalog.falseNegatives);
+        out.writeInt (catalog.freeBlockCount);
+        out.writeInt (catalog.usedBlockCount);
+        out.write (catalog.sectorTypes);
+
+        long[] words = catalog.freeBlocks.toLongArray ();
+        out.writeInt (words.length);
+        for (long word : words)
+          out.writeLong (word);
+
+        out.writeInt (catalog.records.size ());
+        for (Record record : catalog.records)
+        {
+          out.write (record.entry);
+          out.writeInt (record.block);
+          out.writeInt (record.parent);
+          out.writeInt (record.header);
+          writeBlocks (out, record.dataBlocks);
+          writeBlocks (out, record.indexBlocks);
+          out.writeInt (record.masterIndexBlock);
+        }
+      }
+      finally
+      {
+        out.close ();
+      }
+      Files.move (tmp.toPath (), file.toPath (), StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Unable to write " + file);
+    }
+
+    removeOldCatalogs ();
+  }
+
+  // auditing or searching a folder of disks would otherwise cache every one of them
+  private void removeOldCatalogs ()
+  {
+    File[] files = cacheFolder.listFiles ();
+    if (files == null)
+      return;
+
+    List<File> catalogs = new ArrayList<File> ();
+    for (File file : files)
+      if (file.getName ().endsWith (".cat"))
+        catalogs.add (file);
+
+    if (catalogs.size () <= MAX_CATALOGS)
+      return;
+
+    File[] oldest = catalogs.toArray (new File[catalogs.size ()]);
+    Arrays.sort (oldest, new Comparator<File> ()
+    {
+      @Override
+      public int compare (File file1, File file2)
+      {
+        return Long.compare (file1.lastModified (), file2.lastModified ());
+      }
+    });
+
+    for (int i = 0; i < oldest.length - MAX_CATALOGS; i++)
+      oldest[i].delete ();
+  }
+
+  private File getCatalogFile (Disk disk)
+  {
+    return new File (cacheFolder, disk.getContentHash () + ".cat");
+  }
+
+  // returns null if the list is too long, or a block is not on the disk
+  private int[] readBlocks (DataInputStream in, int totalBlocks) throws IOException
+  {
+    int totalFileBlocks = in.readInt ();
+    if (totalFileBlocks < 0 || totalFileBlocks > MAX_FILE_BLOCKS)
+      return null;
+
+    int[] blocks = new int[totalFileBlocks];
+    for (int i = 0; i < blocks.length; i++)
+    {
+      blocks[i] = in.readInt ();
+      if (blocks[i] < 0 || blocks[i] >= totalBlocks)
+        return null;
+    }
+    return blocks;
+  }
+
+  private void writeBlocks (DataOutputStream out, int[] blocks) throws IOException
+  {
+    out.writeInt (blocks.length);
+    for (int block : blocks)
+      out.writeInt (block);
+  }
+
+  static int[] getBlocks (List<DiskAddress> addresses)
+  {
+    int[] blocks = new int[addresses.size ()];
+    for (int i = 0; i < blocks.length; i++)
+      blocks[i] = addresses.get (i).getBlock ();
+    return blocks;
+  }
+
+  // everything ProdosDisk works out while it reads the catalog
+  static class Catalog
+  {
+    final int totalBlocks;
+    final int interleave;                   // the format decision
+    final byte[] sectorTypes;               // an index into sectorTypesList per block
+    BitSet freeBlocks;
+    int falsePositives;
+    int falseNegatives;
+    int freeBlockCount;                     // as counted by the volume directory header
+    int usedBlockCount;
+    final List<Record> records = new ArrayList<Record> ();
+
+    Catalog (int totalBlocks, int interleave)
+    {
+      this.totalBlocks = totalBlocks;
+      this.interleave = interleave;
+      sectorTypes = new byte[totalBlocks];
+    }
+  }
+
+  // A directory header or file entry, in the order they were read. Each directory's
+  // entries follow its header, and parent is the subdirectory's own entry.
+  static class Record
+  {
+    final byte[] entry;
+    final int block;                        // the directory block holding the entry
+    final int parent;                       // record of the subdirectory, -1 if none
+    final int header;                       // record of the directory's header
+    int[] dataBlocks = new int[0];          // 0 is a sparse block
+    int[] indexBlocks = new int[0];
+    int masterIndexBlock = -1;
+
+    Record (byte[] entry, int block, int parent, int header)
+    {
+      this.entry = entry;
+      this.block = block;
+      this.parent = parent;
+      this.header = header;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.bytezone.diskbrowser.prodos;
 
+import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -8,7 +9,9 @@ import com.bytezone.diskbrowser.applefile.*;
 import com.bytezone.diskbrowser.appleworks.AppleworksADBFile;
 import com.bytezone.diskbrowser.appleworks.AppleworksSSFile;
 import com.bytezone.diskbrowser.appleworks.AppleworksWPFile;
+import com.bytezone.diskbrowser.disk.DataViewSource;
 import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.SectorView;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
@@ -16,8 +19,10 @@ import com.bytezone.diskbrowser.utilities.HexFormatter;
 // - Populate dataBlocks, indexBlocks, catalogBlock and masterIndexBlock
 // - Provide getDataSource ()
 
-class FileEntry extends CatalogEntry implements ProdosConstants
+class FileEntry extends CatalogEntry implements ProdosConstants, DataViewSource
 {
+  private static final int LARGE_FILE = 0x20000;     // only tree files are larger
+
   private final int fileType;
   final int keyPtr;
   private final int blocksUsed;
@@ -36,6 +41,13 @@ class FileEntry extends CatalogEntry implements ProdosConstants
 
   public FileEntry (ProdosDisk fDisk, byte[] entryBuffer, DirectoryHeader parent,
       int parentBlock)
+  {
+    this (fDisk, entryBuffer, parent, parentBlock, null);
+  }
+
+  // the file's blocks are taken from a cached catalog if there is one
+  FileEntry (ProdosDisk fDisk, byte[] entryBuffer, DirectoryHeader parent,
+      int parentBlock, CatalogCache.Record record)
   {
     super (fDisk, entryBuffer);
 
@@ -52,6 +64,12 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     modified = HexFormatter.getAppleDate (entryBuffer, 0x21);
     //    headerPointer = HexFormatter.unsignedShort (entryBuffer, 0x25);
 
+    if (record != null)
+    {
+      restoreBlocks (record);
+      return;
+    }
+
     switch (storageType)
     {
       case SEEDLING:
@@ -85,6 +103,24 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     }
   }
 
+  private void restoreBlocks (CatalogCache.Record record)
+  {
+    for (int block : record.dataBlocks)
+      dataBlocks.add (disk.getDiskAddress (block));
+    for (int block : record.indexBlocks)
+      indexBlocks.add (disk.getDiskAddress (block));
+    if (record.masterIndexBlock >= 0)
+      masterIndexBlock = disk.getDiskAddress (record.masterIndexBlock);
+  }
+
+  void saveBlocks (CatalogCache.Record record)
+  {
+    record.dataBlocks = CatalogCache.getBlocks (dataBlocks);
+    record.indexBlocks = CatalogCache.getBlocks (indexBlocks);
+    if (masterIndexBlock != null)
+      record.masterIndexBlock = masterIndexBlock.getBlock ();
+  }
+
   private void readForks ()
   {
     parentDisk.setSectorType (keyPtr, parentDisk.extendedKeySector);
@@ -216,8 +252,14 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     if (fileType == FILE_TYPE_TEXT && auxType > 0)      // random access file
       return getRandomAccessTextFile ();
 
-    byte[] buffer = getBuffer ();
-    byte[] exactBuffer = getExactBuffer (buffer);
+    if (endOfFile > LARGE_FILE && isStreamable ())
+    {
+      file = new StreamedFile (name, getChannel (), fileType == FILE_TYPE_TEXT);
+      return file;
+    }
+
+    SectorView view = getSectorView ();
+    byte[] exactBuffer = getExactBuffer (view);
 
     try
     {
@@ -264,9 +306,14 @@ class FileEntry extends CatalogEntry implements ProdosConstants
           else
           {
             file = new AssemblerProgram (name, exactBuffer, auxType);
-            if (exactBuffer.length < buffer.length)
-              ((AssemblerProgram) file).setExtraBuffer (buffer, exactBuffer.length,
-                  buffer.length - exactBuffer.length);
+            int extra = exactBuffer.length;
+            if (extra < view.length ())
+            {
+              byte[] extraBuffer =
+                  view.slice (extra, view.length () - extra).toByteArray ();
+              ((AssemblerProgram) file).setExtraBuffer (extraBuffer, 0,
+                  extraBuffer.length);
+            }
           }
           break;
 
@@ -290,7 +337,7 @@ class FileEntry extends CatalogEntry implements ProdosConstants
 
         case FILE_TYPE_DIRECTORY:
           VolumeDirectoryHeader vdh = parentDisk.vdh;
-          file = new ProdosDirectory (parentDisk, name, buffer, vdh.totalBlocks,
+          file = new ProdosDirectory (parentDisk, name, getBuffer (), vdh.totalBlocks,
               vdh.freeBlocks, vdh.usedBlocks);
           break;
 
@@ -298,14 +345,14 @@ class FileEntry extends CatalogEntry implements ProdosConstants
           if (endOfFile == 0)
           {
             System.out.println ("Stored Variables EOF = 0");
-            file = new StoredVariables (name, buffer);
+            file = new StoredVariables (name, getBuffer ());
           }
           else
             file = new StoredVariables (name, exactBuffer);
           break;
 
         case FILE_TYPE_APPLETALK:
-          file = new DefaultAppleFile (name + " (Appletalk file)", buffer);
+          file = new DefaultAppleFile (name + " (Appletalk file)", getBuffer ());
           break;
 
         case FILE_TYPE_GWP:
@@ -313,15 +360,18 @@ class FileEntry extends CatalogEntry implements ProdosConstants
           break;
 
         case FILE_TYPE_AWP:
-          file = new AppleworksWPFile (name + " (Appleworks Word Processor)", buffer);
+          file =
+              new AppleworksWPFile (name + " (Appleworks Word Processor)", getBuffer ());
           break;
 
         case FILE_TYPE_ADB:
-          file = new AppleworksADBFile (name + " (Appleworks Database File)", buffer);
+          file =
+              new AppleworksADBFile (name + " (Appleworks Database File)", getBuffer ());
           break;
 
         case FILE_TYPE_ASP:
-          file = new AppleworksSSFile (name + " (Appleworks Spreadsheet File)", buffer);
+          file = new AppleworksSSFile (name + " (Appleworks Spreadsheet File)",
+              getBuffer ());
           break;
 
         case FILE_TYPE_IIGS_SOURCE:       // I think this has a resource fork
@@ -329,7 +379,7 @@ class FileEntry extends CatalogEntry implements ProdosConstants
           break;
 
         case FILE_TYPE_IIGS_APPLICATION:
-          file = new AssemblerProgram (name, buffer, auxType);
+          file = new AssemblerProgram (name, getBuffer (), auxType);
           break;
 
         case FILE_TYPE_IIGS_DEVICE_DRIVER:
@@ -389,12 +439,26 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     }
     catch (Exception e)
     {
-      file = new ErrorMessageFile (name, buffer, e);
+      file = new ErrorMessageFile (name, getBuffer (), e);
       e.printStackTrace ();
     }
     return file;
   }
 
+  // plain text files are only ever displayed as text or a hex dump, so they can be
+  // read as needed; anything else might need the whole buffer to be disassembled
+  private boolean isStreamable ()
+  {
+    return storageType == TREE && fileType == FILE_TYPE_TEXT && !name.endsWith (".S")
+        && !name.endsWith (".GIF");
+  }
+
+  // reads the file's blocks as they are needed, rather than all at once
+  SeekableByteChannel getChannel ()
+  {
+    return new ProdosFileChannel (parentDisk, storageType, keyPtr, endOfFile);
+  }
+
   private boolean oneOf (int val, int... values)
   {
     for (int value : values)
@@ -403,100 +467,62 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     return false;
   }
 
-  private byte[] getExactBuffer (byte[] buffer)
+  // copies only the bytes that are needed, straight from the disk buffer
+  private byte[] getExactBuffer (SectorView view)
   {
-    byte[] exactBuffer;
-    if (buffer.length < endOfFile)
-    {
-      exactBuffer = new byte[endOfFile];
-      System.arraycopy (buffer, 0, exactBuffer, 0, buffer.length);
-    }
-    else if (buffer.length == endOfFile || endOfFile == 512)    // 512 seems like crap
-      exactBuffer = buffer;
-    else
+    if (view.length () < endOfFile)
     {
-      exactBuffer = new byte[endOfFile];
-      System.arraycopy (buffer, 0, exactBuffer, 0, endOfFile);
+      byte[] exactBuffer = new byte[endOfFile];
+      view.get (0, exactBuffer, 0, view.length ());
+      return exactBuffer;
     }
-    return exactBuffer;
-  }
 
-  private DataSource getRandomAccessTextFile ()
-  {
-    // Text files with aux (reclen) > 0 are random access, possibly with 
-    // non-contiguous records, so they need to be handled differently
+    if (view.length () == endOfFile || endOfFile == 512)    // 512 seems like crap
+      return view.toByteArray ();
 
-    switch (storageType)
-    {
-      case TREE:
-        return getTreeTextFile ();
-      case SAPLING:
-        return getSaplingTextFile ();
-      case SEEDLING:
-        return getSeedlingTextFile ();
-      default:
-        System.out.println ("Impossible: text file: " + storageType);
-        return null;
-    }
+    return view.slice (0, endOfFile).toByteArray ();
   }
 
-  private DataSource getTreeTextFile ()
+  private DataSource getRandomAccessTextFile ()
   {
-    List<TextBuffer> buffers = new ArrayList<TextBuffer> ();
-    List<DiskAddress> addresses = new ArrayList<DiskAddress> ();
-    int logicalBlock = 0;
+    // Text files with aux (reclen) > 0 are random access, possibly with
+    // non-contiguous records. The missing blocks are skipped rather than read.
+    SectorView view = getSectorView ();
+    if (view.length () > endOfFile)
+      view = view.slice (0, endOfFile);
 
-    byte[] mainIndexBuffer = disk.readSector (keyPtr);
-    for (int i = 0; i < 256; i++)
-    {
-      int indexBlock =
-          HexFormatter.intValue (mainIndexBuffer[i], mainIndexBuffer[i + 256]);
-      if (indexBlock > 0)
-        logicalBlock = readIndexBlock (indexBlock, addresses, buffers, logicalBlock);
-      else
-      {
-        if (addresses.size () > 0)
-        {
-          byte[] tempBuffer = disk.readSectors (addresses);
-          buffers.add (
-              new TextBuffer (tempBuffer, auxType, logicalBlock - addresses.size ()));
-          addresses.clear ();
-        }
-        logicalBlock += 256;
-      }
-    }
-    if (buffers.size () == 1 && name.endsWith (".S"))
-      return new MerlinSource (name, buffers.get (0).buffer, auxType, endOfFile);
+    if (name.endsWith (".S"))
+      file = new MerlinSource (name, view.toByteArray (), auxType, endOfFile);
+    else if (storageType == SEEDLING)                 // a single block is never paged
+      file = new TextFile (name, view.toByteArray (), auxType, endOfFile);
+    else
+      file = new TextFile (name, view, auxType, endOfFile);
 
-    return new TextFile (name, buffers, auxType, endOfFile);
+    return file;
   }
 
-  private DataSource getSaplingTextFile ()
+  @Override
+  public SectorView getDataView ()
   {
-    List<TextBuffer> buffers = new ArrayList<TextBuffer> ();
-    List<DiskAddress> addresses = new ArrayList<DiskAddress> ();
-    readIndexBlock (keyPtr, addresses, buffers, 0);
-
-    if (buffers.size () == 1 && name.endsWith (".S"))
-      return new MerlinSource (name, buffers.get (0).buffer, auxType, endOfFile);
-
-    return new TextFile (name, buffers, auxType, endOfFile);
+    SectorView view = getSectorView ();
+    return view.length () > endOfFile ? view.slice (0, endOfFile) : view;
   }
 
-  private DataSource getSeedlingTextFile ()
+  // the file's data blocks, without copying them from the disk buffer
+  private SectorView getSectorView ()
   {
-    byte[] buffer = getBuffer ();
-    if (endOfFile < buffer.length)
+    switch (storageType)
     {
-      byte[] exactBuffer = new byte[endOfFile];
-      System.arraycopy (buffer, 0, exactBuffer, 0, endOfFile);
-      buffer = exactBuffer;
-    }
-
-    if (name.endsWith (".S"))
-      return new MerlinSource (name, buffer, auxType, endOfFile);
+      case SEEDLING:
+      case SAPLING:
+      case TREE:
+      case GSOS_EXTENDED_FILE:
+      case PASCAL_ON_PROFILE:
+        return disk.getSectorView (dataBlocks);
 
-    return new TextFile (name, buffer, auxType, endOfFile);
+      default:
+        return SectorView.wrap (getBuffer ());
+    }
   }
 
   private byte[] getBuffer ()
@@ -531,27 +557,6 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     }
   }
 
-  private int readIndexBlock (int indexBlock, List<DiskAddress> addresses,
-      List<TextBuffer> buffers, int logicalBlock)
-  {
-    byte[] indexBuffer = disk.readSector (indexBlock);
-    for (int j = 0; j < 256; j++)
-    {
-      int block = HexFormatter.intValue (indexBuffer[j], indexBuffer[j + 256]);
-      if (block > 0)
-        addresses.add (disk.getDiskAddress (block));
-      else if (addresses.size () > 0)
-      {
-        byte[] tempBuffer = disk.readSectors (addresses);
-        buffers
-            .add (new TextBuffer (tempBuffer, auxType, logicalBlock - addresses.size ()));
-        addresses.clear ();
-      }
-      logicalBlock++;
-    }
-    return logicalBlock;
-  }
-
   @Override
   public List<DiskAddress> getSectors ()
   {
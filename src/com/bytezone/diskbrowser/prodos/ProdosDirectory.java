@@ -6,7 +6,7 @@ import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
-class ProdosDirectory extends AbstractFile implements ProdosConstants
+public class ProdosDirectory extends AbstractFile implements ProdosConstants
 {
   private static final String NO_DATE = "<NO DATE>";
   private static final String newLine = String.format ("%n");
@@ -32,11 +32,25 @@ public class ProdosDisk extends AbstractFormattedDisk
   private final List<DirectoryHeader> headerEntries = new ArrayList<DirectoryHeader> ();
   protected VolumeDirectoryHeader vdh;
 
+  private static final CatalogCache catalogCache = new CatalogCache ();
+  private final List<CatalogCache.Record> records = new ArrayList<CatalogCache.Record> ();
+
   private static final boolean debug = false;
 
   public ProdosDisk (Disk disk)
   {
-    super (disk);
+    this (disk, getCachedCatalog (disk));
+  }
+
+  private static CatalogCache.Catalog getCachedCatalog (Disk disk)
+  {
+    CatalogCache.Catalog catalog = catalogCache.read (disk);
+    return catalog != null && catalog.interleave == disk.getInterleave () ? catalog : null;
+  }
+
+  private ProdosDisk (Disk disk, CatalogCache.Catalog catalog)
+  {
+    super (disk, catalog == null);        // a cached catalog has the sector types
 
     sectorTypesList.add (dosSector);
     sectorTypesList.add (catalogSector);
@@ -47,10 +61,6 @@ public class ProdosDisk extends AbstractFormattedDisk
     sectorTypesList.add (dataSector);
     sectorTypesList.add (extendedKeySector);
 
-    for (int block = 0; block < 2; block++)
-      if (!disk.isSectorEmpty (disk.getDiskAddress (block)))
-        sectorTypes[block] = dosSector;
-
     DiskAddress da = disk.getDiskAddress (0);
     byte[] buffer = disk.readSector (da);
     bootSector = new BootSector (disk, buffer, "Prodos", da);
@@ -59,27 +69,53 @@ public class ProdosDisk extends AbstractFormattedDisk
     DefaultMutableTreeNode volumeNode = new DefaultMutableTreeNode ("empty volume node");
     root.add (volumeNode);
 
-    processDirectoryBlock (2, null, volumeNode);
-    makeNodeVisible (volumeNode.getFirstLeaf ());
+    if (catalog != null && !hasSectorTypes (catalog))
+    {
+      setSectorTypes ();                  // read the disk as if it had never been cached
+      catalog = null;
+    }
+
+    if (catalog == null)
+    {
+      for (int block = 0; block < 2; block++)
+        if (!disk.isSectorEmpty (disk.getDiskAddress (block)))
+          sectorTypes[block] = dosSector;
+
+      processDirectoryBlock (2, null, volumeNode, -1);
+      countFalseBlocks ();
+      if (catalogCache.isCacheable (disk))
+        catalogCache.write (disk, createCatalog ());
+    }
+    else
+      restoreCatalog (catalog, volumeNode);
+
+    linkDoubleHiResFiles ();
+    if (volumeNode.getChildCount () > 0)      // don't open any subdirectories
+      makeNodeVisible ((DefaultMutableTreeNode) volumeNode.getFirstChild ());
+  }
 
-    for (DiskAddress da2 : disk)
+  private void countFalseBlocks ()
+  {
+    for (DiskAddress da : disk)
     {
-      int blockNo = da2.getBlock ();
+      int blockNo = da.getBlock ();
       if (freeBlocks.get (blockNo))
       {
-        if (!stillAvailable (da2))
+        if (!stillAvailable (da))
           falsePositives++;
       }
-      else if (stillAvailable (da2))
+      else if (stillAvailable (da))
         falseNegatives++;
     }
   }
 
+  // parentRecord is the record of the subdirectory's entry, or -1 for the volume
   private void processDirectoryBlock (int block, FileEntry parent,
-      DefaultMutableTreeNode parentNode)
+      DefaultMutableTreeNode parentNode, int parentRecord)
   {
     DirectoryHeader localHeader = null;
     SectorType currentSectorType = null;
+    int headerRecord = -1;
 
     do
     {
@@ -105,6 +141,9 @@ public class ProdosDisk extends AbstractFormattedDisk
             localHeader = vdh;
             assert localHeader.entryLength == ProdosConstants.ENTRY_SIZE;
             headerEntries.add (localHeader);
+            headerRecord = records.size ();
+            addRecord (entry, block, parentRecord, -1).dataBlocks =
+                CatalogCache.getBlocks (vdh.dataBlocks);
             currentSectorType = catalogSector;
             if (!disk.isSectorEmpty (block))
               sectorTypes[block] = currentSectorType;
@@ -116,6 +155,8 @@ public class ProdosDisk extends AbstractFormattedDisk
           case ProdosConstants.SUBDIRECTORY_HEADER:
             localHeader = new SubDirectoryHeader (this, entry, parent);
             headerEntries.add (localHeader);
+            headerRecord = records.size ();
+            addRecord (entry, block, parentRecord, -1);
             currentSectorType = subcatalogSector;
             if (!disk.isSectorEmpty (block))
               sectorTypes[block] = currentSectorType;
@@ -124,10 +165,12 @@ public class ProdosDisk extends AbstractFormattedDisk
           case ProdosConstants.SUBDIRECTORY:
             FileEntry ce = new FileEntry (this, entry, localHeader, block);
             fileEntries.add (ce);
-            DefaultMutableTreeNode directoryNode = new DefaultMutableTreeNode (ce);
-            directoryNode.setAllowsChildren (true);
-            parentNode.add (directoryNode);
-            processDirectoryBlock (ce.keyPtr, ce, directoryNode);       // Recursion !!
+            ce.saveBlocks (addRecord (entry, block, parentRecord, headerRecord));
+            // the entries are read now, but their nodes aren't created until needed
+            LazyTreeNode directoryNode = new LazyTreeNode (ce);
+            LazyTreeNode.addNode (parentNode, directoryNode);
+            processDirectoryBlock (ce.keyPtr, ce, directoryNode,       // Recursion !!
+                records.size () - 1);
             break;
 
           case ProdosConstants.SEEDLING:
@@ -137,9 +180,8 @@ public class ProdosDisk extends AbstractFormattedDisk
           case ProdosConstants.GSOS_EXTENDED_FILE:
             FileEntry fe = new FileEntry (this, entry, localHeader, block);
             fileEntries.add (fe);
-            DefaultMutableTreeNode node = new DefaultMutableTreeNode (fe);
-            node.setAllowsChildren (false);
-            parentNode.add (node);
+            fe.saveBlocks (addRecord (entry, block, parentRecord, headerRecord));
+            LazyTreeNode.addLeaf (parentNode, fe);
             break;
 
           default:
@@ -149,26 +191,131 @@ public class ProdosDisk extends AbstractFormattedDisk
       }
       block = HexFormatter.intValue (sectorBuffer[2], sectorBuffer[3]);
     } while (block > 0);
+  }
+
+  private CatalogCache.Record addRecord (byte[] entry, int block, int parent, int header)
+  {
+    CatalogCache.Record record = new CatalogCache.Record (entry, block, parent, header);
+    records.add (record);
+    return record;
+  }
 
-    // link double hi-res files
+  private CatalogCache.Catalog createCatalog ()
+  {
+    CatalogCache.Catalog catalog =
+        new CatalogCache.Catalog (disk.getTotalBlocks (), disk.getInterleave ());
+
+    for (int block = 0; block < sectorTypes.length; block++)
+      catalog.sectorTypes[block] = (byte) sectorTypesList.indexOf (sectorTypes[block]);
+    catalog.freeBlocks = freeBlocks;
+    catalog.falsePositives = falsePositives;
+    catalog.falseNegatives = falseNegatives;
+    catalog.freeBlockCount = vdh.freeBlocks;
+    catalog.usedBlockCount = vdh.usedBlocks;
+    catalog.records.addAll (records);
+
+    return catalog;
+  }
+
+  // CatalogCache has checked everything else, but not the sector types, which are
+  // indexes into sectorTypesList. A block that was never given a type is -1.
+  private boolean hasSectorTypes (CatalogCache.Catalog catalog)
+  {
+    for (byte index : catalog.sectorTypes)
+      if (index < -1 || index >= sectorTypesList.size ())
+        return false;
+    return true;
+  }
+
+  // Rebuilds the entries and the catalog tree from the records, in the order that
+  // processDirectoryBlock () first read them. No directory or index blocks are read.
+  private void restoreCatalog (CatalogCache.Catalog catalog,
+      DefaultMutableTreeNode volumeNode)
+  {
+    for (int block = 0; block < sectorTypes.length; block++)
+    {
+      int index = catalog.sectorTypes[block];
+      sectorTypes[block] = index < 0 ? null : sectorTypesList.get (index);
+    }
+    freeBlocks.clear ();
+    freeBlocks.or (catalog.freeBlocks);
+    falsePositives = catalog.falsePositives;
+    falseNegatives = catalog.falseNegatives;
+
+    int totalRecords = catalog.records.size ();
+    CatalogEntry[] entries = new CatalogEntry[totalRecords];
+    DefaultMutableTreeNode[] nodes = new DefaultMutableTreeNode[totalRecords];
+
+    for (int i = 0; i < totalRecords; i++)
+    {
+      CatalogCache.Record record = catalog.records.get (i);
+      DefaultMutableTreeNode parentNode =
+          record.parent < 0 ? volumeNode : nodes[record.parent];
+      DirectoryHeader header =
+          record.header < 0 ? null : (DirectoryHeader) entries[record.header];
+
+      switch ((record.entry[0] & 0xF0) >> 4)
+      {
+        case ProdosConstants.VOLUME_HEADER:
+          vdh = new VolumeDirectoryHeader (this, record.entry, catalog, record);
+          headerEntries.add (vdh);
+          entries[i] = vdh;
+          volumeNode.setUserObject (vdh);
+          break;
+
+        case ProdosConstants.SUBDIRECTORY_HEADER:
+          entries[i] =
+              new SubDirectoryHeader (this, record.entry, (FileEntry) entries[record.parent]);
+          headerEntries.add ((DirectoryHeader) entries[i]);
+          break;
+
+        case ProdosConstants.SUBDIRECTORY:
+          FileEntry ce = new FileEntry (this, record.entry, header, record.block, record);
+          fileEntries.add (ce);
+          entries[i] = ce;
+          LazyTreeNode directoryNode = new LazyTreeNode (ce);
+          LazyTreeNode.addNode (parentNode, directoryNode);
+          nodes[i] = directoryNode;
+          break;
+
+        default:
+          FileEntry fe = new FileEntry (this, record.entry, header, record.block, record);
+          fileEntries.add (fe);
+          entries[i] = fe;
+          LazyTreeNode.addLeaf (parentNode, fe);
+      }
+    }
+  }
+
+  // link each FILE.AUX with FILE and/or FILE.BIN in the same directory
+  private void linkDoubleHiResFiles ()
+  {
     for (AppleFileSource fe : fileEntries)
     {
       String name = fe.getUniqueName ();
-      if (name.endsWith (".AUX"))
+      if (!name.endsWith (".AUX"))
+        continue;
+
+      String partner1 = name.substring (0, name.length () - 4);
+      String partner2 = partner1 + ".BIN";
+      for (String partnerName : new String[] { partner1, partner2 })
       {
-        String partner1 = name.substring (0, name.length () - 4);
-        String partner2 = name.substring (0, name.length () - 4) + ".BIN";
-        for (AppleFileSource fe2 : fileEntries)
-          if (fe2.getUniqueName ().equals (partner1)
-              || fe2.getUniqueName ().equals (partner2))
-          {
-            ((FileEntry) fe2).link ((FileEntry) fe);
-            ((FileEntry) fe).link ((FileEntry) fe2);
-          }
+        AppleFileSource partner = getFile (partnerName);
+        if (partner instanceof FileEntry)
+        {
+          ((FileEntry) partner).link ((FileEntry) fe);
+          ((FileEntry) fe).link ((FileEntry) partner);
+        }
       }
     }
   }
 
+  @Override
+  public List<RecoverableFile> findRecoverableFiles ()
+  {
+    return new ProdosRecoveryScanner (this, getUnclaimedBlocks (), freeBlocks).scan ();
+  }
+
   public boolean isReservedAddress (int blockNo)
   {
     return false;
@@ -176,6 +323,13 @@ public class ProdosDisk extends AbstractFormattedDisk
 
   public static boolean isCorrectFormat (AppleDisk disk)
   {
+    int interleave = catalogCache.getInterleave (disk);     // already decided
+    if (interleave >= 0)
+    {
+      disk.setInterleave (interleave);
+      return true;
+    }
+
     disk.setInterleave (1);
     if (checkFormat (disk))
       return true;
@@ -0,0 +1,193 @@
+package com.bytezone.diskbrowser.prodos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.SectorView;
+
+// Reads a seedling, sapling or tree file by following the master index -> index ->
+// data block chain as each block is needed, so nothing is read until it is asked
+// for. Holes in sparse files are read as zeroes without being stored anywhere.
+class ProdosFileChannel implements SeekableByteChannel, ProdosConstants
+{
+  private static final int BLOCK_SIZE = 512;
+
+  private final Disk disk;
+  private final ProdosDisk parentDisk;
+  private final int storageType;
+  private final int keyPtr;
+  private final long size;
+
+  private long position;
+  private boolean open = true;
+
+  private int indexBlockNo = -1;        // the most recently used index block
+  private SectorView indexBlock;
+
+  ProdosFileChannel (ProdosDisk parentDisk, int storageType, int keyPtr, int size)
+  {
+    this.parentDisk = parentDisk;
+    this.disk = parentDisk.getDisk ();
+    this.storageType = storageType;
+    this.keyPtr = keyPtr;
+    this.size = size;
+  }
+
+  @Override
+  public int read (ByteBuffer dst) throws IOException
+  {
+    checkOpen ();
+    if (position >= size)
+      return -1;
+
+    int total = 0;
+    while (dst.hasRemaining () && position < size)
+    {
+      int offset = (int) (position % BLOCK_SIZE);
+      int count = (int) Math.min (Math.min (dst.remaining (), BLOCK_SIZE - offset),
+          size - position);
+
+      int block = getDataBlock ((int) (position / BLOCK_SIZE));
+      if (block == 0)
+        fill (dst, count);
+      else
+        copy (getView (block), offset, dst, count);
+
+      position += count;
+      total += count;
+    }
+
+    return total;
+  }
+
+  // find the disk block that holds this block of the file, 0 if it is sparse
+  private int getDataBlock (int logicalBlock)
+  {
+    switch (storageType)
+    {
+      case SEEDLING:
+        return logicalBlock == 0 ? validate (keyPtr) : 0;
+
+      case SAPLING:
+        return logicalBlock < 256 ? getIndexEntry (keyPtr, logicalBlock) : 0;
+
+      case TREE:
+        int indexBlock = getIndexEntry (keyPtr, logicalBlock >> 8);
+        return indexBlock == 0 ? 0 : getIndexEntry (indexBlock, logicalBlock & 0xFF);
+
+      default:
+        return 0;
+    }
+  }
+
+  // index blocks hold the low bytes of 256 block numbers followed by the high bytes
+  private int getIndexEntry (int block, int entry)
+  {
+    if (block != indexBlockNo)
+    {
+      indexBlock = validate (block) == 0 ? null : getView (block);
+      indexBlockNo = block;
+    }
+
+    if (indexBlock == null || entry > 255)
+      return 0;
+
+    return validate ((indexBlock.get (entry) & 0xFF)
+        | ((indexBlock.get (entry + 256) & 0xFF) << 8));
+  }
+
+  // same test as FileEntry.isValid()
+  private int validate (int block)
+  {
+    return disk.isValidAddress (block) && !parentDisk.isSectorFree (block) ? block : 0;
+  }
+
+  private SectorView getView (int block)
+  {
+    return disk.getSectorView (Collections.singletonList (disk.getDiskAddress (block)));
+  }
+
+  private void copy (SectorView view, int offset, ByteBuffer dst, int count)
+  {
+    if (dst.hasArray ())
+      view.get (offset, dst.array (), dst.arrayOffset () + dst.position (), count);
+    else
+      for (int i = 0; i < count; i++)
+        dst.put (dst.position () + i, view.get (offset + i));
+
+    dst.position (dst.position () + count);
+  }
+
+  private void fill (ByteBuffer dst, int count)
+  {
+    if (dst.hasArray ())
+    {
+      int start = dst.arrayOffset () + dst.position ();
+      Arrays.fill (dst.array (), start, start + count, (byte) 0);
+      dst.position (dst.position () + count);
+    }
+    else
+      for (int i = 0; i < count; i++)
+        dst.put ((byte) 0);
+  }
+
+  @Override
+  public long position () throws IOException
+  {
+    checkOpen ();
+    return position;
+  }
+
+  @Override
+  public SeekableByteChannel position (long newPosition) throws IOException
+  {
+    checkOpen ();
+    if (newPosition < 0)
+      throw new IllegalArgumentException ("Negative position: " + newPosition);
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public long size () throws IOException
+  {
+    checkOpen ();
+    return size;
+  }
+
+  @Override
+  public int write (ByteBuffer src)
+  {
+    throw new NonWritableChannelException ();
+  }
+
+  @Override
+  public SeekableByteChannel truncate (long size)
+  {
+    throw new NonWritableChannelException ();
+  }
+
+  @Override
+  public boolean isOpen ()
+  {
+    return open;
+  }
+
+  @Override
+  public void close ()
+  {
+    open = false;
+  }
+
+  private void checkOpen () throws ClosedChannelException
+  {
+    if (!open)
+      throw new ClosedChannelException ();
+  }
+}
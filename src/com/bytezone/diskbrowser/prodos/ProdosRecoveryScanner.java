@@ -0,0 +1,316 @@
+package com.bytezone.diskbrowser.prodos;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.RecoverableFile;
+import com.bytezone.diskbrowser.disk.SectorType;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// Finds deleted files from three kinds of structure:
+//   - deleted entries in the directory blocks, which keep their names and key blocks
+//   - the directory blocks of deleted subdirectories, whose entries are all deleted
+//   - index blocks in the unused blocks that no deleted entry points to
+// Only catalog blocks and blocks that nothing in the catalog uses are read.
+class ProdosRecoveryScanner implements ProdosConstants
+{
+  private static final int BLOCK_SIZE = 512;
+
+  private final ProdosDisk parentDisk;
+  private final Disk disk;
+  private final BitSet unclaimed;
+  private final BitSet free;
+  private final int totalBlocks;
+
+  private final List<RecoverableFile> files = new ArrayList<RecoverableFile> ();
+  private final BitSet recovered = new BitSet ();       // already part of a file
+  private final BitSet directoryBlocks = new BitSet (); // already scanned
+  private final BitSet seen = new BitSet ();            // used by getPointers()
+
+  ProdosRecoveryScanner (ProdosDisk parentDisk, BitSet unclaimed, BitSet free)
+  {
+    this.parentDisk = parentDisk;
+    this.disk = parentDisk.getDisk ();
+    this.unclaimed = unclaimed;
+    this.free = free;
+    this.totalBlocks = disk.getTotalBlocks ();
+  }
+
+  List<RecoverableFile> scan ()
+  {
+    for (int block = 2; block < totalBlocks; block++)
+    {
+      SectorType type = parentDisk.getSectorType (block);
+      if (type == parentDisk.catalogSector || type == parentDisk.subcatalogSector)
+        scanDirectoryBlock (block, disk.readSector (block), "");
+    }
+
+    // unclaimed blocks are read once, and kept if they might be index blocks
+    BitSet candidates = new BitSet (totalBlocks);
+    for (int block = unclaimed.nextSetBit (0); block >= 0;
+        block = unclaimed.nextSetBit (block + 1))
+    {
+      byte[] buffer = disk.readSector (block);
+      if (isDirectoryKeyBlock (buffer))
+        scanDeletedDirectory (block, buffer);
+      else if (getIndexOrder (buffer) != null)
+        candidates.set (block);
+    }
+
+    // an orphaned index block that another one points to is part of a tree file
+    BitSet inTree = new BitSet (totalBlocks);
+    for (int block = candidates.nextSetBit (0); block >= 0;
+        block = candidates.nextSetBit (block + 1))
+    {
+      int[] pointers = getIndexOrder (disk.readSector (block));
+      if (allIndexBlocks (pointers, candidates))
+        for (int pointer : pointers)
+          inTree.set (pointer);
+    }
+
+    for (int block = candidates.nextSetBit (0); block >= 0;
+        block = candidates.nextSetBit (block + 1))
+      if (!recovered.get (block) && !inTree.get (block))
+        recoverOrphan (block);
+
+    Collections.sort (files);
+    return files;
+  }
+
+  private void scanDirectoryBlock (int block, byte[] buffer, String prefix)
+  {
+    if (directoryBlocks.get (block))
+      return;
+    directoryBlocks.set (block);
+
+    for (int ptr = 4; ptr + ENTRY_SIZE <= BLOCK_SIZE; ptr += ENTRY_SIZE)
+    {
+      String name = getDeletedName (buffer, ptr);
+      if (name == null)
+        continue;
+
+      int fileType = buffer[ptr + 16] & 0xFF;
+      int keyPtr = HexFormatter.unsignedShort (buffer, ptr + 17);
+      int blocksUsed = HexFormatter.unsignedShort (buffer, ptr + 19);
+      int eof = HexFormatter.intValue (buffer[ptr + 21], buffer[ptr + 22],
+          buffer[ptr + 23]);
+
+      if (keyPtr < 2 || keyPtr >= totalBlocks || blocksUsed == 0)
+        continue;
+      if (fileType == 0x0F)                 // subdirectories are found by their blocks
+        continue;
+
+      recoverEntry (prefix + name, keyPtr, blocksUsed, eof,
+          String.format ("deleted entry in block %04X", block));
+    }
+  }
+
+  // a deleted subdirectory's entries were all deleted before it was
+  private void scanDeletedDirectory (int block, byte[] buffer)
+  {
+    String name = HexFormatter.getString (buffer, 5, buffer[4] & 0x0F);
+    int previous = 0;
+    while (block > 0 && block < totalBlocks && unclaimed.get (block))
+    {
+      if (HexFormatter.unsignedShort (buffer, 0) != previous)
+        break;
+      scanDirectoryBlock (block, buffer, name + "/");
+      previous = block;
+      block = HexFormatter.unsignedShort (buffer, 2);
+      if (block > 0 && block < totalBlocks)
+        buffer = disk.readSector (block);
+    }
+  }
+
+  private void recoverEntry (String name, int keyPtr, int blocksUsed, int eof,
+      String source)
+  {
+    List<DiskAddress> blocks = new ArrayList<DiskAddress> ();
+    blocks.add (disk.getDiskAddress (keyPtr));
+
+    if (blocksUsed > 1)
+    {
+      byte[] buffer = disk.readSector (keyPtr);
+      int[] pointers = getIndexOrder (buffer);
+      if (pointers == null)                 // the index block has been overwritten
+      {
+        files.add (new RecoverableFile (name, source + ", index block reused", blocks,
+            0));
+        return;
+      }
+
+      if (eof > 256 * BLOCK_SIZE)           // tree, so these are index blocks
+      {
+        for (int indexBlock : pointers)
+          if (indexBlock > 0)
+            addIndexBlock (indexBlock, blocks);
+      }
+      else
+        addDataBlocks (pointers, blocks);
+    }
+
+    markRecovered (blocks);
+    int confidence = getConfidence (blocks);
+    if (blocks.size () != blocksUsed)
+      confidence = confidence * 3 / 4;
+    files.add (new RecoverableFile (name, source, blocks, confidence));
+  }
+
+  private void recoverOrphan (int block)
+  {
+    List<DiskAddress> blocks = new ArrayList<DiskAddress> ();
+    blocks.add (disk.getDiskAddress (block));
+
+    int[] pointers = getIndexOrder (disk.readSector (block));
+    String source;
+    if (isTree (pointers))
+    {
+      source = String.format ("master index block at %04X", block);
+      for (int indexBlock : pointers)
+        if (indexBlock > 0)
+          addIndexBlock (indexBlock, blocks);
+    }
+    else
+    {
+      source = String.format ("index block at %04X", block);
+      addDataBlocks (pointers, blocks);
+    }
+
+    // there's no entry to confirm that this was ever a file
+    markRecovered (blocks);
+    int confidence = getConfidence (blocks) * 2 / 3;
+    files.add (new RecoverableFile (String.format ("BLOCK.%04X", block), source,
+        blocks, confidence));
+  }
+
+  private boolean isTree (int[] pointers)
+  {
+    for (int pointer : pointers)
+      if (pointer > 0 && getIndexOrder (disk.readSector (pointer)) == null)
+        return false;
+    return true;
+  }
+
+  private boolean allIndexBlocks (int[] pointers, BitSet candidates)
+  {
+    for (int pointer : pointers)
+      if (pointer > 0 && !candidates.get (pointer))
+        return false;
+    return true;
+  }
+
+  private void addIndexBlock (int indexBlock, List<DiskAddress> blocks)
+  {
+    blocks.add (disk.getDiskAddress (indexBlock));
+
+    int[] pointers = getIndexOrder (disk.readSector (indexBlock));
+    if (pointers != null)
+      addDataBlocks (pointers, blocks);
+  }
+
+  private void addDataBlocks (int[] pointers, List<DiskAddress> blocks)
+  {
+    for (int pointer : pointers)
+      if (pointer > 0)
+        blocks.add (disk.getDiskAddress (pointer));
+  }
+
+  private void markRecovered (List<DiskAddress> blocks)
+  {
+    for (DiskAddress da : blocks)
+      recovered.set (da.getBlock ());
+  }
+
+  // deleted blocks should be free as well as unclaimed
+  private int getConfidence (List<DiskAddress> blocks)
+  {
+    double available = 0;
+    for (DiskAddress da : blocks)
+      if (unclaimed.get (da.getBlock ()))
+        available += free.get (da.getBlock ()) ? 1 : 0.5;
+    return (int) (available * 100 / blocks.size ());
+  }
+
+  // ProDOS may swap the two halves of an index block when the file is deleted, so
+  // both orders are tried. Returns the block pointers, or null if neither order
+  // looks like an index block.
+  private int[] getIndexOrder (byte[] buffer)
+  {
+    int[] pointers = getPointers (buffer, 0, 256);
+    if (pointers == null)
+      pointers = getPointers (buffer, 256, 0);
+    return pointers;
+  }
+
+  // Every pointer must be zero or a distinct block past the boot blocks, and as
+  // ProDOS allocates blocks in order most of them should be ascending. This rejects
+  // text and other data that happens to be made of small numbers.
+  private int[] getPointers (byte[] buffer, int lo, int hi)
+  {
+    int[] pointers = new int[256];
+    boolean valid = true;
+    int count = 0;
+    int ascending = 0;
+    int last = 0;
+
+    for (int i = 0; i < 256; i++)
+    {
+      int pointer = (buffer[lo + i] & 0xFF) | ((buffer[hi + i] & 0xFF) << 8);
+      if (pointer == 0)
+        continue;
+      if (pointer < 2 || pointer >= totalBlocks || seen.get (pointer))
+      {
+        valid = false;
+        break;
+      }
+
+      seen.set (pointer);
+      pointers[i] = pointer;
+      if (pointer > last)
+        ++ascending;
+      last = pointer;
+      ++count;
+    }
+
+    // clear only the bits that were set, ready for the next call
+    for (int pointer : pointers)
+      if (pointer != 0)
+        seen.clear (pointer);
+
+    return valid && count >= 2 && ascending * 4 >= count * 3 ? pointers : null;
+  }
+
+  // A deleted entry has its storage type and name length set to zero, but keeps the
+  // rest of the name. Returns null unless it looks like a ProDOS name.
+  private String getDeletedName (byte[] buffer, int ptr)
+  {
+    if (buffer[ptr] != 0)
+      return null;
+
+    StringBuilder text = new StringBuilder ();
+    for (int i = ptr + 1, max = ptr + 16; i < max && buffer[i] != 0; i++)
+    {
+      char c = (char) (buffer[i] & 0xFF);
+      boolean valid = text.length () == 0 ? (c >= 'A' && c <= 'Z')
+          : (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.';
+      if (!valid)
+        return null;
+      text.append (c);
+    }
+
+    return text.length () == 0 ? null : text.toString ();
+  }
+
+  // a subdirectory's first block starts with its header entry
+  private boolean isDirectoryKeyBlock (byte[] buffer)
+  {
+    return buffer.length == BLOCK_SIZE && HexFormatter.unsignedShort (buffer, 0) == 0
+        && (buffer[4] & 0xF0) == (SUBDIRECTORY_HEADER << 4) && (buffer[4] & 0x0F) > 0
+        && (buffer[4 + 0x1F] & 0xFF) == ENTRY_SIZE
+        && (buffer[4 + 0x20] & 0xFF) == ENTRIES_PER_BLOCK;
+  }
+}
@@ -20,6 +20,14 @@ class VolumeDirectoryHeader extends DirectoryHeader
   protected int totalBitMapBlocks;
 
   public VolumeDirectoryHeader (ProdosDisk parentDisk, byte[] entryBuffer)
+  {
+    this (parentDisk, entryBuffer, null, null);
+  }
+
+  // A cached catalog has the directory blocks and the block counts, and ProdosDisk
+  // restores the free block map itself.
+  VolumeDirectoryHeader (ProdosDisk parentDisk, byte[] entryBuffer,
+      CatalogCache.Catalog catalog, CatalogCache.Record record)
   {
     super (parentDisk, entryBuffer);
 
@@ -31,6 +39,15 @@ class VolumeDirectoryHeader extends DirectoryHeader
 
     totalBitMapBlocks = (totalBlocks - 1) / 512 + 1;
 
+    if (catalog != null)
+    {
+      for (int block : record.dataBlocks)
+        dataBlocks.add (disk.getDiskAddress (block));
+      freeBlocks = catalog.freeBlockCount;
+      usedBlocks = catalog.usedBlockCount;
+      return;
+    }
+
     int block = 2;
     do
     {
@@ -0,0 +1,272 @@
+package com.bytezone.diskbrowser.utilities;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+// Finds any number of byte patterns in a single pass, using an Aho-Corasick automaton
+// that has been turned into a full transition table. Patterns are written either as
+// hex bytes (A9 00 8D) which must match exactly, or as quoted text ("HELLO") which
+// matches Apple text whether or not the high bit of each character is set.
+public class ByteSearch
+{
+  private final List<String> patterns = new ArrayList<String> ();
+  private final Automaton exact;
+  private final Automaton text;           // matched against bytes with bit 7 cleared
+
+  // patterns are separated by commas
+  public static ByteSearch compile (String patternList)
+  {
+    List<String> patterns = new ArrayList<String> ();
+    StringBuilder pattern = new StringBuilder ();
+    boolean quoted = false;
+
+    for (char c : patternList.toCharArray ())
+    {
+      if (c == '"')
+        quoted = !quoted;
+      if (c == ',' && !quoted)
+      {
+        patterns.add (pattern.toString ());
+        pattern.setLength (0);
+      }
+      else
+        pattern.append (c);
+    }
+    patterns.add (pattern.toString ());
+
+    return new ByteSearch (patterns);
+  }
+
+  public ByteSearch (List<String> patternList)
+  {
+    List<byte[]> exactPatterns = new ArrayList<byte[]> ();
+    List<byte[]> textPatterns = new ArrayList<byte[]> ();
+    List<Integer> exactIds = new ArrayList<Integer> ();
+    List<Integer> textIds = new ArrayList<Integer> ();
+
+    for (String pattern : patternList)
+    {
+      pattern = pattern.trim ();
+      if (pattern.isEmpty ())
+        continue;
+
+      if (pattern.startsWith ("\""))
+      {
+        if (pattern.length () < 3 || !pattern.endsWith ("\""))
+          throw new IllegalArgumentException ("Unterminated text : " + pattern);
+        textPatterns.add (getText (pattern.substring (1, pattern.length () - 1)));
+        textIds.add (patterns.size ());
+      }
+      else
+      {
+        exactPatterns.add (getHex (pattern));
+        exactIds.add (patterns.size ());
+      }
+      patterns.add (pattern);
+    }
+
+    if (patterns.isEmpty ())
+      throw new IllegalArgumentException ("No search patterns");
+
+    exact = exactPatterns.isEmpty () ? null : new Automaton (exactPatterns, exactIds);
+    text = textPatterns.isEmpty () ? null : new Automaton (textPatterns, textIds);
+  }
+
+  private static byte[] getText (String value)
+  {
+    byte[] bytes = new byte[value.length ()];
+    for (int i = 0; i < bytes.length; i++)
+      bytes[i] = (byte) (value.charAt (i) & 0x7F);
+    return bytes;
+  }
+
+  private static byte[] getHex (String value)
+  {
+    String digits = value.replace ("$", "").replaceAll ("\\s", "");
+    if (digits.isEmpty () || (digits.length () % 2) != 0
+        || !digits.matches ("[0-9A-Fa-f]+"))
+      throw new IllegalArgumentException ("Invalid hex bytes : " + value);
+
+    byte[] bytes = new byte[digits.length () / 2];
+    for (int i = 0; i < bytes.length; i++)
+      bytes[i] = (byte) Integer.parseInt (digits.substring (i * 2, i * 2 + 2), 16);
+    return bytes;
+  }
+
+  public int size ()
+  {
+    return patterns.size ();
+  }
+
+  public String getPattern (int pattern)
+  {
+    return patterns.get (pattern);
+  }
+
+  public int getLength (int pattern)
+  {
+    if (exact != null && exact.lengths.containsKey (pattern))
+      return exact.lengths.get (pattern);
+    return text.lengths.get (pattern);
+  }
+
+  // Reports every match in the buffer, from its position to its limit. Matches
+  // can't span buffers, so each buffer should be something that is stored in one
+  // piece, such as a disk block.
+  public void scan (ByteBuffer buffer, long offset, HitListener listener)
+  {
+    scan (buffer, offset, listener, false);
+  }
+
+  // true as soon as any pattern is found
+  public boolean matches (ByteBuffer buffer)
+  {
+    return scan (buffer, 0, null, true);
+  }
+
+  private boolean scan (ByteBuffer buffer, long offset, HitListener listener,
+      boolean firstOnly)
+  {
+    int exactState = 0;
+    int textState = 0;
+    boolean found = false;
+
+    for (int i = buffer.position (), max = buffer.limit (); i < max; i++)
+    {
+      int value = buffer.get (i) & 0xFF;
+      long end = offset + i - buffer.position () + 1;
+
+      if (exact != null)
+      {
+        exactState = exact.next[exactState * 256 + value];
+        if (exact.output[exactState] != null)
+        {
+          if (firstOnly)
+            return true;
+          exact.report (exactState, end, listener);
+          found = true;
+        }
+      }
+
+      if (text != null)
+      {
+        textState = text.next[textState * 256 + (value & 0x7F)];
+        if (text.output[textState] != null)
+        {
+          if (firstOnly)
+            return true;
+          text.report (textState, end, listener);
+          found = true;
+        }
+      }
+    }
+
+    return found;
+  }
+
+  public interface HitListener
+  {
+    // start is the offset of the first byte of the match
+    void hit (int pattern, long start);
+  }
+
+  private static class Automaton
+  {
+    private final int[] next;               // state * 256 + byte -> state
+    private final int[][] output;           // patterns that end in each state
+    private final Map<Integer, Integer> lengths = new HashMap<Integer, Integer> ();
+
+    Automaton (List<byte[]> patterns, List<Integer> ids)
+    {
+      int maxStates = 1;
+      for (byte[] pattern : patterns)
+        maxStates += pattern.length;
+
+      int[] transitions = new int[maxStates * 256];
+      Arrays.fill (transitions, -1);
+      List<List<Integer>> outputs = new ArrayList<List<Integer>> ();
+      outputs.add (null);
+      int states = 1;
+
+      // the trie
+      for (int p = 0; p < patterns.size (); p++)
+      {
+        byte[] pattern = patterns.get (p);
+        int state = 0;
+        for (byte b : pattern)
+        {
+          int index = state * 256 + (b & 0xFF);
+          if (transitions[index] < 0)
+          {
+            transitions[index] = states++;
+            outputs.add (null);
+          }
+          state = transitions[index];
+        }
+        if (outputs.get (state) == null)
+          outputs.set (state, new ArrayList<Integer> ());
+        outputs.get (state).add (ids.get (p));
+        lengths.put (ids.get (p), pattern.length);
+      }
+
+      // failure links, breadth first, filling in every missing transition
+      int[] failure = new int[states];
+      Queue<Integer> queue = new LinkedList<Integer> ();
+      for (int c = 0; c < 256; c++)
+        if (transitions[c] < 0)
+          transitions[c] = 0;
+        else
+          queue.add (transitions[c]);
+
+      while (!queue.isEmpty ())
+      {
+        int state = queue.remove ();
+        List<Integer> inherited = outputs.get (failure[state]);
+        if (inherited != null)
+        {
+          if (outputs.get (state) == null)
+            outputs.set (state, new ArrayList<Integer> ());
+          outputs.get (state).addAll (inherited);
+        }
+
+        for (int c = 0; c < 256; c++)
+        {
+          int index = state * 256 + c;
+          int child = transitions[index];
+          int fallback = transitions[failure[state] * 256 + c];
+          if (child < 0)
+            transitions[index] = fallback;
+          else
+          {
+            failure[child] = fallback;
+            queue.add (child);
+          }
+        }
+      }
+
+      next = Arrays.copyOf (transitions, states * 256);
+      output = new int[states][];
+      for (int s = 0; s < states; s++)
+        if (outputs.get (s) != null)
+        {
+          List<Integer> list = outputs.get (s);
+          output[s] = new int[list.size ()];
+          for (int i = 0; i < output[s].length; i++)
+            output[s][i] = list.get (i);
+        }
+    }
+
+    // end is the offset of the byte after the match
+    void report (int state, long end, HitListener listener)
+    {
+      for (int pattern : output[state])
+        listener.hit (pattern, end - lengths.get (pattern));
+    }
+  }
+}
@@ -32,7 +32,7 @@ public class Wizardry4BootDisk extends PascalDisk
 
     version = dataDisks.length == 6 ? 4 : dataDisks.length == 10 ? 5 : 0;
 
-    DefaultTreeModel model = (DefaultTreeModel) catalogTree.getModel ();
+    DefaultTreeModel model = catalogTreeModel;
     DefaultMutableTreeNode currentRoot = (DefaultMutableTreeNode) model.getRoot ();
 
     // get the relocation table
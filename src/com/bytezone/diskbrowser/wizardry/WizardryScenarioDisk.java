@@ -13,6 +13,7 @@ import com.bytezone.diskbrowser.disk.DefaultAppleFileSource;
 import com.bytezone.diskbrowser.disk.DefaultDataSource;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.LazyTreeNode;
 import com.bytezone.diskbrowser.disk.SectorType;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.pascal.PascalDisk;
@@ -68,7 +69,7 @@ public class WizardryScenarioDisk extends PascalDisk
     Monster.counter = 0;
     Item.counter = 0;
 
-    DefaultTreeModel model = (DefaultTreeModel) catalogTree.getModel ();
+    DefaultTreeModel model = catalogTreeModel;
     DefaultMutableTreeNode currentRoot = (DefaultMutableTreeNode) model.getRoot ();
     DefaultMutableTreeNode dataNode = findNode (currentRoot, "SCENARIO.DATA");
     DefaultMutableTreeNode msgNode = findNode (currentRoot, "SCENARIO.MESGS");
@@ -116,11 +117,12 @@ public class WizardryScenarioDisk extends PascalDisk
     }
   }
 
+  // the items, monsters etc are only given nodes when the node is expanded
   private DefaultMutableTreeNode linkNode (String name, String text,
       DefaultMutableTreeNode parent)
   {
     DefaultAppleFileSource afs = new DefaultAppleFileSource (name, text, this);
-    DefaultMutableTreeNode node = new DefaultMutableTreeNode (afs);
+    DefaultMutableTreeNode node = new LazyTreeNode (afs);
     parent.add (node);
     return node;
   }
@@ -586,9 +588,7 @@ public class WizardryScenarioDisk extends PascalDisk
   {
     DefaultAppleFileSource dafs =
         new DefaultAppleFileSource (af.getName (), af, this, blocks);
-    DefaultMutableTreeNode childNode = new DefaultMutableTreeNode (dafs);
-    node.add (childNode);
-    childNode.setAllowsChildren (false);
+    LazyTreeNode.addLeaf (node, dafs);
   }
 
   private List<DiskAddress> getTwoBlocks (ScenarioData sd, int i,